@@ -2,6 +2,7 @@ package com.nju.backend.config;
 
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
@@ -10,6 +11,7 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
@@ -26,6 +28,54 @@ public class AsyncConfig {
         return executor;
     }
 
+    /**
+     * ZIP解压线程池：所有上传共享，线程数即并发写盘的上限；
+     * 队列满时由提交线程自行执行，避免解压任务被拒绝
+     */
+    @Bean(name = "archiveExtractionExecutor")
+    public Executor archiveExtractionExecutor(@Value("${file.extract.workers:4}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers * 16);
+        executor.setThreadNamePrefix("archive-extract-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 依赖解析器线程池：多生态项目的各解析器在此并发调用；
+     * 与 projectAnalysisExecutor 分开，避免外层解析任务占满线程后等待自己提交的子任务
+     */
+    @Bean(name = "dependencyParserExecutor")
+    public Executor dependencyParserExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("dependency-parser-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 清单文件解析线程池：同一模块内的多个清单/锁文件在此并行解析；
+     * 调用方可能运行在 dependencyParserExecutor 上，这里的任务不再等待其他任务，队列满时由提交线程自行执行
+     */
+    @Bean(name = "manifestParserExecutor")
+    public Executor manifestParserExecutor(@Value("${project.manifest.parse-workers:4}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers * 16);
+        executor.setThreadNamePrefix("manifest-parser-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
     @Bean
     public RestTemplate restTemplate() {
         // 创建HttpClient配置超时
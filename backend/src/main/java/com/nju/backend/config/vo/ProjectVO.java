@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.util.Map;
 
 @Data
 @AllArgsConstructor
@@ -62,4 +63,9 @@ public class ProjectVO implements Serializable {
      */
     private String lastScanTime;
 
+    /**
+     * 各语言按文件大小的占比（百分比）
+     */
+    private Map<String, Double> languagePercent;
+
 }
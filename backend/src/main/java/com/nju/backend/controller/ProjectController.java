@@ -4,7 +4,13 @@ import com.nju.backend.config.RespBean;
 import com.nju.backend.config.RespBeanEnum;
 import com.nju.backend.repository.mapper.ProjectMapper;
 import com.nju.backend.repository.po.Project;
+import com.nju.backend.repository.po.ScanJob;
+import com.nju.backend.service.project.ChunkedUploadService;
+import com.nju.backend.service.project.GitSourceService;
 import com.nju.backend.service.project.ProjectService;
+import com.nju.backend.service.project.ScanJobService;
+import com.nju.backend.service.project.util.LanguageDetector;
+import com.nju.backend.service.project.util.ScanProgressBroker;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.PathResource;
 import org.springframework.core.io.Resource;
@@ -13,10 +19,15 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -29,6 +40,18 @@ public class ProjectController {
     @Autowired
     private ProjectMapper projectMapper;
 
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private GitSourceService gitSourceService;
+
+    @Autowired
+    private ScanJobService scanJobService;
+
+    @Autowired
+    private ScanProgressBroker scanProgressBroker;
+
     //新建项目
     @PostMapping("/create")
     public RespBean createProject(
@@ -84,39 +107,209 @@ public class ProjectController {
 
             // 【关键改动】上传文件并自动检测项目语言
             System.out.println("步骤1: 开始上传并检测语言...");
-            Map<String, Object> uploadResult = projectService.uploadFileWithLanguageDetection(file);
-            String filePath = (String) uploadResult.get("filePath");
-            String detectedLanguage = (String) uploadResult.get("language");
+            Map<String, Object> uploadResult = projectService.uploadFileWithLanguageDetection(file, companyId);
+            return createUploadedProject(uploadResult, name, description, riskThresholdValue, companyId);
+        } catch (Exception e) {
+            System.err.println("=== uploadProject 接口异常 ===");
+            System.err.println("异常类型: " + e.getClass().getName());
+            System.err.println("异常信息: " + e.getMessage());
+            e.printStackTrace();
+            return RespBean.error(RespBeanEnum.ERROR, "文件上传失败: " + e.getMessage());
+        }
+    }
 
-            System.out.println("步骤2: 文件上传成功");
-            System.out.println("  - 文件路径: " + filePath);
-            System.out.println("  - 检测语言: " + detectedLanguage);
+    /**
+     * 分片上传：创建会话
+     * 大文件（如多GB的monorepo）不经过multipart，按 initiate → chunk → complete 上传，断线后可续传
+     */
+    @PostMapping("/upload/initiate")
+    public RespBean initiateChunkedUpload(@RequestParam("fileName") String fileName,
+                                          @RequestParam("totalSize") long totalSize) {
+        try {
+            return RespBean.success(chunkedUploadService.initiate(fileName, totalSize));
+        } catch (Exception e) {
+            return RespBean.error(RespBeanEnum.ERROR, e.getMessage());
+        }
+    }
 
-            // 【关键改动】使用检测到的语言创建项目，而不是前端参数
-            System.out.println("步骤3: 开始创建项目，使用检测到的语言: " + detectedLanguage);
-            projectService.createProject(name, description, detectedLanguage, riskThresholdValue, companyId, filePath);
-            System.out.println("步骤4: 项目创建成功");
+    /**
+     * 分片上传：写入一个分片，请求体为分片的原始字节
+     */
+    @PutMapping("/upload/{uploadId}/chunk")
+    public RespBean uploadChunk(@PathVariable("uploadId") String uploadId,
+                                @RequestParam("offset") long offset,
+                                @RequestParam("sha256") String sha256,
+                                HttpServletRequest request) {
+        try {
+            return RespBean.success(chunkedUploadService.writeChunk(uploadId, offset, sha256,
+                    request.getContentLengthLong(), request.getInputStream()));
+        } catch (Exception e) {
+            return RespBean.error(RespBeanEnum.ERROR, e.getMessage());
+        }
+    }
 
-            // 【新增】步骤5: 自动触发依赖解析
-            System.out.println("步骤5: 自动触发依赖解析...");
-            triggerAutoDependencyParsing(detectedLanguage, filePath);
+    /**
+     * 分片上传：查询进度（续传时根据 missingRanges 补传）
+     */
+    @GetMapping("/upload/{uploadId}")
+    public RespBean getChunkedUploadStatus(@PathVariable("uploadId") String uploadId) {
+        try {
+            return RespBean.success(chunkedUploadService.getStatus(uploadId));
+        } catch (Exception e) {
+            return RespBean.error(RespBeanEnum.ERROR, e.getMessage());
+        }
+    }
 
-            // 返回成功响应，包含检测结果
-            return RespBean.success(new java.util.HashMap<String, Object>() {{
-                put("status", "parsing");
-                put("message", "项目上传成功，检测到语言: " + detectedLanguage + "，正在后台解析依赖...");
-                put("detectedLanguage", detectedLanguage);
-                put("filePath", filePath);
-            }});
+    /**
+     * 分片上传：全部分片到齐后解压、检测语言并创建项目（参数与 /uploadProject 相同）
+     */
+    @PostMapping("/upload/{uploadId}/complete")
+    public RespBean completeChunkedUpload(
+            @PathVariable("uploadId") String uploadId,
+            @RequestParam("name") String name,
+            @RequestParam("description") String description,
+            @RequestParam(value = "riskThreshold", required = false) Integer riskThreshold,
+            @RequestParam("companyId") int companyId,
+            @RequestParam(value = "sha256", required = false) String sha256) {
+        try {
+            int riskThresholdValue = (riskThreshold != null && riskThreshold > 0) ? riskThreshold : 0;
+            Map<String, Object> uploadResult = chunkedUploadService.complete(uploadId, sha256, companyId);
+            return createUploadedProject(uploadResult, name, description, riskThresholdValue, companyId);
         } catch (Exception e) {
-            System.err.println("=== uploadProject 接口异常 ===");
-            System.err.println("异常类型: " + e.getClass().getName());
-            System.err.println("异常信息: " + e.getMessage());
+            System.err.println("=== completeChunkedUpload 接口异常: " + e.getMessage());
             e.printStackTrace();
             return RespBean.error(RespBeanEnum.ERROR, "文件上传失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 分片上传：取消并删除已上传的分片
+     */
+    @DeleteMapping("/upload/{uploadId}")
+    public RespBean abortChunkedUpload(@PathVariable("uploadId") String uploadId) {
+        chunkedUploadService.abort(uploadId);
+        return RespBean.success();
+    }
+
+    /**
+     * 从服务器上的本地Git仓库（或 bare 镜像）导入项目（其余参数与 /uploadProject 相同）
+     */
+    @PostMapping("/git/import")
+    public RespBean importGitProject(
+            @RequestParam("repoPath") String repoPath,
+            @RequestParam(value = "ref", required = false) String ref,
+            @RequestParam("name") String name,
+            @RequestParam("description") String description,
+            @RequestParam(value = "riskThreshold", required = false) Integer riskThreshold,
+            @RequestParam("companyId") int companyId) {
+        try {
+            int riskThresholdValue = (riskThreshold != null && riskThreshold > 0) ? riskThreshold : 0;
+            Map<String, Object> uploadResult = gitSourceService.importRepository(repoPath, ref, companyId);
+            RespBean result = createUploadedProject(uploadResult, name, description, riskThresholdValue, companyId);
+            gitSourceService.bindProject((String) uploadResult.get("filePath"), (String) uploadResult.get("repoPath"),
+                    (String) uploadResult.get("ref"), (String) uploadResult.get("commit"));
+            return result;
+        } catch (Exception e) {
+            System.err.println("=== importGitProject 接口异常: " + e.getMessage());
+            e.printStackTrace();
+            return RespBean.error(RespBeanEnum.ERROR, "Git仓库导入失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按Git提交差异增量重新扫描项目：写入扫描任务队列后返回任务ID，进度通过 /scanJob/{jobId} 查询
+     */
+    @PostMapping("/git/rescan")
+    public RespBean rescanGitProject(@RequestParam("id") int id) {
+        try {
+            return RespBean.success(gitSourceService.rescan(id));
+        } catch (Exception e) {
+            return RespBean.error(RespBeanEnum.ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * 用解压和语言检测的结果创建项目，并触发依赖解析
+     */
+    private RespBean createUploadedProject(Map<String, Object> uploadResult, String name, String description,
+                                           int riskThresholdValue, int companyId) {
+        String filePath = (String) uploadResult.get("filePath");
+        String detectedLanguage = (String) uploadResult.get("language");
+
+        System.out.println("步骤2: 文件上传成功");
+        System.out.println("  - 文件路径: " + filePath);
+        System.out.println("  - 检测语言: " + detectedLanguage);
+
+        // 【关键改动】使用检测到的语言创建项目，而不是前端参数
+        System.out.println("步骤3: 开始创建项目，使用检测到的语言: " + detectedLanguage);
+        projectService.createProject(name, description, detectedLanguage, riskThresholdValue, companyId, filePath);
+        System.out.println("步骤4: 项目创建成功");
+
+        // 步骤5: 项目创建成功后才开始解析：内容与历史上传相同时直接复用解析结果，否则按全部生态入队
+        projectService.startAnalysis(uploadResult);
+        if (Boolean.TRUE.equals(uploadResult.get("reused"))) {
+            System.out.println("步骤5: 复用历史上传的依赖解析结果，跳过解析");
+        } else {
+            System.out.println("步骤5: 依赖解析任务已入队，任务ID: " + uploadResult.get("jobId") + "，生态: " + uploadResult.get("ecosystems"));
+        }
+
+        // 返回成功响应，包含检测结果
+        return RespBean.success(new java.util.HashMap<String, Object>() {{
+            put("status", "parsing");
+            put("message", "项目上传成功，检测到语言: " + detectedLanguage + "，正在后台解析依赖...");
+            put("detectedLanguage", detectedLanguage);
+            put("detectedLanguages", uploadResult.get("languages"));
+            put("ecosystems", uploadResult.get("ecosystems"));
+            put("filePath", filePath);
+            put("jobId", uploadResult.get("jobId"));
+        }});
+    }
+
+    /**
+     * 订阅项目的扫描进度（SSE）：解压、语言检测、各解析器开始/结束、依赖写入、任务结束、漏洞检测结果；
+     * 先补发该项目最近的事件，上传返回后再订阅也不会错过已经完成的阶段
+     */
+    @GetMapping(value = "/progress/{projectId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeProjectProgress(@PathVariable("projectId") int projectId) {
+        return scanProgressBroker.subscribeProject(projectId);
+    }
+
+    /**
+     * 订阅公司下全部项目的扫描进度（SSE）
+     */
+    @GetMapping(value = "/progress/company/{companyId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeCompanyProgress(@PathVariable("companyId") int companyId) {
+        return scanProgressBroker.subscribeCompany(companyId);
+    }
+
+    /**
+     * 查询解析任务状态（queued、running、succeeded、failed）
+     */
+    @GetMapping("/scanJob/{jobId}")
+    public RespBean getScanJob(@PathVariable("jobId") int jobId) {
+        try {
+            return RespBean.success(scanJobService.getJob(jobId));
+        } catch (Exception e) {
+            return RespBean.error(RespBeanEnum.ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * 查询项目的全部解析任务，最新的在前
+     */
+    @GetMapping("/scanJobs")
+    public RespBean getProjectScanJobs(@RequestParam("projectId") int projectId) {
+        try {
+            Project project = projectMapper.selectById(projectId);
+            if (project == null || project.getIsDelete() == 1) {
+                return RespBean.error(RespBeanEnum.ERROR, "项目不存在或已被删除");
+            }
+            return RespBean.success(scanJobService.listJobs(project.getFile()));
+        } catch (Exception e) {
+            return RespBean.error(RespBeanEnum.ERROR, e.getMessage());
+        }
+    }
+
     //删除项目
     @PostMapping("/delete")
     public RespBean deleteProject(@RequestParam("id") int id) {
@@ -226,51 +419,19 @@ public class ProjectController {
             System.out.println("目标语言: " + languageLower);
             System.out.println("========================================");
 
-            // 根据语言类型调用相应的解析方法
-            switch (languageLower) {
-                case "java":
-                    projectService.asyncParseJavaProject(filePath);
-                    break;
-                case "c":
-                case "cpp":
-                case "c++":
-                    projectService.asyncParseCProject(filePath);
-                    break;
-                case "python":
-                    projectService.asyncParsePythonProject(filePath);
-                    break;
-                case "rust":
-                    projectService.asyncParseRustProject(filePath);
-                    break;
-                case "go":
-                case "golang":
-                    projectService.asyncParseGoProject(filePath);
-                    break;
-                case "javascript":
-                case "js":
-                case "node":
-                case "nodejs":
-                    projectService.asyncParseJavaScriptProject(filePath);
-                    break;
-                case "php":
-                    projectService.asyncParsePhpProject(filePath);
-                    break;
-                case "ruby":
-                    projectService.asyncParseRubyProject(filePath);
-                    break;
-                case "erlang":
-                    projectService.asyncParseErlangProject(filePath);
-                    break;
-                default:
-                    return RespBean.error(RespBeanEnum.ERROR,
-                        "不支持的语言类型: " + language +
-                        "\n支持的语言: java, python, go, rust, javascript, php, ruby, erlang, c");
+            String canonical = LanguageDetector.canonicalLanguage(languageLower);
+            if (canonical == null) {
+                return RespBean.error(RespBeanEnum.ERROR,
+                    "不支持的语言类型: " + language +
+                    "\n支持的语言: java, python, go, rust, javascript, php, ruby, erlang, c");
             }
+            ScanJob job = scanJobService.enqueue(filePath, Collections.singletonList(canonical));
 
             return RespBean.success(new HashMap<String, Object>() {{
                 put("status", "parsing");
                 put("message", "已触发" + languageLower + "项目依赖解析，正在后台处理...");
                 put("language", languageLower);
+                put("jobId", job.getId());
                 put("projectId", projectId);
                 put("projectName", project.getName());
             }});
@@ -293,119 +454,40 @@ public class ProjectController {
             @RequestParam("projectId") int projectId,
             @RequestParam("languages") String languages) {
         try {
-            String[] languageArray = languages.split(",");
-            int successCount = 0;
-            int failCount = 0;
-            StringBuilder errorMessages = new StringBuilder();
-
-            for (String language : languageArray) {
-                try {
-                    RespBean result = reparseProject(projectId, language.trim());
-                    if (result.getCode() == 200) {
-                        successCount++;
-                    } else {
-                        failCount++;
-                        errorMessages.append(language).append(": ").append(result.getMessage()).append("; ");
-                    }
-                } catch (Exception e) {
-                    failCount++;
-                    errorMessages.append(language).append(": ").append(e.getMessage()).append("; ");
-                }
+            Project project = projectMapper.selectById(projectId);
+            if (project == null || project.getIsDelete() == 1) {
+                return RespBean.error(RespBeanEnum.ERROR, "项目不存在或已被删除");
             }
 
-            // 使用final变量以便在匿名内部类中使用
-            final int finalSuccessCount = successCount;
-            final int finalFailCount = failCount;
-            final String finalErrorMessages = errorMessages.toString();
-
-            if (failCount == 0) {
-                Map<String, Object> resultData = new HashMap<>();
-                resultData.put("status", "success");
-                resultData.put("message", "成功触发" + finalSuccessCount + "个语言的解析任务");
-                resultData.put("successCount", finalSuccessCount);
-                return RespBean.success(resultData);
-            } else {
+            List<String> ecosystems = new ArrayList<>();
+            List<String> unsupported = new ArrayList<>();
+            for (String language : languages.split(",")) {
+                String canonical = LanguageDetector.canonicalLanguage(language);
+                if (canonical == null) {
+                    unsupported.add(language.trim());
+                } else if (!ecosystems.contains(canonical)) {
+                    ecosystems.add(canonical);
+                }
+            }
+            if (!unsupported.isEmpty()) {
                 return RespBean.error(RespBeanEnum.ERROR,
-                    "部分解析任务失败: 成功" + finalSuccessCount + "个, 失败" + finalFailCount + "个\n" +
-                    "错误详情: " + finalErrorMessages);
+                    "不支持的语言类型: " + String.join(", ", unsupported) +
+                    "\n支持的语言: java, python, go, rust, javascript, php, ruby, erlang, c");
             }
 
-        } catch (Exception e) {
-            return RespBean.error(RespBeanEnum.ERROR, "批量解析失败: " + e.getMessage());
-        }
-    }
-
-    /**
-     * 自动触发依赖解析（上传项目后调用）
-     *
-     * @param language 检测到的项目语言
-     * @param filePath 项目文件路径
-     */
-    private void triggerAutoDependencyParsing(String language, String filePath) {
-        System.out.println("========================================");
-        System.out.println("自动触发依赖解析");
-        System.out.println("语言: " + language);
-        System.out.println("路径: " + filePath);
-        System.out.println("========================================");
-
-        try {
-            String languageLower = language.toLowerCase();
-
-            switch (languageLower) {
-                case "java":
-                    System.out.println("→ 触发 Java 依赖解析");
-                    projectService.asyncParseJavaProject(filePath);
-                    break;
-                case "python":
-                    System.out.println("→ 触发 Python 依赖解析");
-                    projectService.asyncParsePythonProject(filePath);
-                    break;
-                case "php":
-                    System.out.println("→ 触发 PHP 依赖解析");
-                    projectService.asyncParsePhpProject(filePath);
-                    break;
-                case "ruby":
-                    System.out.println("→ 触发 Ruby 依赖解析");
-                    projectService.asyncParseRubyProject(filePath);
-                    break;
-                case "go":
-                case "golang":
-                    System.out.println("→ 触发 Go 依赖解析");
-                    projectService.asyncParseGoProject(filePath);
-                    break;
-                case "rust":
-                    System.out.println("→ 触发 Rust 依赖解析");
-                    projectService.asyncParseRustProject(filePath);
-                    break;
-                case "javascript":
-                case "js":
-                case "node":
-                case "nodejs":
-                    System.out.println("→ 触发 JavaScript 依赖解析");
-                    projectService.asyncParseJavaScriptProject(filePath);
-                    break;
-                case "erlang":
-                    System.out.println("→ 触发 Erlang 依赖解析");
-                    projectService.asyncParseErlangProject(filePath);
-                    break;
-                case "c":
-                case "cpp":
-                case "c++":
-                    System.out.println("→ 触发 C/C++ 依赖解析");
-                    projectService.asyncParseCProject(filePath);
-                    break;
-                default:
-                    System.out.println("⚠ 不支持的语言: " + language + "，跳过依赖解析");
-            }
+            // 各语言的解析器并发运行，结果合并后批量写入
+            ScanJob job = scanJobService.enqueue(project.getFile(), ecosystems);
 
-            System.out.println("✓ 依赖解析任务已提交到后台线程池");
+            Map<String, Object> resultData = new HashMap<>();
+            resultData.put("status", "success");
+            resultData.put("jobId", job.getId());
+            resultData.put("message", "成功触发" + ecosystems.size() + "个语言的解析任务");
+            resultData.put("successCount", ecosystems.size());
+            resultData.put("languages", ecosystems);
+            return RespBean.success(resultData);
 
         } catch (Exception e) {
-            System.err.println("✗ 自动触发依赖解析失败: " + e.getMessage());
-            e.printStackTrace();
-            // 不抛出异常，避免影响项目创建
+            return RespBean.error(RespBeanEnum.ERROR, "批量解析失败: " + e.getMessage());
         }
     }
-
-
 }
@@ -34,7 +34,7 @@ public class PythonScanController {
      *
      * 流程:
      * 1. 检测项目语言是否为Python
-     * 2. 调用Flask Python解析器获取依赖列表
+     * 2. 本地解析 requirements / pyproject.toml / Pipfile.lock / poetry.lock 获取依赖列表
      * 3. 将依赖保存到white-list表
      *
      * 返回格式:
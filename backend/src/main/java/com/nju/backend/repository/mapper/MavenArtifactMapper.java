@@ -0,0 +1,9 @@
+package com.nju.backend.repository.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.nju.backend.repository.po.MavenArtifact;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface MavenArtifactMapper extends BaseMapper<MavenArtifact> {
+}
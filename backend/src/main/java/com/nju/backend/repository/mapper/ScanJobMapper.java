@@ -0,0 +1,89 @@
+package com.nju.backend.repository.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.nju.backend.repository.po.ScanJob;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * 解析任务队列；时间一律取数据库的 NOW()，多个实例之间的时钟偏差不影响租约判断
+ */
+@Mapper
+public interface ScanJobMapper extends BaseMapper<ScanJob> {
+
+    /**
+     * 新建排队任务；同一目录、同一类型、同一组生态已有未完成的任务时 active_key 冲突，不插入新行，
+     * 由 LAST_INSERT_ID(id) 把已有任务的ID写回 job.id（两个实例同时入队也只会有一个任务）
+     */
+    @Insert({"INSERT INTO scan_job (file_path, job_type, languages, status, attempts, max_attempts, next_run_time, active_key, create_time, update_time)",
+            "VALUES (#{filePath}, #{jobType}, #{languages}, 'queued', 0, #{maxAttempts}, NOW(),",
+            "SHA2(CONCAT(#{jobType}, ':', #{languages}, ':', #{filePath}), 256), NOW(), NOW())",
+            "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id)"})
+    @Options(useGeneratedKeys = true, keyProperty = "id", keyColumn = "id")
+    int insertQueued(ScanJob job);
+
+    /**
+     * 锁定到期可运行的排队任务，已被其他实例锁定的行直接跳过（须在事务中调用）
+     */
+    @Select({"SELECT id FROM scan_job",
+            "WHERE status = 'queued' AND next_run_time <= NOW()",
+            "ORDER BY next_run_time, id LIMIT #{limit}",
+            "FOR UPDATE SKIP LOCKED"})
+    List<Integer> lockRunnable(@Param("limit") int limit);
+
+    /**
+     * 锁定租约已过期的运行中任务（持有者宕机或重启），同样跳过已被锁定的行
+     */
+    @Select({"SELECT id FROM scan_job",
+            "WHERE status = 'running' AND lease_expire_time < NOW()",
+            "ORDER BY lease_expire_time, id LIMIT #{limit}",
+            "FOR UPDATE SKIP LOCKED"})
+    List<Integer> lockExpired(@Param("limit") int limit);
+
+    @Update({"<script>",
+            "UPDATE scan_job SET status = 'running', attempts = attempts + 1, lease_owner = #{owner},",
+            "lease_expire_time = DATE_ADD(NOW(), INTERVAL #{leaseSeconds} SECOND), heartbeat_time = NOW(), update_time = NOW()",
+            "WHERE id IN <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"})
+    int markRunning(@Param("ids") List<Integer> ids, @Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * 续租；返回0说明租约已不属于该实例（过期后被重新认领）
+     */
+    @Update({"UPDATE scan_job SET lease_expire_time = DATE_ADD(NOW(), INTERVAL #{leaseSeconds} SECOND), heartbeat_time = NOW()",
+            "WHERE id = #{id} AND status = 'running' AND lease_owner = #{owner}"})
+    int renewLease(@Param("id") int id, @Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds);
+
+    @Update({"UPDATE scan_job SET status = 'succeeded', dependency_count = #{dependencyCount}, last_error = NULL,",
+            "lease_owner = NULL, lease_expire_time = NULL, active_key = NULL, finish_time = NOW(), update_time = NOW()",
+            "WHERE id = #{id} AND status = 'running' AND lease_owner = #{owner}"})
+    int markSucceeded(@Param("id") int id, @Param("owner") String owner, @Param("dependencyCount") int dependencyCount);
+
+    /**
+     * 失败后重新排队，delaySeconds 后才可被认领
+     */
+    @Update({"UPDATE scan_job SET status = 'queued', last_error = #{error}, lease_owner = NULL, lease_expire_time = NULL,",
+            "next_run_time = DATE_ADD(NOW(), INTERVAL #{delaySeconds} SECOND), update_time = NOW()",
+            "WHERE id = #{id} AND status = 'running' AND lease_owner = #{owner}"})
+    int markRetry(@Param("id") int id, @Param("owner") String owner, @Param("error") String error,
+                  @Param("delaySeconds") long delaySeconds);
+
+    @Update({"UPDATE scan_job SET status = 'failed', last_error = #{error}, lease_owner = NULL, lease_expire_time = NULL,",
+            "active_key = NULL, finish_time = NOW(), update_time = NOW()",
+            "WHERE id = #{id} AND status = 'running' AND lease_owner = #{owner}"})
+    int markFailed(@Param("id") int id, @Param("owner") String owner, @Param("error") String error);
+
+    /**
+     * 已认领但没能提交执行（如线程池已满）：归还给队列，不计入认领次数
+     */
+    @Update({"UPDATE scan_job SET status = 'queued', attempts = attempts - 1, lease_owner = NULL, lease_expire_time = NULL,",
+            "next_run_time = NOW(), update_time = NOW()",
+            "WHERE id = #{id} AND status = 'running' AND lease_owner = #{owner}"})
+    int release(@Param("id") int id, @Param("owner") String owner);
+}
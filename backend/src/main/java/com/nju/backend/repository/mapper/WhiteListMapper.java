@@ -2,8 +2,33 @@ package com.nju.backend.repository.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.nju.backend.repository.po.WhiteList;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
 
 @Mapper
 public interface WhiteListMapper extends BaseMapper<WhiteList> {
+
+    /**
+     * 多行 INSERT 一次写入（调用方控制每批的行数）
+     */
+    @Insert({"<script>",
+            "INSERT INTO white_list (file_path, module_path, language, description, name, isdelete) VALUES",
+            "<foreach collection='list' item='item' separator=','>",
+            "(#{item.filePath}, #{item.modulePath}, #{item.language}, #{item.description}, #{item.name}, #{item.isdelete})",
+            "</foreach>",
+            "</script>"})
+    int insertBatch(@Param("list") List<WhiteList> list);
+
+    /**
+     * 按ID一次软删除多行（调用方控制每批的ID数）
+     */
+    @Update({"<script>",
+            "UPDATE white_list SET isdelete = 1 WHERE isdelete = 0 AND id IN",
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"})
+    int softDeleteByIds(@Param("ids") List<Long> ids);
 }
@@ -67,6 +67,24 @@ public class Company implements Serializable {
     @TableField("max_detect_num")
     private Integer maxDetectNums;
 
+    /**
+     * 单次上传解压的条目数上限，为空时使用全局默认值
+     */
+    @TableField("max_upload_entries")
+    private Long maxUploadEntries;
+
+    /**
+     * 单次上传解压后的总大小上限（字节），为空时使用全局默认值
+     */
+    @TableField("max_upload_bytes")
+    private Long maxUploadBytes;
+
+    /**
+     * 解压压缩比上限，为空时使用全局默认值
+     */
+    @TableField("max_compression_ratio")
+    private Double maxCompressionRatio;
+
     /**
      * 软删除标志，0：未删除，1：已删除
      */
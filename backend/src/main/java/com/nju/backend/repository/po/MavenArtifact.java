@@ -0,0 +1,40 @@
+package com.nju.backend.repository.po;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+@TableName("maven_artifact")
+public class MavenArtifact implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * groupId:artifactId:version
+     */
+    @TableId(value = "coordinates", type = IdType.INPUT)
+    private String coordinates;
+
+    /**
+     * 有效POM中的直接依赖（JSON数组），即依赖图中从该构件出发的边
+     */
+    @TableField("dependencies")
+    private String dependencies;
+
+    /**
+     * 从本地仓库解析的时间
+     */
+    @TableField("resolved_time")
+    private Date resolvedTime;
+}
@@ -69,6 +69,12 @@ public class Project implements Serializable {
     @TableField("risk_threshold")
     private Integer riskThreshold;
 
+    /**
+     * 各语言按文件大小的占比（JSON，语言显示名 -> 百分比），语言检测时写入
+     */
+    @TableField("language_percent")
+    private String languagePercent;
+
     /**
      * 软删除标志，0：未删除，1：已删除
      */
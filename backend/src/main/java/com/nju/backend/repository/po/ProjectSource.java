@@ -0,0 +1,72 @@
+package com.nju.backend.repository.po;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+@TableName("project_source")
+public class ProjectSource implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String TYPE_GIT = "git";
+
+    /**
+     * 记录ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Integer id;
+
+    /**
+     * 项目ID
+     */
+    @TableField("project_id")
+    private Integer projectId;
+
+    /**
+     * 来源类型，目前只有 git
+     */
+    @TableField("source_type")
+    private String sourceType;
+
+    /**
+     * 本地仓库路径（普通仓库或 bare 镜像）
+     */
+    @TableField("repo_path")
+    private String repoPath;
+
+    /**
+     * 跟踪的分支、标签或提交
+     */
+    @TableField("ref")
+    private String ref;
+
+    /**
+     * 最近一次扫描的提交号
+     */
+    @TableField("last_commit")
+    private String lastCommit;
+
+    /**
+     * 最近一次扫描时间
+     */
+    @TableField("last_scan_time")
+    private Date lastScanTime;
+
+    /**
+     * 创建时间
+     */
+    @TableField("create_time")
+    private Date createTime;
+}
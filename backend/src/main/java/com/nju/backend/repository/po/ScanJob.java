@@ -0,0 +1,132 @@
+package com.nju.backend.repository.po;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+@TableName("scan_job")
+public class ScanJob implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_SUCCEEDED = "succeeded";
+    public static final String STATUS_FAILED = "failed";
+
+    /**
+     * 解析指定生态的依赖
+     */
+    public static final String TYPE_PARSE = "parse";
+    /**
+     * 按Git提交差异增量更新项目目录和依赖（见 GitSourceService.runRescan）
+     */
+    public static final String TYPE_GIT_RESCAN = "git_rescan";
+
+    /**
+     * 任务ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Integer id;
+
+    /**
+     * 项目解压目录（与 project.file、white_list.file_path 一致）
+     */
+    @TableField("file_path")
+    private String filePath;
+
+    /**
+     * 任务类型：parse 或 git_rescan
+     */
+    @TableField("job_type")
+    private String jobType;
+
+    /**
+     * 要解析的生态（规范化的语言名），逗号分隔；git_rescan 任务为空串
+     */
+    @TableField("languages")
+    private String languages;
+
+    /**
+     * 任务状态：queued、running、succeeded、failed
+     */
+    @TableField("status")
+    private String status;
+
+    /**
+     * 已被认领的次数（包括租约过期后被其他实例重新认领）
+     */
+    @TableField("attempts")
+    private Integer attempts;
+
+    /**
+     * 最多认领次数，用完后任务标记为 failed
+     */
+    @TableField("max_attempts")
+    private Integer maxAttempts;
+
+    /**
+     * 最早可被认领的时间，失败重试时按退避时间推后
+     */
+    @TableField("next_run_time")
+    private Date nextRunTime;
+
+    /**
+     * 持有租约的实例标识
+     */
+    @TableField("lease_owner")
+    private String leaseOwner;
+
+    /**
+     * 租约到期时间，运行中由心跳续期；过期后任务可被其他实例重新认领
+     */
+    @TableField("lease_expire_time")
+    private Date leaseExpireTime;
+
+    /**
+     * 最近一次心跳时间
+     */
+    @TableField("heartbeat_time")
+    private Date heartbeatTime;
+
+    /**
+     * 解析出的依赖数，成功后填写
+     */
+    @TableField("dependency_count")
+    private Integer dependencyCount;
+
+    /**
+     * 最近一次失败的原因
+     */
+    @TableField("last_error")
+    private String lastError;
+
+    /**
+     * 排队或运行中时为 SHA2(job_type:languages:file_path)，结束后置空；唯一索引保证同一目录、同一类型、同一组生态只有一个未完成的任务
+     */
+    @TableField("active_key")
+    private String activeKey;
+
+    @TableField("create_time")
+    private Date createTime;
+
+    @TableField("update_time")
+    private Date updateTime;
+
+    /**
+     * 成功或最终失败的时间
+     */
+    @TableField("finish_time")
+    private Date finishTime;
+}
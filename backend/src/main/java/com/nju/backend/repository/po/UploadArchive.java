@@ -0,0 +1,64 @@
+package com.nju.backend.repository.po;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+@TableName("upload_archive")
+public class UploadArchive implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 上传记录ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Integer id;
+
+    /**
+     * 上传压缩包内容的SHA-256摘要
+     */
+    @TableField("digest")
+    private String digest;
+
+    /**
+     * 解压目录（与 project.file、white_list.file_path 一致）
+     */
+    @TableField("file_path")
+    private String filePath;
+
+    /**
+     * 复用的解压目录，内容相同的压缩包重复上传时指向首次解压的目录，否则为空
+     */
+    @TableField("reused_from")
+    private String reusedFrom;
+
+    /**
+     * 检测到的项目语言
+     */
+    @TableField("language")
+    private String language;
+
+    /**
+     * 压缩包大小（字节）
+     */
+    @TableField("size")
+    private Long size;
+
+    /**
+     * 上传时间
+     */
+    @TableField("create_time")
+    private Date createTime;
+}
@@ -32,6 +32,9 @@ public class WhiteList {
 
     private String language;
 
+    @TableField("module_path")
+    private String modulePath = "";  // 所属模块目录（相对项目根目录），根目录为空串
+
     @TableField(exist = false)
     private String packageManager;  // 内存字段
 
@@ -116,6 +119,14 @@ public class WhiteList {
         this.language = language;
     }
 
+    public String getModulePath() {
+        return modulePath;
+    }
+
+    public void setModulePath(String modulePath) {
+        this.modulePath = modulePath;
+    }
+
     public String getPackageManager() {
         return packageManager;
     }
@@ -167,6 +178,7 @@ public class WhiteList {
                 ", filePath='" + filePath + '\'' +
                 ", description='" + description + '\'' +
                 ", language='" + language + '\'' +
+                ", modulePath='" + modulePath + '\'' +
                 ", packageManager='" + packageManager + '\'' +
                 ", status='" + status + '\'' +
                 ", remark='" + remark + '\'' +
@@ -0,0 +1,32 @@
+package com.nju.backend.service.analysis;
+
+/**
+ * 请求没有发出：接口熔断中，或该接口的并发隔离已满且等待超时
+ *
+ * 与超时、5xx 一样是暂时性失败，调用方可以稍后重试
+ */
+public class AnalysisCallRejectedException extends AnalysisServiceException {
+
+    public static final String REASON_CIRCUIT_OPEN = "circuit-open";
+    public static final String REASON_BULKHEAD_FULL = "bulkhead-full";
+
+    private final String reason;
+    private final long retryAfterMillis;
+
+    public AnalysisCallRejectedException(AnalysisEndpoint endpoint, String reason, long retryAfterMillis, String message) {
+        super(endpoint, message, null);
+        this.reason = reason;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * 建议的重试等待时间（熔断剩余时间），未知时为0
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,173 @@
+package com.nju.backend.service.analysis;
+
+/**
+ * 一个分析接口的熔断器，按最近 windowSize 次调用统计
+ *
+ * CLOSED：正常放行；失败率或慢调用率达到阈值（且调用数不少于 minimumCalls）时转为 OPEN
+ * OPEN：直接拒绝，openMillis 后转为 HALF_OPEN
+ * HALF_OPEN：只放行 halfOpenCalls 个试探调用，全部成功则恢复 CLOSED，任一失败或慢调用则重新 OPEN
+ */
+public class AnalysisCircuitBreaker {
+
+    public enum State {
+        CLOSED(0), OPEN(1), HALF_OPEN(2);
+
+        private final int code;
+
+        State(int code) {
+            this.code = code;
+        }
+
+        /**
+         * 指标中使用的数值
+         */
+        public int getCode() {
+            return code;
+        }
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openMillis;
+    private final int halfOpenCalls;
+
+    /**
+     * 环形窗口：每次调用的结果，0 成功、1 失败、2 慢调用（成功但超过阈值）
+     */
+    private final byte[] outcomes;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+
+    public AnalysisCircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                                  double slowCallRateThreshold, long slowCallMillis, long openMillis, int halfOpenCalls) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallMillis * 1_000_000L;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.outcomes = new byte[this.windowSize];
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * 熔断打开时距离允许试探调用还有多久，其他状态返回0
+     */
+    public synchronized long getRemainingOpenMillis(long now) {
+        return state == State.OPEN ? Math.max(0, openedAt + openMillis - now) : 0;
+    }
+
+    /**
+     * 申请一次调用
+     *
+     * @return false 表示熔断中，调用方应直接失败
+     */
+    public synchronized boolean tryAcquire(long now) {
+        if (state == State.OPEN) {
+            if (now < openedAt + openMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermitted = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermitted >= halfOpenCalls) {
+                return false;
+            }
+            halfOpenPermitted++;
+        }
+        return true;
+    }
+
+    /**
+     * 已放行的调用被取消，不计入统计
+     */
+    public synchronized void onCancelled() {
+        if (state == State.HALF_OPEN && halfOpenPermitted > 0) {
+            halfOpenPermitted--;
+        }
+    }
+
+    /**
+     * 记录一次已放行调用的结果
+     *
+     * @return 本次调用导致熔断打开时返回true
+     */
+    public synchronized boolean onResult(long elapsedNanos, boolean failed, long now) {
+        boolean slow = !failed && elapsedNanos >= slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                open(now);
+                return true;
+            }
+            if (++halfOpenSucceeded >= halfOpenCalls) {
+                reset();
+            }
+            return false;
+        }
+        if (state == State.OPEN) {
+            // 打开前放行的调用陆续返回，不再影响状态
+            return false;
+        }
+        record(failed ? 1 : slow ? 2 : 0);
+        if (recorded < minimumCalls) {
+            return false;
+        }
+        if (failures * 100.0 / recorded >= failureRateThreshold || slowCalls * 100.0 / recorded >= slowCallRateThreshold) {
+            open(now);
+            return true;
+        }
+        return false;
+    }
+
+    private void record(int outcome) {
+        if (recorded == windowSize) {
+            forget(outcomes[next]);
+        } else {
+            recorded++;
+        }
+        outcomes[next] = (byte) outcome;
+        if (outcome == 1) {
+            failures++;
+        } else if (outcome == 2) {
+            slowCalls++;
+        }
+        next = (next + 1) % windowSize;
+    }
+
+    private void forget(int outcome) {
+        if (outcome == 1) {
+            failures--;
+        } else if (outcome == 2) {
+            slowCalls--;
+        }
+    }
+
+    private void open(long now) {
+        state = State.OPEN;
+        openedAt = now;
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
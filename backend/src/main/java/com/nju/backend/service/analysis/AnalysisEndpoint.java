@@ -0,0 +1,33 @@
+package com.nju.backend.service.analysis;
+
+/**
+ * Flask 分析服务的接口类别，超时按类别分别配置
+ */
+public enum AnalysisEndpoint {
+
+    /**
+     * /parse/*：依赖解析，耗时与项目大小有关
+     */
+    PARSE("parse"),
+    /**
+     * /vulnerabilities/detect：单个漏洞与一家公司某种语言组件的匹配
+     */
+    DETECT("detect"),
+    /**
+     * /vulnerabilities/{github,avd,nvd}：拉取漏洞数据源
+     */
+    FEED("feed");
+
+    private final String tag;
+
+    AnalysisEndpoint(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * 用于日志和指标标签的名称
+     */
+    public String getTag() {
+        return tag;
+    }
+}
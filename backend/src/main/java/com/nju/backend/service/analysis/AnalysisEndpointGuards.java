@@ -0,0 +1,124 @@
+package com.nju.backend.service.analysis;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个分析接口（解析、检测、数据源）独立的熔断器和并发隔离（信号量）
+ *
+ * 解析请求再多也只占用解析接口的许可，不会挤占漏洞检测；Flask 变慢或报错时熔断打开，
+ * 调用方立即得到 {@link AnalysisCallRejectedException}，不必每次都等满读超时。
+ *
+ * 指标（/actuator/metrics）：
+ * analysis.service.circuit.state       每个接口的熔断状态（0 关闭、1 打开、2 半开）
+ * analysis.service.circuit.opened      每个接口熔断打开的次数
+ * analysis.service.bulkhead.available  每个接口剩余的并发许可
+ * analysis.service.rejected            被拒绝的调用数（reason 区分 circuit-open / bulkhead-full）
+ */
+@Component
+public class AnalysisEndpointGuards {
+
+    private final Map<AnalysisEndpoint, AnalysisCircuitBreaker> breakers = new EnumMap<>(AnalysisEndpoint.class);
+    private final Map<AnalysisEndpoint, Semaphore> bulkheads = new EnumMap<>(AnalysisEndpoint.class);
+    private final long bulkheadMaxWaitMillis;
+    private final MeterRegistry registry;
+
+    public AnalysisEndpointGuards(
+            @Value("${analysis.service.circuit.window-size:20}") int windowSize,
+            @Value("${analysis.service.circuit.minimum-calls:10}") int minimumCalls,
+            @Value("${analysis.service.circuit.failure-rate-threshold:50}") double failureRateThreshold,
+            @Value("${analysis.service.circuit.slow-call-rate-threshold:80}") double slowCallRateThreshold,
+            @Value("${analysis.service.circuit.open-ms:30000}") long openMillis,
+            @Value("${analysis.service.circuit.half-open-calls:3}") int halfOpenCalls,
+            @Value("${analysis.service.circuit.slow-call.parse-ms:300000}") long parseSlowMillis,
+            @Value("${analysis.service.circuit.slow-call.detect-ms:10000}") long detectSlowMillis,
+            @Value("${analysis.service.circuit.slow-call.feed-ms:60000}") long feedSlowMillis,
+            @Value("${analysis.service.bulkhead.parse:16}") int parsePermits,
+            @Value("${analysis.service.bulkhead.detect:16}") int detectPermits,
+            @Value("${analysis.service.bulkhead.feed:2}") int feedPermits,
+            @Value("${analysis.service.bulkhead.max-wait-ms:30000}") long bulkheadMaxWaitMillis,
+            MeterRegistry registry) {
+        this.bulkheadMaxWaitMillis = bulkheadMaxWaitMillis;
+        this.registry = registry;
+        breakers.put(AnalysisEndpoint.PARSE, new AnalysisCircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+                slowCallRateThreshold, parseSlowMillis, openMillis, halfOpenCalls));
+        breakers.put(AnalysisEndpoint.DETECT, new AnalysisCircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+                slowCallRateThreshold, detectSlowMillis, openMillis, halfOpenCalls));
+        breakers.put(AnalysisEndpoint.FEED, new AnalysisCircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+                slowCallRateThreshold, feedSlowMillis, openMillis, halfOpenCalls));
+        bulkheads.put(AnalysisEndpoint.PARSE, new Semaphore(Math.max(1, parsePermits)));
+        bulkheads.put(AnalysisEndpoint.DETECT, new Semaphore(Math.max(1, detectPermits)));
+        bulkheads.put(AnalysisEndpoint.FEED, new Semaphore(Math.max(1, feedPermits)));
+
+        for (AnalysisEndpoint endpoint : AnalysisEndpoint.values()) {
+            AnalysisCircuitBreaker breaker = breakers.get(endpoint);
+            Gauge.builder("analysis.service.circuit.state", breaker, b -> b.getState().getCode())
+                    .tag("endpoint", endpoint.getTag()).register(registry);
+            Gauge.builder("analysis.service.bulkhead.available", bulkheads.get(endpoint), Semaphore::availablePermits)
+                    .tag("endpoint", endpoint.getTag()).register(registry);
+        }
+    }
+
+    public AnalysisCircuitBreaker.State getState(AnalysisEndpoint endpoint) {
+        return breakers.get(endpoint).getState();
+    }
+
+    /**
+     * 申请调用许可：熔断中立即拒绝；并发已满时在调用线程上最多等待 bulkhead.max-wait-ms
+     *
+     * @throws AnalysisCallRejectedException 没有拿到许可，请求不应发出
+     */
+    void acquire(AnalysisEndpoint endpoint) throws AnalysisCallRejectedException {
+        AnalysisCircuitBreaker breaker = breakers.get(endpoint);
+        long now = System.currentTimeMillis();
+        if (!breaker.tryAcquire(now)) {
+            throw reject(endpoint, AnalysisCallRejectedException.REASON_CIRCUIT_OPEN, breaker.getRemainingOpenMillis(now),
+                    endpoint.getTag() + "接口熔断中，请求未发出");
+        }
+        boolean permitted;
+        try {
+            permitted = bulkheads.get(endpoint).tryAcquire(bulkheadMaxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permitted = false;
+        }
+        if (!permitted) {
+            breaker.onCancelled();
+            throw reject(endpoint, AnalysisCallRejectedException.REASON_BULKHEAD_FULL, 0,
+                    endpoint.getTag() + "接口并发已满，等待 " + bulkheadMaxWaitMillis + "ms 后仍无可用许可");
+        }
+    }
+
+    /**
+     * 归还许可并记录调用结果；4xx 说明服务正常，不计为失败
+     */
+    void release(AnalysisEndpoint endpoint, long elapsedNanos, Throwable error, boolean cancelled) {
+        bulkheads.get(endpoint).release();
+        AnalysisCircuitBreaker breaker = breakers.get(endpoint);
+        if (cancelled) {
+            breaker.onCancelled();
+            return;
+        }
+        boolean failed = error != null
+                && !(error instanceof AnalysisServiceException && ((AnalysisServiceException) error).isClientError());
+        if (breaker.onResult(elapsedNanos, failed, System.currentTimeMillis())) {
+            Counter.builder("analysis.service.circuit.opened").tag("endpoint", endpoint.getTag()).register(registry).increment();
+            System.out.println("DEBUG: 分析服务" + endpoint.getTag() + "接口熔断打开"
+                    + (error != null ? "，最近错误: " + error.getMessage() : "，慢调用比例超过阈值"));
+        }
+    }
+
+    private AnalysisCallRejectedException reject(AnalysisEndpoint endpoint, String reason, long retryAfterMillis, String message) {
+        Counter.builder("analysis.service.rejected").tag("endpoint", endpoint.getTag()).tag("reason", reason)
+                .register(registry).increment();
+        return new AnalysisCallRejectedException(endpoint, reason, retryAfterMillis, message);
+    }
+}
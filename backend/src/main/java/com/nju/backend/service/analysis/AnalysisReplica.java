@@ -0,0 +1,74 @@
+package com.nju.backend.service.analysis;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个 Flask 分析服务实例：在途请求数和被动健康检查状态
+ *
+ * 连续失败（连接失败、超时、5xx）达到阈值后在一段时间内不再分配请求，
+ * 反复被剔除时剔除时间加倍；到期后重新参与分配，一次成功即恢复正常
+ */
+public class AnalysisReplica {
+
+    private final String baseUrl;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private int consecutiveFailures;
+    private int ejections;
+    private long ejectedUntil;
+
+    public AnalysisReplica(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    public synchronized boolean isEjected(long now) {
+        return now < ejectedUntil;
+    }
+
+    synchronized long getEjectedUntil() {
+        return ejectedUntil;
+    }
+
+    synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        ejections = 0;
+    }
+
+    /**
+     * 记录一次失败
+     *
+     * @return 本次失败导致被剔除时返回true
+     */
+    synchronized boolean recordFailure(long now, int failureThreshold, long baseEjectMillis, long maxEjectMillis) {
+        consecutiveFailures++;
+        if (consecutiveFailures < failureThreshold || now < ejectedUntil) {
+            return false;
+        }
+        long duration = Math.min(maxEjectMillis, baseEjectMillis << Math.min(ejections, 16));
+        ejections++;
+        consecutiveFailures = 0;
+        ejectedUntil = now + duration;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return baseUrl;
+    }
+}
@@ -0,0 +1,130 @@
+package com.nju.backend.service.analysis;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flask 分析服务的实例列表与客户端负载均衡
+ *
+ * 每次请求选在途请求最少的可用实例（相同时随机选一个），连续失败的实例被暂时剔除；
+ * 全部实例都被剔除时仍选最早恢复的一个，不因健康检查把服务整体判死。
+ *
+ * 指标（/actuator/metrics）：
+ * analysis.service.requests     每个实例、接口的请求耗时（outcome 区分 success / error / cancelled）
+ * analysis.service.outstanding  每个实例的在途请求数
+ * analysis.service.ejected      每个实例当前是否被剔除（1 / 0）
+ * analysis.service.ejections    每个实例被剔除的次数
+ */
+@Component
+public class AnalysisReplicaPool {
+
+    private final List<AnalysisReplica> replicas;
+    private final MeterRegistry registry;
+    private final int failureThreshold;
+    private final long ejectMillis;
+    private final long maxEjectMillis;
+
+    public AnalysisReplicaPool(
+            @Value("${analysis.service.replicas:http://localhost:5000}") String replicaUrls,
+            @Value("${analysis.service.eject.consecutive-failures:3}") int failureThreshold,
+            @Value("${analysis.service.eject.base-ms:30000}") long ejectMillis,
+            @Value("${analysis.service.eject.max-ms:300000}") long maxEjectMillis,
+            MeterRegistry registry) {
+        List<AnalysisReplica> configured = new ArrayList<>();
+        for (String url : replicaUrls.split(",")) {
+            if (!url.trim().isEmpty()) {
+                configured.add(new AnalysisReplica(url.trim()));
+            }
+        }
+        if (configured.isEmpty()) {
+            throw new IllegalStateException("analysis.service.replicas 未配置任何分析服务地址");
+        }
+        this.replicas = Collections.unmodifiableList(configured);
+        this.registry = registry;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.ejectMillis = ejectMillis;
+        this.maxEjectMillis = Math.max(ejectMillis, maxEjectMillis);
+
+        for (AnalysisReplica replica : replicas) {
+            Gauge.builder("analysis.service.outstanding", replica, AnalysisReplica::getOutstanding)
+                    .tag("replica", replica.getBaseUrl()).register(registry);
+            Gauge.builder("analysis.service.ejected", replica, r -> r.isEjected(System.currentTimeMillis()) ? 1 : 0)
+                    .tag("replica", replica.getBaseUrl()).register(registry);
+        }
+        System.out.println("DEBUG: 分析服务实例: " + replicas);
+    }
+
+    public List<AnalysisReplica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * 选择在途请求最少的可用实例
+     *
+     * @param exclude 不参与选择的实例（对冲请求不发往同一实例），可为null
+     * @return 选中的实例；除 exclude 外没有可用实例时返回null（exclude 为null 时总有返回值）
+     */
+    public AnalysisReplica choose(AnalysisReplica exclude) {
+        long now = System.currentTimeMillis();
+        AnalysisReplica best = null;
+        int ties = 0;
+        for (AnalysisReplica replica : replicas) {
+            if (replica == exclude || replica.isEjected(now)) {
+                continue;
+            }
+            if (best == null || replica.getOutstanding() < best.getOutstanding()) {
+                best = replica;
+                ties = 1;
+            } else if (replica.getOutstanding() == best.getOutstanding()
+                    && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                best = replica;
+            }
+        }
+        if (best != null || exclude != null) {
+            return best;
+        }
+        // 全部被剔除：选最早恢复的实例
+        for (AnalysisReplica replica : replicas) {
+            if (best == null || replica.getEjectedUntil() < best.getEjectedUntil()) {
+                best = replica;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 记录一次请求的结果，更新健康状态和指标
+     *
+     * @param error 成功时为null；4xx 说明实例本身正常，不计为失败
+     */
+    void record(AnalysisReplica replica, AnalysisEndpoint endpoint, long elapsedNanos, Throwable error, boolean cancelled) {
+        String outcome = cancelled ? "cancelled" : error == null ? "success" : "error";
+        Timer.builder("analysis.service.requests")
+                .tag("replica", replica.getBaseUrl())
+                .tag("endpoint", endpoint.getTag())
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (cancelled) {
+            return;
+        }
+        boolean healthy = error == null
+                || error instanceof AnalysisServiceException && ((AnalysisServiceException) error).isClientError();
+        if (healthy) {
+            replica.recordSuccess();
+        } else if (replica.recordFailure(System.currentTimeMillis(), failureThreshold, ejectMillis, maxEjectMillis)) {
+            Counter.builder("analysis.service.ejections").tag("replica", replica.getBaseUrl()).register(registry).increment();
+            System.out.println("DEBUG: 分析服务实例连续失败，暂时剔除: " + replica + ", 原因: " + error.getMessage());
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.nju.backend.service.analysis;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Flask 分析服务（依赖解析、漏洞检测、漏洞数据源）的统一客户端
+ *
+ * 基于 HttpAsyncClient：所有调用共享一个 keep-alive 连接池，请求在 I/O 线程上收发，
+ * 调用方拿到 CompletableFuture 后不必占着业务线程等待响应。
+ * 每个请求由 {@link AnalysisReplicaPool} 选择实例；解析请求是幂等的 GET，
+ * 配置了 analysis.service.hedge-delay-ms 时，超过该时间未返回就向另一个实例再发一次，先返回的结果生效。
+ * 每次调用先经过所属接口的熔断器和并发隔离（{@link AnalysisEndpointGuards}），被拒绝时返回以
+ * {@link AnalysisCallRejectedException} 结束的 future。
+ * 注意回调在 I/O 线程上执行，写库等耗时处理应使用 thenApplyAsync 等变体切换到业务线程池；
+ * 同步调用方用 {@link #await(CompletableFuture)} 取结果
+ */
+@Component
+public class AnalysisServiceClient {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final AnalysisReplicaPool replicaPool;
+    private final AnalysisEndpointGuards guards;
+    private final CloseableHttpAsyncClient httpClient;
+    private final Map<AnalysisEndpoint, RequestConfig> requestConfigs = new EnumMap<>(AnalysisEndpoint.class);
+    private final long hedgeDelayMillis;
+    private final ScheduledExecutorService hedgeTimer;
+    private final MeterRegistry registry;
+
+    public AnalysisServiceClient(
+            AnalysisReplicaPool replicaPool,
+            AnalysisEndpointGuards guards,
+            MeterRegistry registry,
+            @Value("${analysis.service.max-connections-per-replica:32}") int maxConnectionsPerReplica,
+            @Value("${analysis.service.io-threads:2}") int ioThreads,
+            @Value("${analysis.service.connect-timeout-ms:5000}") int connectTimeout,
+            @Value("${analysis.service.timeout.parse-ms:600000}") int parseTimeout,
+            @Value("${analysis.service.timeout.detect-ms:30000}") int detectTimeout,
+            @Value("${analysis.service.timeout.feed-ms:120000}") int feedTimeout,
+            @Value("${analysis.service.hedge-delay-ms:0}") long hedgeDelayMillis) throws IOReactorException {
+        this.replicaPool = replicaPool;
+        this.guards = guards;
+        this.registry = registry;
+        this.hedgeDelayMillis = hedgeDelayMillis;
+
+        IOReactorConfig reactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(ioThreads)
+                .setConnectTimeout(connectTimeout)
+                .setSoKeepAlive(true)
+                .build();
+        PoolingNHttpClientConnectionManager connectionManager =
+                new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(reactorConfig));
+        // 每个实例是一个路由
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerReplica);
+        connectionManager.setMaxTotal(maxConnectionsPerReplica * replicaPool.getReplicas().size());
+
+        RequestConfig defaults = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                // 连接池耗尽时排队等待空闲连接的时间
+                .setConnectionRequestTimeout(connectTimeout)
+                .build();
+        requestConfigs.put(AnalysisEndpoint.PARSE, RequestConfig.copy(defaults).setSocketTimeout(parseTimeout).build());
+        requestConfigs.put(AnalysisEndpoint.DETECT, RequestConfig.copy(defaults).setSocketTimeout(detectTimeout).build());
+        requestConfigs.put(AnalysisEndpoint.FEED, RequestConfig.copy(defaults).setSocketTimeout(feedTimeout).build());
+
+        this.httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .setDefaultRequestConfig(defaults)
+                .build();
+        this.httpClient.start();
+
+        this.hedgeTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analysis-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        hedgeTimer.shutdownNow();
+        httpClient.close();
+    }
+
+    /**
+     * 调用依赖解析接口 GET /parse/{parser}?project_folder=...
+     *
+     * @param parser 解析器名，如 c_parse、unified_parse
+     * @return 响应体（依赖列表 JSON）
+     */
+    public CompletableFuture<String> parse(String parser, String projectFolder) {
+        return guarded(AnalysisEndpoint.PARSE, () -> executeHedged(AnalysisEndpoint.PARSE,
+                baseUrl -> new HttpGet(UriComponentsBuilder.fromHttpUrl(baseUrl + "/parse/" + parser)
+                        .queryParam("project_folder", projectFolder)
+                        .encode()
+                        .build()
+                        .toUriString())));
+    }
+
+    /**
+     * 调用漏洞检测接口 POST /vulnerabilities/detect
+     *
+     * @param params cve_id、desc、white_list、company、detect_strategy、similarityThreshold、language
+     * @return 响应体（; 分隔的匹配组件名）
+     */
+    public CompletableFuture<String> detect(Map<String, String> params) {
+        String body;
+        try {
+            body = OBJECT_MAPPER.writeValueAsString(params);
+        } catch (JsonProcessingException e) {
+            return failed(e);
+        }
+        return guarded(AnalysisEndpoint.DETECT, () -> execute(AnalysisEndpoint.DETECT, replicaPool.choose(null), baseUrl -> {
+            HttpPost post = new HttpPost(baseUrl + "/vulnerabilities/detect");
+            post.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+            return post;
+        }));
+    }
+
+    /**
+     * 拉取漏洞数据源 GET /vulnerabilities/{source}
+     *
+     * @param source github、avd、nvd
+     * @param query 查询参数，可为空
+     */
+    public CompletableFuture<String> fetchFeed(String source, Map<String, String> query) {
+        return guarded(AnalysisEndpoint.FEED, () -> execute(AnalysisEndpoint.FEED, replicaPool.choose(null), baseUrl -> {
+            UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl + "/vulnerabilities/" + source);
+            if (query != null) {
+                query.forEach(builder::queryParam);
+            }
+            return new HttpGet(builder.encode().build().toUriString());
+        }));
+    }
+
+    /**
+     * 经熔断器和并发隔离放行后发出调用，调用结束（含取消）时归还许可；对冲的两个请求只占一个许可
+     */
+    private CompletableFuture<String> guarded(AnalysisEndpoint endpoint, Supplier<CompletableFuture<String>> call) {
+        try {
+            guards.acquire(endpoint);
+        } catch (AnalysisCallRejectedException e) {
+            return failed(e);
+        }
+        long start = System.nanoTime();
+        CompletableFuture<String> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            guards.release(endpoint, System.nanoTime() - start, e, false);
+            throw e;
+        }
+        result.whenComplete((body, error) ->
+                guards.release(endpoint, System.nanoTime() - start, unwrap(error), result.isCancelled()));
+        return result;
+    }
+
+    private static CompletableFuture<String> failed(Throwable error) {
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(error);
+        return failed;
+    }
+
+    /**
+     * 发送请求；开启对冲且有其他可用实例时，超过对冲延迟仍未返回就向另一个实例再发一次，
+     * 先成功的结果生效并取消另一个请求，两个都失败时以后失败的错误结束
+     */
+    private CompletableFuture<String> executeHedged(AnalysisEndpoint endpoint, Function<String, HttpRequestBase> request) {
+        AnalysisReplica primary = replicaPool.choose(null);
+        CompletableFuture<String> first = execute(endpoint, primary, request);
+        if (hedgeDelayMillis <= 0 || replicaPool.getReplicas().size() < 2) {
+            return first;
+        }
+        CompletableFuture<String> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<String>> hedge = new AtomicReference<>();
+        ScheduledFuture<?> timer = hedgeTimer.schedule(() -> {
+            if (first.isDone()) {
+                return;
+            }
+            AnalysisReplica secondary = replicaPool.choose(primary);
+            if (secondary == null) {
+                return;
+            }
+            Counter.builder("analysis.service.hedged").tag("endpoint", endpoint.getTag()).register(registry).increment();
+            CompletableFuture<String> second = execute(endpoint, secondary, request);
+            hedge.set(second);
+            second.whenComplete((body, error) -> {
+                if (error == null) {
+                    if (result.complete(body)) {
+                        Counter.builder("analysis.service.hedge.wins").tag("endpoint", endpoint.getTag()).register(registry).increment();
+                        first.cancel(false);
+                    }
+                } else if (first.isCompletedExceptionally()) {
+                    result.completeExceptionally(unwrap(error));
+                }
+            });
+        }, hedgeDelayMillis, TimeUnit.MILLISECONDS);
+
+        first.whenComplete((body, error) -> {
+            if (error == null) {
+                timer.cancel(false);
+                if (result.complete(body) && hedge.get() != null) {
+                    hedge.get().cancel(false);
+                }
+                return;
+            }
+            CompletableFuture<String> second = hedge.get();
+            if (second == null) {
+                // 对冲请求尚未发出：不再发出，直接失败
+                timer.cancel(false);
+                if (hedge.get() == null) {
+                    result.completeExceptionally(unwrap(error));
+                }
+            } else if (second.isCompletedExceptionally()) {
+                result.completeExceptionally(unwrap(error));
+            }
+        });
+        // 调用方取消时中止所有请求
+        result.whenComplete((body, error) -> {
+            if (result.isCancelled()) {
+                timer.cancel(false);
+                first.cancel(false);
+                if (hedge.get() != null) {
+                    hedge.get().cancel(false);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 向指定实例发送一次请求，记录在途请求数、耗时和实例健康状态
+     */
+    private CompletableFuture<String> execute(AnalysisEndpoint endpoint, AnalysisReplica replica, Function<String, HttpRequestBase> requestFactory) {
+        HttpRequestBase request = requestFactory.apply(replica.getBaseUrl());
+        request.setConfig(requestConfigs.get(endpoint));
+        CompletableFuture<String> result = new CompletableFuture<>();
+        long start = System.nanoTime();
+        replica.acquire();
+        Future<HttpResponse> exchange = httpClient.execute(request, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                try {
+                    int status = response.getStatusLine().getStatusCode();
+                    String body = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+                    if (status >= 200 && status < 300) {
+                        result.complete(body);
+                    } else {
+                        result.completeExceptionally(new AnalysisServiceException(endpoint, status, body));
+                    }
+                } catch (IOException e) {
+                    result.completeExceptionally(new AnalysisServiceException(endpoint, "读取响应失败: " + e.getMessage(), e));
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                result.completeExceptionally(new AnalysisServiceException(endpoint,
+                        endpoint.getTag() + "接口调用失败(" + replica + "): " + e.getClass().getSimpleName() + " - " + e.getMessage(), e));
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+        result.whenComplete((body, error) -> {
+            replica.release();
+            // 调用方取消时中止请求，释放连接
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+            replicaPool.record(replica, endpoint, System.nanoTime() - start, unwrap(error), result.isCancelled());
+        });
+        return result;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * 同步等待调用结果，失败时抛出原始的 IOException（通常是 {@link AnalysisServiceException}）
+     */
+    public static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.nju.backend.service.analysis;
+
+import java.io.IOException;
+
+/**
+ * 调用 Flask 分析服务失败：连接失败、超时（statusCode 为0）或返回非 2xx 状态码
+ */
+public class AnalysisServiceException extends IOException {
+
+    private final AnalysisEndpoint endpoint;
+    private final int statusCode;
+    private final String responseBody;
+
+    public AnalysisServiceException(AnalysisEndpoint endpoint, String message, Throwable cause) {
+        super(message, cause);
+        this.endpoint = endpoint;
+        this.statusCode = 0;
+        this.responseBody = null;
+    }
+
+    public AnalysisServiceException(AnalysisEndpoint endpoint, int statusCode, String responseBody) {
+        super(endpoint.getTag() + "接口返回状态码 " + statusCode);
+        this.endpoint = endpoint;
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+    }
+
+    public AnalysisEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * HTTP 状态码，没有收到响应时为0
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public boolean isServerError() {
+        return statusCode >= 500;
+    }
+
+    public boolean isClientError() {
+        return statusCode >= 400 && statusCode < 500;
+    }
+}
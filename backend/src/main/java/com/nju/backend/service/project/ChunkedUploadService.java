@@ -0,0 +1,45 @@
+package com.nju.backend.service.project;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * 大文件分片上传：initiate → 按偏移上传分片（可乱序、可重传）→ complete
+ */
+public interface ChunkedUploadService {
+
+    /**
+     * 创建分片上传会话
+     * @param fileName 原始文件名
+     * @param totalSize 文件总大小（字节）
+     * @return 包含 uploadId、chunkSize、maxChunkSize 的 Map
+     */
+    Map<String, Object> initiate(String fileName, long totalSize);
+
+    /**
+     * 写入一个分片
+     * @param uploadId 会话ID
+     * @param offset 分片在文件中的起始偏移
+     * @param sha256 分片内容的SHA-256（十六进制）
+     * @param contentLength 请求体长度，未知时为-1
+     * @param body 分片数据
+     * @return 当前上传进度
+     */
+    Map<String, Object> writeChunk(String uploadId, long offset, String sha256, long contentLength, InputStream body) throws IOException;
+
+    /**
+     * 查询上传进度（断点续传时用于确定缺失的区间）
+     */
+    Map<String, Object> getStatus(String uploadId);
+
+    /**
+     * 全部分片到齐后解压并检测项目语言
+     * @param sha256 客户端计算的整个文件的SHA-256，可为null
+     * @param companyId 所属公司，用于确定解压资源预算
+     * @return 与 ProjectService.uploadFileWithLanguageDetection 相同的结果
+     */
+    Map<String, Object> complete(String uploadId, String sha256, Integer companyId) throws IOException;
+
+    void abort(String uploadId);
+}
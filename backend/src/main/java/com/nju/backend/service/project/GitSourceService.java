@@ -0,0 +1,40 @@
+package com.nju.backend.service.project;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 以本地Git仓库作为项目来源：首次导入完整提交，之后按提交差异增量更新项目目录和依赖
+ */
+public interface GitSourceService {
+
+    /**
+     * 导出仓库指定引用的完整内容并检测项目语言
+     * @param repoPath 本地仓库路径（普通仓库或 bare 镜像）
+     * @param ref 分支、标签或提交，为空时使用 HEAD
+     * @param companyId 所属公司，用于确定解压资源预算
+     * @return 与 ProjectService.uploadFileWithLanguageDetection 相同的结果，另含 repoPath、ref、commit
+     */
+    Map<String, Object> importRepository(String repoPath, String ref, Integer companyId) throws IOException;
+
+    /**
+     * 项目创建后记录其Git来源
+     */
+    void bindProject(String filePath, String repoPath, String ref, String commit);
+
+    /**
+     * 为项目新建 Git 增量扫描任务（写入 scan_job 队列后返回，由 ScanJobWorker 执行 runRescan）
+     * @return 项目ID、任务ID和任务状态
+     */
+    Map<String, Object> rescan(int projectId);
+
+    /**
+     * 按上次扫描的提交与当前提交的差异更新项目目录，只重新运行清单文件有变化的语言的解析器
+     * @param filePath 项目目录（scan_job.file_path）
+     * @param leaseHeld 任务租约是否仍然有效，丢失时在下一次写入前以 CancellationException 停止
+     * @return 重新解析出的依赖数
+     * @throws IOException 有解析器失败时抛出，提交号不推进，任务重试时重新应用同一差异
+     */
+    int runRescan(String filePath, BooleanSupplier leaseHeld) throws IOException;
+}
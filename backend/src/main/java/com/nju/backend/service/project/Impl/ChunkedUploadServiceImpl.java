@@ -0,0 +1,257 @@
+package com.nju.backend.service.project.Impl;
+
+import com.nju.backend.config.FileStorageConfig;
+import com.nju.backend.service.project.ChunkedUploadService;
+import com.nju.backend.service.project.ProjectService;
+import com.nju.backend.service.project.util.ChunkedUploadSession;
+import com.nju.backend.service.project.util.ProjectUtil;
+import com.nju.backend.service.project.util.TarStreamExtractor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class ChunkedUploadServiceImpl implements ChunkedUploadService {
+
+    /**
+     * 未完成的分片文件保存目录（位于上传根目录下）
+     */
+    private static final String CHUNKED_DIR = ".chunked";
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private ProjectUtil projectUtil;
+
+    private final FileStorageConfig fileStorageConfig;
+
+    @Value("${file.upload.chunk-size:8388608}")
+    private long chunkSize;
+
+    @Value("${file.upload.max-chunk-size:67108864}")
+    private long maxChunkSize;
+
+    @Value("${file.upload.max-archive-size:10737418240}")
+    private long maxArchiveSize;
+
+    @Value("${file.upload.session-timeout-minutes:1440}")
+    private long sessionTimeoutMinutes;
+
+    /**
+     * 本实例已加载的会话；不在其中的会话（服务重启前创建、或由其他实例创建）在首次访问时从 .meta 文件恢复
+     */
+    private final Map<String, ChunkedUploadSession> sessions = new ConcurrentHashMap<>();
+
+    public ChunkedUploadServiceImpl(FileStorageConfig fileStorageConfig) {
+        this.fileStorageConfig = fileStorageConfig;
+    }
+
+    @Override
+    public Map<String, Object> initiate(String fileName, long totalSize) {
+        if (totalSize <= 0) {
+            throw new IllegalArgumentException("文件大小无效: " + totalSize);
+        }
+        if (totalSize > maxArchiveSize) {
+            throw new IllegalArgumentException("文件过大，最大允许 " + maxArchiveSize + " bytes");
+        }
+        purgeExpiredSessions();
+
+        File dir = chunkedDir();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new RuntimeException("创建分片上传目录失败");
+        }
+        String uploadId = UUID.randomUUID().toString();
+        try {
+            ChunkedUploadSession session = new ChunkedUploadSession(uploadId, fileName, totalSize, new File(dir, uploadId + ".part"));
+            sessions.put(uploadId, session);
+        } catch (IOException e) {
+            throw new RuntimeException("创建分片文件失败: " + e.getMessage(), e);
+        }
+        System.out.println("创建分片上传会话: " + uploadId + ", 文件: " + fileName + ", 大小: " + totalSize + " bytes");
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("uploadId", uploadId);
+        result.put("chunkSize", chunkSize);
+        result.put("maxChunkSize", maxChunkSize);
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> writeChunk(String uploadId, long offset, String sha256, long contentLength, InputStream body) throws IOException {
+        ChunkedUploadSession session = getSession(uploadId);
+        if (offset < 0 || offset >= session.getTotalSize()) {
+            throw new IllegalArgumentException("分片偏移无效: " + offset);
+        }
+
+        // 重传已确认的分片：不再写入，避免覆盖已计入摘要的数据
+        if (contentLength > 0 && session.isRangeReceived(offset, contentLength)) {
+            System.out.println("分片已接收，忽略重传: " + uploadId + ", offset=" + offset);
+            return buildStatus(session);
+        }
+
+        session.writeChunk(offset, body, sha256, maxChunkSize);
+
+        // 第一个分片到达后立即识别格式，不支持的格式无需等待全部上传
+        if (offset == 0) {
+            byte[] header = session.readHeader(6);
+            String format = projectUtil.detectArchiveFormat(header, header.length);
+            if (!"zip".equals(format) && !TarStreamExtractor.isTarFormat(format)) {
+                discard(session);
+                throw new IllegalArgumentException(ProjectUtil.unsupportedFormatMessage(format));
+            }
+        }
+        return buildStatus(session);
+    }
+
+    @Override
+    public Map<String, Object> getStatus(String uploadId) {
+        return buildStatus(getSession(uploadId));
+    }
+
+    @Override
+    public Map<String, Object> complete(String uploadId, String sha256, Integer companyId) throws IOException {
+        ChunkedUploadSession session = getSession(uploadId);
+        if (!session.isComplete()) {
+            throw new IllegalStateException("分片尚未全部上传，缺失区间数: " + session.getMissingRanges().size());
+        }
+        // 先移出会话，防止重复complete
+        if (!sessions.remove(uploadId, session)) {
+            throw new IllegalStateException("上传会话已完成或已取消: " + uploadId);
+        }
+        session.closeChannel();
+        deleteQuietly(session.getMetaFile());
+
+        String digest = session.getArchiveDigest();
+        if (sha256 != null && !sha256.isEmpty() && !sha256.equalsIgnoreCase(digest)) {
+            session.getPartFile().delete();
+            throw new IllegalArgumentException("文件校验失败: 期望 " + sha256 + ", 实际 " + digest);
+        }
+        System.out.println("分片上传完成: " + uploadId + ", SHA-256: " + digest + ", 中央目录条目数: " + session.getEntryCount());
+
+        return projectService.uploadArchiveWithLanguageDetection(session.getPartFile(), digest,
+                session.getTotalSize(), session.getNameCharset(), companyId);
+    }
+
+    @Override
+    public void abort(String uploadId) {
+        ChunkedUploadSession session = findSession(uploadId);
+        if (session != null) {
+            discard(session);
+        }
+    }
+
+    private ChunkedUploadSession getSession(String uploadId) {
+        ChunkedUploadSession session = findSession(uploadId);
+        if (session == null) {
+            throw new IllegalArgumentException("上传会话不存在或已过期: " + uploadId);
+        }
+        return session;
+    }
+
+    /**
+     * 本实例已加载的会话，没有时从 .meta 文件恢复；会话不存在时返回null
+     */
+    private ChunkedUploadSession findSession(String uploadId) {
+        ChunkedUploadSession session = sessions.get(uploadId);
+        if (session != null || !isUploadId(uploadId)) {
+            return session;
+        }
+        File partFile = new File(chunkedDir(), uploadId + ".part");
+        if (!partFile.exists() || !ChunkedUploadSession.metaFileOf(partFile).exists()) {
+            return null;
+        }
+        synchronized (sessions) {
+            session = sessions.get(uploadId);
+            if (session != null) {
+                return session;
+            }
+            try {
+                session = ChunkedUploadSession.restore(uploadId, partFile);
+            } catch (IOException e) {
+                System.err.println("恢复分片上传会话失败: " + uploadId + "，错误: " + e.getMessage());
+                return null;
+            }
+            sessions.put(uploadId, session);
+            return session;
+        }
+    }
+
+    /**
+     * uploadId 用于拼接文件路径，只接受 initiate 生成的 UUID
+     */
+    private static boolean isUploadId(String uploadId) {
+        try {
+            return uploadId != null && UUID.fromString(uploadId).toString().equals(uploadId);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private File chunkedDir() {
+        return new File(fileStorageConfig.getUploadDir(), CHUNKED_DIR);
+    }
+
+    private Map<String, Object> buildStatus(ChunkedUploadSession session) {
+        List<Map<String, Long>> missing = new ArrayList<>();
+        for (long[] range : session.getMissingRanges()) {
+            Map<String, Long> item = new HashMap<>();
+            item.put("start", range[0]);
+            item.put("end", range[1]);
+            missing.add(item);
+        }
+        Map<String, Object> status = new HashMap<>();
+        status.put("uploadId", session.getUploadId());
+        status.put("fileName", session.getFileName());
+        status.put("totalSize", session.getTotalSize());
+        status.put("receivedBytes", session.getReceivedBytes());
+        status.put("missingRanges", missing);
+        status.put("complete", session.isComplete());
+        return status;
+    }
+
+    private void discard(ChunkedUploadSession session) {
+        sessions.remove(session.getUploadId(), session);
+        session.closeChannel();
+        deleteQuietly(session.getMetaFile());
+        deleteQuietly(session.getPartFile());
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * 清理长时间没有新分片的会话
+     */
+    private void purgeExpiredSessions() {
+        long deadline = System.currentTimeMillis() - sessionTimeoutMinutes * 60_000L;
+        for (ChunkedUploadSession session : new ArrayList<>(sessions.values())) {
+            if (session.getLastActiveTime() < deadline) {
+                System.out.println("清理过期的分片上传会话: " + session.getUploadId());
+                discard(session);
+            }
+        }
+        // 本实例未加载的会话（服务重启前或由其他实例创建）：分片文件和会话信息文件都长时间未更新时清理
+        File[] files = chunkedDir().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String uploadId = file.getName().replaceFirst("\\.(part|meta|meta\\.tmp)$", "");
+                File part = new File(file.getParentFile(), uploadId + ".part");
+                File meta = new File(file.getParentFile(), uploadId + ".meta");
+                if (!sessions.containsKey(uploadId) && file.lastModified() < deadline
+                        && part.lastModified() < deadline && meta.lastModified() < deadline) {
+                    file.delete();
+                }
+            }
+        }
+    }
+}
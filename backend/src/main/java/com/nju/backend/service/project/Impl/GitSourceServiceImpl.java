@@ -0,0 +1,414 @@
+package com.nju.backend.service.project.Impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.nju.backend.config.FileStorageConfig;
+import com.nju.backend.repository.mapper.ProjectMapper;
+import com.nju.backend.repository.mapper.ProjectSourceMapper;
+import com.nju.backend.repository.mapper.WhiteListMapper;
+import com.nju.backend.repository.po.Project;
+import com.nju.backend.repository.po.ProjectSource;
+import com.nju.backend.repository.po.ScanJob;
+import com.nju.backend.repository.po.WhiteList;
+import com.nju.backend.service.project.GitSourceService;
+import com.nju.backend.service.project.ProjectService;
+import com.nju.backend.service.project.ScanJobService;
+import com.nju.backend.service.project.util.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.zip.ZipFile;
+
+@Service
+public class GitSourceServiceImpl implements GitSourceService {
+
+    /**
+     * git archive 导出的临时压缩包目录（位于上传根目录下，与解压目录同一文件系统）
+     */
+    private static final String GIT_EXPORT_DIR = ".git-export";
+    /**
+     * 变化的文件超过该数量时导出整个提交再按路径过滤，避免命令行过长
+     */
+    private static final int MAX_ARCHIVE_PATHS = 500;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private ScanJobService scanJobService;
+
+    @Autowired
+    private ProjectMapper projectMapper;
+
+    @Autowired
+    private ProjectSourceMapper projectSourceMapper;
+
+    @Autowired
+    private WhiteListMapper whiteListMapper;
+
+    @Autowired
+    private GitRepositoryClient gitRepositoryClient;
+
+    @Autowired
+    private ProjectUtil projectUtil;
+
+    @Autowired
+    private ProjectStorageManager projectStorageManager;
+
+    @Autowired
+    private ZipExtractionEngine zipExtractionEngine;
+
+    @Autowired
+    private ContentAddressedStore contentAddressedStore;
+
+    @Autowired
+    private ExtractionLimitsResolver extractionLimitsResolver;
+
+    private final FileStorageConfig fileStorageConfig;
+
+    /**
+     * 允许导入的仓库根目录（逗号分隔），为空时不允许导入
+     */
+    @Value("${project.git.allowed-roots:}")
+    private String allowedRoots;
+
+    /**
+     * 项目ID -> 锁：同一项目的增量扫描串行执行
+     */
+    private final StripedLocks rescanLocks = new StripedLocks(64);
+
+    public GitSourceServiceImpl(FileStorageConfig fileStorageConfig) {
+        this.fileStorageConfig = fileStorageConfig;
+    }
+
+    @Override
+    public Map<String, Object> importRepository(String repoPath, String ref, Integer companyId) throws IOException {
+        File repo = checkRepository(repoPath);
+        String effectiveRef = ref == null || ref.trim().isEmpty() ? "HEAD" : ref.trim();
+        String commit = gitRepositoryClient.resolveCommit(repo, effectiveRef);
+        System.out.println("导入Git仓库: " + repo + ", 引用: " + effectiveRef + ", 提交: " + commit);
+
+        File archive = newExportFile();
+        try {
+            gitRepositoryClient.archive(repo, commit, null, archive);
+            // 同一提交导出的压缩包内容相同，可直接命中内容寻址存储的复用
+            Map<String, Object> result = projectService.uploadArchiveWithLanguageDetection(archive, sha256(archive),
+                    archive.length(), StandardCharsets.UTF_8, companyId);
+            result.put("repoPath", repo.getAbsolutePath());
+            result.put("ref", effectiveRef);
+            result.put("commit", commit);
+            return result;
+        } finally {
+            Files.deleteIfExists(archive.toPath());
+        }
+    }
+
+    @Override
+    public void bindProject(String filePath, String repoPath, String ref, String commit) {
+        Project project = projectMapper.selectOne(new QueryWrapper<Project>()
+                .eq("file", filePath)
+                .eq("isdelete", 0)
+                .orderByDesc("id")
+                .last("LIMIT 1"));
+        if (project == null) {
+            throw new RuntimeException("Project does not exist.");
+        }
+        ProjectSource source = new ProjectSource();
+        source.setProjectId(project.getId());
+        source.setSourceType(ProjectSource.TYPE_GIT);
+        source.setRepoPath(repoPath);
+        source.setRef(ref);
+        source.setLastCommit(commit);
+        source.setLastScanTime(new Date());
+        source.setCreateTime(new Date());
+        projectSourceMapper.insert(source);
+    }
+
+    @Override
+    public Map<String, Object> rescan(int projectId) {
+        Project project = projectMapper.selectById(projectId);
+        if (project == null || project.getIsDelete() == 1) {
+            throw new RuntimeException("Project does not exist.");
+        }
+        if (sourceOf(projectId) == null) {
+            throw new IllegalArgumentException("项目不是从Git仓库导入的，无法增量扫描");
+        }
+        ScanJob job = scanJobService.enqueueGitRescan(project.getFile());
+        Map<String, Object> result = new HashMap<>();
+        result.put("projectId", projectId);
+        result.put("jobId", job.getId());
+        result.put("status", job.getStatus());
+        return result;
+    }
+
+    @Override
+    public int runRescan(String filePath, BooleanSupplier leaseHeld) throws IOException {
+        Project project = projectMapper.selectOne(new QueryWrapper<Project>()
+                .eq("file", filePath)
+                .eq("isdelete", 0)
+                .orderByDesc("id")
+                .last("LIMIT 1"));
+        if (project == null) {
+            throw new IOException("项目不存在或已删除: " + filePath);
+        }
+        ProjectSource source = sourceOf(project.getId());
+        if (source == null) {
+            throw new IOException("项目不是从Git仓库导入的，无法增量扫描: " + project.getId());
+        }
+        // 同一项目的增量扫描由 scan_job 的 active_key 保证只有一个在运行；本地锁防止租约过期被本实例重新认领时并发执行
+        synchronized (rescanLocks.get(String.valueOf(project.getId()))) {
+            return doRescan(project, projectSourceMapper.selectById(source.getId()), leaseHeld);
+        }
+    }
+
+    private ProjectSource sourceOf(int projectId) {
+        return projectSourceMapper.selectOne(new QueryWrapper<ProjectSource>()
+                .eq("project_id", projectId)
+                .eq("source_type", ProjectSource.TYPE_GIT));
+    }
+
+    private int doRescan(Project project, ProjectSource source, BooleanSupplier leaseHeld) throws IOException {
+        long startTime = System.currentTimeMillis();
+        File repo = checkRepository(source.getRepoPath());
+        String fromCommit = source.getLastCommit();
+        String toCommit = gitRepositoryClient.resolveCommit(repo, source.getRef());
+
+        if (toCommit.equals(fromCommit)) {
+            checkLease(project, leaseHeld);
+            source.setLastScanTime(new Date());
+            projectSourceMapper.updateById(source);
+            System.out.println("Git增量扫描: 项目 " + project.getId() + " 没有新提交: " + toCommit);
+            return 0;
+        }
+
+        List<GitRepositoryClient.Change> changes = gitRepositoryClient.diff(repo, fromCommit, toCommit);
+        String filePath = project.getFile();
+        System.out.println("Git增量扫描: 项目 " + project.getId() + ", " + fromCommit + " -> " + toCommit
+                + ", 变化文件数: " + changes.size());
+
+        // 在完整的目录上应用差异（冷层恢复、快速解压模式补全）
+        checkLease(project, leaseHeld);
+        projectStorageManager.ensureHot(filePath);
+        projectUtil.ensureFullyExtracted(filePath);
+        applyChanges(repo, toCommit, changes, new File(filePath), extractionLimitsResolver.forProject(project.getId()));
+        if (contentAddressedStore.isEnabled()) {
+            contentAddressedStore.forgetArchive(filePath);
+        }
+
+        // 只重新运行清单文件有变化的语言的解析器
+        Set<String> languages = new TreeSet<>();
+        for (GitRepositoryClient.Change change : changes) {
+            String language = DependencyManifests.languageOf(change.getPath());
+            if (language != null) {
+                languages.add(language);
+            }
+        }
+        int added = 0;
+        int removed = 0;
+        int parsed = 0;
+        List<String> failed = new ArrayList<>();
+        // 按模块并发解析，同一语言的全部模块都成功后才同步该语言的依赖，避免把失败模块的依赖误删
+        Map<String, List<WhiteList>> parsedByLanguage = new TreeMap<>();
+        for (String language : languages) {
+            parsedByLanguage.put(language, new ArrayList<>());
+        }
+        for (ModuleScanResult moduleResult : projectService.scanModules(filePath, languages)) {
+            String language = moduleResult.getModule().getLanguage();
+            if (!moduleResult.isSuccess()) {
+                System.err.println("Git增量扫描: 模块 " + moduleResult.getModule() + " 依赖解析失败: " + moduleResult.getError());
+                parsedByLanguage.remove(language);
+                if (!failed.contains(language)) {
+                    failed.add(language);
+                }
+            } else if (parsedByLanguage.containsKey(language)) {
+                parsedByLanguage.get(language).addAll(moduleResult.getDependencies());
+            }
+        }
+        for (Map.Entry<String, List<WhiteList>> entry : parsedByLanguage.entrySet()) {
+            checkLease(project, leaseHeld);
+            int[] delta = syncWhiteList(entry.getKey(), filePath, entry.getValue());
+            added += delta[0];
+            removed += delta[1];
+            parsed += entry.getValue().size();
+        }
+
+        // 有解析器失败时不推进提交号，任务重试时重新应用同一差异
+        checkLease(project, leaseHeld);
+        source.setLastScanTime(new Date());
+        if (failed.isEmpty()) {
+            source.setLastCommit(toCommit);
+        }
+        projectSourceMapper.updateById(source);
+
+        System.out.println("Git增量扫描完成: 项目 " + project.getId() + ", " + fromCommit + " -> " + toCommit
+                + ", 变化文件数: " + changes.size() + ", 重新解析语言: " + languages + ", 失败语言: " + failed
+                + ", 新增依赖 " + added + ", 移除依赖 " + removed + ", 耗时 " + (System.currentTimeMillis() - startTime) + "ms");
+        if (!failed.isEmpty()) {
+            throw new IOException("Git增量扫描中以下语言解析失败: " + failed);
+        }
+        return parsed;
+    }
+
+    private static void checkLease(Project project, BooleanSupplier leaseHeld) {
+        if (!leaseHeld.getAsBoolean()) {
+            throw new CancellationException("Git增量扫描任务的租约已丢失，停止写入，项目ID: " + project.getId());
+        }
+    }
+
+    /**
+     * 删除已删除的文件，新增和修改的文件从目标提交导出后覆盖写入（写入量受项目所属公司的解压预算约束）
+     */
+    private void applyChanges(File repo, String commit, List<GitRepositoryClient.Change> changes, File projectDir,
+                              ExtractionLimits limits) throws IOException {
+        Path root = projectDir.getCanonicalFile().toPath();
+        List<String> updated = new ArrayList<>();
+        for (GitRepositoryClient.Change change : changes) {
+            if (!change.isDeleted()) {
+                updated.add(change.getPath());
+                continue;
+            }
+            Path target = root.resolve(change.getPath()).normalize();
+            if (target.startsWith(root) && !target.equals(root)) {
+                Files.deleteIfExists(target);
+            }
+        }
+        if (updated.isEmpty()) {
+            return;
+        }
+
+        boolean partial = updated.size() <= MAX_ARCHIVE_PATHS;
+        Set<String> wanted = new HashSet<>(updated);
+        File archive = newExportFile();
+        try {
+            gitRepositoryClient.archive(repo, commit, partial ? updated : null, archive);
+            ExtractionGovernor governor = new ExtractionGovernor(limits);
+            try (ZipFile zipFile = new ZipFile(archive, StandardCharsets.UTF_8)) {
+                zipExtractionEngine.extract(zipFile, projectDir, partial ? null : wanted::contains, governor);
+            }
+        } finally {
+            Files.deleteIfExists(archive.toPath());
+        }
+    }
+
+    /**
+     * 用某种语言全部模块的解析结果增量更新 white_list：新出现的依赖插入，不再出现的依赖软删除，未变化的行保持不动
+     *
+     * 插入和软删除都按 WhiteListBatchWriter.BATCH_SIZE 分批，每批一条语句
+     *
+     * @return {新增数, 移除数}
+     */
+    private int[] syncWhiteList(String language, String filePath, List<WhiteList> parsed) {
+        List<WhiteList> existing = whiteListMapper.selectList(new QueryWrapper<WhiteList>()
+                .eq("file_path", filePath)
+                .eq("language", language)
+                .eq("isdelete", 0));
+
+        Set<String> existingKeys = new HashSet<>();
+        for (WhiteList row : existing) {
+            existingKeys.add(keyOf(row));
+        }
+        Set<String> parsedKeys = new HashSet<>();
+        List<WhiteList> toInsert = new ArrayList<>();
+        for (WhiteList row : parsed) {
+            String key = keyOf(row);
+            if (parsedKeys.add(key) && !existingKeys.contains(key)) {
+                toInsert.add(row);
+            }
+        }
+        List<Long> toDelete = new ArrayList<>();
+        for (WhiteList row : existing) {
+            if (!parsedKeys.contains(keyOf(row))) {
+                toDelete.add(row.getId());
+            }
+        }
+
+        int added = 0;
+        for (int from = 0; from < toInsert.size(); from += WhiteListBatchWriter.BATCH_SIZE) {
+            added += whiteListMapper.insertBatch(
+                    toInsert.subList(from, Math.min(from + WhiteListBatchWriter.BATCH_SIZE, toInsert.size())));
+        }
+        int removed = 0;
+        for (int from = 0; from < toDelete.size(); from += WhiteListBatchWriter.BATCH_SIZE) {
+            removed += whiteListMapper.softDeleteByIds(
+                    toDelete.subList(from, Math.min(from + WhiteListBatchWriter.BATCH_SIZE, toDelete.size())));
+        }
+        return new int[]{added, removed};
+    }
+
+    private static String keyOf(WhiteList row) {
+        return row.getModulePath() + "\u0000" + row.getName() + "\u0000" + row.getDescription();
+    }
+
+    /**
+     * 定时为所有Git来源的项目新建增量扫描任务（默认关闭，通过 project.git.rescan-cron 开启），
+     * 扫描本身由 ScanJobWorker 执行，不占用共用的 @Scheduled 线程
+     */
+    @Scheduled(cron = "${project.git.rescan-cron:-}")
+    public void rescanAll() {
+        List<ProjectSource> sources = projectSourceMapper.selectList(new QueryWrapper<ProjectSource>()
+                .eq("source_type", ProjectSource.TYPE_GIT));
+        for (ProjectSource source : sources) {
+            try {
+                rescan(source.getProjectId());
+            } catch (Exception e) {
+                System.err.println("Git定时扫描入队失败，项目ID: " + source.getProjectId() + "，错误: " + e.getMessage());
+            }
+        }
+    }
+
+    private File checkRepository(String repoPath) throws IOException {
+        if (repoPath == null || repoPath.trim().isEmpty()) {
+            throw new IllegalArgumentException("仓库路径不能为空");
+        }
+        File repo = new File(repoPath.trim()).getCanonicalFile();
+        boolean allowed = false;
+        for (String root : allowedRoots.split(",")) {
+            if (!root.trim().isEmpty() && repo.toPath().startsWith(new File(root.trim()).getCanonicalFile().toPath())) {
+                allowed = true;
+                break;
+            }
+        }
+        if (!allowed) {
+            throw new IllegalArgumentException("仓库路径不在允许导入的目录（project.git.allowed-roots）下: " + repoPath);
+        }
+        if (!repo.isDirectory() || !gitRepositoryClient.isRepository(repo)) {
+            throw new IllegalArgumentException("不是有效的Git仓库: " + repoPath);
+        }
+        return repo;
+    }
+
+    private File newExportFile() throws IOException {
+        File dir = new File(fileStorageConfig.getUploadDir(), GIT_EXPORT_DIR);
+        Files.createDirectories(dir.toPath());
+        return new File(dir, UUID.randomUUID() + ".zip");
+    }
+
+    private static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, len);
+            }
+        }
+        return ContentAddressedStore.toHex(digest.digest());
+    }
+}
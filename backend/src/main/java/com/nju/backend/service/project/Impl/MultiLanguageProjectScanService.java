@@ -5,13 +5,12 @@ import com.nju.backend.repository.po.WhiteList;
 import com.nju.backend.repository.po.Project;
 import com.nju.backend.repository.mapper.WhiteListMapper;
 import com.nju.backend.repository.mapper.ProjectMapper;
+import com.nju.backend.service.project.ProjectService;
+import com.nju.backend.service.project.util.ProjectStorageManager;
+import com.nju.backend.service.project.util.ProjectUtil;
+import com.nju.backend.service.project.util.WhiteListBatchWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.ResponseEntity;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
@@ -20,7 +19,7 @@ import java.util.*;
  *
  * 功能:
  * 1. 自动检测项目语言
- * 2. 根据语言调用对应的解析器
+ * 2. 根据语言选择解析器（本地清单解析器优先，没有时回退到 Flask，见 ProjectService.parseDependencies）
  * 3. 解析依赖并存储到white-list
  */
 @Service
@@ -33,37 +32,17 @@ public class MultiLanguageProjectScanService {
     private ProjectMapper projectMapper;
 
     @Autowired
-    private RestTemplate restTemplate;
-
-    private static final String FLASK_BASE_URL = "http://127.0.0.1:5000";
-    private static final String LANGUAGE_DETECT_URL = FLASK_BASE_URL + "/parse/get_primary_language";
-    private static final ObjectMapper objectMapper = new ObjectMapper();
-
-    // 语言和对应的解析端点
-    private static final Map<String, String> LANGUAGE_PARSERS = new HashMap<>();
-    static {
-        LANGUAGE_PARSERS.put("python", "/parse/python_parse");
-        LANGUAGE_PARSERS.put("php", "/parse/php_parse");
-        LANGUAGE_PARSERS.put("javascript", "/parse/javascript_parse");
-        LANGUAGE_PARSERS.put("go", "/parse/go_parse");
-        LANGUAGE_PARSERS.put("rust", "/parse/rust_parse");
-        LANGUAGE_PARSERS.put("java", "/parse/pom_parse");
-        LANGUAGE_PARSERS.put("ruby", "/parse/ruby_parse");
-        LANGUAGE_PARSERS.put("erlang", "/parse/erlang_parse");
-    }
+    private ProjectService projectService;
 
-    // 包管理器映射
-    private static final Map<String, String> PACKAGE_MANAGERS = new HashMap<>();
-    static {
-        PACKAGE_MANAGERS.put("python", "pip");
-        PACKAGE_MANAGERS.put("php", "composer");
-        PACKAGE_MANAGERS.put("javascript", "npm");
-        PACKAGE_MANAGERS.put("go", "go mod");
-        PACKAGE_MANAGERS.put("rust", "cargo");
-        PACKAGE_MANAGERS.put("java", "maven");
-        PACKAGE_MANAGERS.put("ruby", "gems");
-        PACKAGE_MANAGERS.put("erlang", "rebar");
-    }
+    @Autowired
+    private ProjectUtil projectUtil;
+
+    @Autowired
+    private ProjectStorageManager projectStorageManager;
+
+    // 支持扫描的语言
+    private static final Set<String> SUPPORTED_LANGUAGES = new HashSet<>(Arrays.asList(
+            "python", "php", "javascript", "go", "rust", "java", "ruby", "erlang"));
 
     /**
      * 扫描多语言项目并存储依赖到white-list
@@ -74,28 +53,37 @@ public class MultiLanguageProjectScanService {
         result.setProjectId(projectId);
 
         try {
+            // 目录可能已被压缩到冷层
+            projectStorageManager.ensureHot(projectPath);
+
             // Step 1: 检测项目语言
-            String detectedLanguage = detectProjectLanguage(projectPath);
+            String detectedLanguage = projectUtil.detectProjectLanguages(projectPath).primaryLanguage();
+            System.out.println("Detected language: " + detectedLanguage);
             result.setDetectedLanguage(detectedLanguage);
 
             // Step 2: 更新project表的language字段
             updateProjectLanguage(projectId, detectedLanguage);
 
-            // Step 3: 获取对应的解析器端点
-            String parserEndpoint = LANGUAGE_PARSERS.get(detectedLanguage.toLowerCase());
-            if (parserEndpoint == null) {
+            // Step 3: 检查是否支持该语言
+            String language = detectedLanguage.toLowerCase();
+            if (!SUPPORTED_LANGUAGES.contains(language)) {
                 result.setSuccess(false);
                 result.setMessage("Unsupported language: " + detectedLanguage);
                 return result;
             }
 
             // Step 4: 解析依赖
-            List<ProjectDependency> dependencies = parseDependencies(projectPath, parserEndpoint);
+            List<WhiteList> whiteLists = projectService.parseDependencies(language, projectPath);
+            List<ProjectDependency> dependencies = new ArrayList<>();
+            for (WhiteList whiteList : whiteLists) {
+                dependencies.add(toProjectDependency(whiteList));
+            }
+            System.out.println("Parsed " + dependencies.size() + " dependencies");
             result.setDependencies(dependencies);
             result.setDependencyCount(dependencies.size());
 
             // Step 5: 保存到white-list
-            int savedCount = saveToWhiteList(dependencies, projectId, detectedLanguage);
+            int savedCount = saveToWhiteList(whiteLists, projectId);
             result.setSavedCount(savedCount);
             result.setSuccess(true);
             result.setMessage("Successfully scanned and saved " + savedCount + " dependencies");
@@ -109,24 +97,6 @@ public class MultiLanguageProjectScanService {
         return result;
     }
 
-    /**
-     * 检测项目主要语言
-     */
-    private String detectProjectLanguage(String projectPath) throws Exception {
-        String encodedPath = URLEncoder.encode(projectPath, StandardCharsets.UTF_8.toString());
-        String url = LANGUAGE_DETECT_URL + "?project_folder=" + encodedPath + "&use_optimized=true";
-
-        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-        if (response.getStatusCode().is2xxSuccessful()) {
-            Map<String, Object> responseBody = objectMapper.readValue(response.getBody(), Map.class);
-            String language = (String) responseBody.get("language");
-            System.out.println("Detected language: " + language);
-            return language;
-        }
-
-        throw new Exception("Failed to detect language. HTTP " + response.getStatusCode());
-    }
-
     /**
      * 更新项目的language字段
      */
@@ -144,69 +114,26 @@ public class MultiLanguageProjectScanService {
     }
 
     /**
-     * 解析依赖
+     * 本地解析器给出 componentVersion；Flask 结果的版本可能写在 name 中（"name version"）
      */
-    private List<ProjectDependency> parseDependencies(String projectPath, String parserEndpoint)
-            throws Exception {
-        String encodedPath = URLEncoder.encode(projectPath, StandardCharsets.UTF_8.toString());
-        String url = FLASK_BASE_URL + parserEndpoint + "?project_folder=" + encodedPath;
-
-        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-        List<ProjectDependency> dependencies = new ArrayList<>();
-
-        if (response.getStatusCode().is2xxSuccessful()) {
-            String responseBody = response.getBody();
-
-            // 尝试解析为数组或对象
-            Object parsedResponse = objectMapper.readValue(responseBody, Object.class);
-            List<Map<String, Object>> depList = null;
-
-            if (parsedResponse instanceof List) {
-                // 直接是数组格式
-                depList = (List<Map<String, Object>>) parsedResponse;
-            } else if (parsedResponse instanceof Map) {
-                // 是对象格式，获取"obj"字段
-                Map<String, Object> responseMap = (Map<String, Object>) parsedResponse;
-                Object objData = responseMap.get("obj");
-                if (objData instanceof List) {
-                    depList = (List<Map<String, Object>>) objData;
-                }
-            }
-
-            // 解析依赖列表
-            if (depList != null) {
-                for (Map<String, Object> dep : depList) {
-                    ProjectDependency dependency = new ProjectDependency();
-                    String name = (String) dep.get("name");
-
-                    // 处理版本号：可能在name中，也可能在version字段
-                    if (name != null && name.contains(" ")) {
-                        String[] parts = name.split(" ", 2);
-                        dependency.setName(parts[0]);
-                        dependency.setVersion(parts.length > 1 ? parts[1] : "unknown");
-                    } else {
-                        dependency.setName(name);
-                        dependency.setVersion((String) dep.getOrDefault("version", "unknown"));
-                    }
-
-                    dependencies.add(dependency);
-                }
-            }
-
-            System.out.println("Parsed " + dependencies.size() + " dependencies");
-            return dependencies;
+    private static ProjectDependency toProjectDependency(WhiteList whiteList) {
+        ProjectDependency dependency = new ProjectDependency();
+        String name = whiteList.getName();
+        if (whiteList.getComponentVersion() == null && name != null && name.contains(" ")) {
+            String[] parts = name.split(" ", 2);
+            dependency.setName(parts[0]);
+            dependency.setVersion(parts[1]);
+        } else {
+            dependency.setName(name);
+            dependency.setVersion(whiteList.getComponentVersion() != null ? whiteList.getComponentVersion() : "unknown");
         }
-
-        throw new Exception("Failed to parse dependencies. HTTP " + response.getStatusCode());
+        return dependency;
     }
 
     /**
-     * 保存依赖到white-list表
+     * 保存依赖到white-list表（去掉已存在的记录，分批多行写入）
      */
-    private int saveToWhiteList(List<ProjectDependency> dependencies, Long projectId, String language) {
-        int savedCount = 0;
-        String packageManager = PACKAGE_MANAGERS.getOrDefault(language.toLowerCase(), "unknown");
-
+    private int saveToWhiteList(List<WhiteList> whiteLists, Long projectId) {
         // 获取项目的file_path
         Project project = projectMapper.selectById(projectId);
         if (project == null) {
@@ -215,40 +142,14 @@ public class MultiLanguageProjectScanService {
         }
         String filePath = project.getFile();
 
-        for (ProjectDependency dep : dependencies) {
-            try {
-                WhiteList entry = new WhiteList();
-                entry.setFilePath(filePath);
-                entry.setComponentName(dep.getName());  // 同时会设置name字段
-                entry.setDescription(dep.getName() + " " + dep.getVersion());
-                entry.setLanguage(language);
-                entry.setIsdelete(0);
-
-                if (!existsInWhiteList(filePath, dep.getName(), dep.getVersion())) {
-                    whiteListMapper.insert(entry);
-                    savedCount++;
-                    System.out.println("保存依赖: " + dep.getName() + " " + dep.getVersion());
-                }
-            } catch (Exception e) {
-                System.err.println("Failed to save: " + dep.getName() + " - " + e.getMessage());
-                e.printStackTrace();
+        try (WhiteListBatchWriter writer = new WhiteListBatchWriter(whiteListMapper, filePath)) {
+            for (WhiteList whiteList : whiteLists) {
+                whiteList.setFilePath(filePath);
+                writer.accept(whiteList);
             }
+            writer.flush();
+            return writer.getInserted();
         }
-
-        return savedCount;
-    }
-
-    /**
-     * 检查是否已存在（使用file_path）
-     */
-    private boolean existsInWhiteList(String filePath, String componentName, String version) {
-        WhiteList existing = whiteListMapper.selectOne(
-            new QueryWrapper<WhiteList>()
-                .eq("file_path", filePath)
-                .eq("name", componentName)
-                .eq("isdelete", 0)
-        );
-        return existing != null;
     }
 
     /**
@@ -2,23 +2,39 @@ package com.nju.backend.service.project.Impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nju.backend.config.vo.ProjectVO;
 import com.nju.backend.config.vo.VulnerabilityVO;
 import com.nju.backend.repository.mapper.*;
 import com.nju.backend.repository.po.*;
+import com.nju.backend.service.analysis.AnalysisServiceClient;
 import com.nju.backend.service.project.ProjectService;
+import com.nju.backend.service.project.ScanJobService;
+import com.nju.backend.service.project.util.CDependencyScanner;
+import com.nju.backend.service.project.util.ContentAddressedStore;
+import com.nju.backend.service.project.util.ExtractionLimitsResolver;
+import com.nju.backend.service.project.util.LanguageDetector;
+import com.nju.backend.service.project.util.ManifestParserRegistry;
+import com.nju.backend.service.project.util.MavenDependencyResolver;
+import com.nju.backend.service.project.util.ModuleScanResult;
+import com.nju.backend.service.project.util.ProjectModule;
+import com.nju.backend.service.project.util.ProjectStorageManager;
 import com.nju.backend.service.project.util.ProjectUtil;
+import com.nju.backend.service.project.util.PythonDependencyExtractor;
+import com.nju.backend.service.project.util.ScanProgressBroker;
+import com.nju.backend.service.project.util.ScanProgressEvent;
+import com.nju.backend.service.project.util.WhiteListBatchWriter;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -31,7 +47,13 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Component
@@ -45,6 +67,49 @@ public class ProjectServiceImpl implements ProjectService, ApplicationContextAwa
     @Autowired
     private ProjectUtil projectUtil;
 
+    @Autowired
+    private ContentAddressedStore contentAddressedStore;
+
+    @Autowired
+    private ExtractionLimitsResolver extractionLimitsResolver;
+
+    @Autowired
+    private ProjectStorageManager projectStorageManager;
+
+    @Autowired
+    private MavenDependencyResolver mavenDependencyResolver;
+
+    @Autowired
+    private PythonDependencyExtractor pythonDependencyExtractor;
+
+    @Autowired
+    private CDependencyScanner cDependencyScanner;
+
+    @Autowired
+    private AnalysisServiceClient analysisServiceClient;
+
+    @Autowired
+    private ManifestParserRegistry manifestParserRegistry;
+
+    @Autowired
+    private ScanJobService scanJobService;
+
+    @Autowired
+    private ScanProgressBroker scanProgressBroker;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("dependencyParserExecutor")
+    private Executor dependencyParserExecutor;
+
+    /**
+     * 每种语言最多拆分的模块数，超过时按整个项目解析
+     */
+    @Value("${project.modules.max-per-language:200}")
+    private int maxModulesPerLanguage;
+
     @Autowired
     private CompanyMapper companyMapper;
 
@@ -95,193 +160,535 @@ public class ProjectServiceImpl implements ProjectService, ApplicationContextAwa
         company.setProjectId(companyProjectId);
 
         companyMapper.updateById(company);
+        scanProgressBroker.bind(filePath, project.getId(), companyId);
     }
 
-    @Async("projectAnalysisExecutor")
     @Override
-    public void asyncParseJavaProject(String filePath) {
-        System.out.println("开始解析Java项目: " + filePath);
-        try {
-            RestTemplate restTemplate = new RestTemplate();
-            String url = UriComponentsBuilder.fromHttpUrl("http://localhost:5000/parse/pom_parse")
-                    .queryParam("project_folder", filePath)
-                    .encode() // 自动处理 URL 编码
-                    .build()
-                    .toUriString();
-
-            System.out.println("调用POM解析API: " + url);
-            String response = restTemplate.getForObject(url, String.class);
-
-            if (response == null || response.trim().isEmpty()) {
-                System.err.println("POM解析API返回空响应，项目路径: " + filePath);
-                return;
+    public String uploadFile(MultipartFile file) throws IOException {
+        String filePath = projectUtil.unzipAndSaveFile(file);
+        System.out.println("文件解压完成，路径: " + filePath);
+        return filePath;
+    }
+
+    /**
+     * 上传文件并检测项目语言（新方法）
+     * 返回包含 filePath 和 detectedLanguage 的 Map
+     */
+    @Override
+    public Map<String, Object> uploadFileWithLanguageDetection(MultipartFile file, Integer companyId) throws IOException {
+        // 第一步：解压文件（受公司的解压资源预算约束）
+        String filePath = projectUtil.unzipAndSaveFile(file, extractionLimitsResolver.forCompany(companyId));
+        System.out.println("文件解压完成，路径: " + filePath);
+        publishExtracted(filePath, companyId);
+        return detectLanguages(filePath);
+    }
+
+    @Override
+    public Map<String, Object> uploadArchiveWithLanguageDetection(File archive, String digest, long size,
+                                                                  java.nio.charset.Charset nameCharset, Integer companyId) throws IOException {
+        String filePath = projectUtil.unzipAndSaveArchive(archive, digest, size, nameCharset,
+                extractionLimitsResolver.forCompany(companyId));
+        System.out.println("文件解压完成，路径: " + filePath);
+        publishExtracted(filePath, companyId);
+        return detectLanguages(filePath);
+    }
+
+    private void publishExtracted(String filePath, Integer companyId) {
+        scanProgressBroker.bind(filePath, null, companyId);
+        scanProgressBroker.publish(ScanProgressEvent.of(filePath, ScanProgressEvent.EXTRACTED));
+    }
+
+    /**
+     * 检测项目语言和要解析的生态；内容与历史上传相同且其解析已成功时直接沿用历史上传的语言（reusedFrom 为历史目录）。
+     * 只检测不解析，依赖解析由项目创建成功后的 startAnalysis 触发
+     */
+    private Map<String, Object> detectLanguages(String filePath) {
+        UploadArchive source = findReusableAnalysis(filePath);
+        if (source != null) {
+            try {
+                contentAddressedStore.updateLanguage(filePath, source.getLanguage());
+            } catch (Exception e) {
+                System.err.println("记录上传语言失败: " + e.getMessage());
             }
+            Map<String, Object> result = new HashMap<>();
+            result.put("filePath", filePath);
+            result.put("language", source.getLanguage());
+            result.put("reusedFrom", source.getFilePath());
+            result.put("languagePercent", reusedLanguagePercent(filePath, source.getFilePath()));
+            return result;
+        }
+        return detectEcosystems(filePath);
+    }
 
-            // 检查是否返回了错误页面
-            if (response.contains("<!doctype html>") || response.contains("<html")) {
-                System.err.println("POM解析API返回错误页面，项目路径: " + filePath);
-                System.err.println("错误详情: " + response.substring(0, Math.min(500, response.length())));
-                return;
+    /**
+     * 检测项目语言和要解析的生态（不考虑复用历史上传）
+     */
+    private Map<String, Object> detectEcosystems(String filePath) {
+        // 检测项目中的全部语言（解压时已完成统计）
+        String detectedLanguage;
+        List<LanguageDetector.DetectedLanguage> languages = Collections.emptyList();
+        List<String> ecosystems = new ArrayList<>();
+        Map<String, Double> languagePercent = null;
+        try {
+            LanguageDetector detector = projectUtil.detectProjectLanguages(filePath);
+            detectedLanguage = detector.primaryLanguage();
+            languages = detector.languages();
+            languagePercent = detector.languagePercent();
+            ecosystems.addAll(detector.ecosystems());
+            System.out.println("✓ 检测到项目语言: " + detectedLanguage + "，依赖生态: " + ecosystems);
+        } catch (Exception e) {
+            System.err.println("✗ 语言检测失败: " + e.getMessage());
+            detectedLanguage = "unknown";
+        }
+        if (contentAddressedStore.isEnabled()) {
+            try {
+                contentAddressedStore.updateLanguage(filePath, detectedLanguage);
+            } catch (Exception e) {
+                System.err.println("记录上传语言失败: " + e.getMessage());
             }
+        }
 
-            System.out.println("POM解析响应长度: " + response.length());
-            System.out.println("POM解析响应内容: " + response.substring(0, Math.min(200, response.length())) + "...");
+        scanProgressBroker.publish(ScanProgressEvent.of(filePath, ScanProgressEvent.LANGUAGE_DETECTED)
+                .with("language", detectedLanguage)
+                .with("languages", languages.stream().map(LanguageDetector.DetectedLanguage::getLanguage).collect(Collectors.toList()))
+                .with("ecosystems", new ArrayList<>(ecosystems)));
 
-            List<WhiteList> whiteLists = projectUtil.parseJsonData(response);
-            System.out.println("解析出依赖库数量: " + whiteLists.size());
+        // 所有检测到的生态的解析器并发运行；没有任何依赖清单时按主语言（或通用解析器）处理
+        if (ecosystems.isEmpty()) {
+            String canonical = LanguageDetector.canonicalLanguage(detectedLanguage);
+            ecosystems.add(canonical != null ? canonical : detectedLanguage);
+        }
 
-            int insertCount = 0;
-            for (WhiteList whiteList : whiteLists) {
-                whiteList.setFilePath(filePath);
-                whiteList.setLanguage("java");
-                whiteList.setIsdelete(0);
-                int result = whiteListMapper.insert(whiteList);
-                if (result > 0) {
-                    insertCount++;
-                }
+        Map<String, Object> result = new HashMap<>();
+        result.put("filePath", filePath);
+        result.put("language", detectedLanguage);
+        result.put("languages", languages);
+        result.put("ecosystems", ecosystems);
+        result.put("languagePercent", languagePercent);
+        return result;
+    }
+
+    /**
+     * 复用历史目录时沿用历史项目已保存的语言占比；历史项目没有保存时按本次目录检测一次
+     */
+    private Map<String, Double> reusedLanguagePercent(String filePath, String reusedFrom) {
+        List<Project> sources = projectMapper.selectList(new QueryWrapper<Project>()
+                .eq("file", reusedFrom)
+                .isNotNull("language_percent"));
+        if (!sources.isEmpty()) {
+            Map<String, Double> stored = parseLanguagePercent(sources.get(0).getLanguagePercent());
+            if (stored != null) {
+                return stored;
             }
-            System.out.println("成功插入依赖库数量: " + insertCount);
+        }
+        try {
+            return projectUtil.detectProjectLanguages(filePath).languagePercent();
         } catch (Exception e) {
-            System.err.println("解析Java项目失败，路径: " + filePath + "，错误: " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("统计语言占比失败: " + e.getMessage());
+            return null;
         }
     }
 
-    @Async("projectAnalysisExecutor")
-    @Override
-    public void asyncParseCProject(String filePath){
-        System.out.println("开始解析C/C++项目: " + filePath);
+    /**
+     * 把语言检测时得出的语言占比写入该路径的项目，项目详情直接读取，不再遍历目录
+     */
+    private void saveLanguagePercent(String filePath, Map<String, Double> languagePercent) {
+        if (languagePercent == null) {
+            return;
+        }
+        try {
+            Project update = new Project();
+            update.setLanguagePercent(new ObjectMapper().writeValueAsString(languagePercent));
+            projectMapper.update(update, new QueryWrapper<Project>().eq("file", filePath));
+        } catch (Exception e) {
+            System.err.println("记录语言占比失败: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, Double> parseLanguagePercent(String json) {
         try {
-            RestTemplate restTemplate = new RestTemplate();
-            String url = UriComponentsBuilder.fromHttpUrl("http://localhost:5000/parse/c_parse")
-                    .queryParam("project_folder", filePath)
-                    .encode() // 自动处理 URL 编码
-                    .build()
-                    .toUriString();
-
-            System.out.println("调用C项目解析API: " + url);
-            String response = restTemplate.getForObject(url, String.class);
-
-            if (response == null || response.trim().isEmpty()) {
-                System.err.println("C项目解析API返回空响应，项目路径: " + filePath);
+            return new ObjectMapper().readValue(json, new TypeReference<Map<String, Double>>() {
+            });
+        } catch (IOException e) {
+            System.out.println("DEBUG: 解析语言占比失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void startAnalysis(Map<String, Object> uploadResult) {
+        String filePath = (String) uploadResult.get("filePath");
+        String reusedFrom = (String) uploadResult.get("reusedFrom");
+        saveLanguagePercent(filePath, (Map<String, Double>) uploadResult.get("languagePercent"));
+        if (reusedFrom != null) {
+            if (copyPreviousAnalysis(filePath, reusedFrom, (String) uploadResult.get("language"))) {
+                uploadResult.put("reused", true);
                 return;
             }
+            // 复制失败时按正常流程检测生态并解析，项目语言沿用历史上传的
+            Map<String, Object> detected = detectEcosystems(filePath);
+            uploadResult.put("languages", detected.get("languages"));
+            uploadResult.put("ecosystems", detected.get("ecosystems"));
+        }
+        // 写入解析任务队列后再返回，实例重启或线程池已满都不会丢失解析
+        List<String> ecosystems = (List<String>) uploadResult.get("ecosystems");
+        ScanJob job = scanJobService.enqueue(filePath, new ArrayList<>(ecosystems));
+        uploadResult.put("jobId", job.getId());
+        scanProgressBroker.publish(ScanProgressEvent.of(filePath, ScanProgressEvent.JOB_QUEUED).with("jobId", job.getId()));
+    }
 
-            // 检查是否返回了错误页面
-            if (response.contains("<!doctype html>") || response.contains("<html")) {
-                System.err.println("C项目解析API返回错误页面，项目路径: " + filePath);
-                System.err.println("错误详情: " + response.substring(0, Math.min(500, response.length())));
-                return;
+    /**
+     * 本次上传复用了历史上传的解压目录时，沿 reusedFrom 向前找到实际解析过的历史上传，其最近一次解析任务已成功时返回该记录，否则返回null
+     *
+     * 历史上传本身也可能是复用（只复制了依赖、没有解析任务），所以不能只看直接复用的那一次上传
+     */
+    private UploadArchive findReusableAnalysis(String filePath) {
+        if (!contentAddressedStore.isEnabled()) {
+            return null;
+        }
+        try {
+            UploadArchive archive = contentAddressedStore.findByFilePath(filePath);
+            Set<String> visited = new HashSet<>();
+            visited.add(filePath);
+            while (archive != null && archive.getReusedFrom() != null && visited.add(archive.getReusedFrom())) {
+                UploadArchive source = contentAddressedStore.findByFilePath(archive.getReusedFrom());
+                if (source == null) {
+                    return null;
+                }
+                List<ScanJob> jobs = scanJobService.listJobs(source.getFilePath());
+                if (!jobs.isEmpty()) {
+                    // 历史上传还在解析、解析失败或只解析了一部分时，已有的依赖不完整，按正常流程重新解析
+                    if (!ScanJob.STATUS_SUCCEEDED.equals(jobs.get(0).getStatus()) || source.getLanguage() == null) {
+                        return null;
+                    }
+                    return source;
+                }
+                archive = source;
             }
+            return null;
+        } catch (Exception e) {
+            System.err.println("查询可复用的历史分析结果失败，重新解析: " + e.getMessage());
+            return null;
+        }
+    }
 
-            System.out.println("C项目解析响应长度: " + response.length());
-            System.out.println("C项目解析响应内容: " + response.substring(0, Math.min(200, response.length())) + "...");
+    /**
+     * 把历史上传的依赖记录复制到新路径下：在一个事务内分批写入，中途失败时不会留下一半的依赖
+     *
+     * @return 复制成功返回true
+     */
+    private boolean copyPreviousAnalysis(String filePath, String reusedFrom, String language) {
+        try {
+            List<WhiteList> dependencies = whiteListMapper.selectList(
+                    new QueryWrapper<WhiteList>()
+                            .eq("file_path", reusedFrom)
+                            .eq("isdelete", 0));
+            int copied = transactionTemplate.execute(status -> {
+                try (WhiteListBatchWriter writer = new WhiteListBatchWriter(whiteListMapper, filePath)) {
+                    for (WhiteList dependency : dependencies) {
+                        WhiteList copy = new WhiteList();
+                        copy.setName(dependency.getName());
+                        copy.setFilePath(filePath);
+                        copy.setDescription(dependency.getDescription());
+                        copy.setLanguage(dependency.getLanguage());
+                        copy.setModulePath(dependency.getModulePath());
+                        copy.setIsdelete(0);
+                        writer.accept(copy);
+                    }
+                    writer.flush();
+                    return writer.getInserted();
+                }
+            });
+            contentAddressedStore.updateLanguage(filePath, language);
+            System.out.println("✓ 复用历史上传的分析结果: " + reusedFrom + "，依赖数: " + copied);
+            scanProgressBroker.publish(ScanProgressEvent.of(filePath, ScanProgressEvent.DEPENDENCIES_SAVED)
+                    .with("reused", true)
+                    .with("dependencies", copied));
+            return true;
+        } catch (Exception e) {
+            System.err.println("复用历史分析结果失败，重新解析: " + e.getMessage());
+            return false;
+        }
+    }
 
-            List<WhiteList> whiteLists = projectUtil.parseJsonData(response);
-            System.out.println("解析出依赖库数量: " + whiteLists.size());
+    /**
+     * 语言 -> Flask解析器名，没有本地解析器或目录中没有可本地解析的清单文件时使用
+     */
+    private static final Map<String, String> PARSER_NAMES = new HashMap<>();
+    static {
+        PARSER_NAMES.put("java", "pom_parse");
+        PARSER_NAMES.put("c", "c_parse");
+        PARSER_NAMES.put("python", "python_parse");
+        PARSER_NAMES.put("rust", "rust_parse");
+        PARSER_NAMES.put("go", "go_parse");
+        PARSER_NAMES.put("javascript", "javascript_parse");
+        PARSER_NAMES.put("php", "php_parse");
+        PARSER_NAMES.put("ruby", "ruby_parse");
+        PARSER_NAMES.put("erlang", "erlang_parse");
+    }
 
-            int insertCount = 0;
-            for (WhiteList whiteList : whiteLists) {
-                whiteList.setFilePath(filePath);
-                whiteList.setLanguage("c");  // 修复: 统一使用 "c"，与 project.language 一致
-                whiteList.setIsdelete(0);
-                int result = whiteListMapper.insert(whiteList);
-                if (result > 0) {
-                    insertCount++;
+    @Override
+    public List<WhiteList> parseDependencies(String language, String filePath) throws IOException {
+        return parseDependencies(language, filePath, "");
+    }
+
+    @Override
+    public List<WhiteList> parseDependencies(String language, String filePath, String modulePath) throws IOException {
+        List<WhiteList> whiteLists = new ArrayList<>();
+        if (parseLocally(language, filePath, modulePath, true, whiteLists::add) != null) {
+            return whiteLists;
+        }
+        return AnalysisServiceClient.await(parseRemotely(language, filePath, modulePath));
+    }
+
+    @Override
+    public CompletableFuture<List<WhiteList>> parseDependenciesAsync(String language, String filePath, String modulePath) {
+        List<WhiteList> whiteLists = new ArrayList<>();
+        return parseDependenciesAsync(language, filePath, modulePath, true, whiteLists::add).thenApply(count -> whiteLists);
+    }
+
+    /**
+     * 异步解析一个模块，依赖逐个交给 sink：本地解析器边解析边交出，Flask 的结果整体返回后再逐个交出
+     *
+     * @param subtree 本地解析器是否解析模块目录下的整个子树，见 ProjectModule.isSubtree
+     * @return 交给 sink 的依赖数
+     */
+    private CompletableFuture<Integer> parseDependenciesAsync(String language, String filePath, String modulePath,
+                                                              boolean subtree, Consumer<WhiteList> sink) {
+        // 本地解析在 dependencyParserExecutor 上执行；需要 Flask 时等待响应期间不占用线程
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return parseLocally(language, filePath, modulePath, subtree, sink);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, dependencyParserExecutor).thenCompose(count -> count != null
+                ? CompletableFuture.completedFuture(count)
+                : parseRemotely(language, filePath, modulePath).thenApply(whiteLists -> {
+                    // parseRemotely 在 dependencyParserExecutor 上完成，写入 sink 不占用 HTTP 客户端的 I/O 线程
+                    whiteLists.forEach(sink);
+                    return whiteLists.size();
+                }));
+    }
+
+    /**
+     * 用本地解析器解析，依赖逐个交给 sink
+     *
+     * @return 交给 sink 的依赖数，没有适用的本地解析器时返回null
+     */
+    private Integer parseLocally(String language, String filePath, String modulePath, boolean subtree,
+                                 Consumer<WhiteList> sink) throws IOException {
+        projectStorageManager.ensureHot(filePath);
+        // Maven 项目在本地解析；模块内没有 pom.xml（如 Gradle 项目）时仍交给 Flask
+        if ("java".equals(language)) {
+            List<WhiteList> whiteLists = mavenDependencyResolver.resolve(Paths.get(filePath), modulePath, subtree);
+            if (whiteLists != null) {
+                for (WhiteList whiteList : whiteLists) {
+                    whiteList.setFilePath(filePath);
+                    sink.accept(whiteList);
                 }
+                return whiteLists.size();
             }
-            System.out.println("成功插入C依赖库数量: " + insertCount);
-        } catch (Exception e) {
-            System.err.println("解析C/C++项目失败，路径: " + filePath + "，错误: " + e.getMessage());
-            e.printStackTrace();
         }
+        // requirements/pyproject/Pipfile.lock/poetry.lock 本地解析；只有 setup.py 等时仍交给 Flask
+        if ("python".equals(language)) {
+            List<WhiteList> whiteLists = pythonDependencyExtractor.extract(Paths.get(filePath), Paths.get(filePath, modulePath));
+            if (whiteLists != null) {
+                for (WhiteList whiteList : whiteLists) {
+                    whiteList.setFilePath(filePath);
+                    whiteList.setModulePath(modulePath);
+                    sink.accept(whiteList);
+                }
+                return whiteLists.size();
+            }
+        }
+        // CMake/Conan/vcpkg 清单和内嵌的第三方库源码在本地识别；什么都没发现时仍交给 Flask 扫描源码
+        if ("c".equals(language)) {
+            projectUtil.ensureFullyExtracted(filePath);
+            List<WhiteList> whiteLists = cDependencyScanner.scan(Paths.get(filePath, modulePath));
+            if (!whiteLists.isEmpty()) {
+                for (WhiteList whiteList : whiteLists) {
+                    whiteList.setFilePath(filePath);
+                    whiteList.setModulePath(modulePath);
+                    sink.accept(whiteList);
+                }
+                return whiteLists.size();
+            }
+        }
+        // Go/Rust/PHP/Ruby/Erlang 锁文件、JavaScript 锁文件由本地解析器处理，边解析边交出；没有对应文件时仍交给 Flask
+        ManifestParserRegistry.Match manifest = manifestParserRegistry.find(language, Paths.get(filePath, modulePath));
+        if (manifest != null) {
+            return manifest.parse(whiteList -> {
+                whiteList.setFilePath(filePath);
+                whiteList.setModulePath(modulePath);
+                sink.accept(whiteList);
+            });
+        }
+        // C/C++源码扫描和通用解析器需要完整源码
+        if ("c".equals(language) || !PARSER_NAMES.containsKey(language)) {
+            projectUtil.ensureFullyExtracted(filePath);
+        }
+        return null;
+    }
+
+    /**
+     * 调用 Flask 解析接口，结果转换在 dependencyParserExecutor 上执行，不占用 HTTP 客户端的 I/O 线程
+     */
+    private CompletableFuture<List<WhiteList>> parseRemotely(String language, String filePath, String modulePath) {
+        String parser = PARSER_NAMES.getOrDefault(language, "unified_parse");
+        String projectFolder = modulePath.isEmpty() ? filePath : new File(filePath, modulePath).getPath();
+        return analysisServiceClient.parse(parser, projectFolder).thenApplyAsync(response -> {
+            try {
+                return toDependencies(language, filePath, modulePath, response);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, dependencyParserExecutor);
+    }
+
+    private static List<WhiteList> toDependencies(String language, String filePath, String modulePath, String response) throws IOException {
+        if (response == null || response.trim().isEmpty()) {
+            throw new IOException(language + "解析API返回空响应");
+        }
+        if (response.contains("<!doctype html>") || response.contains("<html")) {
+            throw new IOException(language + "解析API返回HTML错误页面");
+        }
+        // 不使用 projectUtil.parseJsonData：格式错误时它返回空列表，调用方会误以为依赖已全部移除
+        List<WhiteList> whiteLists = new ObjectMapper().readValue(response, new TypeReference<List<WhiteList>>() {
+        });
+        for (WhiteList whiteList : whiteLists) {
+            whiteList.setFilePath(filePath);
+            whiteList.setModulePath(modulePath);
+            if (whiteList.getLanguage() == null || whiteList.getLanguage().isEmpty() || PARSER_NAMES.containsKey(language)) {
+                whiteList.setLanguage(language);
+            }
+            whiteList.setIsdelete(0);
+        }
+        return whiteLists;
     }
 
     @Override
-    public String uploadFile(MultipartFile file) throws IOException {
-        String filePath = projectUtil.unzipAndSaveFile(file);
-        System.out.println("文件解压完成，路径: " + filePath);
-        return filePath;
+    public List<ModuleScanResult> scanModules(String filePath, Collection<String> languages) throws IOException {
+        return scanModules(filePath, languages, null);
     }
 
     /**
-     * 上传文件并检测项目语言（新方法）
-     * 返回包含 filePath 和 detectedLanguage 的 Map
+     * 发现并并发解析模块
+     *
+     * @param sink 不为null时各模块的依赖边解析边交给 sink（会被多个解析线程同时调用），结果中只记录依赖数；
+     *             为null时结果中带完整的依赖列表
      */
-    @Override
-    public Map<String, Object> uploadFileWithLanguageDetection(MultipartFile file) throws IOException {
-        // 第一步：解压文件
-        String filePath = projectUtil.unzipAndSaveFile(file);
-        System.out.println("文件解压完成，路径: " + filePath);
+    private List<ModuleScanResult> scanModules(String filePath, Collection<String> languages, Consumer<WhiteList> sink) throws IOException {
+        projectStorageManager.ensureHot(filePath);
+        List<ProjectModule> modules = ProjectModule.discover(Paths.get(filePath), languages, maxModulesPerLanguage);
+        System.out.println("发现模块: " + filePath + "，模块数: " + modules.size() + "，" + modules);
+
+        // 解析任务提交到独立的 dependencyParserExecutor：调用方本身运行在 projectAnalysisExecutor 上并等待结果，
+        // 若提交回同一线程池，线程被等待中的外层任务占满时子任务永远排不上
+        List<CompletableFuture<ModuleScanResult>> futures = new ArrayList<>();
+        for (ProjectModule module : modules) {
+            long moduleStart = System.currentTimeMillis();
+            scanProgressBroker.publish(ScanProgressEvent.of(filePath, ScanProgressEvent.PARSER_STARTED)
+                    .with("language", module.getLanguage())
+                    .with("modulePath", module.getModulePath()));
+            // 单个模块内按顺序交出依赖，收集列表不需要同步
+            List<WhiteList> collected = sink == null ? new ArrayList<>() : null;
+            futures.add(parseDependenciesAsync(module.getLanguage(), filePath, module.getModulePath(), module.isSubtree(),
+                    sink != null ? sink : collected::add)
+                    .handle((count, error) -> {
+                        long elapsed = System.currentTimeMillis() - moduleStart;
+                        ModuleScanResult result;
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                            String message = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+                            result = new ModuleScanResult(module, null, 0, message, elapsed);
+                        } else {
+                            result = new ModuleScanResult(module, collected, count, null, elapsed);
+                        }
+                        scanProgressBroker.publish(ScanProgressEvent.of(filePath, ScanProgressEvent.PARSER_FINISHED)
+                                .with("language", module.getLanguage())
+                                .with("modulePath", module.getModulePath())
+                                .with("dependencies", result.isSuccess() ? result.getDependencyCount() : null)
+                                .with("error", result.getError())
+                                .with("elapsedMillis", elapsed));
+                        return result;
+                    }));
+        }
 
-        // 第二步：使用精确的语言检测方法
-        String detectedLanguage;
-        try {
-            detectedLanguage = projectUtil.detectProjectType(filePath);
-            System.out.println("✓ 检测到项目语言: " + detectedLanguage);
-        } catch (Exception e) {
-            System.err.println("✗ 语言检测失败: " + e.getMessage());
-            detectedLanguage = "unknown";
+        List<ModuleScanResult> results = new ArrayList<>();
+        for (CompletableFuture<ModuleScanResult> future : futures) {
+            ModuleScanResult result = future.join();
+            if (result.isSuccess()) {
+                System.out.println("✓ 模块 " + result.getModule() + " 解析出依赖库数量: " + result.getDependencyCount()
+                        + "，耗时: " + result.getElapsedMillis() + "ms");
+            } else {
+                System.err.println("✗ 模块 " + result.getModule() + " 依赖解析失败，路径: " + filePath
+                        + "，耗时: " + result.getElapsedMillis() + "ms，错误: " + result.getError());
+            }
+            results.add(result);
         }
+        return results;
+    }
 
-        // 第三步：返回检测结果
-        Map<String, Object> result = new HashMap<>();
-        result.put("filePath", filePath);
-        result.put("language", detectedLanguage);
+    @Override
+    public int parseEcosystems(String filePath, List<String> languages) throws IOException {
+        return parseEcosystems(filePath, languages, () -> true);
+    }
 
-        // 第四步：根据检测结果异步解析项目
-        // 【关键】支持多种语言的解析器调用
-        System.out.println("准备触发异步解析，语言类型: " + detectedLanguage);
-        switch (detectedLanguage.toLowerCase()) {
-            case "java":
-                System.out.println("✓ 启动Java项目解析任务");
-                applicationContext.getBean(ProjectService.class).asyncParseJavaProject(filePath);
-                break;
-            case "c":
-                System.out.println("✓ 启动C/C++项目解析任务");
-                applicationContext.getBean(ProjectService.class).asyncParseCProject(filePath);
-                break;
-            case "python":
-                System.out.println("✓ 启动Python项目解析任务");
-                asyncParsePythonProject(filePath);
-                break;
-            case "rust":
-                System.out.println("✓ 启动Rust项目解析任务");
-                asyncParseRustProject(filePath);
-                break;
-            case "go":
-                System.out.println("✓ 启动Go项目解析任务");
-                asyncParseGoProject(filePath);
-                break;
-            case "javascript":
-                System.out.println("✓ 启动JavaScript项目解析任务");
-                asyncParseJavaScriptProject(filePath);
-                break;
-            case "php":
-                System.out.println("✓ 启动PHP项目解析任务");
-                asyncParsePhpProject(filePath);
-                break;
-            case "ruby":
-                System.out.println("✓ 启动Ruby项目解析任务");
-                asyncParseRubyProject(filePath);
-                break;
-            case "erlang":
-                System.out.println("✓ 启动Erlang项目解析任务");
-                asyncParseErlangProject(filePath);
-                break;
-            default:
-                System.out.println("⚠ 不支持的项目类型或无法检测: " + detectedLanguage);
-                System.out.println("项目路径: " + filePath);
-                System.out.println("✓ 已尝试使用通用解析器处理...");
-                // 改进：为 Unknown 语言添加详细的调试信息和通用解析
-                try {
-                    asyncParseUnknownProject(filePath, detectedLanguage);
-                } catch (Exception e) {
-                    System.err.println("✗ 通用解析器也失败: " + e.getMessage());
+    @Override
+    public int parseEcosystems(String filePath, List<String> languages, BooleanSupplier leaseHeld) throws IOException {
+        System.out.println("开始并发解析项目依赖: " + filePath + "，生态: " + languages);
+        long startTime = System.currentTimeMillis();
+
+        // 各模块边解析边写入：攒够一批即以多行 INSERT 写入，不在内存中保存整个项目的依赖；
+        // 模块失败时已写入的部分依赖保留，重试时已存在的记录会被跳过。
+        // 租约丢失后任务可能已被其他实例接管：写入前检查，丢失时让解析器抛出异常停止，缓冲中的依赖不再写入
+        WhiteListBatchWriter writer = new WhiteListBatchWriter(whiteListMapper, filePath);
+        List<ModuleScanResult> results = scanModules(filePath, new LinkedHashSet<>(languages), dependency -> {
+            synchronized (writer) {
+                checkLease(filePath, leaseHeld);
+                writer.accept(dependency);
+            }
+        });
+        int inserted;
+        synchronized (writer) {
+            checkLease(filePath, leaseHeld);
+            writer.flush();
+            inserted = writer.getInserted();
+        }
+        int parsed = 0;
+        ModuleScanResult firstFailure = null;
+        int failed = 0;
+        for (ModuleScanResult result : results) {
+            if (result.isSuccess()) {
+                parsed += result.getDependencyCount();
+            } else {
+                failed++;
+                if (firstFailure == null) {
+                    firstFailure = result;
                 }
+            }
         }
 
-        return result;
+        System.out.println("并发解析完成: " + filePath + "，模块数: " + results.size() + "，失败: " + failed
+                + "，成功插入依赖库数量: " + inserted + "，耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+        scanProgressBroker.publish(ScanProgressEvent.of(filePath, ScanProgressEvent.DEPENDENCIES_SAVED)
+                .with("modules", results.size())
+                .with("failedModules", failed)
+                .with("dependencies", parsed)
+                .with("inserted", inserted));
+        if (firstFailure != null) {
+            throw new IOException(failed + "/" + results.size() + "个模块解析失败，模块 " + firstFailure.getModule()
+                    + ": " + firstFailure.getError());
+        }
+        return parsed;
+    }
+
+    private static void checkLease(String filePath, BooleanSupplier leaseHeld) {
+        if (!leaseHeld.getAsBoolean()) {
+            throw new CancellationException("解析任务的租约已丢失，停止写入: " + filePath);
+        }
     }
 
     @Override
@@ -511,6 +918,19 @@ public class ProjectServiceImpl implements ProjectService, ApplicationContextAwa
                 : todaySixAM;
 
         projectVO.setLastScanTime(lastScanTime.toString());
+
+        // 语言占比在语言检测时已保存；此前创建的项目只在目录仍在热层时补算一次，不为此恢复冷目录或补全解压
+        if (project.getLanguagePercent() != null) {
+            projectVO.setLanguagePercent(parseLanguagePercent(project.getLanguagePercent()));
+        } else if (project.getFile() != null && Files.isDirectory(Paths.get(project.getFile()))) {
+            try {
+                Map<String, Double> languagePercent = projectUtil.detectProjectLanguages(project.getFile()).languagePercent();
+                saveLanguagePercent(project.getFile(), languagePercent);
+                projectVO.setLanguagePercent(languagePercent);
+            } catch (Exception e) {
+                System.out.println("DEBUG: 统计语言占比失败: " + e.getMessage());
+            }
+        }
         return projectVO;
 
     }
@@ -552,6 +972,10 @@ public class ProjectServiceImpl implements ProjectService, ApplicationContextAwa
         String projectDir = project.getFile();
         System.out.println("DEBUG: 项目目录: " + projectDir);
         System.out.println("DEBUG: 输出格式: " + type);
+
+        // OpenSCA需要完整源码（已压缩到冷层的目录先恢复，快速解压模式下此时才补全）
+        projectStorageManager.ensureHot(projectDir);
+        projectUtil.ensureFullyExtracted(projectDir);
         System.out.println("DEBUG: 输出文件名: " + outFileName);
 
         // 创建SBOM输出目录
@@ -806,214 +1230,4 @@ public class ProjectServiceImpl implements ProjectService, ApplicationContextAwa
         if (str == null) return "";
         return str.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;").replace("'", "&apos;");
     }
-
-    @Async("projectAnalysisExecutor")
-    public void asyncParsePythonProject(String filePath) {
-        callParserAPI("python", "http://localhost:5000/parse/python_parse", filePath);
-    }
-
-    @Async("projectAnalysisExecutor")
-    public void asyncParseRustProject(String filePath) {
-        callParserAPI("rust", "http://localhost:5000/parse/rust_parse", filePath);
-    }
-
-    @Async("projectAnalysisExecutor")
-    public void asyncParseGoProject(String filePath) {
-        callParserAPI("go", "http://localhost:5000/parse/go_parse", filePath);
-    }
-
-    @Async("projectAnalysisExecutor")
-    public void asyncParseJavaScriptProject(String filePath) {
-        callParserAPI("javascript", "http://localhost:5000/parse/javascript_parse", filePath);
-    }
-
-    @Async("projectAnalysisExecutor")
-    public void asyncParsePhpProject(String filePath) {
-        callParserAPI("php", "http://localhost:5000/parse/php_parse", filePath);
-    }
-
-    @Async("projectAnalysisExecutor")
-    public void asyncParseRubyProject(String filePath) {
-        callParserAPI("ruby", "http://localhost:5000/parse/ruby_parse", filePath);
-    }
-
-    @Async("projectAnalysisExecutor")
-    public void asyncParseErlangProject(String filePath) {
-        callParserAPI("erlang", "http://localhost:5000/parse/erlang_parse", filePath);
-    }
-
-    /**
-     * 处理未知语言项目的通用解析方法
-     * 尝试使用 Flask 的统一解析接口处理
-     */
-    public void asyncParseUnknownProject(String filePath, String detectedLanguage) {
-        System.out.println("开始处理未知语言项目: " + detectedLanguage);
-        System.out.println("项目路径: " + filePath);
-        try {
-            // 调用 Flask 的统一解析接口
-            RestTemplate restTemplate = new RestTemplate();
-            String url = UriComponentsBuilder.fromHttpUrl("http://localhost:5000/parse/unified_parse")
-                    .queryParam("project_folder", filePath)
-                    .encode()
-                    .build()
-                    .toUriString();
-
-            System.out.println("调用统一解析API: " + url);
-            String response = restTemplate.getForObject(url, String.class);
-
-            if (response == null || response.trim().isEmpty()) {
-                System.err.println("统一解析API返回空响应，项目路径: " + filePath);
-                System.out.println("建议: 检查项目是否包含依赖配置文件（如 requirements.txt、package.json 等）");
-                return;
-            }
-
-            List<WhiteList> whiteLists = projectUtil.parseJsonData(response);
-            System.out.println("通用解析出依赖库数量: " + whiteLists.size());
-
-            // 保存依赖库信息
-            int insertCount = 0;
-            for (WhiteList whiteList : whiteLists) {
-                whiteList.setFilePath(filePath);
-                // language 字段由统一解析器返回，或使用 detectedLanguage
-                if (whiteList.getLanguage() == null || whiteList.getLanguage().isEmpty()) {
-                    whiteList.setLanguage(detectedLanguage);
-                }
-                whiteList.setIsdelete(0);
-                if (whiteListMapper.insert(whiteList) > 0) {
-                    insertCount++;
-                }
-            }
-            System.out.println("成功插入" + detectedLanguage + "依赖库数量: " + insertCount);
-
-        } catch (Exception e) {
-            System.err.println("处理未知语言项目失败，路径: " + filePath + "，错误: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * 通用的依赖解析API调用方法
-     * 支持所有编程语言的依赖解析
-     *
-     * @param language 语言名称（用于日志和数据库标记）
-     * @param apiUrl Flask解析API的URL
-     * @param filePath 项目文件路径
-     */
-    private void callParserAPI(String language, String apiUrl, String filePath) {
-        System.out.println("========================================");
-        System.out.println("开始解析" + language.toUpperCase() + "项目");
-        System.out.println("项目路径: " + filePath);
-        System.out.println("========================================");
-
-        long startTime = System.currentTimeMillis();
-
-        try {
-            RestTemplate restTemplate = new RestTemplate();
-            String url = UriComponentsBuilder.fromHttpUrl(apiUrl)
-                    .queryParam("project_folder", filePath)
-                    .encode()
-                    .build()
-                    .toUriString();
-
-            System.out.println("→ 调用Flask API: " + apiUrl);
-            System.out.println("→ 完整URL: " + url);
-
-            // 调用Flask API获取依赖信息
-            String response = restTemplate.getForObject(url, String.class);
-
-            // 验证响应内容
-            if (response == null || response.trim().isEmpty()) {
-                System.err.println("✗ " + language + "解析API返回空响应");
-                System.err.println("  可能原因: Flask服务未运行或项目路径无效");
-                System.err.println("  项目路径: " + filePath);
-                return;
-            }
-
-            // 检查是否返回了HTML错误页面
-            if (response.contains("<!doctype html>") || response.contains("<html")) {
-                System.err.println("✗ " + language + "解析API返回HTML错误页面");
-                System.err.println("  响应内容预览: " + response.substring(0, Math.min(300, response.length())));
-                return;
-            }
-
-            System.out.println("✓ API响应接收成功，长度: " + response.length() + " 字符");
-            System.out.println("  响应内容预览: " + response.substring(0, Math.min(150, response.length())) + "...");
-
-            // 解析JSON响应为WhiteList对象列表
-            List<WhiteList> whiteLists = projectUtil.parseJsonData(response);
-
-            if (whiteLists == null || whiteLists.isEmpty()) {
-                System.out.println("⚠ 未解析出任何依赖库");
-                System.out.println("  可能原因: 项目中没有依赖配置文件，或文件格式不符合规范");
-                return;
-            }
-
-            System.out.println("✓ 成功解析出依赖库数量: " + whiteLists.size());
-
-            // 保存依赖信息到数据库
-            int insertCount = 0;
-            int duplicateCount = 0;
-            int errorCount = 0;
-
-            for (WhiteList whiteList : whiteLists) {
-                try {
-                    // 设置必要字段
-                    whiteList.setFilePath(filePath);
-                    whiteList.setLanguage(language.toLowerCase());
-                    whiteList.setIsdelete(0);
-
-                    // 检查是否已存在相同的依赖（避免重复插入）
-                    // 这里简化处理，直接插入，由数据库唯一索引处理重复问题
-                    int result = whiteListMapper.insert(whiteList);
-                    if (result > 0) {
-                        insertCount++;
-                    } else {
-                        duplicateCount++;
-                    }
-                } catch (Exception e) {
-                    errorCount++;
-                    System.err.println("  插入失败: " + whiteList.getName() + " - " + e.getMessage());
-                }
-            }
-
-            long endTime = System.currentTimeMillis();
-            long duration = endTime - startTime;
-
-            System.out.println("========================================");
-            System.out.println("✓ " + language.toUpperCase() + "项目解析完成");
-            System.out.println("  总依赖数: " + whiteLists.size());
-            System.out.println("  成功插入: " + insertCount);
-            if (duplicateCount > 0) {
-                System.out.println("  重复跳过: " + duplicateCount);
-            }
-            if (errorCount > 0) {
-                System.out.println("  插入失败: " + errorCount);
-            }
-            System.out.println("  耗时: " + duration + " ms");
-            System.out.println("========================================");
-
-        } catch (org.springframework.web.client.ResourceAccessException e) {
-            System.err.println("========================================");
-            System.err.println("✗ Flask服务连接失败");
-            System.err.println("  错误: " + e.getMessage());
-            System.err.println("  请确保Flask服务已启动 (http://localhost:5000)");
-            System.err.println("  项目路径: " + filePath);
-            System.err.println("========================================");
-        } catch (org.springframework.web.client.HttpClientErrorException e) {
-            System.err.println("========================================");
-            System.err.println("✗ Flask API请求失败");
-            System.err.println("  HTTP状态码: " + e.getStatusCode());
-            System.err.println("  错误信息: " + e.getStatusText());
-            System.err.println("  响应内容: " + e.getResponseBodyAsString());
-            System.err.println("========================================");
-        } catch (Exception e) {
-            System.err.println("========================================");
-            System.err.println("✗ 解析" + language + "项目失败");
-            System.err.println("  项目路径: " + filePath);
-            System.err.println("  错误类型: " + e.getClass().getName());
-            System.err.println("  错误信息: " + e.getMessage());
-            System.err.println("========================================");
-            e.printStackTrace();
-        }
-    }
-}
\ No newline at end of file
+}
@@ -1,18 +1,18 @@
 package com.nju.backend.service.project.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.nju.backend.repository.po.Vulnerability;
+import com.nju.backend.repository.mapper.ProjectMapper;
+import com.nju.backend.repository.po.Project;
 import com.nju.backend.repository.po.WhiteList;
 import com.nju.backend.repository.mapper.WhiteListMapper;
+import com.nju.backend.service.project.util.LanguageDetector;
+import com.nju.backend.service.project.util.ProjectStorageManager;
+import com.nju.backend.service.project.util.ProjectUtil;
+import com.nju.backend.service.project.util.PythonDependencyExtractor;
+import com.nju.backend.service.project.util.WhiteListBatchWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
@@ -20,9 +20,9 @@ import java.util.*;
  *
  * 功能流程:
  * 1. 接收Python项目路径
- * 2. 调用Flask语言检测API确认为Python项目
- * 3. 调用Flask Python解析器获取依赖列表
- * 4. 将依赖信息存储到white-list表
+ * 2. 本地检测项目语言，确认包含Python代码或依赖清单
+ * 3. 本地解析 requirements*.txt / pyproject.toml / Pipfile.lock / poetry.lock 获取依赖列表
+ * 4. 将依赖信息分批写入white-list表
  */
 @Service
 public class PythonProjectScanService {
@@ -31,12 +31,16 @@ public class PythonProjectScanService {
     private WhiteListMapper whiteListMapper;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private ProjectMapper projectMapper;
 
-    private static final String FLASK_BASE_URL = "http://127.0.0.1:5000";
-    private static final String LANGUAGE_DETECT_URL = FLASK_BASE_URL + "/parse/get_primary_language";
-    private static final String PYTHON_PARSE_URL = FLASK_BASE_URL + "/parse/python_parse";
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private ProjectUtil projectUtil;
+
+    @Autowired
+    private ProjectStorageManager projectStorageManager;
+
+    @Autowired
+    private PythonDependencyExtractor pythonDependencyExtractor;
 
     /**
      * 扫描Python项目并存储依赖到white-list
@@ -51,6 +55,8 @@ public class PythonProjectScanService {
         result.setProjectId(projectId);
 
         try {
+            projectStorageManager.ensureHot(projectPath);
+
             // Step 1: 检测项目语言
             String detectedLanguage = detectProjectLanguage(projectPath);
             result.setDetectedLanguage(detectedLanguage);
@@ -62,12 +68,22 @@ public class PythonProjectScanService {
             }
 
             // Step 2: 解析Python依赖
-            List<PythonDependency> dependencies = parsePythonDependencies(projectPath);
+            List<WhiteList> whiteLists = pythonDependencyExtractor.extract(Paths.get(projectPath), Paths.get(projectPath));
+            if (whiteLists == null) {
+                whiteLists = Collections.emptyList();
+            }
+            List<PythonDependency> dependencies = new ArrayList<>();
+            for (WhiteList whiteList : whiteLists) {
+                whiteList.setFilePath(projectPath);
+                whiteList.setProjectId(projectId);
+                dependencies.add(toPythonDependency(whiteList));
+            }
             result.setDependencies(dependencies);
             result.setDependencyCount(dependencies.size());
+            System.out.println("Parsed " + dependencies.size() + " Python dependencies");
 
             // Step 3: 保存到white-list表
-            int savedCount = saveToWhiteList(dependencies, projectId);
+            int savedCount = saveToWhiteList(projectPath, whiteLists);
             result.setSavedCount(savedCount);
             result.setSuccess(true);
             result.setMessage("Successfully scanned and saved " + savedCount + " dependencies to white-list");
@@ -82,116 +98,55 @@ public class PythonProjectScanService {
     }
 
     /**
-     * Step 1: 检测项目语言 (调用Flask API)
+     * Step 1: 检测项目语言（本地检测）；Python 不是主语言但有 Python 依赖清单时同样按 Python 项目扫描
      */
     private String detectProjectLanguage(String projectPath) throws Exception {
-        String encodedPath = URLEncoder.encode(projectPath, StandardCharsets.UTF_8.toString());
-        String url = LANGUAGE_DETECT_URL + "?project_folder=" + encodedPath + "&use_optimized=true";
-
-        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-
-        if (response.getStatusCode().is2xxSuccessful()) {
-            Map<String, Object> responseBody = objectMapper.readValue(response.getBody(), Map.class);
-            String language = (String) responseBody.get("language");
-            System.out.println("Detected language: " + language);
-            return language;
-        }
-
-        throw new Exception("Failed to detect language. HTTP " + response.getStatusCode());
-    }
-
-    /**
-     * Step 2: 解析Python依赖 (调用Flask API)
-     */
-    private List<PythonDependency> parsePythonDependencies(String projectPath) throws Exception {
-        String encodedPath = URLEncoder.encode(projectPath, StandardCharsets.UTF_8.toString());
-        String url = PYTHON_PARSE_URL + "?project_folder=" + encodedPath;
-
-        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-        List<PythonDependency> dependencies = new ArrayList<>();
-
-        if (response.getStatusCode().is2xxSuccessful()) {
-            Map<String, Object> responseBody = objectMapper.readValue(response.getBody(), Map.class);
-
-            // Flask返回格式: { "obj": [...dependencies...] }
-            Object objData = responseBody.get("obj");
-
-            if (objData instanceof List) {
-                List<Map<String, Object>> depList = (List<Map<String, Object>>) objData;
-
-                for (Map<String, Object> dep : depList) {
-                    PythonDependency pythonDep = new PythonDependency();
-                    pythonDep.setName((String) dep.get("name"));
-                    pythonDep.setVersion((String) dep.get("version"));
-                    pythonDep.setPackageManager((String) dep.getOrDefault("package_manager", "pip"));
-                    pythonDep.setLanguage("python");
-
-                    dependencies.add(pythonDep);
-                }
+        LanguageDetector detector = projectUtil.detectProjectLanguages(projectPath);
+        String language = detector.primaryLanguage();
+        for (LanguageDetector.DetectedLanguage detected : detector.languages()) {
+            if ("python".equals(detected.getLanguage()) && !detected.getManifests().isEmpty()) {
+                language = "python";
+                break;
             }
-
-            System.out.println("Parsed " + dependencies.size() + " Python dependencies");
-            return dependencies;
         }
-
-        throw new Exception("Failed to parse dependencies. HTTP " + response.getStatusCode());
+        System.out.println("Detected language: " + language);
+        return language;
     }
 
-    /**
-     * Step 3: 保存依赖到white-list表
-     */
-    private int saveToWhiteList(List<PythonDependency> dependencies, Long projectId) {
-        int savedCount = 0;
-
-        for (PythonDependency dep : dependencies) {
-            try {
-                WhiteList whiteListEntry = new WhiteList();
-                whiteListEntry.setProjectId(projectId);
-                whiteListEntry.setComponentName(dep.getName());
-                whiteListEntry.setComponentVersion(dep.getVersion());
-                whiteListEntry.setLanguage(dep.getLanguage());
-                whiteListEntry.setPackageManager(dep.getPackageManager());
-                whiteListEntry.setStatus("APPROVED");
-                whiteListEntry.setCreatedTime(new Date());
-                whiteListEntry.setRemark("Auto-detected from Python project scan");
-
-                // 检查是否已存在
-                if (!existsInWhiteList(whiteListEntry)) {
-                    whiteListMapper.insert(whiteListEntry);
-                    savedCount++;
-                }
-
-            } catch (Exception e) {
-                System.err.println("Failed to save dependency: " + dep.getName() + " - " + e.getMessage());
-            }
-        }
-
-        return savedCount;
+    private static PythonDependency toPythonDependency(WhiteList whiteList) {
+        PythonDependency pythonDep = new PythonDependency();
+        pythonDep.setName(whiteList.getName());
+        pythonDep.setVersion(whiteList.getComponentVersion());
+        pythonDep.setPackageManager(whiteList.getPackageManager());
+        pythonDep.setLanguage("python");
+        return pythonDep;
     }
 
     /**
-     * 检查white-list中是否已存在该条目
+     * Step 3: 保存依赖到white-list表（去掉已存在的记录，分批多行写入）
      */
-    private boolean existsInWhiteList(WhiteList entry) {
-        // 查询条件: projectId + componentName + componentVersion
-        WhiteList existing = whiteListMapper.selectOne(
-            new QueryWrapper<WhiteList>()
-                .eq("project_id", entry.getProjectId())
-                .eq("component_name", entry.getComponentName())
-                .eq("component_version", entry.getComponentVersion())
-        );
-        return existing != null;
+    private int saveToWhiteList(String projectPath, List<WhiteList> whiteLists) {
+        try (WhiteListBatchWriter writer = new WhiteListBatchWriter(whiteListMapper, projectPath)) {
+            whiteLists.forEach(writer);
+            writer.flush();
+            return writer.getInserted();
+        }
     }
 
     /**
      * 获取项目的white-list记录
      */
     public List<WhiteList> getProjectWhiteList(Long projectId) {
+        Project project = projectMapper.selectById(projectId);
+        if (project == null || project.getFile() == null) {
+            return Collections.emptyList();
+        }
         return whiteListMapper.selectList(
             new QueryWrapper<WhiteList>()
-                .eq("project_id", projectId)
+                .eq("file_path", project.getFile())
                 .eq("language", "python")
-                .orderByDesc("created_time")
+                .eq("isdelete", 0)
+                .orderByAsc("id")
         );
     }
 
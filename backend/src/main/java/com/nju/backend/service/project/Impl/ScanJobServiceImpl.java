@@ -0,0 +1,164 @@
+package com.nju.backend.service.project.Impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.nju.backend.repository.mapper.ScanJobMapper;
+import com.nju.backend.repository.po.ScanJob;
+import com.nju.backend.service.project.ScanJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Service
+public class ScanJobServiceImpl implements ScanJobService {
+
+    /**
+     * last_error 列的长度
+     */
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    @Autowired
+    private ScanJobMapper scanJobMapper;
+
+    @Value("${scan.job.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${scan.job.lease-ms:120000}")
+    private long leaseMillis;
+
+    @Value("${scan.job.retry-base-ms:30000}")
+    private long retryBaseMillis;
+
+    @Value("${scan.job.retry-max-ms:1800000}")
+    private long retryMaxMillis;
+
+    @Override
+    public ScanJob enqueue(String filePath, List<String> languages) {
+        return enqueue(filePath, ScanJob.TYPE_PARSE, languages);
+    }
+
+    @Override
+    public ScanJob enqueueGitRescan(String filePath) {
+        return enqueue(filePath, ScanJob.TYPE_GIT_RESCAN, Collections.emptyList());
+    }
+
+    private ScanJob enqueue(String filePath, String jobType, List<String> languages) {
+        String joined = String.join(",", languages);
+        ScanJob job = new ScanJob();
+        job.setFilePath(filePath);
+        job.setJobType(jobType);
+        job.setLanguages(joined);
+        job.setMaxAttempts(Math.max(1, maxAttempts));
+        // 去重由 active_key 唯一索引完成，先查后插在并发入队时会产生重复任务
+        scanJobMapper.insertQueued(job);
+        ScanJob saved = scanJobMapper.selectById(job.getId());
+        System.out.println("DEBUG: 解析任务入队: " + saved.getId() + "（类型: " + jobType + "，状态: " + saved.getStatus()
+                + "），路径: " + filePath + "，生态: " + joined);
+        return saved;
+    }
+
+    @Override
+    public ScanJob getJob(int id) {
+        ScanJob job = scanJobMapper.selectById(id);
+        if (job == null) {
+            throw new RuntimeException("解析任务不存在: " + id);
+        }
+        return job;
+    }
+
+    @Override
+    public List<ScanJob> listJobs(String filePath) {
+        return scanJobMapper.selectList(new QueryWrapper<ScanJob>()
+                .eq("file_path", filePath)
+                .orderByDesc("id"));
+    }
+
+    @Override
+    @Transactional
+    public List<ScanJob> claim(String owner, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        // 先接管租约过期的任务，再取排队任务；行锁到事务提交为止，其他实例的认领会跳过这些行
+        List<Integer> ids = new ArrayList<>(scanJobMapper.lockExpired(limit));
+        if (ids.size() < limit) {
+            ids.addAll(scanJobMapper.lockRunnable(limit - ids.size()));
+        }
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        scanJobMapper.markRunning(ids, owner, leaseSeconds());
+
+        List<ScanJob> claimed = new ArrayList<>();
+        for (ScanJob job : scanJobMapper.selectBatchIds(ids)) {
+            // 租约反复过期（如任务每次都让实例崩溃）时不再无限接管
+            if (job.getAttempts() > job.getMaxAttempts()) {
+                scanJobMapper.markFailed(job.getId(), owner, truncate("租约过期且重试次数已用完，最近错误: " + job.getLastError()));
+                System.err.println("解析任务 " + job.getId() + " 重试次数已用完，标记为失败，路径: " + job.getFilePath());
+                continue;
+            }
+            claimed.add(job);
+        }
+        return claimed;
+    }
+
+    @Override
+    public boolean heartbeat(int id, String owner) {
+        return scanJobMapper.renewLease(id, owner, leaseSeconds()) > 0;
+    }
+
+    @Override
+    public void succeed(int id, String owner, int dependencyCount) {
+        if (scanJobMapper.markSucceeded(id, owner, dependencyCount) == 0) {
+            System.err.println("解析任务 " + id + " 的租约已被其他实例接管，结果未写回");
+        }
+    }
+
+    @Override
+    public String fail(ScanJob job, String owner, String error) {
+        int updated;
+        String status;
+        if (job.getAttempts() >= job.getMaxAttempts()) {
+            status = ScanJob.STATUS_FAILED;
+            updated = scanJobMapper.markFailed(job.getId(), owner, truncate(error));
+            System.err.println("解析任务 " + job.getId() + " 第" + job.getAttempts() + "次执行失败，不再重试: " + error);
+        } else {
+            status = ScanJob.STATUS_QUEUED;
+            long delayMillis = Math.min(retryMaxMillis, retryBaseMillis << Math.min(job.getAttempts() - 1, 16));
+            updated = scanJobMapper.markRetry(job.getId(), owner, truncate(error), toSeconds(delayMillis));
+            System.err.println("解析任务 " + job.getId() + " 第" + job.getAttempts() + "次执行失败，" + delayMillis
+                    + "ms 后重试: " + error);
+        }
+        if (updated == 0) {
+            System.err.println("解析任务 " + job.getId() + " 的租约已被其他实例接管，失败结果未写回");
+        }
+        return status;
+    }
+
+    @Override
+    public void release(int id, String owner) {
+        scanJobMapper.release(id, owner);
+    }
+
+    private long leaseSeconds() {
+        return toSeconds(leaseMillis);
+    }
+
+    /**
+     * datetime 列精确到秒，不足一秒的按一秒算
+     */
+    private static long toSeconds(long millis) {
+        return Math.max(1, (millis + 999) / 1000);
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -3,13 +3,17 @@ package com.nju.backend.service.project;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.nju.backend.config.vo.ProjectVO;
 import com.nju.backend.config.vo.VulnerabilityVO;
-import org.springframework.scheduling.annotation.Async;
+import com.nju.backend.repository.po.WhiteList;
+import com.nju.backend.service.project.util.ModuleScanResult;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
 
 public interface ProjectService {
 
@@ -19,42 +23,80 @@ public interface ProjectService {
 
     void updateProject(Integer id, String name, String description, int risk_threshold,String filePath);
 
-    @Async("projectAnalysisExecutor")
-    void asyncParseJavaProject(String filePath);
-
-    @Async("projectAnalysisExecutor")
-    void asyncParseCProject(String filePath);
+    /**
+     * 并发运行多个生态的依赖解析器，边解析边分批写入 white_list（由 scan_job 队列的执行器调用）
+     * @param languages 规范化的语言名（见 LanguageDetector.canonicalLanguage），不在列表中的按通用解析器处理
+     * @return 解析出的依赖数
+     * @throws IOException 发现模块失败或有模块解析失败（成功模块的依赖已写入，重试时不会重复写入）
+     */
+    int parseEcosystems(String filePath, List<String> languages) throws IOException;
 
-    @Async("projectAnalysisExecutor")
-    void asyncParsePythonProject(String filePath);
+    /**
+     * 同 parseEcosystems(filePath, languages)，每写入一个依赖前检查 leaseHeld，返回false时停止解析且不再写入
+     * @param leaseHeld 调用方是否仍持有任务租约，会被多个解析线程调用，需要足够轻量
+     * @throws java.util.concurrent.CancellationException 租约已丢失
+     */
+    int parseEcosystems(String filePath, List<String> languages, BooleanSupplier leaseHeld) throws IOException;
 
-    @Async("projectAnalysisExecutor")
-    void asyncParseRustProject(String filePath);
+    String uploadFile(MultipartFile file) throws IOException;
 
-    @Async("projectAnalysisExecutor")
-    void asyncParseGoProject(String filePath);
+    /**
+     * 上传文件并自动检测项目语言
+     * @param file 上传的项目文件
+     * @param companyId 所属公司，用于确定解压资源预算
+     * @return 包含 filePath 和 language 的 Map
+     * @throws IOException 文件处理异常
+     */
+    Map<String, Object> uploadFileWithLanguageDetection(MultipartFile file, Integer companyId) throws IOException;
 
-    @Async("projectAnalysisExecutor")
-    void asyncParseJavaScriptProject(String filePath);
+    /**
+     * 解压已在服务器上合并完成的压缩包（分片上传）并自动检测项目语言
+     * @param archive 合并后的压缩包文件，由本方法接管
+     * @param digest 压缩包的SHA-256
+     * @param size 压缩包大小
+     * @param nameCharset 已检测出的文件名编码，可为null
+     * @param companyId 所属公司，用于确定解压资源预算
+     * @return 包含 filePath 和 language 的 Map
+     * @throws IOException 文件处理异常
+     */
+    Map<String, Object> uploadArchiveWithLanguageDetection(File archive, String digest, long size,
+                                                           java.nio.charset.Charset nameCharset, Integer companyId) throws IOException;
 
-    @Async("projectAnalysisExecutor")
-    void asyncParsePhpProject(String filePath);
+    /**
+     * 项目创建成功后开始依赖分析：可复用历史上传的结果时直接复制依赖，否则把检测出的生态写入解析任务队列
+     * @param uploadResult uploadFileWithLanguageDetection/uploadArchiveWithLanguageDetection 的返回值，
+     *                     本方法补充 jobId（已入队）或 reused=true（已复用）
+     */
+    void startAnalysis(Map<String, Object> uploadResult);
 
-    @Async("projectAnalysisExecutor")
-    void asyncParseRubyProject(String filePath);
+    /**
+     * 同步调用指定语言的依赖解析器，只返回解析结果，不写入 white_list
+     * @param language 与 white_list.language 一致的语言名
+     * @param filePath 项目目录
+     * @throws IOException 解析服务不可用或返回错误
+     */
+    List<WhiteList> parseDependencies(String language, String filePath) throws IOException;
 
-    @Async("projectAnalysisExecutor")
-    void asyncParseErlangProject(String filePath);
+    /**
+     * 同步调用指定语言的依赖解析器解析项目中的一个模块，结果的 modulePath 为该模块目录
+     * @param modulePath 相对项目目录的模块目录，空串表示整个项目
+     * @throws IOException 解析服务不可用或返回错误
+     */
+    List<WhiteList> parseDependencies(String language, String filePath, String modulePath) throws IOException;
 
-    String uploadFile(MultipartFile file) throws IOException;
+    /**
+     * 异步解析项目中的一个模块：本地解析器在 dependencyParserExecutor 上执行，需要 Flask 时等待响应期间不占用线程
+     * @return 解析结果，失败时以 IOException 异常完成
+     */
+    CompletableFuture<List<WhiteList>> parseDependenciesAsync(String language, String filePath, String modulePath);
 
     /**
-     * 上传文件并自动检测项目语言
-     * @param file 上传的项目文件
-     * @return 包含 filePath 和 language 的 Map
-     * @throws IOException 文件处理异常
+     * 发现项目中指定语言的全部模块并并发解析，单个模块失败不影响其他模块，不写入 white_list
+     * @param languages 规范化的语言名
+     * @return 每个模块的解析结果（含耗时和失败原因）
+     * @throws IOException 项目目录无法读取
      */
-    Map<String, Object> uploadFileWithLanguageDetection(MultipartFile file) throws IOException;
+    List<ModuleScanResult> scanModules(String filePath, Collection<String> languages) throws IOException;
 
     List<VulnerabilityVO> getVulnerabilities(int id);
 
@@ -0,0 +1,56 @@
+package com.nju.backend.service.project;
+
+import com.nju.backend.repository.po.ScanJob;
+
+import java.util.List;
+
+/**
+ * 依赖解析任务队列（scan_job 表）：上传后先入队再返回，由各实例的 ScanJobWorker 认领执行，
+ * 重启或线程池已满都不会丢任务
+ */
+public interface ScanJobService {
+
+    /**
+     * 新建解析任务；同一目录、同一组生态已有排队或运行中的任务时直接返回该任务
+     * @param languages 规范化的语言名（见 LanguageDetector.canonicalLanguage），不在列表中的按通用解析器处理
+     */
+    ScanJob enqueue(String filePath, List<String> languages);
+
+    /**
+     * 新建 Git 增量扫描任务（git_rescan），要重新解析的生态在运行时按提交差异确定；
+     * 同一项目目录已有排队或运行中的增量扫描任务时直接返回该任务
+     */
+    ScanJob enqueueGitRescan(String filePath);
+
+    ScanJob getJob(int id);
+
+    /**
+     * 某个项目目录的全部解析任务，最新的在前
+     */
+    List<ScanJob> listJobs(String filePath);
+
+    /**
+     * 认领最多 limit 个可运行的任务（到期的排队任务和租约已过期的运行中任务），认领后状态为 running
+     * @param owner 认领实例的标识，用于续租和提交结果
+     */
+    List<ScanJob> claim(String owner, int limit);
+
+    /**
+     * 续租
+     * @return false 表示租约已丢失（过期后被其他实例认领），执行结果不会再写回
+     */
+    boolean heartbeat(int id, String owner);
+
+    void succeed(int id, String owner, int dependencyCount);
+
+    /**
+     * 记录失败：还有重试次数时按指数退避重新排队，否则标记为 failed
+     * @return 任务的新状态（queued 或 failed）
+     */
+    String fail(ScanJob job, String owner, String error);
+
+    /**
+     * 已认领但没能开始执行的任务归还给队列
+     */
+    void release(int id, String owner);
+}
@@ -0,0 +1,198 @@
+package com.nju.backend.service.project.util;
+
+import com.nju.backend.repository.po.WhiteList;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 在 JVM 内发现 C/C++ 项目的依赖
+ *
+ * 每个目录一个 fork/join 任务（与 {@link LanguageSizeScanner} 相同）：列目录时只看文件名，
+ * 解析其中的 CMakeLists.txt、conan.lock / conanfile.txt / conanfile.py、vcpkg.json，
+ * 再按文件集合特征识别拷贝进源码树的第三方库（{@link VendoredLibrary}）。
+ * 识别出内嵌库的目录不再向下遍历，库自身的 CMakeLists.txt 不会被当成项目依赖；
+ * 构建产物目录（含 CMakeCache.txt 的目录、build、cmake-build-* 等）整棵跳过，目标文件不会被读取
+ */
+@Component
+public class CDependencyScanner {
+
+    /**
+     * 同一目录中的 Conan 清单只解析最靠前的一个：锁文件的版本最准确
+     */
+    private static final List<String> CONAN_MANIFESTS = Arrays.asList("conan.lock", "conanfile.txt", "conanfile.py");
+
+    /**
+     * 裁剪的目录名（不区分大小写，可含通配符）
+     */
+    private final List<PathMatcher> prunedNames = new ArrayList<>();
+
+    private final ForkJoinPool pool;
+
+    public CDependencyScanner(
+            @Value("${project.c.pruned-dirs:.git,.svn,.hg,.vs,.idea,build,out,bin,obj,Debug,Release,x64,CMakeFiles,cmake-build-*,node_modules}") String prunedDirs,
+            @Value("${file.scan.parallelism:0}") int parallelism) {
+        for (String rule : prunedDirs.split(",")) {
+            String trimmed = rule.trim();
+            if (!trimmed.isEmpty()) {
+                prunedNames.add(FileSystems.getDefault().getPathMatcher("glob:" + trimmed.toLowerCase(Locale.ROOT)));
+            }
+        }
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 扫描目录中的 C/C++ 依赖
+     *
+     * @return 合并后的依赖（同名有固定版本时去掉只有版本约束的记录），按包名排序；没有发现任何依赖时返回空列表
+     */
+    public List<WhiteList> scan(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+        long start = System.currentTimeMillis();
+
+        // 工作线程 -> 该线程发现的依赖，只由对应线程写入
+        Map<Thread, List<WhiteList>> found = new ConcurrentHashMap<>();
+        pool.invoke(new DirectoryTask(dir, found));
+
+        List<WhiteList> declared = new ArrayList<>();
+        for (List<WhiteList> rows : found.values()) {
+            declared.addAll(rows);
+        }
+        // 各线程的结果顺序不固定，排序后重复扫描的结果一致
+        declared.sort(Comparator.comparing(WhiteList::getName).thenComparing(WhiteList::getDescription));
+        List<WhiteList> merged = ManifestParser.mergeVersions(declared);
+        System.out.println("DEBUG: C/C++依赖扫描完成: " + dir + ", 依赖: " + merged.size()
+                + ", 耗时: " + (System.currentTimeMillis() - start) + "ms");
+        return merged;
+    }
+
+    private boolean isPruned(Path dir) {
+        Path name = dir.getFileName();
+        if (name == null) {
+            return false;
+        }
+        Path lowerName = Paths.get(name.toString().toLowerCase(Locale.ROOT));
+        for (PathMatcher matcher : prunedNames) {
+            if (matcher.matches(lowerName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 处理一个目录的清单和内嵌库，子目录拆成子任务
+     */
+    private class DirectoryTask extends RecursiveAction {
+        private final Path dir;
+        private final Map<Thread, List<WhiteList>> found;
+
+        DirectoryTask(Path dir, Map<Thread, List<WhiteList>> found) {
+            this.dir = dir;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            Set<String> fileNames = new HashSet<>();
+            List<Path> subdirs = new ArrayList<>();
+            try {
+                Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isDirectory()) {
+                            if (!isPruned(file)) {
+                                subdirs.add(file);
+                            }
+                        } else if (attrs.isRegularFile()) {
+                            fileNames.add(file.getFileName().toString());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                System.out.println("DEBUG: 扫描目录失败: " + dir + ", " + e.getMessage());
+                return;
+            }
+            // 任意名称的 CMake 构建目录
+            if (fileNames.contains("CMakeCache.txt")) {
+                return;
+            }
+            List<WhiteList> rows = found.computeIfAbsent(Thread.currentThread(), k -> new ArrayList<>());
+
+            VendoredLibrary library = VendoredLibrary.match(dir, fileNames);
+            if (library != null) {
+                rows.add(CManifestParser.toWhiteList(library.getName(), library.readVersion(dir), "", "vendored"));
+                return;
+            }
+
+            parseManifests(fileNames, rows);
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            for (Path subdir : subdirs) {
+                subtasks.add(new DirectoryTask(subdir, found));
+            }
+            invokeAll(subtasks);
+        }
+
+        private void parseManifests(Set<String> fileNames, List<WhiteList> rows) {
+            List<String> manifests = new ArrayList<>();
+            if (fileNames.contains("CMakeLists.txt")) {
+                manifests.add("CMakeLists.txt");
+            }
+            for (String conanManifest : CONAN_MANIFESTS) {
+                if (fileNames.contains(conanManifest)) {
+                    manifests.add(conanManifest);
+                    break;
+                }
+            }
+            if (fileNames.contains("vcpkg.json")) {
+                manifests.add("vcpkg.json");
+            }
+            for (String manifest : manifests) {
+                Path file = dir.resolve(manifest);
+                try {
+                    switch (manifest) {
+                        case "CMakeLists.txt":
+                            rows.addAll(CManifestParser.parseCMakeLists(file));
+                            break;
+                        case "conan.lock":
+                            rows.addAll(CManifestParser.parseConanLock(file));
+                            break;
+                        case "conanfile.txt":
+                            rows.addAll(CManifestParser.parseConanfileTxt(file));
+                            break;
+                        case "conanfile.py":
+                            rows.addAll(CManifestParser.parseConanfilePy(file));
+                            break;
+                        default:
+                            rows.addAll(CManifestParser.parseVcpkgJson(file));
+                            break;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // 单个清单格式错误不影响其他目录的结果
+                    System.out.println("DEBUG: 解析C/C++清单失败: " + file + ", " + e.getMessage());
+                }
+            }
+        }
+    }
+}
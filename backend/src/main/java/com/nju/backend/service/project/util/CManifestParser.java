@@ -0,0 +1,382 @@
+package com.nju.backend.service.project.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nju.backend.repository.po.WhiteList;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 解析 C/C++ 构建清单：CMakeLists.txt（find_package、pkg_check_modules、FetchContent_Declare、
+ * ExternalProject_Add、CPMAddPackage）、conan.lock / conanfile.txt / conanfile.py、vcpkg.json
+ *
+ * 包名统一为小写，并把 CMake 模块名映射为常见的包名（PNG -> libpng、CURL -> curl 等），
+ * 便于与 Conan/vcpkg 和内嵌源码识别出的结果合并
+ */
+public final class CManifestParser {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final Pattern CMAKE_COMMAND = Pattern.compile(
+            "(?i)\\b(find_package|pkg_check_modules|pkg_search_module|fetchcontent_declare|externalproject_add|cpmaddpackage)\\s*\\(([^()]*)\\)");
+
+    private static final Pattern CMAKE_ARGUMENT = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+
+    private static final Pattern NUMERIC_VERSION = Pattern.compile("^\\d+(\\.\\d+)*$");
+
+    private static final Pattern EMBEDDED_VERSION = Pattern.compile("(\\d+\\.\\d+(?:\\.\\d+)*)");
+
+    private static final Pattern COMMIT_HASH = Pattern.compile("^[0-9a-fA-F]{7,40}$");
+
+    /**
+     * conanfile.py 中的 "name/version" 引用
+     */
+    private static final Pattern CONAN_REFERENCE = Pattern.compile("[\"']([A-Za-z0-9_][A-Za-z0-9_.+-]*/[^\"'\\s]+)[\"']");
+
+    /**
+     * 构建工具或 CMake 自带的模块，不是第三方库
+     */
+    private static final Set<String> CMAKE_BUILTIN_PACKAGES = new HashSet<>(Arrays.asList(
+            "threads", "pkgconfig", "git", "doxygen", "python", "python2", "python3", "pythoninterp", "perl",
+            "bison", "flex", "gtest", "cuda", "cudatoolkit", "openmp", "mpi", "sphinx", "ccache"));
+
+    private static final Map<String, String> ALIASES = new HashMap<>();
+    static {
+        ALIASES.put("png", "libpng");
+        ALIASES.put("jpeg", "libjpeg");
+        ALIASES.put("libcurl", "curl");
+        ALIASES.put("sqlite3", "sqlite");
+        ALIASES.put("libxml-2.0", "libxml2");
+        ALIASES.put("openssl-ssl", "openssl");
+        ALIASES.put("libssl", "openssl");
+        ALIASES.put("libcrypto", "openssl");
+        ALIASES.put("mbedcrypto", "mbedtls");
+        ALIASES.put("cjson", "cjson");
+        ALIASES.put("boost-headers", "boost");
+    }
+
+    private CManifestParser() {
+    }
+
+    /**
+     * 统一包名：小写，CMake 模块名/ pkg-config 模块名映射为通用包名
+     */
+    public static String canonicalName(String name) {
+        String lower = name.trim().toLowerCase(Locale.ROOT);
+        return ALIASES.getOrDefault(lower, lower);
+    }
+
+    // ========== CMakeLists.txt ==========
+
+    public static List<WhiteList> parseCMakeLists(Path cmakeLists) throws IOException {
+        String content = stripCMakeComments(cmakeLists);
+        List<WhiteList> rows = new ArrayList<>();
+        Matcher command = CMAKE_COMMAND.matcher(content);
+        while (command.find()) {
+            List<String> args = cmakeArguments(command.group(2));
+            if (args.isEmpty()) {
+                continue;
+            }
+            switch (command.group(1).toLowerCase(Locale.ROOT)) {
+                case "find_package":
+                    findPackage(args, rows);
+                    break;
+                case "pkg_check_modules":
+                case "pkg_search_module":
+                    pkgCheckModules(args, rows);
+                    break;
+                case "cpmaddpackage":
+                    cpmAddPackage(args, rows);
+                    break;
+                default:
+                    // FetchContent_Declare / ExternalProject_Add
+                    fetchContent(args, rows);
+                    break;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * find_package(OpenSSL 1.1 REQUIRED)：版本是最低要求，只有 EXACT 时才是固定版本
+     */
+    private static void findPackage(List<String> args, List<WhiteList> rows) {
+        String name = args.get(0);
+        if (name.contains("${") || CMAKE_BUILTIN_PACKAGES.contains(name.toLowerCase(Locale.ROOT))) {
+            return;
+        }
+        String version = args.size() > 1 && NUMERIC_VERSION.matcher(args.get(1)).matches() ? args.get(1) : null;
+        if (version == null) {
+            rows.add(toWhiteList(name, null, "", "cmake"));
+        } else if (args.contains("EXACT")) {
+            rows.add(toWhiteList(name, version, "", "cmake"));
+        } else {
+            rows.add(toWhiteList(name, null, ">=" + version, "cmake"));
+        }
+    }
+
+    /**
+     * pkg_check_modules(GLIB REQUIRED IMPORTED_TARGET glib-2.0>=2.56 zlib=1.2.13)
+     */
+    private static void pkgCheckModules(List<String> args, List<WhiteList> rows) {
+        for (String arg : args.subList(1, args.size())) {
+            if (arg.equals(arg.toUpperCase(Locale.ROOT)) && !arg.matches(".*\\d.*") || arg.contains("${")) {
+                // REQUIRED、QUIET、IMPORTED_TARGET、GLOBAL 等关键字
+                continue;
+            }
+            int operator = indexOfAny(arg, "<>=");
+            if (operator < 0) {
+                rows.add(toWhiteList(arg, null, "", "pkg-config"));
+                continue;
+            }
+            String name = arg.substring(0, operator);
+            String constraint = arg.substring(operator);
+            boolean exact = constraint.startsWith("=") && !constraint.startsWith("==") || constraint.startsWith("==");
+            String version = constraint.replaceFirst("^[<>=]+", "");
+            rows.add(exact ? toWhiteList(name, version, "", "pkg-config") : toWhiteList(name, null, constraint, "pkg-config"));
+        }
+    }
+
+    /**
+     * FetchContent_Declare(fmt GIT_REPOSITORY ... GIT_TAG 10.1.1) / ExternalProject_Add(zlib URL .../zlib-1.3.tar.gz)
+     */
+    private static void fetchContent(List<String> args, List<WhiteList> rows) {
+        String name = args.get(0);
+        if (name.contains("${")) {
+            return;
+        }
+        rows.add(toWhiteList(name, versionOf(keywordValue(args, "GIT_TAG"), keywordValue(args, "URL")), "", "cmake"));
+    }
+
+    /**
+     * CPMAddPackage("gh:fmtlib/fmt#7.1.3") / CPMAddPackage(NAME fmt VERSION 7.1.3 GITHUB_REPOSITORY fmtlib/fmt)
+     */
+    private static void cpmAddPackage(List<String> args, List<WhiteList> rows) {
+        if (args.size() == 1) {
+            String spec = args.get(0);
+            String path = spec.contains(":") ? spec.substring(spec.indexOf(':') + 1) : spec;
+            int hash = path.lastIndexOf('#');
+            int at = path.lastIndexOf('@');
+            int separator = Math.max(hash, at);
+            String repository = separator > 0 ? path.substring(0, separator) : path;
+            String name = repository.substring(repository.lastIndexOf('/') + 1);
+            rows.add(toWhiteList(name, separator > 0 ? versionOf(path.substring(separator + 1), null) : null, "", "cmake"));
+            return;
+        }
+        String name = keywordValue(args, "NAME");
+        if (name == null) {
+            String repository = keywordValue(args, "GITHUB_REPOSITORY");
+            name = repository == null ? null : repository.substring(repository.lastIndexOf('/') + 1);
+        }
+        if (name == null || name.contains("${")) {
+            return;
+        }
+        String version = keywordValue(args, "VERSION");
+        rows.add(toWhiteList(name, versionOf(version != null ? version : keywordValue(args, "GIT_TAG"), keywordValue(args, "URL")), "", "cmake"));
+    }
+
+    /**
+     * 从 tag（v1.2.3、release-1.12.1）或下载地址（.../zlib-1.3.tar.gz）中取版本号，提交哈希和变量返回null
+     */
+    private static String versionOf(String tag, String url) {
+        if (tag != null && !tag.contains("${") && !COMMIT_HASH.matcher(tag).matches()) {
+            Matcher matcher = EMBEDDED_VERSION.matcher(tag);
+            if (matcher.find()) {
+                return matcher.group(1);
+            }
+        }
+        if (url != null && !url.contains("${")) {
+            Matcher matcher = EMBEDDED_VERSION.matcher(url.substring(url.lastIndexOf('/') + 1));
+            if (matcher.find()) {
+                return matcher.group(1);
+            }
+        }
+        return null;
+    }
+
+    private static String keywordValue(List<String> args, String keyword) {
+        int index = args.indexOf(keyword);
+        return index >= 0 && index + 1 < args.size() ? args.get(index + 1) : null;
+    }
+
+    private static List<String> cmakeArguments(String text) {
+        List<String> args = new ArrayList<>();
+        Matcher matcher = CMAKE_ARGUMENT.matcher(text);
+        while (matcher.find()) {
+            args.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+        }
+        return args;
+    }
+
+    private static String stripCMakeComments(Path cmakeLists) throws IOException {
+        StringBuilder content = new StringBuilder();
+        try (BufferedReader reader = Files.newBufferedReader(cmakeLists, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                boolean quoted = false;
+                int end = line.length();
+                for (int i = 0; i < line.length(); i++) {
+                    char c = line.charAt(i);
+                    if (c == '"') {
+                        quoted = !quoted;
+                    } else if (c == '#' && !quoted) {
+                        end = i;
+                        break;
+                    }
+                }
+                content.append(line, 0, end).append('\n');
+            }
+        }
+        return content.toString();
+    }
+
+    // ========== Conan ==========
+
+    /**
+     * conan.lock：Conan 2 的 requires 数组（"zlib/1.2.13#rev%timestamp"），Conan 1 的 graph_lock.nodes[*].ref；
+     * build_requires / python_requires 是构建工具，不计入
+     */
+    public static List<WhiteList> parseConanLock(Path conanLock) throws IOException {
+        JsonNode root = OBJECT_MAPPER.readTree(conanLock.toFile());
+        List<WhiteList> rows = new ArrayList<>();
+        for (JsonNode reference : root.path("requires")) {
+            addConanReference(reference.asText(""), rows);
+        }
+        Iterator<JsonNode> nodes = root.path("graph_lock").path("nodes").elements();
+        while (nodes.hasNext()) {
+            JsonNode node = nodes.next();
+            if (!node.path("ref").isMissingNode()) {
+                addConanReference(node.path("ref").asText(""), rows);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * conanfile.txt 的 [requires] 段；[tool_requires]/[build_requires] 是构建工具
+     */
+    public static List<WhiteList> parseConanfileTxt(Path conanfile) throws IOException {
+        List<WhiteList> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(conanfile, StandardCharsets.UTF_8)) {
+            boolean inRequires = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                if (trimmed.startsWith("[")) {
+                    inRequires = "[requires]".equals(trimmed);
+                    continue;
+                }
+                if (inRequires) {
+                    addConanReference(trimmed, rows);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * conanfile.py 是 Python 代码，只提取 requires = "..." / self.requires("...") 中的字面量引用
+     */
+    public static List<WhiteList> parseConanfilePy(Path conanfile) throws IOException {
+        List<WhiteList> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(conanfile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.startsWith("#") || trimmed.contains("tool_requires") || trimmed.contains("build_requires")) {
+                    continue;
+                }
+                if (!trimmed.contains("requires")) {
+                    continue;
+                }
+                Matcher matcher = CONAN_REFERENCE.matcher(trimmed);
+                while (matcher.find()) {
+                    addConanReference(matcher.group(1), rows);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * name/version[@user/channel][#revision][%timestamp]，版本可能是范围 [>=1.2 <2]
+     */
+    private static void addConanReference(String reference, List<WhiteList> rows) {
+        int slash = reference.indexOf('/');
+        if (slash <= 0) {
+            return;
+        }
+        String name = reference.substring(0, slash);
+        String version = reference.substring(slash + 1);
+        for (char terminator : new char[]{'@', '#', '%'}) {
+            int index = version.indexOf(terminator);
+            if (index >= 0) {
+                version = version.substring(0, index);
+            }
+        }
+        version = version.trim();
+        if (version.startsWith("[")) {
+            rows.add(toWhiteList(name, null, version, "conan"));
+        } else if (!version.isEmpty()) {
+            rows.add(toWhiteList(name, version, "", "conan"));
+        }
+    }
+
+    // ========== vcpkg.json ==========
+
+    /**
+     * dependencies 可以是字符串或 {"name": ..., "version>=": ...}；overrides 中的版本是固定版本
+     */
+    public static List<WhiteList> parseVcpkgJson(Path vcpkgJson) throws IOException {
+        JsonNode root = OBJECT_MAPPER.readTree(vcpkgJson.toFile());
+        Map<String, String> overrides = new HashMap<>();
+        for (JsonNode override : root.path("overrides")) {
+            String name = override.path("name").asText("");
+            String version = override.path("version").asText(override.path("version-string").asText(""));
+            if (!name.isEmpty() && !version.isEmpty()) {
+                overrides.put(name, version);
+            }
+        }
+        List<WhiteList> rows = new ArrayList<>();
+        for (JsonNode dependency : root.path("dependencies")) {
+            String name = dependency.isTextual() ? dependency.asText() : dependency.path("name").asText("");
+            if (name.isEmpty() || dependency.path("host").asBoolean(false)) {
+                // host 依赖是构建工具
+                continue;
+            }
+            String minimum = dependency.path("version>=").asText("");
+            String pinned = overrides.get(name);
+            rows.add(pinned != null ? toWhiteList(name, pinned, "", "vcpkg")
+                    : toWhiteList(name, null, minimum.isEmpty() ? "" : ">=" + minimum, "vcpkg"));
+        }
+        return rows;
+    }
+
+    private static int indexOfAny(String value, String characters) {
+        for (int i = 0; i < value.length(); i++) {
+            if (characters.indexOf(value.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static WhiteList toWhiteList(String name, String version, String constraint, String packageManager) {
+        String canonical = canonicalName(name);
+        WhiteList row = ManifestParser.dependency(canonical, version, "c", packageManager);
+        if (version == null && !constraint.isEmpty()) {
+            row.setDescription(canonical + constraint);
+        }
+        return row;
+    }
+}
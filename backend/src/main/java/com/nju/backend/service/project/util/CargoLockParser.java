@@ -0,0 +1,81 @@
+package com.nju.backend.service.project.util;
+
+import com.nju.backend.repository.po.WhiteList;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Cargo.lock：逐行读取 [[package]] 块中的 name / version / source，
+ * 没有 source 的包是工作区成员或 path 依赖，不计入第三方依赖
+ */
+@Component
+public class CargoLockParser implements ManifestParser {
+
+    private static final List<String> FILE_NAMES = Collections.singletonList("Cargo.lock");
+
+    @Override
+    public String language() {
+        return "rust";
+    }
+
+    @Override
+    public List<String> fileNames() {
+        return FILE_NAMES;
+    }
+
+    @Override
+    public int parse(Path manifest, Consumer<WhiteList> sink) throws IOException {
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            boolean inPackage = false;
+            String name = null;
+            String version = null;
+            boolean hasSource = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("[")) {
+                    if (inPackage && name != null && hasSource) {
+                        sink.accept(ManifestParser.dependency(name, version, "rust", "cargo"));
+                        count++;
+                    }
+                    inPackage = "[[package]]".equals(line.trim());
+                    name = null;
+                    version = null;
+                    hasSource = false;
+                    continue;
+                }
+                if (!inPackage) {
+                    continue;
+                }
+                if (line.startsWith("name = ")) {
+                    name = unquote(line.substring("name = ".length()));
+                } else if (line.startsWith("version = ")) {
+                    version = unquote(line.substring("version = ".length()));
+                } else if (line.startsWith("source = ")) {
+                    hasSource = true;
+                }
+            }
+            if (inPackage && name != null && hasSource) {
+                sink.accept(ManifestParser.dependency(name, version, "rust", "cargo"));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.charAt(0) == '"' && trimmed.charAt(trimmed.length() - 1) == '"') {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+}
@@ -0,0 +1,387 @@
+package com.nju.backend.service.project.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * 一次分片上传的状态
+ *
+ * 1. 分片以 FileChannel 定位写入到同一个 .part 文件，可乱序、可重传；每个字节只由一个分片写入：
+ *    写入前在锁内预留尚未收到、也没有其他分片正在写入的子区间，只写这些子区间，分片校验通过后才登记为已收到，
+ *    已收到（已计入摘要）的字节不会再被覆盖
+ * 2. 已收到的字节区间合并保存；从文件头开始的连续部分一旦增长就立即计入整体SHA-256，完成时无需再读一遍文件
+ * 3. 文件尾部与中央目录所在区间到齐后立即解析中央目录（检测文件名编码），不必等待全部分片；tar 包没有中央目录，完成后流式解压
+ * 4. 会话信息（文件名、总大小、已收到的区间）在每次登记后写入 .part 旁的 .meta 文件（先落盘分片数据），
+ *    服务重启后或由共享上传目录的其他实例从中恢复；已计入摘要的前缀在恢复时重新读取计算。
+ *    同一会话的并发分片应由同一实例处理
+ */
+public class ChunkedUploadSession {
+
+    private static final int IO_BUFFER_SIZE = 256 * 1024;
+    private static final int EOCD_SEARCH_WINDOW = 22 + 0xFFFF;
+
+    private final String uploadId;
+    private final String fileName;
+    private final long totalSize;
+    private final File partFile;
+    private final File metaFile;
+    private final FileChannel channel;
+
+    /**
+     * 已收到的区间：起始偏移 -> 结束偏移（不含），相邻或重叠的区间会被合并
+     */
+    private final TreeMap<Long, Long> received = new TreeMap<>();
+    /**
+     * 正在写入、尚未校验的区间：起始偏移 -> 结束偏移（不含），互不重叠，也不与已收到的区间重叠
+     */
+    private final TreeMap<Long, Long> inFlight = new TreeMap<>();
+    private final MessageDigest archiveDigest = ZipExtractionEngine.newSha256();
+    private long hashedUpTo;
+
+    private ZipCentralDirectory centralDirectory;
+    private String centralDirectoryError;
+    private volatile long lastActiveTime = System.currentTimeMillis();
+
+    public ChunkedUploadSession(String uploadId, String fileName, long totalSize, File partFile) throws IOException {
+        this(uploadId, fileName, totalSize, partFile, true);
+        persist();
+    }
+
+    private ChunkedUploadSession(String uploadId, String fileName, long totalSize, File partFile,
+                                 boolean create) throws IOException {
+        this.uploadId = uploadId;
+        this.fileName = fileName;
+        this.totalSize = totalSize;
+        this.partFile = partFile;
+        this.metaFile = metaFileOf(partFile);
+        this.channel = create
+                ? FileChannel.open(partFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(partFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * .part 文件对应的会话信息文件
+     */
+    public static File metaFileOf(File partFile) {
+        return new File(partFile.getParentFile(), partFile.getName().replaceFirst("\\.part$", "") + ".meta");
+    }
+
+    /**
+     * 从 .meta 文件恢复会话，重新计算已收到前缀的摘要
+     */
+    public static ChunkedUploadSession restore(String uploadId, File partFile) throws IOException {
+        Properties meta = new Properties();
+        try (java.io.Reader reader = Files.newBufferedReader(metaFileOf(partFile).toPath(), StandardCharsets.UTF_8)) {
+            meta.load(reader);
+        }
+        long totalSize = Long.parseLong(meta.getProperty("totalSize"));
+        ChunkedUploadSession session = new ChunkedUploadSession(uploadId, meta.getProperty("fileName"), totalSize,
+                partFile, false);
+        try {
+            if (session.channel.size() > totalSize) {
+                throw new IOException("分片文件大于声明的总大小: " + partFile);
+            }
+            synchronized (session) {
+                String ranges = meta.getProperty("received", "");
+                for (String range : ranges.isEmpty() ? new String[0] : ranges.split(",")) {
+                    int dash = range.indexOf('-');
+                    session.received.put(Long.parseLong(range.substring(0, dash)), Long.parseLong(range.substring(dash + 1)));
+                }
+                session.advanceDigest();
+                session.tryReadCentralDirectory();
+            }
+        } catch (IOException | RuntimeException e) {
+            session.closeChannel();
+            throw e instanceof IOException ? (IOException) e : new IOException("分片上传会话信息无效: " + e.getMessage(), e);
+        }
+        System.out.println("DEBUG: 恢复分片上传会话: " + uploadId + ", 已收到: " + session.getReceivedBytes() + " bytes");
+        return session;
+    }
+
+    /**
+     * 将分片数据写入指定偏移，同时计算分片的SHA-256
+     *
+     * 只写入在锁内预留到的子区间（写入本身在锁外进行，定位写入互不影响），校验通过后才登记区间；
+     * 已收到或正由其他分片写入的部分只参与校验，不写入
+     *
+     * @return 分片的字节数
+     */
+    public long writeChunk(long offset, InputStream in, String expectedSha256, long maxChunkSize) throws IOException {
+        lastActiveTime = System.currentTimeMillis();
+        MessageDigest chunkDigest = ZipExtractionEngine.newSha256();
+        byte[] buffer = new byte[IO_BUFFER_SIZE];
+        List<long[]> reserved = new ArrayList<>();
+        boolean verified = false;
+        long position = offset;
+        try {
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                if (position + len > totalSize) {
+                    throw new IllegalArgumentException("分片超出文件总大小: offset=" + offset + ", totalSize=" + totalSize);
+                }
+                if (position + len - offset > maxChunkSize) {
+                    throw new IllegalArgumentException("分片过大，最大允许 " + maxChunkSize + " bytes");
+                }
+                chunkDigest.update(buffer, 0, len);
+                for (long[] range : reserve(position, position + len)) {
+                    reserved.add(range);
+                    ByteBuffer data = ByteBuffer.wrap(buffer, (int) (range[0] - position), (int) (range[1] - range[0]));
+                    long writeAt = range[0];
+                    while (data.hasRemaining()) {
+                        writeAt += channel.write(data, writeAt);
+                    }
+                }
+                position += len;
+            }
+
+            String actual = ContentAddressedStore.toHex(chunkDigest.digest());
+            if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(actual)) {
+                // 不登记该区间，客户端重传时覆盖写入
+                throw new IllegalArgumentException("分片校验失败: offset=" + offset + ", 期望 " + expectedSha256 + ", 实际 " + actual);
+            }
+            verified = true;
+        } finally {
+            if (verified) {
+                markReceived(reserved);
+            } else {
+                release(reserved);
+            }
+        }
+        return position - offset;
+    }
+
+    /**
+     * 预留 [start, end) 中既未收到、也没有其他分片正在写入的子区间
+     */
+    private synchronized List<long[]> reserve(long start, long end) {
+        List<long[]> ranges = new ArrayList<>();
+        long cursor = start;
+        while (cursor < end) {
+            long covered = Math.max(coveredUntil(received, cursor), coveredUntil(inFlight, cursor));
+            if (covered > cursor) {
+                cursor = covered;
+                continue;
+            }
+            long next = Math.min(end, Math.min(nextStart(received, cursor), nextStart(inFlight, cursor)));
+            ranges.add(new long[]{cursor, next});
+            inFlight.put(cursor, next);
+            cursor = next;
+        }
+        return ranges;
+    }
+
+    private static long coveredUntil(TreeMap<Long, Long> ranges, long position) {
+        Map.Entry<Long, Long> floor = ranges.floorEntry(position);
+        return floor != null && floor.getValue() > position ? floor.getValue() : position;
+    }
+
+    private static long nextStart(TreeMap<Long, Long> ranges, long position) {
+        Long next = ranges.higherKey(position);
+        return next != null ? next : Long.MAX_VALUE;
+    }
+
+    private synchronized void release(List<long[]> ranges) {
+        for (long[] range : ranges) {
+            inFlight.remove(range[0]);
+        }
+    }
+
+    /**
+     * 登记校验通过的区间：先落盘分片数据再写会话信息，恢复后声明已收到的区间一定已在文件中
+     */
+    private synchronized void markReceived(List<long[]> ranges) throws IOException {
+        release(ranges);
+        if (ranges.isEmpty()) {
+            return;
+        }
+        for (long[] range : ranges) {
+            addReceived(range[0], range[1]);
+        }
+        channel.force(false);
+        persist();
+        advanceDigest();
+        tryReadCentralDirectory();
+    }
+
+    private void addReceived(long start, long end) {
+        Map.Entry<Long, Long> floor = received.floorEntry(start);
+        if (floor != null && floor.getValue() >= start) {
+            start = floor.getKey();
+            end = Math.max(end, floor.getValue());
+        }
+        Map.Entry<Long, Long> next;
+        while ((next = received.ceilingEntry(start)) != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            received.remove(next.getKey());
+        }
+        received.put(start, end);
+    }
+
+    /**
+     * 原子地写入会话信息文件
+     */
+    private synchronized void persist() throws IOException {
+        StringBuilder ranges = new StringBuilder();
+        for (Map.Entry<Long, Long> range : received.entrySet()) {
+            if (ranges.length() > 0) {
+                ranges.append(',');
+            }
+            ranges.append(range.getKey()).append('-').append(range.getValue());
+        }
+        Properties meta = new Properties();
+        meta.setProperty("fileName", fileName);
+        meta.setProperty("totalSize", String.valueOf(totalSize));
+        meta.setProperty("received", ranges.toString());
+        File temp = new File(metaFile.getParentFile(), metaFile.getName() + ".tmp");
+        try (java.io.Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            meta.store(writer, null);
+        }
+        Files.move(temp.toPath(), metaFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 连续前缀增长时，把新增部分计入整体摘要（数据刚写入，读取命中页缓存）
+     */
+    private void advanceDigest() throws IOException {
+        Long prefixEnd = received.get(0L);
+        if (prefixEnd == null || prefixEnd <= hashedUpTo) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+        while (hashedUpTo < prefixEnd) {
+            buffer.clear();
+            buffer.limit((int) Math.min(IO_BUFFER_SIZE, prefixEnd - hashedUpTo));
+            int n = channel.read(buffer, hashedUpTo);
+            if (n <= 0) {
+                throw new IOException("读取分片文件失败: " + partFile);
+            }
+            archiveDigest.update(buffer.array(), 0, n);
+            hashedUpTo += n;
+        }
+    }
+
+    private void tryReadCentralDirectory() {
+        if (centralDirectory != null || centralDirectoryError != null) {
+            return;
+        }
+        if (!isReceived(Math.max(0, totalSize - EOCD_SEARCH_WINDOW), totalSize)) {
+            return;
+        }
+        try {
+            long regionStart = ZipCentralDirectory.requiredRegionStart(channel, totalSize);
+            if (isReceived(regionStart, totalSize)) {
+                centralDirectory = ZipCentralDirectory.read(channel, totalSize);
+                System.out.println("DEBUG: 分片上传 " + uploadId + " 已解析中央目录，条目数: " + centralDirectory.getEntries().size());
+            }
+        } catch (IOException e) {
+            // 尾部数据不是有效的ZIP结构，完成时交给解压流程按顺序读取处理
+            centralDirectoryError = e.getMessage();
+            System.err.println("DEBUG: 分片上传 " + uploadId + " 解析中央目录失败: " + e.getMessage());
+        }
+    }
+
+    private boolean isReceived(long start, long end) {
+        if (start >= end) {
+            return true;
+        }
+        Map.Entry<Long, Long> floor = received.floorEntry(start);
+        return floor != null && floor.getValue() >= end;
+    }
+
+    /**
+     * 区间 [offset, offset + length) 是否已经全部收到（用于识别重传的分片）
+     */
+    public synchronized boolean isRangeReceived(long offset, long length) {
+        return isReceived(offset, offset + length);
+    }
+
+    public synchronized boolean isComplete() {
+        return isReceived(0, totalSize);
+    }
+
+    public synchronized long getReceivedBytes() {
+        long total = 0;
+        for (Map.Entry<Long, Long> range : received.entrySet()) {
+            total += range.getValue() - range.getKey();
+        }
+        return total;
+    }
+
+    /**
+     * 尚未收到的区间列表，每项为 [start, end)
+     */
+    public synchronized List<long[]> getMissingRanges() {
+        List<long[]> missing = new ArrayList<>();
+        long cursor = 0;
+        for (Map.Entry<Long, Long> range : received.entrySet()) {
+            if (range.getKey() > cursor) {
+                missing.add(new long[]{cursor, range.getKey()});
+            }
+            cursor = Math.max(cursor, range.getValue());
+        }
+        if (cursor < totalSize) {
+            missing.add(new long[]{cursor, totalSize});
+        }
+        return missing;
+    }
+
+    /**
+     * 全部分片到齐后返回整体SHA-256
+     */
+    public synchronized String getArchiveDigest() {
+        if (hashedUpTo != totalSize) {
+            throw new IllegalStateException("分片尚未全部上传");
+        }
+        return ContentAddressedStore.toHex(archiveDigest.digest());
+    }
+
+    /**
+     * 中央目录检测出的文件名编码，尚未解析或解析失败时返回null
+     */
+    public synchronized Charset getNameCharset() {
+        return centralDirectory == null ? null : centralDirectory.detectNameCharset();
+    }
+
+    public synchronized int getEntryCount() {
+        return centralDirectory == null ? -1 : centralDirectory.getEntries().size();
+    }
+
+    /**
+     * 读取文件头部字节（用于第一个分片到达后识别压缩格式）
+     */
+    public byte[] readHeader(int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, totalSize));
+        channel.read(buffer, 0);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("DEBUG: 关闭分片文件失败: " + e.getMessage());
+        }
+    }
+
+    public String getUploadId() { return uploadId; }
+
+    public String getFileName() { return fileName; }
+
+    public long getTotalSize() { return totalSize; }
+
+    public File getPartFile() { return partFile; }
+
+    public File getMetaFile() { return metaFile; }
+
+    public long getLastActiveTime() { return lastActiveTime; }
+}
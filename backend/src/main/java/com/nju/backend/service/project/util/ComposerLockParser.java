@@ -0,0 +1,95 @@
+package com.nju.backend.service.project.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.nju.backend.repository.po.WhiteList;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * composer.lock：用 JsonParser 逐个 token 读取 packages 与 packages-dev 数组中的 name / version，
+ * 其余字段（dist、autoload、description 等）直接跳过
+ */
+@Component
+public class ComposerLockParser implements ManifestParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final List<String> FILE_NAMES = Collections.singletonList("composer.lock");
+
+    @Override
+    public String language() {
+        return "php";
+    }
+
+    @Override
+    public List<String> fileNames() {
+        return FILE_NAMES;
+    }
+
+    @Override
+    public int parse(Path manifest, Consumer<WhiteList> sink) throws IOException {
+        int count = 0;
+        try (JsonParser parser = JSON_FACTORY.createParser(manifest.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("锁文件格式错误: " + manifest);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (("packages".equals(field) || "packages-dev".equals(field)) && value == JsonToken.START_ARRAY) {
+                    count += readPackages(parser, sink);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int readPackages(JsonParser parser, Consumer<WhiteList> sink) throws IOException {
+        int count = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String name = null;
+            String version = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("name".equals(field) && value == JsonToken.VALUE_STRING) {
+                    name = parser.getText();
+                } else if ("version".equals(field) && value == JsonToken.VALUE_STRING) {
+                    version = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (name != null) {
+                sink.accept(ManifestParser.dependency(name, normalizeVersion(version), "php", "composer"));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 标签形式的 v1.2.3 去掉前缀 v；dev-main 等分支版本保持原样
+     */
+    private static String normalizeVersion(String version) {
+        if (version != null && version.length() > 1 && (version.charAt(0) == 'v' || version.charAt(0) == 'V')
+                && Character.isDigit(version.charAt(1))) {
+            return version.substring(1);
+        }
+        return version;
+    }
+}
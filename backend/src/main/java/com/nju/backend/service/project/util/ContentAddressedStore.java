@@ -0,0 +1,193 @@
+package com.nju.backend.service.project.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.nju.backend.config.FileStorageConfig;
+import com.nju.backend.repository.mapper.UploadArchiveMapper;
+import com.nju.backend.repository.po.UploadArchive;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 基于内容寻址的上传存储
+ *
+ * 1. 压缩包级别：以压缩包的SHA-256为键记录解压目录，内容相同的压缩包重复上传时直接以硬链接复制已有目录，不再解压
+ * 2. 文件级别：解压出的每个文件按SHA-256存入 .cas/objects，解压目录中只保留指向对象的硬链接
+ *
+ * 每次上传仍然得到独立的目录（project.file / white_list.file_path 的语义不变），只是磁盘上共享同一份数据
+ */
+@Component
+public class ContentAddressedStore {
+
+    private static final String CAS_DIR = ".cas";
+    private static final String OBJECTS_DIR = "objects";
+    /**
+     * 生成物目录（如SBOM输出），不随源码树一起复用
+     */
+    private static final String SBOM_DIR = "sbom";
+
+    @Autowired
+    private UploadArchiveMapper uploadArchiveMapper;
+
+    private final FileStorageConfig fileStorageConfig;
+
+    @Value("${file.cas.enabled:true}")
+    private boolean enabled;
+
+    public ContentAddressedStore(FileStorageConfig fileStorageConfig) {
+        this.fileStorageConfig = fileStorageConfig;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查找内容相同且解压目录仍然存在的历史上传
+     */
+    public UploadArchive findReusableArchive(String digest) {
+        List<UploadArchive> archives = uploadArchiveMapper.selectList(
+                new QueryWrapper<UploadArchive>()
+                        .eq("digest", digest)
+                        .orderByDesc("id"));
+        for (UploadArchive archive : archives) {
+            if (archive.getFilePath() != null && Files.isDirectory(Paths.get(archive.getFilePath()))) {
+                return archive;
+            }
+        }
+        return null;
+    }
+
+    public UploadArchive findByFilePath(String filePath) {
+        return uploadArchiveMapper.selectOne(
+                new QueryWrapper<UploadArchive>()
+                        .eq("file_path", filePath)
+                        .last("LIMIT 1"));
+    }
+
+    public void recordArchive(String digest, String filePath, String reusedFrom, long size) {
+        UploadArchive archive = new UploadArchive();
+        archive.setDigest(digest);
+        archive.setFilePath(filePath);
+        archive.setReusedFrom(reusedFrom);
+        archive.setSize(size);
+        archive.setCreateTime(new Date());
+        uploadArchiveMapper.insert(archive);
+    }
+
+    public void updateLanguage(String filePath, String language) {
+        UploadArchive archive = findByFilePath(filePath);
+        if (archive != null) {
+            archive.setLanguage(language);
+            uploadArchiveMapper.updateById(archive);
+        }
+    }
+
+    /**
+     * 解压目录的内容已被原地修改（如Git增量更新），不再与登记的压缩包摘要一致，取消登记以免被后续上传复用
+     */
+    public void forgetArchive(String filePath) {
+        uploadArchiveMapper.delete(new QueryWrapper<UploadArchive>().eq("file_path", filePath));
+    }
+
+    /**
+     * 以硬链接方式把已有解压目录复制到新目录（跨文件系统等无法建立硬链接时退化为复制）
+     */
+    public void materialize(Path source, Path dest) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Path relative = source.relativize(dir);
+                if (relative.getNameCount() == 1 && SBOM_DIR.equals(relative.toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Files.createDirectories(dest.resolve(relative.toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path target = dest.resolve(source.relativize(file).toString());
+                try {
+                    Files.createLink(target, file);
+                } catch (UnsupportedOperationException | IOException e) {
+                    Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 将刚写入的文件登记到对象库：对象已存在时用指向对象的硬链接替换该文件，否则把该文件链接为新对象
+     */
+    public void intern(Path file, String digest) {
+        Path object = objectPath(digest);
+        try {
+            if (!Files.exists(object)) {
+                Files.createDirectories(object.getParent());
+                try {
+                    Files.createLink(object, file);
+                    return;
+                } catch (FileAlreadyExistsException e) {
+                    // 其他线程已写入相同内容的对象，按已存在处理
+                }
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".cas-tmp");
+            Files.createLink(temp, object);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (UnsupportedOperationException | IOException e) {
+            // 文件系统不支持硬链接时保留原文件，只是不做去重
+            System.err.println("DEBUG: 内容寻址存储登记失败，保留原文件: " + file + ", 原因: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 回收不再被任何解压目录引用的对象（硬链接数只剩对象库自身的一个）
+     *
+     * @return 删除的对象数；文件系统不提供链接数时不回收
+     */
+    public int collectGarbage() {
+        Path objects = Paths.get(fileStorageConfig.getUploadDir(), CAS_DIR, OBJECTS_DIR);
+        if (!Files.isDirectory(objects)) {
+            return 0;
+        }
+        int[] collected = {0};
+        try {
+            Files.walkFileTree(objects, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Object links = Files.getAttribute(file, "unix:nlink");
+                    if (links instanceof Integer && (Integer) links <= 1) {
+                        Files.deleteIfExists(file);
+                        collected[0]++;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            System.out.println("DEBUG: 文件系统不支持读取硬链接数，跳过对象回收");
+        } catch (IOException e) {
+            System.err.println("DEBUG: 对象回收失败: " + e.getMessage());
+        }
+        return collected[0];
+    }
+
+    private Path objectPath(String digest) {
+        return Paths.get(fileStorageConfig.getUploadDir(), CAS_DIR, OBJECTS_DIR, digest.substring(0, 2), digest);
+    }
+
+    public static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package com.nju.backend.service.project.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 依赖解析所需的清单/锁文件
+ *
+ * 快速解压模式下只先解压这些文件，其余源码在需要时（SBOM生成、C/C++源码扫描）再补全
+ */
+public final class DependencyManifests {
+
+    private static final Set<String> FILE_NAMES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            // Java
+            "pom.xml", "build.gradle", "build.gradle.kts", "settings.gradle", "settings.gradle.kts",
+            "gradle.properties", "gradle.lockfile",
+            // JavaScript
+            "package.json", "package-lock.json", "npm-shrinkwrap.json", "yarn.lock", "pnpm-lock.yaml",
+            // Python
+            "requirements.txt", "setup.py", "setup.cfg", "pyproject.toml", "pipfile", "pipfile.lock", "poetry.lock",
+            // Rust / Go
+            "cargo.toml", "cargo.lock", "go.mod", "go.sum",
+            // PHP / Ruby / Erlang
+            "composer.json", "composer.lock", "gemfile", "gemfile.lock", "rebar.config", "rebar.lock",
+            // C/C++
+            "cmakelists.txt", "makefile", "conanfile.txt", "conanfile.py", "vcpkg.json"
+    )));
+
+    /**
+     * 清单文件名 -> 负责解析该文件的语言（与 white_list.language 一致）
+     */
+    private static final Map<String, String> LANGUAGES = new HashMap<>();
+    static {
+        for (String name : Arrays.asList("pom.xml", "build.gradle", "build.gradle.kts", "settings.gradle",
+                "settings.gradle.kts", "gradle.properties", "gradle.lockfile")) {
+            LANGUAGES.put(name, "java");
+        }
+        for (String name : Arrays.asList("package.json", "package-lock.json", "npm-shrinkwrap.json", "yarn.lock", "pnpm-lock.yaml")) {
+            LANGUAGES.put(name, "javascript");
+        }
+        for (String name : Arrays.asList("requirements.txt", "setup.py", "setup.cfg", "pyproject.toml", "pipfile",
+                "pipfile.lock", "poetry.lock")) {
+            LANGUAGES.put(name, "python");
+        }
+        LANGUAGES.put("cargo.toml", "rust");
+        LANGUAGES.put("cargo.lock", "rust");
+        LANGUAGES.put("go.mod", "go");
+        LANGUAGES.put("go.sum", "go");
+        LANGUAGES.put("composer.json", "php");
+        LANGUAGES.put("composer.lock", "php");
+        LANGUAGES.put("gemfile", "ruby");
+        LANGUAGES.put("gemfile.lock", "ruby");
+        LANGUAGES.put("rebar.config", "erlang");
+        LANGUAGES.put("rebar.lock", "erlang");
+        for (String name : Arrays.asList("cmakelists.txt", "makefile", "conanfile.txt", "conanfile.py", "vcpkg.json")) {
+            LANGUAGES.put(name, "c");
+        }
+    }
+
+    private DependencyManifests() {
+    }
+
+    /**
+     * 判断压缩包条目（以 / 分隔的相对路径）是否为依赖清单文件，目录条目返回false
+     */
+    public static boolean isManifest(String entryName) {
+        String name = entryName.replace('\\', '/');
+        if (name.endsWith("/")) {
+            return false;
+        }
+        String fileName = name.substring(name.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+        if (FILE_NAMES.contains(fileName)) {
+            return true;
+        }
+        // requirements-dev.txt、requirements/prod.txt 等
+        if (fileName.endsWith(".txt") && (fileName.startsWith("requirements") || name.contains("requirements/"))) {
+            return true;
+        }
+        return fileName.endsWith(".gemspec");
+    }
+
+    /**
+     * 依赖清单文件对应的语言，不是清单文件时返回null
+     */
+    public static String languageOf(String entryName) {
+        if (!isManifest(entryName)) {
+            return null;
+        }
+        String name = entryName.replace('\\', '/');
+        String fileName = name.substring(name.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+        String language = LANGUAGES.get(fileName);
+        if (language != null) {
+            return language;
+        }
+        return fileName.endsWith(".gemspec") ? "ruby" : "python";
+    }
+}
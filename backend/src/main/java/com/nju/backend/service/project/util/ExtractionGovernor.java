@@ -0,0 +1,101 @@
+package com.nju.backend.service.project.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单次解压的资源守卫
+ *
+ * 1. 解压前：按压缩包目录中声明的条目数和原始大小预检，明显超限的压缩包不写入任何文件
+ * 2. 解压中：每写入一块数据就累计实际解压字节数并检查压缩比（声明的大小可以伪造）
+ * 3. 任一工作线程触发超限后，其余线程在下一次写入时也立即终止
+ */
+public class ExtractionGovernor {
+
+    /**
+     * 单个条目解压超过该大小后才检查压缩比，避免小文件（如全是空格的文本）误判
+     */
+    private static final long RATIO_CHECK_MIN_BYTES = 1024 * 1024;
+
+    private final ExtractionLimits limits;
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicLong expandedBytes = new AtomicLong();
+    private final AtomicReference<ExtractionLimitExceededException> exceeded = new AtomicReference<>();
+
+    public ExtractionGovernor(ExtractionLimits limits) {
+        this.limits = limits == null ? ExtractionLimits.unlimited() : limits;
+    }
+
+    public static ExtractionGovernor unlimited() {
+        return new ExtractionGovernor(ExtractionLimits.unlimited());
+    }
+
+    /**
+     * 按压缩包目录中声明的信息预检
+     *
+     * @param declaredBytes 声明的解压后总大小，未知时传负数
+     */
+    public void checkDeclared(long entryCount, long declaredBytes) throws ExtractionLimitExceededException {
+        if (limits.getMaxEntries() > 0 && entryCount > limits.getMaxEntries()) {
+            throw fail(ExtractionLimitExceededException.REASON_ENTRIES,
+                    "压缩包包含 " + entryCount + " 个条目，超过上限 " + limits.getMaxEntries());
+        }
+        if (limits.getMaxExpandedBytes() > 0 && declaredBytes > limits.getMaxExpandedBytes()) {
+            throw fail(ExtractionLimitExceededException.REASON_BYTES,
+                    "压缩包解压后大小为 " + declaredBytes + " bytes，超过上限 " + limits.getMaxExpandedBytes() + " bytes");
+        }
+    }
+
+    /**
+     * 开始写入一个文件条目
+     */
+    public void onEntry(String name) throws ExtractionLimitExceededException {
+        rethrowIfExceeded();
+        long count = entries.incrementAndGet();
+        if (limits.getMaxEntries() > 0 && count > limits.getMaxEntries()) {
+            throw fail(ExtractionLimitExceededException.REASON_ENTRIES,
+                    "解压条目数超过上限 " + limits.getMaxEntries() + "（当前条目: " + name + "）");
+        }
+    }
+
+    /**
+     * 写入了一块数据
+     *
+     * @param delta           本次写入的字节数
+     * @param entryExpanded   该条目（或整个数据流）已解压的字节数
+     * @param entryCompressed 该条目（或整个数据流）对应的压缩字节数，未知时传0
+     */
+    public void onBytes(String name, long delta, long entryExpanded, long entryCompressed) throws ExtractionLimitExceededException {
+        rethrowIfExceeded();
+        long total = expandedBytes.addAndGet(delta);
+        if (limits.getMaxExpandedBytes() > 0 && total > limits.getMaxExpandedBytes()) {
+            throw fail(ExtractionLimitExceededException.REASON_BYTES,
+                    "解压后总大小超过上限 " + limits.getMaxExpandedBytes() + " bytes（当前条目: " + name + "）");
+        }
+        if (limits.getMaxCompressionRatio() > 0 && entryCompressed > 0 && entryExpanded >= RATIO_CHECK_MIN_BYTES
+                && (double) entryExpanded / entryCompressed > limits.getMaxCompressionRatio()) {
+            throw fail(ExtractionLimitExceededException.REASON_RATIO,
+                    String.format("压缩比 %.0f:1 超过上限 %.0f:1，疑似压缩炸弹（条目: %s）",
+                            (double) entryExpanded / entryCompressed, limits.getMaxCompressionRatio(), name));
+        }
+    }
+
+    private void rethrowIfExceeded() throws ExtractionLimitExceededException {
+        ExtractionLimitExceededException e = exceeded.get();
+        if (e != null) {
+            throw new ExtractionLimitExceededException(e.getReason(), e.getMessage());
+        }
+    }
+
+    private ExtractionLimitExceededException fail(String reason, String message) {
+        ExtractionLimitExceededException e = new ExtractionLimitExceededException(reason, "解压超出资源限制: " + message);
+        exceeded.compareAndSet(null, e);
+        return e;
+    }
+
+    public long getEntries() { return entries.get(); }
+
+    public long getExpandedBytes() { return expandedBytes.get(); }
+
+    public ExtractionLimits getLimits() { return limits; }
+}
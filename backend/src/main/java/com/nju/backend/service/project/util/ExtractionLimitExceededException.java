@@ -0,0 +1,24 @@
+package com.nju.backend.service.project.util;
+
+import java.io.IOException;
+
+/**
+ * 解压超出资源预算（条目数、解压后总大小、压缩比），解压被提前终止
+ */
+public class ExtractionLimitExceededException extends IOException {
+
+    public static final String REASON_ENTRIES = "entries";
+    public static final String REASON_BYTES = "bytes";
+    public static final String REASON_RATIO = "ratio";
+
+    private final String reason;
+
+    public ExtractionLimitExceededException(String reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,34 @@
+package com.nju.backend.service.project.util;
+
+/**
+ * 一次解压允许使用的资源预算（小于等于0表示不限制）
+ */
+public class ExtractionLimits {
+
+    private static final ExtractionLimits UNLIMITED = new ExtractionLimits(0, 0, 0);
+
+    private final long maxEntries;
+    private final long maxExpandedBytes;
+    private final double maxCompressionRatio;
+
+    public ExtractionLimits(long maxEntries, long maxExpandedBytes, double maxCompressionRatio) {
+        this.maxEntries = maxEntries;
+        this.maxExpandedBytes = maxExpandedBytes;
+        this.maxCompressionRatio = maxCompressionRatio;
+    }
+
+    public static ExtractionLimits unlimited() {
+        return UNLIMITED;
+    }
+
+    public long getMaxEntries() { return maxEntries; }
+
+    public long getMaxExpandedBytes() { return maxExpandedBytes; }
+
+    public double getMaxCompressionRatio() { return maxCompressionRatio; }
+
+    @Override
+    public String toString() {
+        return "条目数上限: " + maxEntries + ", 解压后大小上限: " + maxExpandedBytes + " bytes, 压缩比上限: " + maxCompressionRatio;
+    }
+}
@@ -0,0 +1,76 @@
+package com.nju.backend.service.project.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.nju.backend.repository.mapper.CompanyMapper;
+import com.nju.backend.repository.mapper.ProjectMapper;
+import com.nju.backend.repository.po.Company;
+import com.nju.backend.repository.po.Project;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 解析公司的解压预算：公司表中配置了的项优先，未配置的使用全局默认值
+ */
+@Component
+public class ExtractionLimitsResolver {
+
+    @Autowired
+    private CompanyMapper companyMapper;
+
+    @Autowired
+    private ProjectMapper projectMapper;
+
+    @Value("${file.extract.max-entries:200000}")
+    private long defaultMaxEntries;
+
+    @Value("${file.extract.max-expanded-bytes:21474836480}")
+    private long defaultMaxExpandedBytes;
+
+    @Value("${file.extract.max-compression-ratio:200}")
+    private double defaultMaxCompressionRatio;
+
+    public ExtractionLimits defaults() {
+        return new ExtractionLimits(defaultMaxEntries, defaultMaxExpandedBytes, defaultMaxCompressionRatio);
+    }
+
+    public ExtractionLimits forCompany(Integer companyId) {
+        if (companyId == null) {
+            return defaults();
+        }
+        Company company = companyMapper.selectById(companyId);
+        if (company == null) {
+            return defaults();
+        }
+        return new ExtractionLimits(
+                company.getMaxUploadEntries() != null ? company.getMaxUploadEntries() : defaultMaxEntries,
+                company.getMaxUploadBytes() != null ? company.getMaxUploadBytes() : defaultMaxExpandedBytes,
+                company.getMaxCompressionRatio() != null ? company.getMaxCompressionRatio() : defaultMaxCompressionRatio);
+    }
+
+    /**
+     * 项目所属公司的解压预算（补全解压、Git增量导出等项目创建后的解压使用）
+     */
+    public ExtractionLimits forProject(Integer projectId) {
+        if (projectId == null) {
+            return defaults();
+        }
+        // company.projectid 是 {"项目ID":"语言",...} 形式的JSON
+        List<Company> companies = companyMapper.selectList(new QueryWrapper<Company>()
+                .like("projectid", "\"" + projectId + "\":"));
+        return companies.isEmpty() ? defaults() : forCompany(companies.get(0).getId());
+    }
+
+    /**
+     * 项目目录所属公司的解压预算；目录还没有对应的项目时使用全局默认值
+     */
+    public ExtractionLimits forProjectPath(String filePath) {
+        List<Project> projects = projectMapper.selectList(new QueryWrapper<Project>()
+                .eq("file", filePath)
+                .eq("isdelete", 0)
+                .orderByDesc("id"));
+        return projects.isEmpty() ? defaults() : forProject(projects.get(0).getId());
+    }
+}
@@ -0,0 +1,59 @@
+package com.nju.backend.service.project.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 解压相关指标（通过 /actuator/metrics 查看）
+ *
+ * upload.extraction.active     正在进行的解压数
+ * upload.extraction.entries    已解压的文件数
+ * upload.extraction.bytes      已解压的字节数
+ * upload.extraction.duration   单次解压耗时
+ * upload.extraction.aborted    因超出资源预算被终止的解压次数（按 reason 区分）
+ */
+@Component
+public class ExtractionMetrics {
+
+    private final MeterRegistry registry;
+    private final AtomicInteger active = new AtomicInteger();
+
+    public ExtractionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        registry.gauge("upload.extraction.active", active);
+    }
+
+    public void started() {
+        active.incrementAndGet();
+    }
+
+    public void finished(String format, ExtractionStats stats) {
+        active.decrementAndGet();
+        Counter.builder("upload.extraction.entries").tag("format", format).register(registry).increment(stats.getFileCount());
+        Counter.builder("upload.extraction.bytes").tag("format", format).register(registry).increment(stats.getTotalBytes());
+        Timer.builder("upload.extraction.duration").tag("format", format).register(registry)
+                .record(stats.getElapsedMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void failed(String format, Throwable error) {
+        active.decrementAndGet();
+        if (error instanceof ExtractionLimitExceededException) {
+            rejected(format, (ExtractionLimitExceededException) error);
+        }
+    }
+
+    /**
+     * 解压前预检即超出预算
+     */
+    public void rejected(String format, ExtractionLimitExceededException error) {
+        Counter.builder("upload.extraction.aborted")
+                .tag("format", format)
+                .tag("reason", error.getReason())
+                .register(registry).increment();
+    }
+}
@@ -0,0 +1,50 @@
+package com.nju.backend.service.project.util;
+
+/**
+ * 一次解压的统计信息（文件数、字节数、耗时），用于评估解压线程池规模
+ */
+public class ExtractionStats {
+
+    private final int fileCount;
+    private final int dirCount;
+    private final int skippedCount;
+    private final long totalBytes;
+    private final long elapsedMillis;
+    private final int workers;
+
+    public ExtractionStats(int fileCount, int dirCount, int skippedCount, long totalBytes, long elapsedMillis, int workers) {
+        this.fileCount = fileCount;
+        this.dirCount = dirCount;
+        this.skippedCount = skippedCount;
+        this.totalBytes = totalBytes;
+        this.elapsedMillis = elapsedMillis;
+        this.workers = workers;
+    }
+
+    public int getFileCount() { return fileCount; }
+
+    public int getDirCount() { return dirCount; }
+
+    public int getSkippedCount() { return skippedCount; }
+
+    public long getTotalBytes() { return totalBytes; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public int getWorkers() { return workers; }
+
+    public double getFilesPerSecond() {
+        return elapsedMillis == 0 ? fileCount : fileCount * 1000.0 / elapsedMillis;
+    }
+
+    public double getBytesPerSecond() {
+        return elapsedMillis == 0 ? totalBytes : totalBytes * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("目录: %d, 文件: %d, 跳过: %d, 大小: %d bytes, 耗时: %d ms, 线程: %d, 速度: %.1f files/s, %.2f MB/s",
+                dirCount, fileCount, skippedCount, totalBytes, elapsedMillis, workers,
+                getFilesPerSecond(), getBytesPerSecond() / (1024 * 1024));
+    }
+}
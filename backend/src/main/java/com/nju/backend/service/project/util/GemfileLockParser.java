@@ -0,0 +1,83 @@
+package com.nju.backend.service.project.util;
+
+import com.nju.backend.repository.po.WhiteList;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Gemfile.lock：GEM 与 GIT 段 specs 下缩进四格的 "name (version)"；
+ * 缩进六格的是该 gem 的依赖约束，PATH 段是本地 gem，均不计入
+ */
+@Component
+public class GemfileLockParser implements ManifestParser {
+
+    private static final List<String> FILE_NAMES = Collections.singletonList("Gemfile.lock");
+
+    @Override
+    public String language() {
+        return "ruby";
+    }
+
+    @Override
+    public List<String> fileNames() {
+        return FILE_NAMES;
+    }
+
+    @Override
+    public int parse(Path manifest, Consumer<WhiteList> sink) throws IOException {
+        // 同一版本的多个平台包（nokogiri (1.13.3-x86_64-linux)、nokogiri (1.13.3-arm64-darwin)）只记一次
+        Set<String> seen = new HashSet<>();
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            boolean thirdParty = false;
+            boolean inSpecs = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (!Character.isWhitespace(line.charAt(0))) {
+                    thirdParty = "GEM".equals(line) || "GIT".equals(line);
+                    inSpecs = false;
+                    continue;
+                }
+                if (!thirdParty) {
+                    continue;
+                }
+                if (line.startsWith("  ") && !line.startsWith("   ")) {
+                    inSpecs = "specs:".equals(line.trim());
+                    continue;
+                }
+                if (!inSpecs || !line.startsWith("    ") || line.startsWith("     ")) {
+                    continue;
+                }
+                String spec = line.trim();
+                int open = spec.indexOf(" (");
+                if (open <= 0 || !spec.endsWith(")")) {
+                    continue;
+                }
+                String name = spec.substring(0, open);
+                String version = spec.substring(open + 2, spec.length() - 1);
+                int platform = version.indexOf('-');
+                if (platform > 0) {
+                    version = version.substring(0, platform);
+                }
+                if (seen.add(name + "@" + version)) {
+                    sink.accept(ManifestParser.dependency(name, version, "ruby", "gems"));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,150 @@
+package com.nju.backend.service.project.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过 git 命令行读取本地仓库（普通仓库或 bare 镜像均可），不修改仓库的工作区和索引
+ */
+@Component
+public class GitRepositoryClient {
+
+    @Value("${project.git.command:git}")
+    private String gitCommand;
+
+    @Value("${project.git.timeout-seconds:300}")
+    private long timeoutSeconds;
+
+    /**
+     * 一次变更：status 为 A（新增）、M（修改）、D（删除）、T（类型变化）
+     */
+    public static class Change {
+        private final char status;
+        private final String path;
+
+        public Change(char status, String path) {
+            this.status = status;
+            this.path = path;
+        }
+
+        public char getStatus() { return status; }
+
+        public String getPath() { return path; }
+
+        public boolean isDeleted() { return status == 'D'; }
+    }
+
+    public boolean isRepository(File repo) {
+        try {
+            return "true".equals(run(repo, "rev-parse", "--is-inside-git-dir").trim())
+                    || "true".equals(run(repo, "rev-parse", "--is-inside-work-tree").trim());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 把分支、标签或提交号解析为完整的提交号
+     */
+    public String resolveCommit(File repo, String ref) throws IOException {
+        checkRef(ref);
+        try {
+            return run(repo, "rev-parse", "--verify", "--quiet", ref + "^{commit}").trim();
+        } catch (IOException e) {
+            throw new IOException("Git引用不存在或不是提交: " + ref, e);
+        }
+    }
+
+    /**
+     * 两次提交之间变化的文件（不做重命名检测，重命名表现为一删一增）
+     */
+    public List<Change> diff(File repo, String fromCommit, String toCommit) throws IOException {
+        checkRef(fromCommit);
+        checkRef(toCommit);
+        String output = run(repo, "diff", "--name-status", "--no-renames", "-z", fromCommit, toCommit);
+        // -z 输出格式: <status>\0<path>\0<status>\0<path>\0...
+        String[] fields = output.split("\0");
+        List<Change> changes = new ArrayList<>();
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            if (!fields[i].isEmpty()) {
+                changes.add(new Change(fields[i].charAt(0), fields[i + 1]));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * 把提交中的文件导出为ZIP（paths为空时导出整个提交）
+     */
+    public void archive(File repo, String commit, List<String> paths, File target) throws IOException {
+        checkRef(commit);
+        List<String> args = new ArrayList<>(Arrays.asList("archive", "--format=zip", "-o", target.getAbsolutePath(), commit));
+        if (paths != null && !paths.isEmpty()) {
+            args.add("--");
+            args.addAll(paths);
+        }
+        run(repo, args.toArray(new String[0]));
+    }
+
+    /**
+     * 引用名以 - 开头会被 git 当作选项解析
+     */
+    private static void checkRef(String ref) {
+        if (ref == null || ref.isEmpty() || ref.startsWith("-") || ref.chars().anyMatch(c -> c <= ' ')) {
+            throw new IllegalArgumentException("无效的Git引用: " + ref);
+        }
+    }
+
+    /**
+     * 执行 git 命令并返回标准输出；输出先写入临时文件，避免管道写满导致进程阻塞
+     */
+    private String run(File repo, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(gitCommand);
+        command.add("-C");
+        command.add(repo.getAbsolutePath());
+        command.addAll(Arrays.asList(args));
+
+        File stdout = File.createTempFile("git-out", ".txt");
+        File stderr = File.createTempFile("git-err", ".txt");
+        try {
+            ProcessBuilder builder = new ProcessBuilder(command)
+                    .redirectOutput(stdout)
+                    .redirectError(stderr);
+            builder.environment().put("GIT_TERMINAL_PROMPT", "0");
+            // diff 输出的路径原样作为 pathspec 传回（archive），其中的 * ? [ 和 :(...) 前缀不能被当作通配符或魔术前缀
+            builder.environment().put("GIT_LITERAL_PATHSPECS", "1");
+            Process process = builder.start();
+            boolean finished;
+            try {
+                finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+                throw new IOException("git命令被中断: " + String.join(" ", args), e);
+            }
+            if (!finished) {
+                process.destroyForcibly();
+                throw new IOException("git命令执行超时（" + timeoutSeconds + "s）: " + String.join(" ", args));
+            }
+            if (process.exitValue() != 0) {
+                String error = new String(Files.readAllBytes(stderr.toPath()), StandardCharsets.UTF_8).trim();
+                throw new IOException("git命令执行失败（退出码 " + process.exitValue() + "）: " + args[0]
+                        + (error.isEmpty() ? "" : ", " + error));
+            }
+            return new String(Files.readAllBytes(stdout.toPath()), StandardCharsets.UTF_8);
+        } finally {
+            stdout.delete();
+            stderr.delete();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.nju.backend.service.project.util;
+
+import com.nju.backend.repository.po.WhiteList;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Go 模块：优先解析 go.mod（require 即最小版本选择的结果，Go 1.17 起包含全部间接依赖），
+ * 没有 go.mod 时解析 go.sum
+ */
+@Component
+public class GoModuleParser implements ManifestParser {
+
+    private static final List<String> FILE_NAMES = Collections.unmodifiableList(Arrays.asList("go.mod", "go.sum"));
+
+    @Override
+    public String language() {
+        return "go";
+    }
+
+    @Override
+    public List<String> fileNames() {
+        return FILE_NAMES;
+    }
+
+    @Override
+    public int parse(Path manifest, Consumer<WhiteList> sink) throws IOException {
+        return "go.sum".equals(manifest.getFileName().toString()) ? parseGoSum(manifest, sink) : parseGoMod(manifest, sink);
+    }
+
+    /**
+     * require 与 replace 可以出现在任意位置、单行或括号块中；replace 在全部读完后应用，
+     * 被替换为本地目录（./ ../ /）的模块不是第三方依赖
+     */
+    private int parseGoMod(Path goMod, Consumer<WhiteList> sink) throws IOException {
+        List<String[]> requires = new ArrayList<>();
+        Map<String, String[]> replaces = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(goMod, StandardCharsets.UTF_8)) {
+            String block = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf("//");
+                String trimmed = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                if (block != null) {
+                    if (")".equals(trimmed)) {
+                        block = null;
+                    } else {
+                        directive(block, trimmed, requires, replaces);
+                    }
+                    continue;
+                }
+                String[] head = trimmed.split("\\s+", 2);
+                if (head.length < 2) {
+                    continue;
+                }
+                String verb = head[0];
+                String rest = head[1];
+                if ("(".equals(rest)) {
+                    block = verb;
+                } else {
+                    directive(verb, rest, requires, replaces);
+                }
+            }
+        }
+
+        int count = 0;
+        for (String[] require : requires) {
+            String[] replacement = replaces.get(require[0] + " " + require[1]);
+            if (replacement == null) {
+                replacement = replaces.get(require[0]);
+            }
+            String module = require[0];
+            String version = require[1];
+            if (replacement != null) {
+                if (replacement[1] == null) {
+                    // 替换为本地目录
+                    continue;
+                }
+                module = replacement[0];
+                version = replacement[1];
+            }
+            sink.accept(ManifestParser.dependency(module, version, "go", "go mod"));
+            count++;
+        }
+        return count;
+    }
+
+    private static void directive(String verb, String args, List<String[]> requires, Map<String, String[]> replaces) {
+        if ("require".equals(verb)) {
+            String[] parts = args.split("\\s+");
+            if (parts.length >= 2) {
+                requires.add(new String[]{unquote(parts[0]), parts[1]});
+            }
+        } else if ("replace".equals(verb)) {
+            int arrow = args.indexOf("=>");
+            if (arrow < 0) {
+                return;
+            }
+            String[] from = args.substring(0, arrow).trim().split("\\s+");
+            String[] to = args.substring(arrow + 2).trim().split("\\s+");
+            String target = unquote(to[0]);
+            boolean local = target.startsWith("./") || target.startsWith("../") || target.startsWith("/");
+            // "a v1.0.0 => ..." 只替换该版本，"a => ..." 替换所有版本
+            String key = from.length >= 2 ? unquote(from[0]) + " " + from[1] : unquote(from[0]);
+            replaces.put(key, new String[]{target, local || to.length < 2 ? null : to[1]});
+        }
+    }
+
+    /**
+     * 每行 "module version[/go.mod] hash"；只带 /go.mod 的行是仅用于版本选择的模块，不计入依赖
+     */
+    private int parseGoSum(Path goSum, Consumer<WhiteList> sink) throws IOException {
+        Set<String> seen = new HashSet<>();
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(goSum, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int first = line.indexOf(' ');
+                int second = first < 0 ? -1 : line.indexOf(' ', first + 1);
+                if (second < 0) {
+                    continue;
+                }
+                String version = line.substring(first + 1, second);
+                if (version.endsWith("/go.mod")) {
+                    continue;
+                }
+                String module = line.substring(0, first);
+                if (seen.add(module + "@" + version)) {
+                    sink.accept(ManifestParser.dependency(module, version, "go", "go mod"));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '`')
+                && value.charAt(value.length() - 1) == value.charAt(0)) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,299 @@
+package com.nju.backend.service.project.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.nju.backend.repository.po.WhiteList;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 流式解析 JavaScript 锁文件，每解析出一个 name@version 立即交给调用方，内存占用与锁文件大小无关
+ *
+ * package-lock.json / npm-shrinkwrap.json 用 Jackson 的 JsonParser 逐个 token 读取（v2/v3 的 packages，v1 的 dependencies），
+ * yarn.lock（v1 和 berry）与 pnpm-lock.yaml 逐行读取
+ */
+@Component
+public class JavaScriptLockfileParser implements ManifestParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final List<String> LOCKFILES = Collections.unmodifiableList(
+            Arrays.asList("package-lock.json", "npm-shrinkwrap.json", "yarn.lock", "pnpm-lock.yaml"));
+
+    @Override
+    public String language() {
+        return "javascript";
+    }
+
+    /**
+     * 只有 package.json 的项目没有锁定版本，仍交给 Flask 解析
+     */
+    @Override
+    public List<String> fileNames() {
+        return LOCKFILES;
+    }
+
+    @Override
+    public int parse(Path lockfile, Consumer<WhiteList> sink) throws IOException {
+        String fileName = lockfile.getFileName().toString();
+        if (fileName.endsWith(".json")) {
+            return parsePackageLock(lockfile, sink);
+        }
+        if ("yarn.lock".equals(fileName)) {
+            return parseYarnLock(lockfile, sink);
+        }
+        if ("pnpm-lock.yaml".equals(fileName)) {
+            return parsePnpmLock(lockfile, sink);
+        }
+        throw new IllegalArgumentException("不支持的锁文件: " + fileName);
+    }
+
+    // ========== package-lock.json ==========
+
+    private static int parsePackageLock(Path lockfile, Consumer<WhiteList> sink) throws IOException {
+        int count = 0;
+        try (JsonParser parser = JSON_FACTORY.createParser(lockfile.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("锁文件格式错误: " + lockfile);
+            }
+            boolean sawPackages = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("packages".equals(field) && value == JsonToken.START_OBJECT) {
+                    sawPackages = true;
+                    count += readPackages(parser, sink);
+                } else if ("dependencies".equals(field) && value == JsonToken.START_OBJECT && !sawPackages) {
+                    // lockfileVersion 1；v2 同时包含两者，packages 已足够
+                    count += readV1Dependencies(parser, sink);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * v2/v3: "packages": { "node_modules/a": {"version": ...}, "node_modules/a/node_modules/@s/b": {...} }
+     */
+    private static int readPackages(JsonParser parser, Consumer<WhiteList> sink) throws IOException {
+        int count = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String path = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String version = null;
+            boolean link = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("version".equals(field) && value == JsonToken.VALUE_STRING) {
+                    version = parser.getText();
+                } else if ("link".equals(field)) {
+                    link = value == JsonToken.VALUE_TRUE;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            int index = path.lastIndexOf("node_modules/");
+            // "" 是项目本身；link 指向工作区中的本地包
+            if (index < 0 || link || version == null) {
+                continue;
+            }
+            sink.accept(toWhiteList(path.substring(index + "node_modules/".length()), version, "npm"));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * v1: "dependencies": { "a": {"version": ..., "dependencies": { 嵌套 } } }
+     */
+    private static int readV1Dependencies(JsonParser parser, Consumer<WhiteList> sink) throws IOException {
+        int count = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String version = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("version".equals(field) && value == JsonToken.VALUE_STRING) {
+                    version = parser.getText();
+                } else if ("dependencies".equals(field) && value == JsonToken.START_OBJECT) {
+                    count += readV1Dependencies(parser, sink);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            // file:、link: 等本地依赖没有可匹配的版本
+            if (version != null && !version.startsWith("file:") && !version.startsWith("link:")) {
+                sink.accept(toWhiteList(name, version, "npm"));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // ========== yarn.lock ==========
+
+    /**
+     * v1:    "@babel/core@^7.0.0", "@babel/core@^7.1.0":
+     *          version "7.12.3"
+     * berry: "@babel/core@npm:^7.0.0, @babel/core@npm:^7.1.0":
+     *          version: 7.12.3
+     */
+    private static int parseYarnLock(Path lockfile, Consumer<WhiteList> sink) throws IOException {
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(lockfile, StandardCharsets.UTF_8)) {
+            String name = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (!Character.isWhitespace(line.charAt(0))) {
+                    name = line.endsWith(":") ? yarnPackageName(line.substring(0, line.length() - 1)) : null;
+                    continue;
+                }
+                if (name == null) {
+                    continue;
+                }
+                String trimmed = line.trim();
+                if (line.startsWith("  version") && !line.startsWith("   ")) {
+                    String version = unquote(trimmed.substring("version".length()).replaceFirst("^:", "").trim());
+                    // berry 中工作区自身的包
+                    if (!version.isEmpty() && !version.endsWith("-use.local")) {
+                        sink.accept(toWhiteList(name, version, "yarn"));
+                        count++;
+                    }
+                    name = null;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static String yarnPackageName(String header) {
+        // v1 每个规格单独加引号，berry 整行加一对引号
+        String spec = header.split(",")[0].trim();
+        if (spec.startsWith("\"") || spec.startsWith("'")) {
+            spec = spec.substring(1);
+        }
+        if (spec.endsWith("\"") || spec.endsWith("'")) {
+            spec = spec.substring(0, spec.length() - 1);
+        }
+        if (spec.startsWith("__metadata")) {
+            return null;
+        }
+        int at = spec.indexOf('@', 1);
+        return at > 0 ? spec.substring(0, at) : null;
+    }
+
+    // ========== pnpm-lock.yaml ==========
+
+    /**
+     * packages 段中缩进两格的键：
+     * v5: /@babel/core/7.12.3 或 /a/1.0.0_peer@1.0.0；v6: /@babel/core@7.12.3(peer@1.0.0)；v9: '@babel/core@7.12.3'
+     */
+    private static int parsePnpmLock(Path lockfile, Consumer<WhiteList> sink) throws IOException {
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(lockfile, StandardCharsets.UTF_8)) {
+            int majorVersion = 6;
+            boolean inPackages = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.trim().startsWith("#")) {
+                    continue;
+                }
+                if (!Character.isWhitespace(line.charAt(0))) {
+                    if (line.startsWith("lockfileVersion:")) {
+                        majorVersion = parseMajorVersion(unquote(line.substring("lockfileVersion:".length()).trim()));
+                    }
+                    inPackages = line.startsWith("packages:");
+                    continue;
+                }
+                if (!inPackages || !line.startsWith("  ") || Character.isWhitespace(line.charAt(2)) || !line.endsWith(":")) {
+                    continue;
+                }
+                String key = unquote(line.substring(2, line.length() - 1).trim());
+                String[] nameVersion = majorVersion < 6 ? splitPnpmV5Key(key) : splitPnpmKey(key);
+                if (nameVersion != null) {
+                    sink.accept(toWhiteList(nameVersion[0], nameVersion[1], "pnpm"));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static String[] splitPnpmV5Key(String key) {
+        String path = key.startsWith("/") ? key.substring(1) : key;
+        int nameEnd = path.indexOf('/', path.startsWith("@") ? path.indexOf('/') + 1 : 0);
+        if (nameEnd <= 0) {
+            return null;
+        }
+        String version = path.substring(nameEnd + 1);
+        int peer = version.indexOf('_');
+        if (peer > 0) {
+            version = version.substring(0, peer);
+        }
+        return version.isEmpty() ? null : new String[]{path.substring(0, nameEnd), version};
+    }
+
+    private static String[] splitPnpmKey(String key) {
+        String spec = key.startsWith("/") ? key.substring(1) : key;
+        int peer = spec.indexOf('(');
+        if (peer > 0) {
+            spec = spec.substring(0, peer);
+        }
+        int at = spec.lastIndexOf('@');
+        if (at <= 0 || at == spec.length() - 1) {
+            return null;
+        }
+        return new String[]{spec.substring(0, at), spec.substring(at + 1)};
+    }
+
+    private static int parseMajorVersion(String value) {
+        try {
+            return (int) Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 6;
+        }
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'')
+                && value.charAt(value.length() - 1) == value.charAt(0)) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static WhiteList toWhiteList(String name, String version, String packageManager) {
+        WhiteList row = new WhiteList();
+        row.setName(name);
+        row.setDescription(name + "@" + version);
+        row.setComponentVersion(version);
+        row.setPackageManager(packageManager);
+        row.setLanguage("javascript");
+        row.setIsdelete(0);
+        return row;
+    }
+}
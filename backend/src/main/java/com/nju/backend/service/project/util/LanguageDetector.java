@@ -0,0 +1,247 @@
+package com.nju.backend.service.project.util;
+
+import java.util.*;
+
+/**
+ * 表驱动的项目语言检测
+ *
+ * 按文件名（依赖清单）和扩展名（源码）把文件归入语言，累计每种语言的文件数和字节数；
+ * 解压时逐条目调用 record，最后一个条目写完即可得出结果，无需再次遍历目录或调用 Flask 服务
+ *
+ * 主语言：有依赖清单的语言优先，其中源码字节数最多者胜出；字节数相同时按固定优先级
+ */
+public class LanguageDetector {
+
+    /**
+     * 源码扩展名（小写，不含点） -> 语言
+     */
+    private static final Map<String, String> EXTENSION_LANGUAGES = new HashMap<>();
+    /**
+     * 字节数相同时的优先级（与原先固定顺序检测的结果保持一致）
+     */
+    private static final List<String> PRIORITY = Arrays.asList(
+            "java", "rust", "go", "python", "php", "ruby", "erlang", "cpp", "c", "javascript");
+    /**
+     * 第三方依赖和版本库目录，其中的文件不代表项目本身的语言
+     */
+    private static final Set<String> IGNORED_DIRS = new HashSet<>(Arrays.asList(
+            "node_modules", "bower_components", ".git", ".svn", ".hg", "__pycache__", ".venv", "venv"));
+
+    static {
+        extensions("java", "java");
+        extensions("c", "c", "h");
+        extensions("cpp", "cpp", "cc", "cxx");
+        extensions("python", "py");
+        extensions("rust", "rs");
+        extensions("go", "go");
+        extensions("javascript", "js", "ts");
+        extensions("php", "php");
+        extensions("ruby", "rb", "gemspec");
+        extensions("erlang", "erl");
+    }
+
+    private static void extensions(String language, String... exts) {
+        for (String ext : exts) {
+            EXTENSION_LANGUAGES.put(ext, language);
+        }
+    }
+
+    /**
+     * 语言别名 -> 规范名（与 white_list.language 一致）
+     */
+    private static final Map<String, String> ALIASES = new HashMap<>();
+    /**
+     * 每种语言最多记录的清单文件位置数
+     */
+    private static final int MAX_MANIFEST_PATHS = 50;
+
+    static {
+        for (String language : Arrays.asList("java", "python", "rust", "go", "javascript", "php", "ruby", "erlang", "c")) {
+            ALIASES.put(language, language);
+        }
+        ALIASES.put("cpp", "c");
+        ALIASES.put("c++", "c");
+        ALIASES.put("golang", "go");
+        ALIASES.put("js", "javascript");
+        ALIASES.put("node", "javascript");
+        ALIASES.put("nodejs", "javascript");
+    }
+
+    /**
+     * 检测到的一种语言
+     */
+    public static class DetectedLanguage {
+        private final String language;
+        private final long files;
+        private final long bytes;
+        private final double weight;
+        private final List<String> manifests;
+
+        DetectedLanguage(String language, long files, long bytes, double weight, List<String> manifests) {
+            this.language = language;
+            this.files = files;
+            this.bytes = bytes;
+            this.weight = weight;
+            this.manifests = manifests;
+        }
+
+        public String getLanguage() { return language; }
+
+        /** 源码文件数 */
+        public long getFiles() { return files; }
+
+        /** 源码字节数 */
+        public long getBytes() { return bytes; }
+
+        /** 源码字节数占全部已识别源码的百分比 */
+        public double getWeight() { return weight; }
+
+        /** 依赖清单文件位置（相对项目根目录） */
+        public List<String> getManifests() { return manifests; }
+    }
+
+    private final Map<String, long[]> sources = new HashMap<>();
+    private final Map<String, List<String>> manifestPaths = new HashMap<>();
+    /**
+     * 语言显示名 -> 字节数（扩展名归类与 LanguageSizeScanner 相同，用于项目详情中的语言占比）
+     */
+    private final Map<String, Long> displayBytes = new HashMap<>();
+
+    /**
+     * 记录一个文件（目录条目忽略）
+     *
+     * @param path 相对项目根目录的路径，/ 或 \ 分隔
+     * @param size 文件大小，未知时传0
+     */
+    public synchronized void record(String path, long size) {
+        String normalized = path.replace('\\', '/');
+        if (normalized.isEmpty() || normalized.endsWith("/") || isIgnored(normalized)) {
+            return;
+        }
+        String fileName = normalized.substring(normalized.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+        // 清单文件与语言的对应关系和快速解压模式共用一份
+        String manifestLanguage = DependencyManifests.languageOf(normalized);
+        if (manifestLanguage != null) {
+            List<String> paths = manifestPaths.computeIfAbsent(manifestLanguage, k -> new ArrayList<>());
+            if (paths.size() < MAX_MANIFEST_PATHS) {
+                paths.add(normalized);
+            }
+        }
+        String displayLanguage = LanguageSizeScanner.displayLanguageOf(fileName);
+        if (displayLanguage != null) {
+            displayBytes.merge(displayLanguage, Math.max(0, size), Long::sum);
+        }
+        int dot = fileName.lastIndexOf('.');
+        String language = dot >= 0 ? EXTENSION_LANGUAGES.get(fileName.substring(dot + 1)) : null;
+        if (language != null) {
+            long[] counts = sources.computeIfAbsent(language, k -> new long[2]);
+            counts[0]++;
+            counts[1] += Math.max(0, size);
+        }
+    }
+
+    private static boolean isIgnored(String path) {
+        int start = 0;
+        int slash;
+        while ((slash = path.indexOf('/', start)) >= 0) {
+            if (IGNORED_DIRS.contains(path.substring(start, slash).toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+            start = slash + 1;
+        }
+        return false;
+    }
+
+    /**
+     * 主语言，未检测到任何已知语言时返回 unknown
+     */
+    public synchronized String primaryLanguage() {
+        Set<String> manifestLanguages = manifestLanguages();
+        Set<String> candidates = new HashSet<>();
+        for (String language : manifestLanguages) {
+            candidates.add(language);
+            // Makefile/CMakeLists.txt 同时是 C 和 C++ 项目的构建文件
+            if ("c".equals(language)) {
+                candidates.add("cpp");
+            }
+        }
+        candidates.retainAll(sources.keySet());
+        if (candidates.isEmpty()) {
+            candidates.addAll(manifestLanguages.isEmpty() ? sources.keySet() : manifestLanguages);
+        }
+        String best = null;
+        for (String language : PRIORITY) {
+            if (candidates.contains(language) && (best == null || sourceBytes(language) > sourceBytes(best))) {
+                best = language;
+            }
+        }
+        return best != null ? best : "unknown";
+    }
+
+    /**
+     * 检测到的全部语言（有源码或有依赖清单），按源码字节数从多到少排列
+     */
+    public synchronized List<DetectedLanguage> languages() {
+        long totalBytes = 0;
+        for (long[] counts : sources.values()) {
+            totalBytes += counts[1];
+        }
+        Set<String> all = new HashSet<>(sources.keySet());
+        all.addAll(manifestLanguages());
+        List<DetectedLanguage> result = new ArrayList<>();
+        for (String language : all) {
+            long[] counts = sources.getOrDefault(language, new long[2]);
+            double weight = totalBytes == 0 ? 0 : Math.round(counts[1] * 10000.0 / totalBytes) / 100.0;
+            result.add(new DetectedLanguage(language, counts[0], counts[1], weight,
+                    new ArrayList<>(manifestPaths.getOrDefault(language, Collections.emptyList()))));
+        }
+        result.sort(Comparator.comparingLong(DetectedLanguage::getBytes).reversed()
+                .thenComparing(DetectedLanguage::getLanguage));
+        return result;
+    }
+
+    /**
+     * 各语言按文件大小的占比（百分比，键为语言显示名），在检测时一并得出，无需再遍历目录
+     */
+    public synchronized Map<String, Double> languagePercent() {
+        return LanguageSizeScanner.toPercent(displayBytes);
+    }
+
+    /**
+     * 需要运行依赖解析器的生态（含依赖清单的语言），按源码字节数从多到少排列
+     */
+    public synchronized List<String> ecosystems() {
+        List<String> result = new ArrayList<>(manifestLanguages());
+        result.sort(Comparator.comparingLong((String language) -> ecosystemBytes(language)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        return result;
+    }
+
+    /**
+     * 有依赖清单的语言；Makefile/CMakeLists.txt 等也常见于其他语言的项目，没有 C/C++ 源码时不算作 C 生态，
+     * 以免触发补全解压、C/C++ 源码扫描和 Flask 解析
+     */
+    private Set<String> manifestLanguages() {
+        Set<String> result = new HashSet<>(manifestPaths.keySet());
+        if (ecosystemBytes("c") == 0) {
+            result.remove("c");
+        }
+        return result;
+    }
+
+    private long ecosystemBytes(String language) {
+        return "c".equals(language) ? sourceBytes("c") + sourceBytes("cpp") : sourceBytes(language);
+    }
+
+    /**
+     * 规范化语言名（cpp、golang、nodejs 等别名），不支持的语言返回null
+     */
+    public static String canonicalLanguage(String language) {
+        return language == null ? null : ALIASES.get(language.trim().toLowerCase(Locale.ROOT));
+    }
+
+    private long sourceBytes(String language) {
+        long[] counts = sources.get(language);
+        return counts == null ? 0 : counts[1];
+    }
+}
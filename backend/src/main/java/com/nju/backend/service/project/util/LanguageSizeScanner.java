@@ -0,0 +1,202 @@
+package com.nju.backend.service.project.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 按文件大小统计项目中各语言所占比例
+ *
+ * 每个目录一个 fork/join 任务：用 Files.walkFileTree（深度1）列出目录，文件大小直接取遍历时读到的属性，
+ * 子目录再拆成子任务；命中裁剪规则的第三方依赖、构建产物目录整棵跳过。
+ * 每个工作线程只写自己的直方图，全部任务结束后再合并，统计过程中没有锁竞争
+ */
+@Component
+public class LanguageSizeScanner {
+
+    /**
+     * 扩展名（小写，不含点） -> 语言显示名
+     */
+    private static final Map<String, String> EXT_LANG_MAP = new HashMap<>();
+    /**
+     * 不计入统计的二进制产物扩展名
+     */
+    private static final Set<String> IGNORED_EXTS = new HashSet<>(Arrays.asList("class", "o", "exe"));
+
+    static {
+        EXT_LANG_MAP.put("java", "Java");
+        EXT_LANG_MAP.put("c", "C");
+        EXT_LANG_MAP.put("cpp", "C++");
+        EXT_LANG_MAP.put("h", "C/C++头文件");
+        EXT_LANG_MAP.put("py", "Python");
+        EXT_LANG_MAP.put("js", "JavaScript");
+        EXT_LANG_MAP.put("ts", "TypeScript");
+    }
+
+    /**
+     * 裁剪的目录名（不区分大小写）
+     */
+    private final Set<String> prunedNames = new HashSet<>();
+    /**
+     * 裁剪的相对路径 glob（规则中含 / 或通配符时按相对项目根目录的路径匹配，如 src/main/webapp/lib、docs/**）
+     */
+    private final List<PathMatcher> prunedPatterns = new ArrayList<>();
+
+    private final ForkJoinPool pool;
+
+    public LanguageSizeScanner(
+            @Value("${file.scan.pruned-dirs:node_modules,bower_components,.git,.svn,.hg,target,build,dist,out,vendor,third_party,__pycache__,.venv,venv,.gradle,.idea}") String prunedDirs,
+            @Value("${file.scan.parallelism:0}") int parallelism) {
+        for (String rule : prunedDirs.split(",")) {
+            String trimmed = rule.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (trimmed.contains("/") || trimmed.contains("*") || trimmed.contains("?") || trimmed.contains("{")) {
+                prunedPatterns.add(FileSystems.getDefault().getPathMatcher("glob:" + trimmed));
+            } else {
+                prunedNames.add(trimmed.toLowerCase(Locale.ROOT));
+            }
+        }
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 统计各语言文件大小占比（百分比），目录不存在或没有可统计的文件时返回空表
+     */
+    public Map<String, Double> calcLanguagePercent(String projectPath) {
+        Path root = Paths.get(projectPath);
+        if (!Files.isDirectory(root)) {
+            return new HashMap<>();
+        }
+        long start = System.currentTimeMillis();
+
+        // 工作线程 -> 该线程的直方图（语言 -> 字节数），只由对应线程写入
+        Map<Thread, Map<String, long[]>> histograms = new ConcurrentHashMap<>();
+        pool.invoke(new DirectoryTask(root, root, histograms));
+
+        Map<String, Long> langSize = new HashMap<>();
+        long total = 0;
+        for (Map<String, long[]> histogram : histograms.values()) {
+            for (Map.Entry<String, long[]> entry : histogram.entrySet()) {
+                langSize.merge(entry.getKey(), entry.getValue()[0], Long::sum);
+                total += entry.getValue()[0];
+            }
+        }
+
+        Map<String, Double> percent = toPercent(langSize);
+        System.out.println("DEBUG: 语言占比统计完成: " + projectPath + ", 总字节数: " + total
+                + ", 耗时: " + (System.currentTimeMillis() - start) + "ms");
+        return percent;
+    }
+
+    private boolean isPruned(Path root, Path dir) {
+        Path name = dir.getFileName();
+        if (name != null && prunedNames.contains(name.toString().toLowerCase(Locale.ROOT))) {
+            return true;
+        }
+        if (!prunedPatterns.isEmpty()) {
+            Path relative = root.relativize(dir);
+            for (PathMatcher matcher : prunedPatterns) {
+                if (matcher.matches(relative)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 文件所属语言的显示名，未识别的扩展名归入 Other，不计入统计的二进制产物返回null
+     */
+    public static String displayLanguageOf(String fileName) {
+        String ext = getFileExt(fileName);
+        return IGNORED_EXTS.contains(ext) ? null : EXT_LANG_MAP.getOrDefault(ext, "Other");
+    }
+
+    /**
+     * 按各语言字节数换算百分比，没有可统计的字节时返回空表
+     */
+    static Map<String, Double> toPercent(Map<String, Long> langSize) {
+        long total = 0;
+        for (long size : langSize.values()) {
+            total += size;
+        }
+        Map<String, Double> percent = new HashMap<>();
+        if (total > 0) {
+            for (Map.Entry<String, Long> entry : langSize.entrySet()) {
+                percent.put(entry.getKey(), entry.getValue() * 100.0 / total);
+            }
+        }
+        return percent;
+    }
+
+    private static String getFileExt(String fileName) {
+        int dotIndex = fileName.lastIndexOf('.');
+        if (dotIndex != -1 && dotIndex < fileName.length() - 1) {
+            return fileName.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
+        }
+        return "";
+    }
+
+    /**
+     * 统计一个目录下的文件，子目录拆成子任务
+     */
+    private class DirectoryTask extends RecursiveAction {
+        private final Path root;
+        private final Path dir;
+        private final Map<Thread, Map<String, long[]>> histograms;
+
+        DirectoryTask(Path root, Path dir, Map<Thread, Map<String, long[]>> histograms) {
+            this.root = root;
+            this.dir = dir;
+            this.histograms = histograms;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            Map<String, long[]> histogram = histograms.computeIfAbsent(Thread.currentThread(), k -> new HashMap<>());
+            try {
+                // 深度为1时子目录也通过 visitFile 回调，属性在列目录时一并读出，不再对每个文件单独 stat
+                Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isDirectory()) {
+                            if (!isPruned(root, file)) {
+                                subtasks.add(new DirectoryTask(root, file, histograms));
+                            }
+                        } else if (attrs.isRegularFile()) {
+                            String language = displayLanguageOf(file.getFileName().toString());
+                            if (language != null) {
+                                histogram.computeIfAbsent(language, k -> new long[1])[0] += attrs.size();
+                            }
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                System.out.println("DEBUG: 统计目录失败: " + dir + ", " + e.getMessage());
+            }
+            invokeAll(subtasks);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.nju.backend.service.project.util;
+
+import com.nju.backend.repository.po.WhiteList;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 本地依赖清单解析器：声明能处理的文件名，逐条解析出依赖交给调用方
+ *
+ * 实现类注册为 Spring Bean 后由 {@link ManifestParserRegistry} 按语言收集，每种语言一个解析器；
+ * 实现必须无状态（同一实例会被多个线程同时调用），逐行/逐个 token 读取，不把整个清单保存在内存中
+ */
+public interface ManifestParser {
+
+    /**
+     * 解析结果的语言（与 white_list.language 一致）
+     */
+    String language();
+
+    /**
+     * 能解析的文件名，按优先级排列：同一目录中有多个时只解析最靠前的一个
+     */
+    List<String> fileNames();
+
+    /**
+     * 解析清单文件
+     *
+     * @param sink 接收每个依赖（已设置 name、description、componentVersion、language、packageManager）
+     * @return 解析出的依赖数（含重复）
+     */
+    int parse(Path manifest, Consumer<WhiteList> sink) throws IOException;
+
+    static WhiteList dependency(String name, String version, String language, String packageManager) {
+        WhiteList row = new WhiteList();
+        row.setName(name);
+        row.setDescription(version == null || version.isEmpty() ? name : name + "@" + version);
+        row.setComponentVersion(version == null || version.isEmpty() ? null : version);
+        row.setPackageManager(packageManager);
+        row.setLanguage(language);
+        row.setIsdelete(0);
+        return row;
+    }
+
+    /**
+     * 合并多个清单中的同名依赖：有固定版本时去掉只有版本约束的记录，每个固定版本保留一条；没有固定版本时保留第一条声明
+     */
+    static List<WhiteList> mergeVersions(List<WhiteList> declared) {
+        Map<String, Map<String, WhiteList>> byName = new LinkedHashMap<>();
+        for (WhiteList row : declared) {
+            Map<String, WhiteList> versions = byName.computeIfAbsent(row.getName(), k -> new LinkedHashMap<>());
+            String version = row.getComponentVersion();
+            if (version == null) {
+                if (versions.isEmpty()) {
+                    versions.put("", row);
+                }
+            } else {
+                versions.remove("");
+                versions.putIfAbsent(version, row);
+            }
+        }
+        List<WhiteList> merged = new ArrayList<>();
+        for (Map<String, WhiteList> versions : byName.values()) {
+            merged.addAll(versions.values());
+        }
+        return merged;
+    }
+}
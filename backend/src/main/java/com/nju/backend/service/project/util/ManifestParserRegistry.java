@@ -0,0 +1,81 @@
+package com.nju.backend.service.project.util;
+
+import com.nju.backend.repository.po.WhiteList;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 按语言查找本地清单解析器；没有本地解析器或目录中没有对应文件时，调用方回退到 Flask 解析API
+ */
+@Component
+public class ManifestParserRegistry {
+
+    private final Map<String, ManifestParser> parsers;
+
+    @Autowired
+    public ManifestParserRegistry(List<ManifestParser> parsers) {
+        Map<String, ManifestParser> byLanguage = new HashMap<>();
+        for (ManifestParser parser : parsers) {
+            ManifestParser previous = byLanguage.put(parser.language(), parser);
+            if (previous != null) {
+                throw new IllegalStateException("语言 " + parser.language() + " 注册了多个清单解析器: "
+                        + previous.getClass().getSimpleName() + ", " + parser.getClass().getSimpleName());
+            }
+        }
+        this.parsers = Collections.unmodifiableMap(byLanguage);
+        System.out.println("DEBUG: 已注册本地清单解析器: " + this.parsers.keySet());
+    }
+
+    /**
+     * 目录中可由本地解析器处理的清单文件
+     */
+    public static class Match {
+        private final ManifestParser parser;
+        private final Path manifest;
+
+        Match(ManifestParser parser, Path manifest) {
+            this.parser = parser;
+            this.manifest = manifest;
+        }
+
+        public ManifestParser getParser() { return parser; }
+
+        public Path getManifest() { return manifest; }
+
+        public int parse(Consumer<WhiteList> sink) throws IOException {
+            return parser.parse(manifest, sink);
+        }
+    }
+
+    public boolean supports(String language) {
+        return parsers.containsKey(language);
+    }
+
+    /**
+     * 查找目录中优先级最高的清单文件
+     *
+     * @return 该语言没有本地解析器或目录中没有对应文件时返回null
+     */
+    public Match find(String language, Path dir) {
+        ManifestParser parser = parsers.get(language);
+        if (parser == null) {
+            return null;
+        }
+        for (String fileName : parser.fileNames()) {
+            Path manifest = dir.resolve(fileName);
+            if (Files.isRegularFile(manifest)) {
+                return new Match(parser, manifest);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,309 @@
+package com.nju.backend.service.project.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nju.backend.repository.mapper.MavenArtifactMapper;
+import com.nju.backend.repository.po.MavenArtifact;
+import com.nju.backend.repository.po.WhiteList;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * 离线解析 Maven 项目的传递依赖（只读取 project.maven.local-repository，不访问网络）
+ *
+ * 从每个 pom 的直接依赖出发按层广度优先展开依赖图，同一 groupId:artifactId 取离项目最近的版本
+ * （同一层先声明者优先），与 Maven 的 nearest-wins 调解一致；项目自身的依赖管理同样约束传递依赖的版本。
+ *
+ * 每个构件的有效直接依赖（依赖图中从它出发的边）按坐标缓存在内存并写入 maven_artifact 表，
+ * 不同项目共用的 Spring/Jackson 等子图只从本地仓库解析一次，重新扫描时只解析新出现的构件
+ */
+@Component
+public class MavenDependencyResolver {
+
+    private static final int EDGE_CACHE_SIZE = 20000;
+
+    @Autowired
+    private MavenProjectParser mavenProjectParser;
+
+    @Autowired
+    private MavenArtifactMapper mavenArtifactMapper;
+
+    /**
+     * 是否解析传递依赖（还需配置 project.maven.local-repository）
+     */
+    @Value("${project.maven.transitive:true}")
+    private boolean transitive;
+
+    /**
+     * 依赖图的最大展开深度
+     */
+    @Value("${project.maven.max-depth:20}")
+    private int maxDepth;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 坐标 -> 该构件的直接依赖
+     */
+    private final Map<String, List<PomModel.Dependency>> edgeCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, List<PomModel.Dependency>>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<PomModel.Dependency>> eldest) {
+                    return size() > EDGE_CACHE_SIZE;
+                }
+            });
+
+    /**
+     * 解析项目中 modulePath 范围内全部 pom 的依赖（直接依赖和传递依赖）
+     *
+     * @return 依赖列表，范围内没有 pom.xml 时返回null
+     * @throws IOException 范围内的 pom.xml 全部无法解析
+     */
+    public List<WhiteList> resolve(Path projectRoot, String modulePath) throws IOException {
+        return resolve(projectRoot, modulePath, true);
+    }
+
+    /**
+     * 解析项目中 modulePath 范围内 pom 的依赖，范围见 {@link MavenProjectParser#parseProject(Path, String, boolean)}
+     */
+    public List<WhiteList> resolve(Path projectRoot, String modulePath, boolean subtree) throws IOException {
+        if (!transitive || !mavenProjectParser.hasLocalRepository()) {
+            return mavenProjectParser.parse(projectRoot, modulePath, subtree);
+        }
+        long start = System.currentTimeMillis();
+        MavenProjectParser.ProjectPoms project = mavenProjectParser.parseProject(projectRoot, modulePath, subtree);
+        if (project == null) {
+            return null;
+        }
+
+        Resolution resolution = new Resolution(project);
+        List<WhiteList> rows = new ArrayList<>();
+        int direct = 0;
+        for (MavenProjectParser.EffectivePom pom : project.getPoms()) {
+            String pomModulePath = project.modulePathOf(pom);
+            for (Node node : resolution.graph(pom)) {
+                rows.add(MavenProjectParser.toWhiteList(node.dependency, pomModulePath));
+                if (node.depth == 1) {
+                    direct++;
+                }
+            }
+        }
+        System.out.println("DEBUG: Maven依赖图解析完成: " + projectRoot + (modulePath == null || modulePath.isEmpty() ? "" : "/" + modulePath)
+                + ", pom数: " + project.getPoms().size() + ", 直接依赖: " + direct + ", 传递依赖: " + (rows.size() - direct)
+                + ", 从本地仓库新解析构件: " + resolution.loaded + ", 耗时: " + (System.currentTimeMillis() - start) + "ms");
+        return rows;
+    }
+
+    /**
+     * 依赖图中的一个节点
+     */
+    private static class Node {
+        private final PomModel.Dependency dependency;
+        private final int depth;
+        private final Set<String> exclusions;
+
+        Node(PomModel.Dependency dependency, int depth, Set<String> exclusions) {
+            this.dependency = dependency;
+            this.depth = depth;
+            this.exclusions = exclusions;
+        }
+    }
+
+    /**
+     * 一次解析过程：本地仓库中的 parent/BOM 在同一过程内只计算一次
+     */
+    private class Resolution {
+        private final MavenProjectParser.ProjectPoms project;
+        private final MavenProjectParser.Resolution repository = mavenProjectParser.repositoryResolution();
+        /**
+         * 本次解析中本地仓库里找不到的构件（不持久化，仓库镜像之后可能补齐）
+         */
+        private final Set<String> missing = new HashSet<>();
+        private int loaded;
+
+        Resolution(MavenProjectParser.ProjectPoms project) {
+            this.project = project;
+        }
+
+        List<Node> graph(MavenProjectParser.EffectivePom pom) throws IOException {
+            Map<String, Node> selected = new LinkedHashMap<>();
+            Set<String> expandedModules = new HashSet<>();
+            Deque<Node> queue = new ArrayDeque<>();
+            for (PomModel.Dependency dependency : pom.getDependencies()) {
+                queue.add(new Node(dependency, 1, new HashSet<>(dependency.getExclusions())));
+            }
+
+            while (!queue.isEmpty()) {
+                Node node = queue.poll();
+                PomModel.Dependency dependency = node.dependency;
+                if (dependency.getGroupId() == null || dependency.getArtifactId() == null) {
+                    continue;
+                }
+                String key = dependency.managementKey();
+                if (selected.containsKey(key)) {
+                    // 更近（或同层先声明）的版本已经胜出
+                    continue;
+                }
+
+                List<PomModel.Dependency> children;
+                MavenProjectParser.EffectivePom module = project.treeArtifact(dependency.getGroupId(), dependency.getArtifactId());
+                if (module != null) {
+                    // 同一上传中的其他模块：不作为第三方依赖，但它的依赖是本模块的传递依赖
+                    if (!expandedModules.add(key)) {
+                        continue;
+                    }
+                    children = module.getDependencies();
+                } else {
+                    selected.put(key, node);
+                    if (node.depth >= maxDepth) {
+                        continue;
+                    }
+                    children = edges(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion());
+                }
+
+                for (PomModel.Dependency child : children) {
+                    // test/provided 和可选依赖不传递
+                    if ("test".equals(child.getScope()) || "provided".equals(child.getScope()) || child.isOptional()
+                            || isExcluded(child, node.exclusions)) {
+                        continue;
+                    }
+                    PomModel.Dependency next = child.copy();
+                    PomModel.Dependency management = pom.getManaged().get(next.managementKey());
+                    if (management != null && management.getVersion() != null && !management.getVersion().isEmpty()) {
+                        next.setVersion(management.getVersion());
+                    }
+                    next.setScope(mediateScope(dependency.getScope(), child.getScope()));
+                    Set<String> exclusions = new HashSet<>(node.exclusions);
+                    exclusions.addAll(child.getExclusions());
+                    queue.add(new Node(next, node.depth + 1, exclusions));
+                }
+            }
+            return new ArrayList<>(selected.values());
+        }
+
+        /**
+         * 构件的直接依赖：内存缓存 -> maven_artifact 表 -> 本地仓库
+         */
+        private List<PomModel.Dependency> edges(String groupId, String artifactId, String version) throws IOException {
+            String coordinates = groupId + ":" + artifactId + ":" + version;
+            if (version == null || version.isEmpty() || missing.contains(coordinates)) {
+                return Collections.emptyList();
+            }
+            // SNAPSHOT 版本的内容会变化，不缓存
+            boolean cacheable = !version.endsWith("-SNAPSHOT");
+            if (cacheable) {
+                List<PomModel.Dependency> cached = edgeCache.get(coordinates);
+                if (cached != null) {
+                    return cached;
+                }
+                MavenArtifact stored = mavenArtifactMapper.selectById(coordinates);
+                if (stored != null) {
+                    List<PomModel.Dependency> edges = fromJson(stored.getDependencies());
+                    edgeCache.put(coordinates, edges);
+                    return edges;
+                }
+            }
+
+            MavenProjectParser.EffectivePom pom;
+            try {
+                pom = repository.repositoryArtifact(groupId, artifactId, version);
+            } catch (IOException e) {
+                System.out.println("DEBUG: 本地仓库中的POM无法解析: " + coordinates + ", " + e.getMessage());
+                pom = null;
+            }
+            if (pom == null) {
+                missing.add(coordinates);
+                return Collections.emptyList();
+            }
+            loaded++;
+            List<PomModel.Dependency> edges = pom.getDependencies();
+            if (cacheable) {
+                edgeCache.put(coordinates, edges);
+                MavenArtifact artifact = new MavenArtifact();
+                artifact.setCoordinates(coordinates);
+                artifact.setDependencies(toJson(edges));
+                artifact.setResolvedTime(new Date());
+                try {
+                    mavenArtifactMapper.insert(artifact);
+                } catch (DuplicateKeyException e) {
+                    // 其他扫描已写入同一构件
+                }
+            }
+            return edges;
+        }
+    }
+
+    private static boolean isExcluded(PomModel.Dependency dependency, Set<String> exclusions) {
+        for (String exclusion : exclusions) {
+            int colon = exclusion.indexOf(':');
+            String groupId = colon < 0 ? exclusion : exclusion.substring(0, colon);
+            String artifactId = colon < 0 ? "*" : exclusion.substring(colon + 1);
+            if (("*".equals(groupId) || groupId.equals(dependency.getGroupId()))
+                    && ("*".equals(artifactId) || artifactId.equals(dependency.getArtifactId()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 传递依赖的 scope：compile 下的依赖保持自身 scope，runtime 下的 compile 依赖变为 runtime，
+     * test/provided 下的依赖随上层
+     */
+    private static String mediateScope(String parentScope, String childScope) {
+        String child = childScope == null || childScope.isEmpty() ? "compile" : childScope;
+        if (parentScope == null || parentScope.isEmpty() || "compile".equals(parentScope)) {
+            return child;
+        }
+        if ("runtime".equals(parentScope)) {
+            return "runtime";
+        }
+        return parentScope;
+    }
+
+    private String toJson(List<PomModel.Dependency> edges) throws IOException {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (PomModel.Dependency edge : edges) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("groupId", edge.getGroupId());
+            item.put("artifactId", edge.getArtifactId());
+            item.put("version", edge.getVersion());
+            item.put("type", edge.getType());
+            item.put("classifier", edge.getClassifier());
+            item.put("scope", edge.getScope());
+            item.put("optional", edge.getOptional());
+            item.put("exclusions", edge.getExclusions());
+            items.add(item);
+        }
+        return objectMapper.writeValueAsString(items);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PomModel.Dependency> fromJson(String json) throws IOException {
+        List<Map<String, Object>> items = objectMapper.readValue(json, new TypeReference<List<Map<String, Object>>>() {
+        });
+        List<PomModel.Dependency> edges = new ArrayList<>();
+        for (Map<String, Object> item : items) {
+            PomModel.Dependency edge = new PomModel.Dependency();
+            edge.setGroupId((String) item.get("groupId"));
+            edge.setArtifactId((String) item.get("artifactId"));
+            edge.setVersion((String) item.get("version"));
+            edge.setType((String) item.get("type"));
+            edge.setClassifier((String) item.get("classifier"));
+            edge.setScope((String) item.get("scope"));
+            edge.setOptional((String) item.get("optional"));
+            Object exclusions = item.get("exclusions");
+            if (exclusions instanceof List) {
+                edge.getExclusions().addAll((List<String>) exclusions);
+            }
+            edges.add(edge);
+        }
+        return edges;
+    }
+}
@@ -0,0 +1,125 @@
+package com.nju.backend.service.project.util;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用 StAX 流式读取 pom.xml，只保留依赖解析需要的元素（profiles、build、reporting 等整体忽略）
+ */
+public final class MavenPomReader {
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        // 上传的 pom.xml 不可信：禁用 DTD 和外部实体
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    private MavenPomReader() {
+    }
+
+    public static PomModel read(Path pom) throws IOException {
+        try (InputStream in = Files.newInputStream(pom)) {
+            return read(in);
+        } catch (XMLStreamException e) {
+            throw new IOException("POM格式错误: " + pom + ", " + e.getMessage(), e);
+        }
+    }
+
+    public static PomModel read(InputStream in) throws XMLStreamException {
+        PomModel model = new PomModel();
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+        try {
+            List<String> path = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            PomModel.Dependency dependency = null;
+            String[] exclusion = null;
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    path.add(reader.getLocalName());
+                    text.setLength(0);
+                    String current = String.join("/", path);
+                    if ("project/dependencies/dependency".equals(current)
+                            || "project/dependencyManagement/dependencies/dependency".equals(current)) {
+                        dependency = new PomModel.Dependency();
+                    } else if (dependency != null && current.endsWith("/dependency/exclusions/exclusion")) {
+                        exclusion = new String[2];
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    text.append(reader.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String current = String.join("/", path);
+                    String value = text.toString().trim();
+                    if (dependency != null) {
+                        if (current.endsWith("/dependency")) {
+                            (current.startsWith("project/dependencyManagement/")
+                                    ? model.getManagedDependencies() : model.getDependencies()).add(dependency);
+                            dependency = null;
+                        } else if (exclusion != null) {
+                            if (current.endsWith("/exclusion")) {
+                                dependency.getExclusions().add(exclusion[0] + ":" + exclusion[1]);
+                                exclusion = null;
+                            } else if (current.endsWith("/exclusion/groupId")) {
+                                exclusion[0] = value;
+                            } else if (current.endsWith("/exclusion/artifactId")) {
+                                exclusion[1] = value;
+                            }
+                        } else if (path.size() >= 2 && "dependency".equals(path.get(path.size() - 2))) {
+                            applyDependencyField(dependency, reader.getLocalName(), value);
+                        }
+                    } else {
+                        applyProjectField(model, path, current, value);
+                    }
+                    path.remove(path.size() - 1);
+                    text.setLength(0);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return model;
+    }
+
+    private static void applyDependencyField(PomModel.Dependency dependency, String name, String value) {
+        switch (name) {
+            case "groupId": dependency.setGroupId(value); break;
+            case "artifactId": dependency.setArtifactId(value); break;
+            case "version": dependency.setVersion(value); break;
+            case "type": dependency.setType(value); break;
+            case "classifier": dependency.setClassifier(value); break;
+            case "scope": dependency.setScope(value); break;
+            case "optional": dependency.setOptional(value); break;
+            default: break;
+        }
+    }
+
+    private static void applyProjectField(PomModel model, List<String> path, String current, String value) {
+        switch (current) {
+            case "project/groupId": model.setGroupId(value); return;
+            case "project/artifactId": model.setArtifactId(value); return;
+            case "project/version": model.setVersion(value); return;
+            case "project/packaging": model.setPackaging(value); return;
+            case "project/parent/groupId": model.setParentGroupId(value); return;
+            case "project/parent/artifactId": model.setParentArtifactId(value); return;
+            case "project/parent/version": model.setParentVersion(value); return;
+            case "project/parent/relativePath": model.setParentRelativePath(value); return;
+            case "project/modules/module": model.getModules().add(value); return;
+            default: break;
+        }
+        if (path.size() == 3 && "properties".equals(path.get(1))) {
+            model.getProperties().put(path.get(2), value);
+        }
+    }
+}
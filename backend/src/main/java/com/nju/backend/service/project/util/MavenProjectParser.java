@@ -0,0 +1,602 @@
+package com.nju.backend.service.project.util;
+
+import com.nju.backend.repository.po.WhiteList;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * 在 JVM 内解析 Maven 项目的直接依赖，取代 Flask /parse/pom_parse
+ *
+ * 对每个 pom.xml 计算有效模型：沿 parent 链（先按 relativePath，再按坐标在上传目录中查找，最后查本地仓库）
+ * 继承属性、依赖和依赖管理，导入 scope=import 的 BOM，再用子模块的属性插值 ${...}，
+ * 未写版本的依赖从依赖管理中补全
+ */
+@Component
+public class MavenProjectParser {
+
+    /**
+     * 查找 pom.xml 时跳过的目录（target 下有打包进去的 META-INF/maven/.../pom.xml）
+     */
+    private static final Set<String> SKIPPED_DIRS = new HashSet<>(Arrays.asList(
+            "target", "build", "node_modules", "bower_components", ".git", ".svn", ".hg", ".idea", ".mvn"));
+    /**
+     * parent 链和 BOM 导入的最大深度，防止环状引用
+     */
+    private static final int MAX_DEPTH = 32;
+    /**
+     * 插值的最大轮数（属性值本身可能引用其他属性）
+     */
+    private static final int MAX_INTERPOLATION_PASSES = 10;
+    private static final int POM_CACHE_SIZE = 4096;
+
+    /**
+     * 本地 Maven 仓库目录（如 ~/.m2/repository），为空时只在上传目录中查找 parent 和 BOM
+     */
+    @Value("${project.maven.local-repository:}")
+    private String localRepository;
+
+    /**
+     * 已读取的 pom（路径 -> 修改时间、大小和模型），文件变化后重新读取
+     */
+    private final Map<Path, CachedPom> pomCache = Collections.synchronizedMap(
+            new LinkedHashMap<Path, CachedPom>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, CachedPom> eldest) {
+                    return size() > POM_CACHE_SIZE;
+                }
+            });
+
+    private static class CachedPom {
+        private final long modified;
+        private final long size;
+        private final PomModel model;
+
+        CachedPom(long modified, long size, PomModel model) {
+            this.modified = modified;
+            this.size = size;
+            this.model = model;
+        }
+    }
+
+    /**
+     * 一个 pom 的有效模型（已继承、已插值）
+     */
+    public static class EffectivePom {
+        private final Path file;
+        private final String groupId;
+        private final String artifactId;
+        private final String version;
+        private final String packaging;
+        private final Map<String, PomModel.Dependency> managed;
+        private final List<PomModel.Dependency> dependencies;
+
+        EffectivePom(Path file, String groupId, String artifactId, String version, String packaging,
+                     Map<String, PomModel.Dependency> managed, List<PomModel.Dependency> dependencies) {
+            this.file = file;
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.version = version;
+            this.packaging = packaging;
+            this.managed = managed;
+            this.dependencies = dependencies;
+        }
+
+        public Path getFile() { return file; }
+
+        public String getGroupId() { return groupId; }
+
+        public String getArtifactId() { return artifactId; }
+
+        public String getVersion() { return version; }
+
+        public String getPackaging() { return packaging; }
+
+        /** 依赖管理（managementKey -> 依赖），含导入的 BOM */
+        public Map<String, PomModel.Dependency> getManaged() { return managed; }
+
+        /** 直接依赖，版本和 scope 已按依赖管理补全 */
+        public List<PomModel.Dependency> getDependencies() { return dependencies; }
+    }
+
+    /**
+     * 项目中一个范围内全部 pom 的有效模型
+     */
+    public static class ProjectPoms {
+        private final Path root;
+        private final List<EffectivePom> poms;
+        private final Resolution resolution;
+
+        ProjectPoms(Path root, List<EffectivePom> poms, Resolution resolution) {
+            this.root = root;
+            this.poms = poms;
+            this.resolution = resolution;
+        }
+
+        public Path getRoot() { return root; }
+
+        public List<EffectivePom> getPoms() { return poms; }
+
+        /**
+         * pom 所在目录相对项目目录的路径（即 white_list.module_path）
+         */
+        public String modulePathOf(EffectivePom pom) {
+            return root.relativize(pom.getFile().getParent()).toString().replace('\\', '/');
+        }
+
+        /**
+         * 是否为同一上传中某个模块的产物
+         */
+        public boolean isTreeArtifact(String groupId, String artifactId) throws IOException {
+            return resolution.isTreeArtifact(groupId, artifactId);
+        }
+
+        /**
+         * 同一上传中某个模块的有效模型，不存在时返回null
+         */
+        public EffectivePom treeArtifact(String groupId, String artifactId) throws IOException {
+            Path pom = resolution.treePom(groupId, artifactId);
+            return pom == null ? null : resolution.effective(pom);
+        }
+    }
+
+    /**
+     * 计算项目中 modulePath 目录及其子目录下全部 pom.xml 的有效模型
+     *
+     * @param projectRoot 项目解压目录
+     * @param modulePath 相对项目目录的模块目录，空串表示整个项目
+     * @return 范围内没有 pom.xml 时返回null
+     * @throws IOException 范围内的 pom.xml 全部无法解析
+     */
+    public ProjectPoms parseProject(Path projectRoot, String modulePath) throws IOException {
+        return parseProject(projectRoot, modulePath, true);
+    }
+
+    /**
+     * 计算项目中 modulePath 范围内 pom.xml 的有效模型
+     *
+     * @param subtree true 时包含子目录下的全部 pom.xml；false 时只解析 modulePath/pom.xml
+     *                （按模块分别解析时子模块的 pom 由各自的模块解析，不必重复计算）
+     */
+    public ProjectPoms parseProject(Path projectRoot, String modulePath, boolean subtree) throws IOException {
+        Path root = projectRoot.toAbsolutePath().normalize();
+        Path scope = modulePath == null || modulePath.isEmpty() ? root : root.resolve(modulePath).normalize();
+        Resolution resolution = new Resolution(root);
+
+        List<Path> targets = new ArrayList<>();
+        for (Path pom : resolution.treePoms()) {
+            if (subtree ? pom.startsWith(scope) : pom.getParent().equals(scope)) {
+                targets.add(pom);
+            }
+        }
+        if (targets.isEmpty()) {
+            return null;
+        }
+
+        List<EffectivePom> poms = new ArrayList<>();
+        IOException firstError = null;
+        for (Path target : targets) {
+            try {
+                poms.add(resolution.effective(target));
+            } catch (IOException e) {
+                System.out.println("DEBUG: 跳过无法解析的POM: " + target + ", " + e.getMessage());
+                if (firstError == null) {
+                    firstError = e;
+                }
+            }
+        }
+        if (poms.isEmpty()) {
+            throw firstError;
+        }
+        return new ProjectPoms(root, poms, resolution);
+    }
+
+    /**
+     * 解析项目中 modulePath 目录及其子目录下全部 pom.xml 的直接依赖
+     *
+     * @return 依赖列表（modulePath 为声明该依赖的 pom 所在目录），范围内没有 pom.xml 时返回null
+     * @throws IOException 范围内的 pom.xml 全部无法解析
+     */
+    public List<WhiteList> parse(Path projectRoot, String modulePath) throws IOException {
+        return parse(projectRoot, modulePath, true);
+    }
+
+    /**
+     * 解析项目中 modulePath 范围内 pom.xml 的直接依赖，范围见 {@link #parseProject(Path, String, boolean)}
+     */
+    public List<WhiteList> parse(Path projectRoot, String modulePath, boolean subtree) throws IOException {
+        long start = System.currentTimeMillis();
+        ProjectPoms project = parseProject(projectRoot, modulePath, subtree);
+        if (project == null) {
+            return null;
+        }
+        List<WhiteList> rows = new ArrayList<>();
+        for (EffectivePom pom : project.getPoms()) {
+            String pomModulePath = project.modulePathOf(pom);
+            for (PomModel.Dependency dependency : pom.getDependencies()) {
+                // 同一上传中其他模块的产物不是第三方依赖
+                if (dependency.getArtifactId() == null
+                        || project.isTreeArtifact(dependency.getGroupId(), dependency.getArtifactId())) {
+                    continue;
+                }
+                rows.add(toWhiteList(dependency, pomModulePath));
+            }
+        }
+        System.out.println("DEBUG: POM解析完成: " + projectRoot + (modulePath == null || modulePath.isEmpty() ? "" : "/" + modulePath)
+                + ", pom数: " + project.getPoms().size() + ", 依赖数: " + rows.size()
+                + ", 耗时: " + (System.currentTimeMillis() - start) + "ms");
+        return rows;
+    }
+
+    static WhiteList toWhiteList(PomModel.Dependency dependency, String modulePath) {
+        String version = dependency.getVersion() == null ? "" : dependency.getVersion();
+        WhiteList row = new WhiteList();
+        row.setName(dependency.getArtifactId());
+        row.setDescription(dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + version);
+        row.setComponentVersion(version);
+        row.setPackageManager("maven");
+        row.setLanguage("java");
+        row.setModulePath(modulePath);
+        row.setIsdelete(0);
+        return row;
+    }
+
+    public boolean hasLocalRepository() {
+        return localRepository != null && !localRepository.trim().isEmpty();
+    }
+
+    /**
+     * 只解析本地仓库中构件的解析过程；同一过程内 parent 和 BOM 只计算一次
+     */
+    Resolution repositoryResolution() {
+        return new Resolution(null);
+    }
+
+    /**
+     * 本地仓库中的 pom 路径，不存在或版本无法确定时返回null
+     */
+    Path repositoryPom(String groupId, String artifactId, String version) {
+        if (!hasLocalRepository() || groupId == null || artifactId == null
+                || version == null || version.isEmpty() || version.contains("${")) {
+            return null;
+        }
+        Path pom = Paths.get(localRepository.trim(), groupId.replace('.', '/'), artifactId, version,
+                artifactId + "-" + version + ".pom");
+        return Files.isRegularFile(pom) ? pom : null;
+    }
+
+    PomModel load(Path pom) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(pom, BasicFileAttributes.class);
+        long modified = attrs.lastModifiedTime().toMillis();
+        CachedPom cached = pomCache.get(pom);
+        if (cached != null && cached.modified == modified && cached.size == attrs.size()) {
+            return cached.model;
+        }
+        PomModel model = MavenPomReader.read(pom);
+        pomCache.put(pom, new CachedPom(modified, attrs.size(), model));
+        return model;
+    }
+
+    /**
+     * 把 ${name} 替换为属性值，找不到的属性保持原样
+     */
+    static String interpolate(String value, Map<String, String> properties) {
+        if (value == null || !value.contains("${")) {
+            return value;
+        }
+        String current = value;
+        for (int pass = 0; pass < MAX_INTERPOLATION_PASSES && current.contains("${"); pass++) {
+            StringBuilder result = new StringBuilder();
+            int index = 0;
+            boolean changed = false;
+            while (index < current.length()) {
+                int open = current.indexOf("${", index);
+                int close = open < 0 ? -1 : current.indexOf('}', open + 2);
+                if (open < 0 || close < 0) {
+                    result.append(current, index, current.length());
+                    break;
+                }
+                result.append(current, index, open);
+                String replacement = properties.get(current.substring(open + 2, close));
+                if (replacement != null) {
+                    result.append(replacement);
+                    changed = true;
+                } else {
+                    result.append(current, open, close + 1);
+                }
+                index = close + 1;
+            }
+            current = result.toString();
+            if (!changed) {
+                break;
+            }
+        }
+        return current;
+    }
+
+    private static PomModel.Dependency interpolate(PomModel.Dependency dependency, Map<String, String> properties) {
+        PomModel.Dependency copy = dependency.copy();
+        copy.setGroupId(interpolate(copy.getGroupId(), properties));
+        copy.setArtifactId(interpolate(copy.getArtifactId(), properties));
+        copy.setVersion(interpolate(copy.getVersion(), properties));
+        copy.setType(interpolate(copy.getType(), properties));
+        copy.setClassifier(interpolate(copy.getClassifier(), properties));
+        copy.setScope(interpolate(copy.getScope(), properties));
+        return copy;
+    }
+
+    /**
+     * 继承后、插值前的模型：列表按子模块在前、parent 在后排列，取第一个即子模块覆盖 parent
+     */
+    private static class InheritedPom {
+        private PomModel model;
+        private final Map<String, String> properties = new HashMap<>();
+        private final List<PomModel.Dependency> managed = new ArrayList<>();
+        private final List<PomModel.Dependency> imports = new ArrayList<>();
+        private final List<PomModel.Dependency> dependencies = new ArrayList<>();
+    }
+
+    /**
+     * 一次解析过程中的状态（上传目录中的 pom 索引、已计算的模型），不在线程间共享
+     */
+    class Resolution {
+        private final Path root;
+        private List<Path> treePoms;
+        private Map<String, Path> treeIndex;
+        private final Map<Path, InheritedPom> inherited = new HashMap<>();
+        private final Map<Path, EffectivePom> effective = new HashMap<>();
+        private final Set<Path> inProgress = new HashSet<>();
+
+        /**
+         * @param root 项目解压目录，只解析本地仓库中的 pom 时为null
+         */
+        Resolution(Path root) {
+            this.root = root;
+        }
+
+        List<Path> treePoms() throws IOException {
+            if (treePoms != null) {
+                return treePoms;
+            }
+            treePoms = new ArrayList<>();
+            treeIndex = new HashMap<>();
+            if (root == null) {
+                return treePoms;
+            }
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(root) && SKIPPED_DIRS.contains(dir.getFileName().toString().toLowerCase(Locale.ROOT))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if ("pom.xml".equals(file.getFileName().toString()) && attrs.isRegularFile()) {
+                        treePoms.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            Collections.sort(treePoms);
+            for (Path pom : treePoms) {
+                try {
+                    PomModel model = load(pom);
+                    treeIndex.putIfAbsent(model.effectiveGroupId() + ":" + model.getArtifactId(), pom);
+                } catch (IOException e) {
+                    System.out.println("DEBUG: 跳过无法解析的POM: " + pom + ", " + e.getMessage());
+                }
+            }
+            return treePoms;
+        }
+
+        boolean isTreeArtifact(String groupId, String artifactId) throws IOException {
+            return treePom(groupId, artifactId) != null;
+        }
+
+        Path treePom(String groupId, String artifactId) throws IOException {
+            treePoms();
+            return treeIndex.get(groupId + ":" + artifactId);
+        }
+
+        /**
+         * 本地仓库中构件的有效模型，仓库中没有该构件时返回null
+         */
+        EffectivePom repositoryArtifact(String groupId, String artifactId, String version) throws IOException {
+            Path pom = repositoryPom(groupId, artifactId, version);
+            return pom == null ? null : effective(pom);
+        }
+
+        EffectivePom effective(Path pom) throws IOException {
+            EffectivePom cached = effective.get(pom);
+            if (cached != null) {
+                return cached;
+            }
+            InheritedPom inheritedPom = inherit(pom, 0);
+            PomModel model = inheritedPom.model;
+
+            Map<String, String> properties = new HashMap<>(inheritedPom.properties);
+            String groupId = model.effectiveGroupId();
+            String version = model.effectiveVersion();
+            putBuiltIn(properties, "groupId", groupId);
+            putBuiltIn(properties, "artifactId", model.getArtifactId());
+            putBuiltIn(properties, "version", version);
+            putBuiltIn(properties, "parent.groupId", model.getParentGroupId());
+            putBuiltIn(properties, "parent.artifactId", model.getParentArtifactId());
+            putBuiltIn(properties, "parent.version", model.getParentVersion());
+            properties.put("project.basedir", pom.getParent().toString());
+            properties.put("basedir", pom.getParent().toString());
+
+            Map<String, PomModel.Dependency> managed = new LinkedHashMap<>();
+            for (PomModel.Dependency dependency : inheritedPom.managed) {
+                PomModel.Dependency resolved = interpolate(dependency, properties);
+                managed.putIfAbsent(resolved.managementKey(), resolved);
+            }
+            // 导入的 BOM 只补充未显式管理的依赖，先声明的 BOM 优先
+            for (PomModel.Dependency dependency : inheritedPom.imports) {
+                PomModel.Dependency bom = interpolate(dependency, properties);
+                for (Map.Entry<String, PomModel.Dependency> entry : importBom(bom).entrySet()) {
+                    managed.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+            }
+
+            List<PomModel.Dependency> dependencies = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (PomModel.Dependency dependency : inheritedPom.dependencies) {
+                PomModel.Dependency resolved = interpolate(dependency, properties);
+                if (!seen.add(resolved.managementKey())) {
+                    continue;
+                }
+                PomModel.Dependency management = managed.get(resolved.managementKey());
+                if (management != null) {
+                    if (resolved.getVersion() == null || resolved.getVersion().isEmpty()) {
+                        resolved.setVersion(management.getVersion());
+                    }
+                    if (resolved.getScope() == null || resolved.getScope().isEmpty()) {
+                        resolved.setScope(management.getScope());
+                    }
+                    resolved.getExclusions().addAll(management.getExclusions());
+                }
+                if (resolved.getScope() == null || resolved.getScope().isEmpty()) {
+                    resolved.setScope("compile");
+                }
+                dependencies.add(resolved);
+            }
+
+            EffectivePom result = new EffectivePom(pom, interpolate(groupId, properties),
+                    interpolate(model.getArtifactId(), properties), interpolate(version, properties),
+                    model.getPackaging() == null ? "jar" : model.getPackaging(), managed, dependencies);
+            effective.put(pom, result);
+            return result;
+        }
+
+        private void putBuiltIn(Map<String, String> properties, String name, String value) {
+            if (value != null) {
+                properties.put("project." + name, value);
+                properties.put("pom." + name, value);
+            }
+        }
+
+        private InheritedPom inherit(Path pom, int depth) throws IOException {
+            InheritedPom cached = inherited.get(pom);
+            if (cached != null) {
+                return cached;
+            }
+            if (depth > MAX_DEPTH || !inProgress.add(pom)) {
+                throw new IOException("POM的parent存在循环引用: " + pom);
+            }
+            try {
+                PomModel model = load(pom);
+                InheritedPom parent = null;
+                if (model.hasParent()) {
+                    Path parentPom = locateParent(pom, model);
+                    if (parentPom != null) {
+                        try {
+                            parent = inherit(parentPom, depth + 1);
+                        } catch (IOException e) {
+                            System.out.println("DEBUG: parent解析失败: " + parentPom + ", " + e.getMessage());
+                        }
+                    } else {
+                        System.out.println("DEBUG: 未找到parent " + model.getParentGroupId() + ":"
+                                + model.getParentArtifactId() + ":" + model.getParentVersion() + "，位于 " + pom);
+                    }
+                }
+
+                InheritedPom result = new InheritedPom();
+                result.model = model;
+                if (parent != null) {
+                    result.properties.putAll(parent.properties);
+                }
+                result.properties.putAll(model.getProperties());
+                for (PomModel.Dependency dependency : model.getManagedDependencies()) {
+                    if ("import".equals(dependency.getScope()) && "pom".equals(dependency.getType())) {
+                        result.imports.add(dependency);
+                    } else {
+                        result.managed.add(dependency);
+                    }
+                }
+                result.dependencies.addAll(model.getDependencies());
+                if (parent != null) {
+                    result.managed.addAll(parent.managed);
+                    result.imports.addAll(parent.imports);
+                    result.dependencies.addAll(parent.dependencies);
+                }
+                inherited.put(pom, result);
+                return result;
+            } finally {
+                inProgress.remove(pom);
+            }
+        }
+
+        private Path locateParent(Path pom, PomModel model) throws IOException {
+            String groupId = model.getParentGroupId();
+            String artifactId = model.getParentArtifactId();
+            if (root != null && pom.startsWith(root)) {
+                String relativePath = model.getParentRelativePath() == null ? "../pom.xml" : model.getParentRelativePath();
+                if (!relativePath.isEmpty()) {
+                    Path candidate = pom.getParent().resolve(relativePath).normalize();
+                    if (Files.isDirectory(candidate)) {
+                        candidate = candidate.resolve("pom.xml");
+                    }
+                    if (candidate.startsWith(root) && !candidate.equals(pom) && Files.isRegularFile(candidate)) {
+                        PomModel parent = load(candidate);
+                        if (artifactId.equals(parent.getArtifactId()) && Objects.equals(groupId, parent.effectiveGroupId())) {
+                            return candidate;
+                        }
+                    }
+                }
+                treePoms();
+                Path indexed = treeIndex.get(groupId + ":" + artifactId);
+                if (indexed != null && !indexed.equals(pom)) {
+                    return indexed;
+                }
+            }
+            return repositoryPom(groupId, artifactId, model.getParentVersion());
+        }
+
+        private final Map<String, Map<String, PomModel.Dependency>> boms = new HashMap<>();
+
+        private Map<String, PomModel.Dependency> importBom(PomModel.Dependency bom) throws IOException {
+            String key = bom.getGroupId() + ":" + bom.getArtifactId() + ":" + bom.getVersion();
+            Map<String, PomModel.Dependency> cached = boms.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            Path pom = null;
+            if (root != null) {
+                treePoms();
+                pom = treeIndex.get(bom.getGroupId() + ":" + bom.getArtifactId());
+            }
+            if (pom == null) {
+                pom = repositoryPom(bom.getGroupId(), bom.getArtifactId(), bom.getVersion());
+            }
+            Map<String, PomModel.Dependency> managed = Collections.emptyMap();
+            if (pom == null) {
+                System.out.println("DEBUG: 未找到BOM " + key);
+            } else if (inProgress.contains(pom)) {
+                System.out.println("DEBUG: BOM存在循环导入: " + key);
+            } else {
+                // 先占位，BOM 互相导入时不再递归
+                boms.put(key, Collections.emptyMap());
+                try {
+                    managed = effective(pom).getManaged();
+                } catch (IOException e) {
+                    System.out.println("DEBUG: BOM解析失败: " + key + ", " + e.getMessage());
+                }
+            }
+            boms.put(key, managed);
+            return managed;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.nju.backend.service.project.util;
+
+import com.nju.backend.repository.po.WhiteList;
+
+import java.util.List;
+
+/**
+ * 单个模块的依赖解析结果；失败的模块 error 不为null，不影响其他模块
+ */
+public class ModuleScanResult {
+    private final ProjectModule module;
+    private final List<WhiteList> dependencies;
+    private final int dependencyCount;
+    private final String error;
+    private final long elapsedMillis;
+
+    /**
+     * @param dependencies 解析结果；失败或依赖已边解析边写出（只记录数量）时为null
+     */
+    public ModuleScanResult(ProjectModule module, List<WhiteList> dependencies, int dependencyCount, String error, long elapsedMillis) {
+        this.module = module;
+        this.dependencies = dependencies;
+        this.dependencyCount = dependencyCount;
+        this.error = error;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public ProjectModule getModule() { return module; }
+
+    public List<WhiteList> getDependencies() { return dependencies; }
+
+    public int getDependencyCount() { return dependencyCount; }
+
+    public String getError() { return error; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public boolean isSuccess() { return error == null; }
+}
@@ -0,0 +1,154 @@
+package com.nju.backend.service.project.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个 pom.xml 中与依赖解析有关的内容（未继承、未插值的原始值）
+ */
+public class PomModel {
+
+    private String groupId;
+    private String artifactId;
+    private String version;
+    private String packaging;
+
+    private String parentGroupId;
+    private String parentArtifactId;
+    private String parentVersion;
+    /**
+     * parent 的 relativePath，未声明时为null（按 ../pom.xml 处理），声明为空表示不在本地查找
+     */
+    private String parentRelativePath;
+
+    private final Map<String, String> properties = new LinkedHashMap<>();
+    private final List<Dependency> dependencies = new ArrayList<>();
+    private final List<Dependency> managedDependencies = new ArrayList<>();
+    private final List<String> modules = new ArrayList<>();
+
+    /**
+     * dependencies 或 dependencyManagement 中的一项
+     */
+    public static class Dependency {
+        private String groupId;
+        private String artifactId;
+        private String version;
+        private String type;
+        private String classifier;
+        private String scope;
+        private String optional;
+        /**
+         * 排除项，groupId:artifactId（可含 * 通配）
+         */
+        private final List<String> exclusions = new ArrayList<>();
+
+        public String getGroupId() { return groupId; }
+
+        public void setGroupId(String groupId) { this.groupId = groupId; }
+
+        public String getArtifactId() { return artifactId; }
+
+        public void setArtifactId(String artifactId) { this.artifactId = artifactId; }
+
+        public String getVersion() { return version; }
+
+        public void setVersion(String version) { this.version = version; }
+
+        public String getType() { return type; }
+
+        public void setType(String type) { this.type = type; }
+
+        public String getClassifier() { return classifier; }
+
+        public void setClassifier(String classifier) { this.classifier = classifier; }
+
+        public String getScope() { return scope; }
+
+        public void setScope(String scope) { this.scope = scope; }
+
+        public String getOptional() { return optional; }
+
+        public void setOptional(String optional) { this.optional = optional; }
+
+        public List<String> getExclusions() { return exclusions; }
+
+        public boolean isOptional() { return "true".equalsIgnoreCase(optional); }
+
+        /**
+         * 依赖管理和去重使用的键：groupId:artifactId:type[:classifier]
+         */
+        public String managementKey() {
+            return groupId + ":" + artifactId + ":" + (type == null ? "jar" : type)
+                    + (classifier == null || classifier.isEmpty() ? "" : ":" + classifier);
+        }
+
+        public Dependency copy() {
+            Dependency copy = new Dependency();
+            copy.groupId = groupId;
+            copy.artifactId = artifactId;
+            copy.version = version;
+            copy.type = type;
+            copy.classifier = classifier;
+            copy.scope = scope;
+            copy.optional = optional;
+            copy.exclusions.addAll(exclusions);
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            return groupId + ":" + artifactId + ":" + version;
+        }
+    }
+
+    public String getGroupId() { return groupId; }
+
+    public void setGroupId(String groupId) { this.groupId = groupId; }
+
+    public String getArtifactId() { return artifactId; }
+
+    public void setArtifactId(String artifactId) { this.artifactId = artifactId; }
+
+    public String getVersion() { return version; }
+
+    public void setVersion(String version) { this.version = version; }
+
+    public String getPackaging() { return packaging; }
+
+    public void setPackaging(String packaging) { this.packaging = packaging; }
+
+    public String getParentGroupId() { return parentGroupId; }
+
+    public void setParentGroupId(String parentGroupId) { this.parentGroupId = parentGroupId; }
+
+    public String getParentArtifactId() { return parentArtifactId; }
+
+    public void setParentArtifactId(String parentArtifactId) { this.parentArtifactId = parentArtifactId; }
+
+    public String getParentVersion() { return parentVersion; }
+
+    public void setParentVersion(String parentVersion) { this.parentVersion = parentVersion; }
+
+    public String getParentRelativePath() { return parentRelativePath; }
+
+    public void setParentRelativePath(String parentRelativePath) { this.parentRelativePath = parentRelativePath; }
+
+    public Map<String, String> getProperties() { return properties; }
+
+    public List<Dependency> getDependencies() { return dependencies; }
+
+    public List<Dependency> getManagedDependencies() { return managedDependencies; }
+
+    public List<String> getModules() { return modules; }
+
+    public boolean hasParent() { return parentArtifactId != null; }
+
+    /**
+     * 未声明 groupId 时继承 parent 的 groupId
+     */
+    public String effectiveGroupId() { return groupId != null ? groupId : parentGroupId; }
+
+    public String effectiveVersion() { return version != null ? version : parentVersion; }
+}
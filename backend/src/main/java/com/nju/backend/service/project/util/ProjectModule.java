@@ -0,0 +1,132 @@
+package com.nju.backend.service.project.util;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * 项目中的一个子项目（模块）：某个生态的依赖清单所在的目录
+ *
+ * 单仓多模块的上传中，每个含 pom.xml、package.json 等清单的目录都作为独立模块解析，
+ * 解析结果以 white_list.module_path 区分；只有根目录清单的项目只有一个 modulePath 为空的模块
+ */
+public class ProjectModule {
+
+    /**
+     * 发现模块时跳过的目录：第三方依赖、版本库和构建产物（如 target 下打包进去的 pom.xml）
+     */
+    private static final Set<String> SKIPPED_DIRS = new HashSet<>(Arrays.asList(
+            "node_modules", "bower_components", ".git", ".svn", ".hg", "__pycache__", ".venv", "venv",
+            "target", "build", "dist", "vendor"));
+    /**
+     * 整个源码树作为一个模块解析的语言：C/C++ 扫描器按源码工作，CMakeLists.txt/Makefile 几乎每层目录都有
+     */
+    private static final Set<String> WHOLE_TREE_LANGUAGES = new HashSet<>(Collections.singletonList("c"));
+
+    private final String modulePath;
+    private final String language;
+    private final boolean subtree;
+
+    public ProjectModule(String modulePath, String language, boolean subtree) {
+        this.modulePath = modulePath;
+        this.language = language;
+        this.subtree = subtree;
+    }
+
+    /**
+     * 相对项目根目录的模块目录，/ 分隔，根目录为空串
+     */
+    public String getModulePath() {
+        return modulePath;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * 是否由解析器遍历模块目录下的整个子树：没有发现清单或模块数超过上限、按整个项目一个模块解析时为true；
+     * 按清单发现的模块只解析本目录的清单，子目录中的清单属于各自的模块
+     */
+    public boolean isSubtree() {
+        return subtree;
+    }
+
+    @Override
+    public String toString() {
+        return language + ":" + (modulePath.isEmpty() ? "/" : modulePath);
+    }
+
+    /**
+     * 在解压目录中发现指定语言的全部模块
+     *
+     * 没有找到清单的语言（如仅凭源码识别的语言、通用解析器）按根目录一个模块处理；
+     * 某种语言的模块数超过上限时退回到根目录一个模块，由解析器自行遍历
+     *
+     * @param root 项目解压目录
+     * @param languages 需要解析的语言
+     * @param maxModules 每种语言最多拆分的模块数
+     */
+    public static List<ProjectModule> discover(Path root, Collection<String> languages, int maxModules) throws IOException {
+        Set<String> wanted = new LinkedHashSet<>(languages);
+        Map<String, Set<String>> dirsByLanguage = new HashMap<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(root) && SKIPPED_DIRS.contains(dir.getFileName().toString().toLowerCase(Locale.ROOT))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String relative = root.relativize(file).toString().replace('\\', '/');
+                String language = DependencyManifests.languageOf(relative);
+                if (language != null && wanted.contains(language) && !WHOLE_TREE_LANGUAGES.contains(language)) {
+                    dirsByLanguage.computeIfAbsent(language, k -> new TreeSet<>()).add(moduleDirOf(relative, language));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        List<ProjectModule> modules = new ArrayList<>();
+        for (String language : wanted) {
+            Set<String> dirs = dirsByLanguage.get(language);
+            if (dirs == null || dirs.isEmpty()) {
+                modules.add(new ProjectModule("", language, true));
+            } else if (dirs.size() > maxModules) {
+                System.out.println("DEBUG: " + language + " 模块数 " + dirs.size() + " 超过上限 " + maxModules + "，按整个项目解析");
+                modules.add(new ProjectModule("", language, true));
+            } else {
+                for (String dir : dirs) {
+                    modules.add(new ProjectModule(dir, language, false));
+                }
+            }
+        }
+        return modules;
+    }
+
+    /**
+     * 清单文件所属模块的目录：requirements/ 下的 .txt 由 requirements 目录的上一级 Python 模块一并解析，不单独成为模块
+     */
+    private static String moduleDirOf(String relative, String language) {
+        int slash = relative.lastIndexOf('/');
+        String dir = slash < 0 ? "" : relative.substring(0, slash);
+        if ("python".equals(language)) {
+            String[] segments = dir.split("/");
+            for (int i = segments.length - 1; i >= 0; i--) {
+                if ("requirements".equalsIgnoreCase(segments[i])) {
+                    return String.join("/", Arrays.copyOfRange(segments, 0, i));
+                }
+            }
+        }
+        return dir;
+    }
+}
@@ -0,0 +1,397 @@
+package com.nju.backend.service.project.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.nju.backend.config.FileStorageConfig;
+import com.nju.backend.repository.mapper.ProjectMapper;
+import com.nju.backend.repository.po.Project;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 解压目录的分层存储
+ *
+ * 1. 热层：上传根目录下的解压目录，目录的修改时间即最近访问时间（使用目录前调用 ensureHot 刷新）
+ * 2. 冷层：长时间未访问、或热层总大小超出预算时按最近最少使用顺序压缩为 .cold/<目录名>.zip 并删除目录
+ * 3. 已软删除项目的解压目录（及冷层压缩包、待补全压缩包）直接删除
+ * 4. 需要文件时（SBOM生成、重新解析）由 ensureHot 从冷层透明恢复到原路径，project.file 不变
+ *
+ * 启用内容寻址存储时，解压目录中的文件是指向对象库的硬链接，删除目录后由对象库回收不再被引用的对象
+ */
+@Component
+public class ProjectStorageManager {
+
+    private static final String COLD_DIR = ".cold";
+    /**
+     * 解压目录均由 UUID 命名，其余目录（.cas、.pending、.chunked、.cold 等）不参与分层
+     */
+    private static final Pattern PROJECT_DIR_NAME =
+            Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    private static final int COPY_BUFFER_SIZE = 256 * 1024;
+
+    @Autowired
+    private ProjectMapper projectMapper;
+
+    @Autowired
+    private ProjectUtil projectUtil;
+
+    @Autowired
+    private ZipExtractionEngine zipExtractionEngine;
+
+    @Autowired
+    private ContentAddressedStore contentAddressedStore;
+
+    private final FileStorageConfig fileStorageConfig;
+    private final MeterRegistry registry;
+
+    @Value("${file.storage.enabled:true}")
+    private boolean enabled;
+
+    @Value("${file.storage.hot-budget-bytes:53687091200}")
+    private long hotBudgetBytes;
+
+    @Value("${file.storage.cold-after-hours:168}")
+    private long coldAfterHours;
+
+    @Value("${file.storage.min-idle-minutes:60}")
+    private long minIdleMinutes;
+
+    /**
+     * 目录名 -> 锁：恢复、压缩、回收同一目录时互斥
+     */
+    private final StripedLocks dirLocks = new StripedLocks(256);
+    /**
+     * 目录名 -> {计算时的修改时间, 大小}，目录未被访问时不必重复遍历
+     */
+    private final Map<String, long[]> sizeCache = new ConcurrentHashMap<>();
+    private final AtomicLong hotBytes = new AtomicLong();
+    private final AtomicLong coldBytes = new AtomicLong();
+
+    public ProjectStorageManager(FileStorageConfig fileStorageConfig, MeterRegistry registry) {
+        this.fileStorageConfig = fileStorageConfig;
+        this.registry = registry;
+        registry.gauge("storage.project.hot.bytes", hotBytes);
+        registry.gauge("storage.project.cold.bytes", coldBytes);
+    }
+
+    /**
+     * 确保项目目录位于热层：目录已被压缩时从冷层恢复，并刷新最近访问时间
+     */
+    public void ensureHot(String projectPath) throws IOException {
+        if (projectPath == null || projectPath.isEmpty()) {
+            return;
+        }
+        File dir = new File(projectPath);
+        File cold = coldArchiveOf(dir);
+        // 未压缩时也在锁内刷新访问时间：compress 在删除目录前于锁内复查访问时间，刷新过则放弃压缩
+        synchronized (dirLocks.get(dir.getName())) {
+            if (cold.exists()) {
+                rehydrate(dir, cold);
+                Counter.builder("storage.project.access").tag("result", "miss").register(registry).increment();
+            } else {
+                Counter.builder("storage.project.access").tag("result", "hit").register(registry).increment();
+            }
+            touch(dir);
+        }
+    }
+
+    /**
+     * 定时整理：回收已删除项目的目录，把冷目录压缩到冷层，最后回收对象库中不再被引用的对象
+     */
+    @Scheduled(initialDelayString = "${file.storage.sweep-interval-ms:900000}",
+            fixedDelayString = "${file.storage.sweep-interval-ms:900000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+            int evicted = evictDeletedProjects();
+            int compressed = compressColdTrees();
+            int collected = contentAddressedStore.collectGarbage();
+            System.out.println("DEBUG: 存储整理完成，回收已删除项目目录 " + evicted + " 个，压缩冷目录 " + compressed
+                    + " 个，回收对象 " + collected + " 个，热层 " + hotBytes.get() + " bytes，冷层 " + coldBytes.get()
+                    + " bytes，耗时 " + (System.currentTimeMillis() - startTime) + "ms");
+        } catch (Exception e) {
+            System.err.println("DEBUG: 存储整理失败: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 删除已软删除项目的解压目录；同一目录仍被未删除的项目引用时保留
+     */
+    private int evictDeletedProjects() {
+        List<Project> deleted = projectMapper.selectList(new QueryWrapper<Project>()
+                .eq("isdelete", 1)
+                .isNotNull("file"));
+        int evicted = 0;
+        for (Project project : deleted) {
+            String filePath = project.getFile();
+            if (filePath.isEmpty() || !isManagedDir(new File(filePath))) {
+                continue;
+            }
+            Long activeReferences = projectMapper.selectCount(new QueryWrapper<Project>()
+                    .eq("file", filePath)
+                    .eq("isdelete", 0));
+            if (activeReferences != null && activeReferences > 0) {
+                continue;
+            }
+            File dir = new File(filePath);
+            File cold = coldArchiveOf(dir);
+            File pending = projectUtil.pendingArchiveOf(dir);
+            if (!dir.exists() && !cold.exists() && !pending.exists()) {
+                continue;
+            }
+            try {
+                synchronized (dirLocks.get(dir.getName())) {
+                    deleteTree(dir.toPath());
+                    Files.deleteIfExists(cold.toPath());
+                    Files.deleteIfExists(pending.toPath());
+                    sizeCache.remove(dir.getName());
+                    evicted++;
+                    System.out.println("DEBUG: 已删除项目的解压目录已回收: " + filePath + "（项目ID: " + project.getId() + "）");
+                }
+            } catch (IOException e) {
+                System.err.println("DEBUG: 回收解压目录失败: " + filePath + ", 原因: " + e.getMessage());
+            }
+        }
+        if (evicted > 0) {
+            Counter.builder("storage.project.evicted").register(registry).increment(evicted);
+        }
+        return evicted;
+    }
+
+    /**
+     * 超过 cold-after-hours 未访问的目录一律压缩；热层仍超出预算时，再按最近访问时间从旧到新继续压缩，
+     * 最近 min-idle-minutes 内访问过的目录（可能正在解析）始终保留
+     */
+    private int compressColdTrees() throws IOException {
+        File[] children = new File(fileStorageConfig.getUploadDir()).listFiles(File::isDirectory);
+        if (children == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        long coldBefore = now - coldAfterHours * 3_600_000L;
+        long idleBefore = now - minIdleMinutes * 60_000L;
+
+        List<File> hot = new ArrayList<>();
+        long total = 0;
+        for (File dir : children) {
+            // 快速解压模式下尚未补全的目录只含依赖清单，体积很小，不参与压缩
+            if (!isManagedDir(dir) || coldArchiveOf(dir).exists() || projectUtil.pendingArchiveOf(dir).exists()) {
+                continue;
+            }
+            hot.add(dir);
+            total += sizeOf(dir);
+        }
+        hot.sort(Comparator.comparingLong(File::lastModified));
+
+        int compressed = 0;
+        for (File dir : hot) {
+            long lastAccess = dir.lastModified();
+            boolean overBudget = hotBudgetBytes > 0 && total > hotBudgetBytes;
+            if (lastAccess >= idleBefore || (lastAccess >= coldBefore && !overBudget)) {
+                continue;
+            }
+            long size = sizeOf(dir);
+            try {
+                if (compress(dir)) {
+                    total -= size;
+                    compressed++;
+                }
+            } catch (IOException e) {
+                System.err.println("DEBUG: 压缩冷目录失败: " + dir + ", 原因: " + e.getMessage());
+            }
+        }
+        if (compressed > 0) {
+            Counter.builder("storage.project.compressed").register(registry).increment(compressed);
+        }
+        hotBytes.set(total);
+        coldBytes.set(coldLayerSize());
+        return compressed;
+    }
+
+    /**
+     * 把目录压缩到冷层后删除目录：先写临时文件再原子改名，改名成功后冷层压缩包即为完整副本
+     *
+     * 写压缩包（大目录可能要几分钟）时不持有目录锁，不阻塞 ensureHot；
+     * 写完后在锁内复查访问时间，期间被访问过（ensureHot 刷新了修改时间）则丢弃压缩包、保留目录
+     */
+    private boolean compress(File dir) throws IOException {
+        Object lock = dirLocks.get(dir.getName());
+        File cold = coldArchiveOf(dir);
+        long lastAccess;
+        synchronized (lock) {
+            long idleBefore = System.currentTimeMillis() - minIdleMinutes * 60_000L;
+            lastAccess = dir.lastModified();
+            if (!dir.isDirectory() || cold.exists() || lastAccess >= idleBefore) {
+                return false;
+            }
+        }
+        Files.createDirectories(cold.getParentFile().toPath());
+        Path temp = cold.toPath().resolveSibling(cold.getName() + ".tmp");
+        try {
+            writeZip(dir.toPath(), temp);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        synchronized (lock) {
+            if (!dir.isDirectory() || dir.lastModified() != lastAccess) {
+                Files.deleteIfExists(temp);
+                System.out.println("DEBUG: 压缩期间目录被访问，放弃压缩: " + dir);
+                return false;
+            }
+            Files.move(temp, cold.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            deleteTree(dir.toPath());
+            sizeCache.remove(dir.getName());
+        }
+        System.out.println("DEBUG: 冷目录已压缩: " + dir + " -> " + cold + "（" + cold.length() + " bytes）");
+        return true;
+    }
+
+    private static void writeZip(Path root, Path target) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(target), COPY_BUFFER_SIZE);
+             ZipOutputStream zipOut = new ZipOutputStream(fileOut, StandardCharsets.UTF_8)) {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(root)) {
+                        zipOut.putNextEntry(new ZipEntry(entryName(root, dir) + "/"));
+                        zipOut.closeEntry();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (!attrs.isRegularFile()) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    zipOut.putNextEntry(new ZipEntry(entryName(root, file)));
+                    try (java.io.InputStream in = Files.newInputStream(file)) {
+                        int len;
+                        while ((len = in.read(buffer)) > 0) {
+                            zipOut.write(buffer, 0, len);
+                        }
+                    }
+                    zipOut.closeEntry();
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    private static String entryName(Path root, Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * 从冷层恢复目录。冷层压缩包存在即视为权威副本：目录中残留的内容（压缩后删除目录时中断）先清空再解压
+     */
+    private void rehydrate(File dir, File cold) throws IOException {
+        long startTime = System.currentTimeMillis();
+        deleteTree(dir.toPath());
+        Files.createDirectories(dir.toPath());
+        try (ZipFile zipFile = new ZipFile(cold, StandardCharsets.UTF_8)) {
+            zipExtractionEngine.extract(zipFile, dir);
+        } catch (IOException e) {
+            deleteTree(dir.toPath());
+            throw new IOException("从冷层恢复项目目录失败: " + dir + ", 原因: " + e.getMessage(), e);
+        }
+        Files.delete(cold.toPath());
+        System.out.println("DEBUG: 项目目录已从冷层恢复: " + dir + "，耗时 " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    private void touch(File dir) {
+        if (dir.isDirectory() && !dir.setLastModified(System.currentTimeMillis())) {
+            System.err.println("DEBUG: 更新目录访问时间失败: " + dir);
+        }
+    }
+
+    private boolean isManagedDir(File dir) {
+        File parent = dir.getAbsoluteFile().getParentFile();
+        return parent != null
+                && parent.toPath().normalize().equals(Paths.get(fileStorageConfig.getUploadDir()).toAbsolutePath().normalize())
+                && PROJECT_DIR_NAME.matcher(dir.getName()).matches();
+    }
+
+    private File coldArchiveOf(File projectDir) {
+        return new File(new File(fileStorageConfig.getUploadDir(), COLD_DIR), projectDir.getName() + ".zip");
+    }
+
+    /**
+     * 目录大小（硬链接共享的对象按每个目录各计一次，预算是近似值）
+     */
+    private long sizeOf(File dir) {
+        long modified = dir.lastModified();
+        long[] cached = sizeCache.get(dir.getName());
+        if (cached != null && cached[0] == modified) {
+            return cached[1];
+        }
+        long size = 0;
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            size = paths.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("DEBUG: 统计目录大小失败: " + dir + ", 原因: " + e.getMessage());
+        }
+        sizeCache.put(dir.getName(), new long[]{modified, size});
+        return size;
+    }
+
+    private long coldLayerSize() {
+        File[] archives = new File(fileStorageConfig.getUploadDir(), COLD_DIR).listFiles(f -> f.getName().endsWith(".zip"));
+        if (archives == null) {
+            return 0;
+        }
+        long size = 0;
+        for (File archive : archives) {
+            size += archive.length();
+        }
+        return size;
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
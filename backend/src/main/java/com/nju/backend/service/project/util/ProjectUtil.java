@@ -10,16 +10,14 @@ import com.nju.backend.repository.mapper.ProjectVulnerabilityMapper;
 import com.nju.backend.repository.mapper.VulnerabilityMapper;
 import com.nju.backend.repository.po.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.ResponseEntity;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -30,7 +28,6 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipFile;
@@ -48,34 +45,69 @@ public class ProjectUtil {
     private ProjectMapper projectMapper;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private ZipExtractionEngine zipExtractionEngine;
+
+    @Autowired
+    private ContentAddressedStore contentAddressedStore;
+
+    @Autowired
+    private TarStreamExtractor tarStreamExtractor;
+
+    @Autowired
+    private ExtractionLimitsResolver extractionLimitsResolver;
+
+    @Autowired
+    private ExtractionMetrics extractionMetrics;
+
+    @Autowired
+    private LanguageSizeScanner languageSizeScanner;
 
     private final FileStorageConfig fileStorageConfig;
-    private static final ObjectMapper objectMapper = new ObjectMapper();
-    private static final String FLASK_BASE_URL = "http://127.0.0.1:5000";
-    private static final String LANGUAGE_DETECT_URL = FLASK_BASE_URL + "/parse/get_primary_language";
+    private static final int SPOOL_BUFFER_SIZE = 64 * 1024;
+    /**
+     * 快速解压模式下保存待补全解压的原始压缩包的目录（位于上传根目录下）
+     */
+    private static final String PENDING_DIR = ".pending";
+
+    /**
+     * 解压模式：full 上传时解压全部文件；manifest 只先解压依赖清单文件，其余文件按需补全
+     */
+    @Value("${file.extract.mode:full}")
+    private String extractMode;
+
+    /**
+     * 目录名 -> 锁：同一目录的补全解压只执行一次
+     */
+    private final StripedLocks completionLocks = new StripedLocks(64);
+
+    /**
+     * 解压时顺带完成的语言检测结果（解压目录 -> 检测器），由 detectProjectType 取走；
+     * 只走解压、不检测语言的调用方（如 /uploadFile）留下的结果按最早加入的顺序淘汰
+     */
+    private static final int MAX_PENDING_DETECTIONS = 256;
+    private final Map<String, LanguageDetector> extractionDetections = Collections.synchronizedMap(
+            new LinkedHashMap<String, LanguageDetector>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, LanguageDetector> eldest) {
+                    return size() > MAX_PENDING_DETECTIONS;
+                }
+            });
 
     public ProjectUtil(FileStorageConfig fileStorageConfig) {
         this.fileStorageConfig = fileStorageConfig;
     }
 
     public String unzipAndSaveFile(MultipartFile file) throws IOException {
-        String baseUploadDir = fileStorageConfig.getUploadDir();
-        System.out.println("DEBUG: 基础上传目录: " + baseUploadDir);
-
-        // 创建基础上传目录（如果不存在）
-        File baseDir = new File(baseUploadDir);
-        if (!baseDir.exists() && !baseDir.mkdirs()) {
-            throw new RuntimeException("文件上传失败: 创建基础文件夹失败");
-        }
+        return unzipAndSaveFile(file, extractionLimitsResolver.defaults());
+    }
 
-        // 生成唯一子目录（防止重名）
-        String uniqueDirName = UUID.randomUUID().toString();
-        File destDir = new File(baseDir, uniqueDirName);
-        if (!destDir.mkdirs()) {
-            throw new RuntimeException("文件上传失败: 创建解压文件夹失败");
-        }
-        System.out.println("DEBUG: 目标解压目录: " + destDir.getAbsolutePath());
+    /**
+     * 解压上传的压缩包，解压过程受给定的资源预算约束（超出时提前终止并清理已写入的文件）
+     */
+    public String unzipAndSaveFile(MultipartFile file, ExtractionLimits limits) throws IOException {
+        ExtractionGovernor governor = new ExtractionGovernor(limits);
+        File destDir = createUploadDir();
+        String uniqueDirName = destDir.getName();
 
         // 检查上传文件的基本信息
         System.out.println("DEBUG: 上传文件名: " + file.getOriginalFilename());
@@ -83,185 +115,234 @@ public class ProjectUtil {
         System.out.println("DEBUG: 上传文件内容类型: " + file.getContentType());
         System.out.println("DEBUG: 上传文件是否为空: " + file.isEmpty());
 
-        // 先将文件内容保存到字节数组（避免临时文件被删除的问题）
-        byte[] fileBytes;
-        try (java.io.InputStream inputStream = file.getInputStream()) {
-            // Java 8兼容的读取方式
-            java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
-            int nRead;
-            byte[] data = new byte[4096];
-            while ((nRead = inputStream.read(data, 0, data.length)) != -1) {
-                buffer.write(data, 0, nRead);
-            }
-            fileBytes = buffer.toByteArray();
-            System.out.println("DEBUG: 成功读取文件内容到内存，大小: " + fileBytes.length + " bytes");
-        } catch (IOException e) {
-            System.err.println("DEBUG: 读取上传文件内容失败: " + e.getMessage());
-            throw new IOException("无法读取上传文件内容: " + e.getMessage());
-        }
-
-        // 将字节数组保存到临时ZIP文件
+        // 将上传流一次性写入临时ZIP文件，同时在同一次读取中检查文件头（堆内存占用与文件大小无关）
         File tempZipFile = new File(destDir.getParent(), uniqueDirName + ".zip");
-        try (java.io.FileOutputStream fos = new java.io.FileOutputStream(tempZipFile)) {
-            fos.write(fileBytes);
-            fos.flush();
-            System.out.println("DEBUG: 成功将文件内容写入临时ZIP文件");
-        } catch (IOException e) {
-            System.err.println("DEBUG: 写入临时ZIP文件失败: " + e.getMessage());
-            throw new IOException("无法创建临时ZIP文件: " + e.getMessage());
+        SpooledUpload spooled;
+        try (java.io.InputStream in = new java.io.BufferedInputStream(file.getInputStream(), SPOOL_BUFFER_SIZE)) {
+            // tar.gz / tar.zst 是顺序结构，直接从上传流边解压边写入，不落临时文件
+            String streamFormat = peekArchiveFormat(in);
+            if (TarStreamExtractor.isTarFormat(streamFormat)) {
+                return extractTarStream(in, streamFormat, destDir, file.getSize(), governor);
+            }
+            try {
+                spooled = spoolUploadToFile(in, tempZipFile);
+                System.out.println("DEBUG: 成功将上传内容写入临时ZIP文件");
+            } catch (IOException e) {
+                System.err.println("DEBUG: 写入临时ZIP文件失败: " + e.getMessage());
+                tempZipFile.delete();
+                throw new IOException("无法创建临时ZIP文件: " + e.getMessage());
+            }
         }
 
         System.out.println("DEBUG: 临时ZIP文件路径: " + tempZipFile.getAbsolutePath());
-        System.out.println("DEBUG: 临时ZIP文件是否存在: " + tempZipFile.exists());
         System.out.println("DEBUG: 临时ZIP文件大小: " + tempZipFile.length() + " bytes");
-        System.out.println("DEBUG: 临时ZIP文件可读: " + tempZipFile.canRead());
-
-        // 检查文件头，确认文件格式
-        String fileFormat = "unknown";
-        if (tempZipFile.length() >= 4) {
-            try (java.io.FileInputStream fis = new java.io.FileInputStream(tempZipFile)) {
-                byte[] header = new byte[6];
-                int bytesRead = fis.read(header);
-
-                // ZIP文件的魔术数字是 0x50 0x4B (PK)
-                if (bytesRead >= 2 && header[0] == (byte)0x50 && header[1] == (byte)0x4B) {
-                    fileFormat = "zip";
-                    System.out.println("DEBUG: 检测到ZIP格式文件");
-                }
-                // 7z文件的魔术数字是 0x37 0x7A 0xBC 0xAF 0x27 0x1C
-                else if (bytesRead >= 6 && header[0] == (byte)0x37 && header[1] == (byte)0x7A &&
-                        header[2] == (byte)0xBC && header[3] == (byte)0xAF) {
-                    fileFormat = "7z";
-                    System.out.println("DEBUG: 检测到7z格式文件");
-                }
-                // RAR文件头 0x52 0x61 0x72 0x21 (Rar!)
-                else if (bytesRead >= 4 && header[0] == (byte)0x52 && header[1] == (byte)0x61 &&
-                        header[2] == (byte)0x72 && header[3] == (byte)0x21) {
-                    fileFormat = "rar";
-                    System.out.println("DEBUG: 检测到RAR格式文件");
-                }
-                else {
-                    System.out.println("DEBUG: 未知文件格式，文件头: " +
-                        String.format("0x%02X 0x%02X 0x%02X 0x%02X 0x%02X 0x%02X",
-                        header[0], header[1], header[2], header[3], header[4], header[5]));
-                }
-            } catch (Exception e) {
-                System.out.println("DEBUG: 文件头检查失败: " + e.getMessage());
-            }
-        } else {
-            System.out.println("DEBUG: 文件太小，可能不是有效的压缩文件");
-        }
 
         // 如果不是ZIP格式，提供友好的错误信息
-        if (!"zip".equals(fileFormat)) {
-            String errorMsg = "";
-            switch (fileFormat) {
-                case "7z":
-                    errorMsg = "检测到7z格式文件。目前系统仅支持ZIP格式，请将文件重新打包为ZIP格式后上传。";
-                    break;
-                case "rar":
-                    errorMsg = "检测到RAR格式文件。目前系统仅支持ZIP格式，请将文件重新打包为ZIP格式后上传。";
-                    break;
-                default:
-                    errorMsg = "未知的文件格式或文件损坏。请确保上传的是有效的ZIP格式文件。";
-                    break;
-            }
+        if (!"zip".equals(spooled.format)) {
+            String errorMsg = unsupportedFormatMessage(spooled.format);
             System.err.println("DEBUG: " + errorMsg);
+            tempZipFile.delete();
+            destDir.delete();
             throw new IOException(errorMsg);
         }
 
-        int fileCount = 0;
-        int dirCount = 0;
-
-        // 使用ZipFile代替ZipInputStream，支持更好的编码处理
-        try (ZipFile zipFile = new ZipFile(tempZipFile, java.nio.charset.Charset.forName("GBK"))) {
-            System.out.println("DEBUG: ZIP文件条目数量: " + zipFile.size());
-
-            java.util.Enumeration<? extends ZipEntry> entries = zipFile.entries();
-
-            while (entries.hasMoreElements()) {
-                ZipEntry entry = entries.nextElement();
-                System.out.println("DEBUG: 处理ZIP条目: " + entry.getName() +
-                                 ", 是否目录: " + entry.isDirectory() +
-                                 ", 大小: " + entry.getSize());
-
-                String entryName = entry.getName();
-                // 处理路径分隔符
-                entryName = entryName.replace('/', File.separatorChar);
+        return extractArchive(tempZipFile, destDir, spooled, null, governor);
+    }
 
-                File entryFile = new File(destDir, entryName);
+    /**
+     * 解压已完整写入磁盘的ZIP压缩包（分片上传合并后的文件），压缩包文件由本方法接管，解压后删除或保留待补全
+     *
+     * @param digest      压缩包的SHA-256（分片上传时已增量计算）
+     * @param nameCharset 已从中央目录检测出的文件名编码，为null时重新检测
+     * @param limits      解压资源预算
+     */
+    public String unzipAndSaveArchive(File archive, String digest, long size, java.nio.charset.Charset nameCharset,
+                                      ExtractionLimits limits) throws IOException {
+        ExtractionGovernor governor = new ExtractionGovernor(limits);
+        File destDir = createUploadDir();
+        String format;
+        try (java.io.InputStream in = new java.io.FileInputStream(archive)) {
+            format = peekArchiveFormat(in);
+        }
+        if (TarStreamExtractor.isTarFormat(format)) {
+            try (java.io.InputStream in = new java.io.BufferedInputStream(new java.io.FileInputStream(archive), SPOOL_BUFFER_SIZE)) {
+                return extractTarStream(in, format, destDir, size, governor);
+            } finally {
+                if (!archive.delete()) {
+                    archive.deleteOnExit();
+                }
+            }
+        }
+        if (!"zip".equals(format)) {
+            archive.delete();
+            destDir.delete();
+            throw new IOException(unsupportedFormatMessage(format));
+        }
+        return extractArchive(archive, destDir, new SpooledUpload("zip", digest, size), nameCharset, governor);
+    }
 
-                // 防御路径遍历攻击
-                String canonicalDestPath = destDir.getCanonicalPath();
-                String canonicalFilePath = entryFile.getCanonicalPath();
+    /**
+     * 从 tar.gz / tar.zst 数据流直接解压到目标目录，同时计算压缩包的SHA-256用于登记
+     *
+     * 顺序格式无法像ZIP那样先读目录再按需解压，快速解压模式对其不生效
+     */
+    private String extractTarStream(java.io.InputStream in, String format, File destDir, long size,
+                                    ExtractionGovernor governor) throws IOException {
+        if ("manifest".equalsIgnoreCase(extractMode)) {
+            System.out.println("DEBUG: tar格式为顺序结构，不支持按需补全，解压全部文件");
+        }
+        java.security.MessageDigest digest = ZipExtractionEngine.newSha256();
+        LanguageDetector detector = new LanguageDetector();
+        try {
+            tarStreamExtractor.extract(new java.security.DigestInputStream(in, digest), format, destDir, governor, detector);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("DEBUG: tar压缩包解压失败: " + e.getMessage());
+            cleanDirectory(destDir);
+            throw new IOException("tar压缩包解压失败: " + e.getMessage(), e);
+        }
+        recordUpload(new SpooledUpload(format, ContentAddressedStore.toHex(digest.digest()), size), destDir);
+        extractionDetections.put(destDir.getAbsolutePath(), detector);
+        return destDir.getAbsolutePath();
+    }
 
-                boolean isValidPath = canonicalFilePath.equals(canonicalDestPath) ||
-                                    canonicalFilePath.startsWith(canonicalDestPath + File.separator);
+    /**
+     * 按中央目录声明的条目数和原始大小预检（快速解压模式下同样覆盖整个压缩包）
+     */
+    private void checkDeclaredBudget(ZipCentralDirectory directory, ExtractionGovernor governor) throws ExtractionLimitExceededException {
+        long declaredBytes = 0;
+        for (ZipCentralDirectory.RawEntry entry : directory.getEntries()) {
+            // ZIP64 条目缺少扩展字段时仍为占位值，交给解压时的实际计数
+            if (entry.getUncompressedSize() != 0xFFFFFFFFL) {
+                declaredBytes += entry.getUncompressedSize();
+            }
+        }
+        governor.checkDeclared(directory.getEntries().size(), declaredBytes);
+    }
 
-                if (!isValidPath) {
-                    System.out.println("DEBUG: 跳过潜在危险路径: " + entry.getName());
-                    continue;
-                }
+    /**
+     * 读取流开头的魔术数字识别压缩格式，读取后流回到起始位置（流须支持mark）
+     */
+    private String peekArchiveFormat(java.io.InputStream in) throws IOException {
+        byte[] header = new byte[6];
+        int len = 0;
+        if (in.markSupported()) {
+            in.mark(header.length);
+        }
+        int n;
+        while (len < header.length && (n = in.read(header, len, header.length - len)) > 0) {
+            len += n;
+        }
+        if (in.markSupported()) {
+            in.reset();
+        }
+        return detectArchiveFormat(header, len);
+    }
 
-                if (entry.isDirectory()) {
-                    boolean created = entryFile.mkdirs();
-                    System.out.println("DEBUG: 创建目录 " + entryFile.getAbsolutePath() + ", 结果: " + created);
-                    dirCount++;
-                } else {
-                    // 确保父目录存在
-                    File parentDir = entryFile.getParentFile();
-                    if (!parentDir.exists()) {
-                        boolean created = parentDir.mkdirs();
-                        System.out.println("DEBUG: 创建父目录 " + parentDir.getAbsolutePath() + ", 结果: " + created);
-                    }
+    /**
+     * 在上传根目录下创建本次上传的唯一解压目录
+     */
+    private File createUploadDir() {
+        String baseUploadDir = fileStorageConfig.getUploadDir();
+        System.out.println("DEBUG: 基础上传目录: " + baseUploadDir);
 
-                    // 处理文件重名
-                    if (entryFile.exists()) {
-                        String fileName = getUniqueFileName(entryFile);
-                        entryFile = new File(parentDir, fileName);
-                        System.out.println("DEBUG: 文件重名，重命名为: " + fileName);
-                    }
+        // 创建基础上传目录（如果不存在）
+        File baseDir = new File(baseUploadDir);
+        if (!baseDir.exists() && !baseDir.mkdirs()) {
+            throw new RuntimeException("文件上传失败: 创建基础文件夹失败");
+        }
 
-                    // 写入文件
-                    try (java.io.InputStream inputStream = zipFile.getInputStream(entry);
-                         FileOutputStream fos = new FileOutputStream(entryFile);
-                         BufferedOutputStream bos = new BufferedOutputStream(fos)) {
+        // 生成唯一子目录（防止重名）
+        String uniqueDirName = UUID.randomUUID().toString();
+        File destDir = new File(baseDir, uniqueDirName);
+        if (!destDir.mkdirs()) {
+            throw new RuntimeException("文件上传失败: 创建解压文件夹失败");
+        }
+        System.out.println("DEBUG: 目标解压目录: " + destDir.getAbsolutePath());
+        return destDir;
+    }
 
-                        byte[] buffer = new byte[4096];
-                        int len;
-                        long totalBytes = 0;
+    /**
+     * 非ZIP格式压缩包的提示信息
+     */
+    public static String unsupportedFormatMessage(String format) {
+        switch (format) {
+            case "7z":
+                return "检测到7z格式文件。目前系统支持ZIP、tar.gz、tar.zst格式，请将文件重新打包后上传。";
+            case "rar":
+                return "检测到RAR格式文件。目前系统支持ZIP、tar.gz、tar.zst格式，请将文件重新打包后上传。";
+            default:
+                return "未知的文件格式或文件损坏。请确保上传的是有效的ZIP、tar.gz或tar.zst格式文件。";
+        }
+    }
 
-                        while ((len = inputStream.read(buffer)) > 0) {
-                            bos.write(buffer, 0, len);
-                            totalBytes += len;
+    private String extractArchive(File tempZipFile, File destDir, SpooledUpload spooled,
+                                  java.nio.charset.Charset knownCharset, ExtractionGovernor governor) throws IOException {
+        try {
+            // 内容相同的压缩包已解压过：以硬链接复用已有目录，跳过解压
+            if (contentAddressedStore.isEnabled()) {
+                UploadArchive previous = contentAddressedStore.findReusableArchive(spooled.digest);
+                if (previous != null) {
+                    try {
+                        // 历史上传仍处于快速解压状态时，同时复用其待补全的压缩包（须在复制目录之前）
+                        File previousPending = pendingArchiveOf(new File(previous.getFilePath()));
+                        if (previousPending.exists()) {
+                            linkOrCopy(previousPending.toPath(), pendingArchiveOf(destDir).toPath());
                         }
-
-                        System.out.println("DEBUG: 写入文件 " + entryFile.getName() + ", 大小: " + totalBytes + " bytes");
-                        fileCount++;
-
+                        contentAddressedStore.materialize(Paths.get(previous.getFilePath()), destDir.toPath());
+                        contentAddressedStore.recordArchive(spooled.digest, destDir.getAbsolutePath(), previous.getFilePath(), spooled.size);
+                        System.out.println("DEBUG: 压缩包内容与已有上传相同，复用目录: " + previous.getFilePath());
+                        return destDir.getAbsolutePath();
                     } catch (IOException e) {
-                        System.err.println("DEBUG: 写入文件失败 " + entryFile.getAbsolutePath() + ", 错误: " + e.getMessage());
-                        throw e;
+                        System.err.println("DEBUG: 复用已有解压目录失败，重新解压: " + e.getMessage());
+                        cleanDirectory(destDir);
+                        pendingArchiveOf(destDir).delete();
                     }
                 }
             }
-        } catch (IOException e) {
-            System.err.println("DEBUG: ZIP文件处理失败: " + e.getMessage());
-            // 如果GBK编码失败，尝试UTF-8编码
-            try (ZipFile zipFile = new ZipFile(tempZipFile, java.nio.charset.Charset.forName("UTF-8"))) {
-                System.out.println("DEBUG: 使用UTF-8重新尝试解压...");
-                return unzipWithZipFile(zipFile, destDir);
-            } catch (IOException e2) {
-                System.err.println("DEBUG: UTF-8编码也失败，使用默认编码尝试...");
-                // 最后使用系统默认编码
-                try (ZipFile zipFile = new ZipFile(tempZipFile)) {
-                    return unzipWithZipFile(zipFile, destDir);
-                } catch (IOException e3) {
-                    System.err.println("DEBUG: 系统默认编码也失败，尝试使用ZipInputStream...");
-                    // 最后的备用方案：使用ZipInputStream
-                    return unzipWithInputStream(fileBytes, destDir);
+
+            // 只读取一次中央目录，根据UTF-8标志位和原始文件名字节确定文件名编码，并按声明的条目数和大小预检资源预算
+            java.nio.charset.Charset nameCharset;
+            LanguageDetector detector;
+            try {
+                ZipCentralDirectory directory = ZipCentralDirectory.read(tempZipFile);
+                checkDeclaredBudget(directory, governor);
+                nameCharset = knownCharset != null ? knownCharset : directory.detectNameCharset();
+                System.out.println("DEBUG: 检测到ZIP文件名编码: " + nameCharset.name());
+                // 中央目录已包含全部文件名和原始大小，语言检测在这里一并完成（快速解压模式同样适用）
+                detector = detectorOf(directory, nameCharset);
+            } catch (ExtractionLimitExceededException e) {
+                System.err.println("DEBUG: " + e.getMessage());
+                extractionMetrics.rejected("zip", e);
+                throw e;
+            } catch (IOException e) {
+                // 中央目录不可读（如被截断），只能顺序读取本地文件头
+                System.err.println("DEBUG: 读取ZIP中央目录失败: " + e.getMessage() + "，使用ZipInputStream解压");
+                try {
+                    unzipWithInputStream(tempZipFile, destDir, governor);
+                    recordUpload(spooled, destDir);
+                    return destDir.getAbsolutePath();
+                } catch (IOException | RuntimeException e2) {
+                    cleanDirectory(destDir);
+                    throw new IOException("ZIP文件解压失败: " + e2.getMessage(), e2);
                 }
             }
+
+            // 使用确定的编码只解压一次，条目由并行解压引擎写入（快速模式下只解压依赖清单文件）
+            boolean manifestOnly = "manifest".equalsIgnoreCase(extractMode);
+            try (ZipFile zipFile = new ZipFile(tempZipFile, nameCharset)) {
+                System.out.println("DEBUG: ZIP文件条目数量: " + zipFile.size());
+                zipExtractionEngine.extract(zipFile, destDir, manifestOnly ? DependencyManifests::isManifest : null, governor);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("DEBUG: ZIP文件处理失败: " + e.getMessage());
+                // 清理失败时已写入的部分文件
+                cleanDirectory(destDir);
+                throw new IOException("ZIP文件解压失败: " + e.getMessage(), e);
+            }
+            if (manifestOnly) {
+                keepPendingArchive(tempZipFile, destDir, governor);
+            }
+            recordUpload(spooled, destDir);
+            extractionDetections.put(destDir.getAbsolutePath(), detector);
         } finally {
             // 删除临时ZIP文件（延迟删除，确保文件未被占用）
             if (tempZipFile.exists()) {
@@ -281,8 +362,6 @@ public class ProjectUtil {
             }
         }
 
-        System.out.println("DEBUG: 解压完成，总计目录: " + dirCount + ", 文件: " + fileCount);
-
         // 检查最终目录内容
         File[] files = destDir.listFiles();
         if (files != null) {
@@ -298,14 +377,157 @@ public class ProjectUtil {
     }
 
     /**
-     * 使用ZipInputStream解压的备用方法
+     * 保留原始压缩包供之后补全解压；无法保留时立即解压剩余文件
+     */
+    private void keepPendingArchive(File tempZipFile, File destDir, ExtractionGovernor governor) throws IOException {
+        File pending = pendingArchiveOf(destDir);
+        try {
+            Files.createDirectories(pending.toPath().getParent());
+            Files.move(tempZipFile.toPath(), pending.toPath());
+            System.out.println("DEBUG: 快速解压模式，已解压依赖清单文件，其余文件待需要时解压");
+        } catch (IOException e) {
+            System.err.println("DEBUG: 保留压缩包失败，立即解压全部文件: " + e.getMessage());
+            java.nio.charset.Charset nameCharset = ZipCentralDirectory.read(tempZipFile).detectNameCharset();
+            try (ZipFile zipFile = new ZipFile(tempZipFile, nameCharset)) {
+                zipExtractionEngine.extract(zipFile, destDir, name -> !DependencyManifests.isManifest(name), governor);
+            }
+        }
+    }
+
+    File pendingArchiveOf(File projectDir) {
+        return new File(new File(fileStorageConfig.getUploadDir(), PENDING_DIR), projectDir.getName() + ".zip");
+    }
+
+    private static void linkOrCopy(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 确保项目目录已完整解压
+     *
+     * 快速解压模式下上传时只解压了依赖清单文件；需要完整源码的场景（SBOM生成、C/C++源码扫描等）
+     * 在使用目录前调用此方法，从保留的压缩包中补全剩余文件。已完整解压时直接返回
+     */
+    public void ensureFullyExtracted(String projectPath) throws IOException {
+        File destDir = new File(projectPath);
+        File pending = pendingArchiveOf(destDir);
+        if (!pending.exists()) {
+            return;
+        }
+        synchronized (completionLocks.get(destDir.getName())) {
+            if (!pending.exists()) {
+                return;
+            }
+            System.out.println("DEBUG: 补全解压项目目录: " + projectPath);
+            java.nio.charset.Charset nameCharset = ZipCentralDirectory.read(pending).detectNameCharset();
+            // 上传时已按整个压缩包声明的条目数和大小预检过，这里按项目所属公司的预算约束实际写入量
+            ExtractionGovernor governor = new ExtractionGovernor(extractionLimitsResolver.forProjectPath(projectPath));
+            try (ZipFile zipFile = new ZipFile(pending, nameCharset)) {
+                zipExtractionEngine.extract(zipFile, destDir, name -> !DependencyManifests.isManifest(name), governor);
+            }
+            Files.delete(pending.toPath());
+        }
+    }
+
+    /**
+     * 将上传内容以固定大小的缓冲区流式写入目标文件，在同一次读取中识别压缩格式并计算SHA-256
      */
-    private String unzipWithInputStream(byte[] fileBytes, File destDir) throws IOException {
+    private SpooledUpload spoolUploadToFile(java.io.InputStream in, File target) throws IOException {
+        byte[] buffer = new byte[SPOOL_BUFFER_SIZE];
+        byte[] header = new byte[6];
+        int headerLen = 0;
+        long total = 0;
+        java.security.MessageDigest digest = ZipExtractionEngine.newSha256();
+
+        try (FileOutputStream out = new FileOutputStream(target)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                if (headerLen < header.length) {
+                    int copy = Math.min(header.length - headerLen, n);
+                    System.arraycopy(buffer, 0, header, headerLen, copy);
+                    headerLen += copy;
+                }
+                out.write(buffer, 0, n);
+                digest.update(buffer, 0, n);
+                total += n;
+            }
+        }
+
+        System.out.println("DEBUG: 流式写入上传文件完成，大小: " + total + " bytes");
+        return new SpooledUpload(detectArchiveFormat(header, headerLen),
+                ContentAddressedStore.toHex(digest.digest()), total);
+    }
+
+    /**
+     * 登记本次上传，供后续相同内容的上传复用（登记失败不影响上传本身）
+     */
+    private void recordUpload(SpooledUpload spooled, File destDir) {
+        if (!contentAddressedStore.isEnabled()) {
+            return;
+        }
+        try {
+            contentAddressedStore.recordArchive(spooled.digest, destDir.getAbsolutePath(), null, spooled.size);
+        } catch (Exception e) {
+            System.err.println("DEBUG: 登记上传记录失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 根据文件头魔术数字识别压缩格式
+     */
+    public String detectArchiveFormat(byte[] header, int len) {
+        if (len < 4) {
+            System.out.println("DEBUG: 文件太小，可能不是有效的压缩文件");
+            return "unknown";
+        }
+        // ZIP文件的魔术数字是 0x50 0x4B (PK)
+        if (header[0] == (byte) 0x50 && header[1] == (byte) 0x4B) {
+            System.out.println("DEBUG: 检测到ZIP格式文件");
+            return "zip";
+        }
+        // 7z文件的魔术数字是 0x37 0x7A 0xBC 0xAF 0x27 0x1C
+        if (len >= 6 && header[0] == (byte) 0x37 && header[1] == (byte) 0x7A &&
+                header[2] == (byte) 0xBC && header[3] == (byte) 0xAF) {
+            System.out.println("DEBUG: 检测到7z格式文件");
+            return "7z";
+        }
+        // gzip 0x1F 0x8B（tar.gz）
+        if (header[0] == (byte) 0x1F && header[1] == (byte) 0x8B) {
+            System.out.println("DEBUG: 检测到gzip格式文件");
+            return "gzip";
+        }
+        // zstd 0x28 0xB5 0x2F 0xFD（tar.zst）
+        if (header[0] == (byte) 0x28 && header[1] == (byte) 0xB5 &&
+                header[2] == (byte) 0x2F && header[3] == (byte) 0xFD) {
+            System.out.println("DEBUG: 检测到zstd格式文件");
+            return "zstd";
+        }
+        // RAR文件头 0x52 0x61 0x72 0x21 (Rar!)
+        if (header[0] == (byte) 0x52 && header[1] == (byte) 0x61 &&
+                header[2] == (byte) 0x72 && header[3] == (byte) 0x21) {
+            System.out.println("DEBUG: 检测到RAR格式文件");
+            return "rar";
+        }
+        System.out.println("DEBUG: 未知文件格式，文件头: " +
+                String.format("0x%02X 0x%02X 0x%02X 0x%02X", header[0], header[1], header[2], header[3]));
+        return "unknown";
+    }
+
+    /**
+     * 使用ZipInputStream解压的备用方法（顺序读取磁盘上的临时文件，不整体载入内存）
+     */
+    private String unzipWithInputStream(File zipSource, File destDir, ExtractionGovernor governor) throws IOException {
         System.out.println("DEBUG: 使用ZipInputStream备用方案解压");
         int fileCount = 0;
         int dirCount = 0;
 
-        try (ZipInputStream zipIn = new ZipInputStream(new java.io.ByteArrayInputStream(fileBytes))) {
+        try (ZipInputStream zipIn = new ZipInputStream(new java.io.BufferedInputStream(
+                new java.io.FileInputStream(zipSource), SPOOL_BUFFER_SIZE))) {
             ZipEntry entry = zipIn.getNextEntry();
             byte[] buffer = new byte[4096];
 
@@ -339,13 +561,16 @@ public class ProjectUtil {
                         parentDir.mkdirs();
                     }
 
+                    governor.onEntry(entry.getName());
                     try (FileOutputStream fos = new FileOutputStream(entryFile);
                          BufferedOutputStream bos = new BufferedOutputStream(fos)) {
                         int len;
                         long totalBytes = 0;
+                        long compressedSize = Math.max(0, entry.getCompressedSize());
                         while ((len = zipIn.read(buffer)) > 0) {
-                            bos.write(buffer, 0, len);
                             totalBytes += len;
+                            governor.onBytes(entry.getName(), len, totalBytes, compressedSize);
+                            bos.write(buffer, 0, len);
                         }
                         System.out.println("DEBUG: [ZipInputStream] 写入文件: " + entryFile.getName() +
                                          ", 大小: " + totalBytes + " bytes");
@@ -363,75 +588,23 @@ public class ProjectUtil {
     }
 
     /**
-     * 使用ZipFile解压的辅助方法
+     * 删除目录下的全部内容（保留目录本身），用于清理解压失败留下的部分文件
      */
-    private String unzipWithZipFile(ZipFile zipFile, File destDir) throws IOException {
-        int fileCount = 0;
-        int dirCount = 0;
-
-        java.util.Enumeration<? extends ZipEntry> entries = zipFile.entries();
-
-        while (entries.hasMoreElements()) {
-            ZipEntry entry = entries.nextElement();
-
-            String entryName = entry.getName().replace('/', File.separatorChar);
-            File entryFile = new File(destDir, entryName);
-
-            // 安全检查
-            String canonicalDestPath = destDir.getCanonicalPath();
-            String canonicalFilePath = entryFile.getCanonicalPath();
-            boolean isValidPath = canonicalFilePath.equals(canonicalDestPath) ||
-                                canonicalFilePath.startsWith(canonicalDestPath + File.separator);
-
-            if (!isValidPath) {
-                continue;
+    private void cleanDirectory(File dir) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                cleanDirectory(child);
             }
-
-            if (entry.isDirectory()) {
-                entryFile.mkdirs();
-                dirCount++;
-            } else {
-                File parentDir = entryFile.getParentFile();
-                if (!parentDir.exists()) {
-                    parentDir.mkdirs();
-                }
-
-                try (java.io.InputStream inputStream = zipFile.getInputStream(entry);
-                     FileOutputStream fos = new FileOutputStream(entryFile);
-                     BufferedOutputStream bos = new BufferedOutputStream(fos)) {
-
-                    byte[] buffer = new byte[4096];
-                    int len;
-                    while ((len = inputStream.read(buffer)) > 0) {
-                        bos.write(buffer, 0, len);
-                    }
-                    fileCount++;
-                }
+            if (!child.delete()) {
+                System.err.println("DEBUG: 清理文件失败: " + child.getAbsolutePath());
             }
         }
-
-        System.out.println("DEBUG: 辅助解压完成，总计目录: " + dirCount + ", 文件: " + fileCount);
-        return destDir.getAbsolutePath();
     }
 
-    /**
-     * 生成唯一文件名（解决同一ZIP内部文件重名问题）
-     */
-    private String getUniqueFileName(File file) {
-        String baseName = file.getName();
-        String parentDir = file.getParent();
-        String nameWithoutExt = baseName.replaceFirst("[.][^.]+$", "");
-        String extension = baseName.substring(nameWithoutExt.length());
-
-        int counter = 1;
-        while (file.exists()) {
-            String newName = nameWithoutExt + "_" + counter + extension;
-            file = new File(parentDir, newName);
-            counter++;
-        }
-        return file.getName();
-    }
-    
     public String getRiskLevel(int projectId,int riskThreshold) {
         QueryWrapper<ProjectVulnerability> wrapper = new QueryWrapper<>();
         wrapper.eq("project_id", projectId)
@@ -499,53 +672,11 @@ public class ProjectUtil {
         }
     }
 
-    public static Map<String, Double> calcLanguagePercentByFileSize(String projectPath) {
-    // 常见语言扩展名映射
-    Map<String, String> EXT_LANG_MAP = new HashMap<>();
-    EXT_LANG_MAP.put("java", "Java");
-    EXT_LANG_MAP.put("c", "C");
-    EXT_LANG_MAP.put("cpp", "C++");
-    EXT_LANG_MAP.put("h", "C/C++头文件");
-    EXT_LANG_MAP.put("py", "Python");
-    EXT_LANG_MAP.put("js", "JavaScript");
-    EXT_LANG_MAP.put("ts", "TypeScript");
-
-    String[] ignoreExts = {"class", "o", "exe"};
-
-    Map<String, Long> langSize = new HashMap<>();
-    long total = countFileSize(new File(projectPath), langSize, EXT_LANG_MAP, ignoreExts);
-
-    Map<String, Double> percent = new HashMap<>();
-    for (Map.Entry<String, Long> entry : langSize.entrySet()) {
-        percent.put(entry.getKey(), entry.getValue() * 100.0 / total);
-    }
-    return percent;
-    }
-
-    private static long countFileSize(File dir, Map<String, Long> langSize, Map<String, String> extLangMap, String... ignoreExts) {
-        long total = 0;
-        File[] files = dir.listFiles();
-        if (files == null) return 0;
-        for (File file : files) {
-            if (file.isDirectory()) {
-                total += countFileSize(file, langSize, extLangMap, ignoreExts);
-            } else {
-                String ext = getFileExt(file.getName());
-                if (Arrays.asList(ignoreExts).contains(ext)) continue;
-                String lang = extLangMap.getOrDefault(ext, "Other");
-                long size = file.length();
-                langSize.put(lang, langSize.getOrDefault(lang, 0L) + size);
-                total += size;
-            }
-        }
-        return total;
-    }
-    private static String getFileExt(String fileName) {
-        int dotIndex = fileName.lastIndexOf('.');
-        if (dotIndex != -1 && dotIndex < fileName.length() - 1) {
-            return fileName.substring(dotIndex + 1).toLowerCase();
-        }
-        return "";
+    /**
+     * 按文件大小统计各语言占比（百分比），第三方依赖和构建产物目录按 file.scan.pruned-dirs 跳过
+     */
+    public Map<String, Double> calcLanguagePercentByFileSize(String projectPath) {
+        return languageSizeScanner.calcLanguagePercent(projectPath);
     }
 
     public static String mapToJson(Map<String, Double> map) {
@@ -567,9 +698,19 @@ public class ProjectUtil {
 
     /**
      * 检测项目语言类型
-     * 优先使用Flask API进行检测，失败则回退到本地文件扫描
+     *
+     * 1. 刚解压的目录：直接使用解压时基于条目列表完成的检测结果
+     * 2. 快速解压模式下尚未补全的目录：按保留的压缩包中央目录里的完整文件名检测
+     * 3. 其余情况（如复用已有目录）：遍历一次目录检测
      */
     public String detectProjectType(String projectPath) throws IOException {
+        return logDetected(detectProjectLanguages(projectPath).primaryLanguage());
+    }
+
+    /**
+     * 检测项目中的全部语言（各语言的文件数、字节数和依赖清单位置），数据来源同 detectProjectType
+     */
+    public LanguageDetector detectProjectLanguages(String projectPath) throws IOException {
         System.out.println("=== 开始检测项目语言 ===");
         System.out.println("项目路径: " + projectPath);
 
@@ -580,124 +721,83 @@ public class ProjectUtil {
             throw new IllegalArgumentException("Invalid project directory");
         }
 
-        // 优先使用Flask API检测
-        try {
-            String detectedLanguage = detectLanguageUsingFlaskAPI(projectPath);
-            if (detectedLanguage != null && !detectedLanguage.equalsIgnoreCase("unknown")) {
-                System.out.println("✓ Flask API检测成功: " + detectedLanguage);
-                return detectedLanguage.toLowerCase();
+        LanguageDetector detector = extractionDetections.remove(path.toFile().getAbsolutePath());
+        if (detector != null) {
+            System.out.println("使用解压时的检测结果");
+            return detector;
+        }
+
+        File pending = pendingArchiveOf(path.toFile());
+        if (pending.exists()) {
+            try {
+                System.out.println("使用压缩包文件列表进行检测...");
+                ZipCentralDirectory directory = ZipCentralDirectory.read(pending);
+                return detectorOf(directory, directory.detectNameCharset());
+            } catch (IOException e) {
+                System.err.println("⚠ 读取压缩包文件列表失败，补全解压后检测: " + e.getMessage());
+                ensureFullyExtracted(projectPath);
             }
-        } catch (Exception e) {
-            System.err.println("⚠ Flask API检测失败，将使用本地文件扫描: " + e.getMessage());
         }
 
-        // 回退方案：本地文件扫描检测
         System.out.println("使用本地文件扫描进行检测...");
         return detectLanguageByFileScanning(path);
     }
 
+    private static String logDetected(String language) {
+        if ("unknown".equals(language)) {
+            System.out.println("⚠ 未检测到任何已知项目类型特征");
+        }
+        return language;
+    }
+
     /**
-     * 使用Flask API检测项目语言
+     * 遍历目录检测项目语言（文件大小直接取自遍历时的属性）
      */
-    private String detectLanguageUsingFlaskAPI(String projectPath) throws Exception {
-        String encodedPath = URLEncoder.encode(projectPath, StandardCharsets.UTF_8.toString());
-        String url = LANGUAGE_DETECT_URL + "?project_folder=" + encodedPath + "&use_optimized=true";
+    private LanguageDetector detectLanguageByFileScanning(Path root) throws IOException {
+        LanguageDetector detector = new LanguageDetector();
+        Files.walkFileTree(root, new java.nio.file.SimpleFileVisitor<Path>() {
+            @Override
+            public java.nio.file.FileVisitResult visitFile(Path file, java.nio.file.attribute.BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    detector.record(root.relativize(file).toString(), attrs.size());
+                }
+                return java.nio.file.FileVisitResult.CONTINUE;
+            }
 
-        System.out.println("调用Flask API: " + url);
-        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+            @Override
+            public java.nio.file.FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return java.nio.file.FileVisitResult.CONTINUE;
+            }
+        });
+        return detector;
+    }
 
-        if (response.getStatusCode().is2xxSuccessful()) {
-            Map<String, Object> responseBody = objectMapper.readValue(response.getBody(), Map.class);
-            String language = (String) responseBody.get("language");
-            System.out.println("Flask API返回语言: " + language);
-            return language;
+    /**
+     * 按压缩包中央目录中的文件名和原始大小构建语言检测结果（无需解压）
+     */
+    private static LanguageDetector detectorOf(ZipCentralDirectory directory, java.nio.charset.Charset nameCharset) {
+        LanguageDetector detector = new LanguageDetector();
+        for (ZipCentralDirectory.RawEntry entry : directory.getEntries()) {
+            String name = new String(entry.getRawName(), entry.isUtf8Flagged() ? StandardCharsets.UTF_8 : nameCharset);
+            // 与 checkDeclaredBudget 相同：缺少 ZIP64 扩展字段的占位值不是真实大小，按未知处理
+            long size = entry.getUncompressedSize();
+            detector.record(name, size == 0xFFFFFFFFL ? 0 : size);
         }
-
-        throw new Exception("Flask API请求失败，HTTP状态码: " + response.getStatusCode());
+        return detector;
     }
 
     /**
-     * 本地文件扫描检测项目语言（回退方案）
+     * 落盘后的上传文件信息
      */
-    private String detectLanguageByFileScanning(Path path) throws IOException {
-        final boolean[] hasJava = {false};
-        final boolean[] hasC = {false};
-        final boolean[] hasCpp = {false};
-        final boolean[] hasPython = {false};
-        final boolean[] hasRust = {false};
-        final boolean[] hasGo = {false};
-        final boolean[] hasNodeJs = {false};
-        final boolean[] hasPhp = {false};
-        final boolean[] hasRuby = {false};
-        final boolean[] hasErlang = {false};
-
-        // 限制递归深度为10层（改进：原来为3层，容易遗漏深层项目的特征文件）
-        try (Stream<Path> stream = Files.walk(path, 10)) {
-            stream.forEach(file -> {
-                String fileName = file.getFileName().toString().toLowerCase();
-
-                // Java
-                if (fileName.equals("pom.xml") || fileName.equals("build.gradle") ||
-                    fileName.equals("settings.gradle") || fileName.endsWith(".java")) {
-                    hasJava[0] = true;
-                }
-                // C/C++
-                else if (fileName.equals("makefile") || fileName.equals("cmakelists.txt") ||
-                         fileName.endsWith(".c") || fileName.endsWith(".cpp") ||
-                         fileName.endsWith(".cc") || fileName.endsWith(".cxx") || fileName.endsWith(".h")) {
-                    if (fileName.endsWith(".cpp") || fileName.endsWith(".cc") || fileName.endsWith(".cxx")) {
-                        hasCpp[0] = true;
-                    } else {
-                        hasC[0] = true;
-                    }
-                }
-                // Python
-                else if (fileName.equals("setup.py") || fileName.equals("requirements.txt") ||
-                         fileName.equals("pyproject.toml") || fileName.equals("pipfile") || fileName.endsWith(".py")) {
-                    hasPython[0] = true;
-                }
-                // Rust
-                else if (fileName.equals("cargo.toml") || fileName.equals("cargo.lock") || fileName.endsWith(".rs")) {
-                    hasRust[0] = true;
-                }
-                // Go
-                else if (fileName.equals("go.mod") || fileName.equals("go.sum") || fileName.endsWith(".go")) {
-                    hasGo[0] = true;
-                }
-                // JavaScript/Node.js
-                else if (fileName.equals("package.json") || fileName.equals("package-lock.json") ||
-                         fileName.equals("yarn.lock") || fileName.endsWith(".js") || fileName.endsWith(".ts")) {
-                    hasNodeJs[0] = true;
-                }
-                // PHP
-                else if (fileName.equals("composer.json") || fileName.equals("composer.lock") || fileName.endsWith(".php")) {
-                    hasPhp[0] = true;
-                }
-                // Ruby
-                else if (fileName.equals("gemfile") || fileName.equals("gemfile.lock") ||
-                         fileName.endsWith(".rb") || fileName.endsWith(".gemspec")) {
-                    hasRuby[0] = true;
-                }
-                // Erlang
-                else if (fileName.equals("rebar.config") || fileName.equals("rebar.lock") || fileName.endsWith(".erl")) {
-                    hasErlang[0] = true;
-                }
-            });
+    private static class SpooledUpload {
+        private final String format;
+        private final String digest;
+        private final long size;
+
+        SpooledUpload(String format, String digest, long size) {
+            this.format = format;
+            this.digest = digest;
+            this.size = size;
         }
-
-        // 按优先级返回检测结果
-        if (hasJava[0]) return "java";
-        if (hasRust[0]) return "rust";
-        if (hasGo[0]) return "go";
-        if (hasPython[0]) return "python";
-        if (hasPhp[0]) return "php";
-        if (hasRuby[0]) return "ruby";
-        if (hasErlang[0]) return "erlang";
-        if (hasCpp[0]) return "cpp";
-        if (hasC[0]) return "c";
-        if (hasNodeJs[0]) return "javascript";
-
-        System.out.println("⚠ 未检测到任何已知项目类型特征");
-        return "unknown";
     }
 }
@@ -0,0 +1,127 @@
+package com.nju.backend.service.project.util;
+
+import com.nju.backend.repository.po.WhiteList;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 在进程内提取 Python 项目（模块目录）的依赖，不再调用 Flask 解析器
+ *
+ * 目录中的 requirements*.txt（及 requirements/ 下的 .txt）、pyproject.toml、Pipfile.lock、poetry.lock
+ * 在 manifestParserExecutor 上并行解析，再按规范化包名合并：同一个包只要有任一来源给出固定版本
+ * （通常来自锁文件），就只保留固定版本的记录
+ *
+ * requirements 中 -r/-c 只能引用项目目录内的文件；快速解压模式下引用的文件（constraints.txt、base.in 等）
+ * 不是清单文件而未解压时，先补全解压项目目录再读取
+ */
+@Component
+public class PythonDependencyExtractor {
+
+    @Autowired
+    @Qualifier("manifestParserExecutor")
+    private Executor manifestParserExecutor;
+
+    @Autowired
+    private ProjectUtil projectUtil;
+
+    /**
+     * 一个待解析的清单文件
+     */
+    private interface ManifestTask {
+        List<WhiteList> parse() throws IOException;
+    }
+
+    /**
+     * 提取目录中的 Python 依赖
+     *
+     * @param projectRoot 项目根目录
+     * @param dir         模块目录（项目根目录或其子目录）
+     * @return 依赖列表（已设置 name、description、componentVersion、language、packageManager），
+     * 目录中没有支持的清单文件（只有 setup.py/Pipfile 等）时返回null
+     * @throws IOException 找到的清单文件全部无法解析
+     */
+    public List<WhiteList> extract(Path projectRoot, Path dir) throws IOException {
+        PythonManifestParser.MissingIncludeHandler fetchInclude = include -> {
+            projectUtil.ensureFullyExtracted(projectRoot.toString());
+            return true;
+        };
+        Map<String, ManifestTask> tasks = new LinkedHashMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                String fileName = entry.getFileName().toString().toLowerCase(Locale.ROOT);
+                if (Files.isDirectory(entry)) {
+                    if ("requirements".equals(fileName)) {
+                        addRequirementsDirectory(entry, projectRoot, fetchInclude, tasks);
+                    }
+                    continue;
+                }
+                if (fileName.startsWith("requirements") && fileName.endsWith(".txt")) {
+                    tasks.put(entry.getFileName().toString(), () -> PythonManifestParser.parseRequirements(entry, projectRoot, fetchInclude));
+                } else if ("pyproject.toml".equals(fileName)) {
+                    tasks.put(entry.getFileName().toString(), () -> PythonManifestParser.parsePyproject(entry));
+                } else if ("pipfile.lock".equals(fileName)) {
+                    tasks.put(entry.getFileName().toString(), () -> PythonManifestParser.parsePipfileLock(entry));
+                } else if ("poetry.lock".equals(fileName)) {
+                    tasks.put(entry.getFileName().toString(), () -> PythonManifestParser.parsePoetryLock(entry));
+                }
+            }
+        }
+        if (tasks.isEmpty()) {
+            return null;
+        }
+
+        long start = System.currentTimeMillis();
+        Map<String, CompletableFuture<List<WhiteList>>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, ManifestTask> task : tasks.entrySet()) {
+            futures.put(task.getKey(), CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.getValue().parse();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, manifestParserExecutor));
+        }
+
+        List<WhiteList> declared = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<List<WhiteList>>> future : futures.entrySet()) {
+            try {
+                declared.addAll(future.getValue().join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+                System.err.println("✗ Python清单文件解析失败: " + dir.resolve(future.getKey()) + "，错误: " + cause.getMessage());
+                errors.add(future.getKey() + ": " + cause.getMessage());
+            }
+        }
+        if (errors.size() == tasks.size()) {
+            throw new IOException("Python清单文件全部无法解析: " + errors);
+        }
+
+        List<WhiteList> merged = ManifestParser.mergeVersions(declared);
+        System.out.println("DEBUG: Python依赖提取完成: " + dir + ", 清单文件: " + tasks.keySet()
+                + ", 依赖: " + merged.size() + ", 耗时: " + (System.currentTimeMillis() - start) + "ms");
+        return merged;
+    }
+
+    private static void addRequirementsDirectory(Path dir, Path projectRoot,
+                                                 PythonManifestParser.MissingIncludeHandler fetchInclude,
+                                                 Map<String, ManifestTask> tasks) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir, "*.txt")) {
+            for (Path entry : entries) {
+                tasks.put(dir.getFileName() + "/" + entry.getFileName(),
+                        () -> PythonManifestParser.parseRequirements(entry, projectRoot, fetchInclude));
+            }
+        }
+    }
+}
@@ -0,0 +1,487 @@
+package com.nju.backend.service.project.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nju.backend.repository.po.WhiteList;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 解析 Python 依赖清单：requirements*.txt、pyproject.toml（PEP 621 与 Poetry）、Pipfile.lock、poetry.lock
+ *
+ * 包名按 PEP 503 规范化（小写，连续的 - _ . 替换为 -）；
+ * 只有 ==/=== 固定的版本（Poetry 中不带运算符的版本）和锁文件中的版本写入 componentVersion，
+ * 其余约束（>=、~=、^ 等）只保留在 description 中
+ */
+public final class PythonManifestParser {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final Pattern NON_CANONICAL = Pattern.compile("[-_.]+");
+
+    /**
+     * 需求行：名称、可选的 extras、其余部分（版本约束或 @ URL）
+     */
+    private static final Pattern REQUIREMENT = Pattern.compile("^([A-Za-z0-9][A-Za-z0-9._-]*)\\s*(\\[[^\\]]*\\])?\\s*(.*)$");
+
+    private static final Pattern EGG_FRAGMENT = Pattern.compile("[#&]egg=([A-Za-z0-9][A-Za-z0-9._-]*)");
+
+    private static final Pattern QUOTED = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"|'([^']*)'");
+
+    private static final Pattern INLINE_VERSION = Pattern.compile("\\bversion\\s*=\\s*(\"[^\"]*\"|'[^']*')");
+
+    private PythonManifestParser() {
+    }
+
+    /**
+     * PEP 503 规范化包名
+     */
+    public static String canonicalName(String name) {
+        return NON_CANONICAL.matcher(name.trim()).replaceAll("-").toLowerCase(Locale.ROOT);
+    }
+
+    // ========== requirements*.txt ==========
+
+    /**
+     * requirements 中 -r/-c 引用的文件不存在时的处理，如快速解压模式下从压缩包补全
+     */
+    public interface MissingIncludeHandler {
+        /**
+         * @return true 表示已补齐，重新读取该文件
+         */
+        boolean fetch(Path include) throws IOException;
+    }
+
+    /**
+     * 解析 requirements 文件，-r/--requirement 引入的文件一并解析（相对当前文件所在目录），
+     * -c/--constraint 中固定的版本用于补全未固定版本的依赖；环境标记（; python_version < "3.8"）被去掉，
+     * 依赖在任一环境下需要即记录
+     *
+     * @param root 项目根目录，引用的文件（含符号链接指向的位置）必须在其中，否则跳过
+     */
+    public static List<WhiteList> parseRequirements(Path requirementsFile, Path root) throws IOException {
+        return parseRequirements(requirementsFile, root, include -> false);
+    }
+
+    public static List<WhiteList> parseRequirements(Path requirementsFile, Path root,
+                                                    MissingIncludeHandler missingIncludeHandler) throws IOException {
+        RequirementsContext context = new RequirementsContext(root, missingIncludeHandler);
+        readRequirements(requirementsFile, context, false);
+        for (WhiteList row : context.rows) {
+            String pinned = context.constraints.get(row.getName());
+            if (row.getComponentVersion() == null && pinned != null) {
+                row.setComponentVersion(pinned);
+                row.setDescription(row.getName() + "==" + pinned);
+            }
+        }
+        return context.rows;
+    }
+
+    /**
+     * 一次 requirements 解析（含引用的文件）的状态
+     */
+    private static final class RequirementsContext {
+        private final Path root;
+        private final Path realRoot;
+        private final MissingIncludeHandler missingIncludeHandler;
+        private final List<WhiteList> rows = new ArrayList<>();
+        private final Map<String, String> constraints = new HashMap<>();
+        private final Set<Path> visited = new HashSet<>();
+
+        private RequirementsContext(Path root, MissingIncludeHandler missingIncludeHandler) throws IOException {
+            this.root = root.toAbsolutePath().normalize();
+            this.realRoot = this.root.toRealPath();
+            this.missingIncludeHandler = missingIncludeHandler;
+        }
+    }
+
+    private static void readRequirements(Path file, RequirementsContext context, boolean constraintFile) throws IOException {
+        Path normalized = file.toAbsolutePath().normalize();
+        // -r /etc/passwd、-r ../../x 等指向项目之外的引用
+        if (!normalized.startsWith(context.root)) {
+            System.out.println("DEBUG: 跳过项目目录之外的requirements引用: " + file);
+            return;
+        }
+        // 引用环
+        if (!context.visited.add(normalized)) {
+            return;
+        }
+        if (!Files.isRegularFile(normalized)
+                && !(context.missingIncludeHandler.fetch(normalized) && Files.isRegularFile(normalized))) {
+            System.out.println("DEBUG: requirements引用的文件不存在: " + normalized);
+            return;
+        }
+        // 符号链接指向项目之外
+        if (!normalized.toRealPath().startsWith(context.realRoot)) {
+            System.out.println("DEBUG: 跳过指向项目目录之外的requirements文件: " + normalized);
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(normalized, StandardCharsets.UTF_8)) {
+            StringBuilder logical = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // 行尾反斜杠续行
+                if (line.endsWith("\\")) {
+                    logical.append(line, 0, line.length() - 1).append(' ');
+                    continue;
+                }
+                logical.append(line);
+                String requirement = stripComment(logical.toString()).trim();
+                logical.setLength(0);
+                if (!requirement.isEmpty()) {
+                    readRequirementLine(normalized, requirement, context, constraintFile);
+                }
+            }
+        }
+    }
+
+    private static void readRequirementLine(Path file, String line, RequirementsContext context,
+                                            boolean constraintFile) throws IOException {
+        if (line.startsWith("-")) {
+            String[] option = splitOption(line);
+            if (option == null) {
+                return;
+            }
+            Path include = file.getParent().resolve(option[1]);
+            if ("-r".equals(option[0]) || "--requirement".equals(option[0])) {
+                readRequirements(include, context, constraintFile);
+            } else if ("-c".equals(option[0]) || "--constraint".equals(option[0])) {
+                readRequirements(include, context, true);
+            }
+            // -e/--editable、--index-url、--hash 等选项不是第三方依赖
+            return;
+        }
+        WhiteList row = parseRequirement(line, "pip");
+        if (row == null) {
+            return;
+        }
+        if (constraintFile) {
+            if (row.getComponentVersion() != null) {
+                context.constraints.putIfAbsent(row.getName(), row.getComponentVersion());
+            }
+            return;
+        }
+        context.rows.add(row);
+    }
+
+    /**
+     * "-r base.txt"、"-rbase.txt"、"--requirement=base.txt" -> {选项, 值}；没有值的选项返回null
+     */
+    private static String[] splitOption(String line) {
+        String option;
+        String value;
+        int separator = indexOfSeparator(line);
+        if (separator > 0) {
+            option = line.substring(0, separator);
+            value = line.substring(separator + 1).trim();
+        } else if (!line.startsWith("--") && line.length() > 2) {
+            option = line.substring(0, 2);
+            value = line.substring(2).trim();
+        } else {
+            return null;
+        }
+        return value.isEmpty() ? null : new String[]{option, value};
+    }
+
+    private static int indexOfSeparator(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '=' || Character.isWhitespace(c)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String stripComment(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '#' && (i == 0 || Character.isWhitespace(line.charAt(i - 1)))) {
+                return line.substring(0, i);
+            }
+        }
+        return line;
+    }
+
+    /**
+     * 解析一条 PEP 508 需求，如 requests[socks]>=2.8.1,==2.8.* ; python_version < "2.7"
+     *
+     * @return 无法识别包名（本地路径、不带 #egg= 的 URL）时返回null
+     */
+    static WhiteList parseRequirement(String requirement, String packageManager) {
+        String spec = requirement.trim();
+        // URL 中可能出现 ;，环境标记前按 pip 的规则需要有空白
+        int marker = spec.contains("://") ? spec.indexOf(" ;") : spec.indexOf(';');
+        if (marker >= 0) {
+            spec = spec.substring(0, marker).trim();
+        }
+        if (spec.isEmpty()) {
+            return null;
+        }
+        Matcher matcher = REQUIREMENT.matcher(spec);
+        if (matcher.matches() && matcher.group(3).trim().startsWith("@")) {
+            // name @ https://... 直接引用，没有版本号
+            return toWhiteList(matcher.group(1), null, "", packageManager);
+        }
+        if (!matcher.matches() || spec.contains("://") || spec.startsWith(".") || spec.startsWith("~")) {
+            // 本地路径或 VCS/URL，只能从 #egg= 得到包名
+            Matcher egg = EGG_FRAGMENT.matcher(spec);
+            return egg.find() ? toWhiteList(egg.group(1), null, "", packageManager) : null;
+        }
+        String constraint = matcher.group(3).trim();
+        if (constraint.startsWith("(") && constraint.endsWith(")")) {
+            constraint = constraint.substring(1, constraint.length() - 1).trim();
+        }
+        constraint = constraint.replaceAll("\\s+", "");
+        return toWhiteList(matcher.group(1), pinnedVersion(constraint), constraint, packageManager);
+    }
+
+    /**
+     * 只有单个 == 或 === 且不含通配符时视为固定版本
+     */
+    private static String pinnedVersion(String constraint) {
+        if (constraint.contains(",")) {
+            return null;
+        }
+        String version;
+        if (constraint.startsWith("===")) {
+            version = constraint.substring(3);
+        } else if (constraint.startsWith("==")) {
+            version = constraint.substring(2);
+        } else {
+            return null;
+        }
+        return version.isEmpty() || version.contains("*") ? null : version;
+    }
+
+    // ========== pyproject.toml ==========
+
+    /**
+     * [project] dependencies、[project.optional-dependencies]，
+     * 以及 [tool.poetry.dependencies]、[tool.poetry.dev-dependencies]、[tool.poetry.group.*.dependencies]
+     */
+    public static List<WhiteList> parsePyproject(Path pyproject) throws IOException {
+        List<WhiteList> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(pyproject, StandardCharsets.UTF_8)) {
+            String table = "";
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = stripTomlComment(line).trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                if (trimmed.startsWith("[")) {
+                    table = trimmed.replaceAll("[\\[\\]\\s\"']", "");
+                    continue;
+                }
+                int equals = trimmed.indexOf('=');
+                if (equals <= 0) {
+                    continue;
+                }
+                String key = unquote(trimmed.substring(0, equals).trim());
+                String value = trimmed.substring(equals + 1).trim();
+                // 多行数组/内联表：读到括号配平为止
+                while (!isBalanced(value)) {
+                    String next = reader.readLine();
+                    if (next == null) {
+                        break;
+                    }
+                    value = value + " " + stripTomlComment(next).trim();
+                }
+
+                if ("project".equals(table) && "dependencies".equals(key)
+                        || "project.optional-dependencies".equals(table)) {
+                    for (String requirement : quotedStrings(value)) {
+                        WhiteList row = parseRequirement(requirement, "pip");
+                        if (row != null) {
+                            rows.add(row);
+                        }
+                    }
+                } else if (isPoetryDependencyTable(table) && !"python".equalsIgnoreCase(key)) {
+                    WhiteList row = poetryDependency(key, value);
+                    if (row != null) {
+                        rows.add(row);
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static boolean isPoetryDependencyTable(String table) {
+        return "tool.poetry.dependencies".equals(table) || "tool.poetry.dev-dependencies".equals(table)
+                || table.startsWith("tool.poetry.group.") && table.endsWith(".dependencies");
+    }
+
+    /**
+     * requests = "^2.28" / requests = { version = "2.28.1", extras = ["socks"] } / requests = [ {...}, {...} ]；
+     * 只有 path/git/url 的依赖记录为不带版本
+     */
+    private static WhiteList poetryDependency(String name, String value) {
+        String constraint;
+        if (value.startsWith("\"") || value.startsWith("'")) {
+            constraint = unquote(value);
+        } else {
+            Matcher version = INLINE_VERSION.matcher(value);
+            constraint = version.find() ? unquote(version.group(1)) : "";
+        }
+        constraint = constraint.replaceAll("\\s+", "");
+        String pinned = pinnedVersion(constraint);
+        // Poetry 中不带运算符的版本号即精确版本
+        if (pinned == null && !constraint.isEmpty() && Character.isDigit(constraint.charAt(0))
+                && !constraint.contains(",") && !constraint.contains("*")) {
+            pinned = constraint;
+        }
+        return toWhiteList(name, pinned, constraint, "poetry");
+    }
+
+    // ========== Pipfile.lock ==========
+
+    /**
+     * {"default": {"requests": {"version": "==2.28.1", ...}}, "develop": {...}}
+     */
+    public static List<WhiteList> parsePipfileLock(Path pipfileLock) throws IOException {
+        JsonNode root = OBJECT_MAPPER.readTree(pipfileLock.toFile());
+        List<WhiteList> rows = new ArrayList<>();
+        for (String section : new String[]{"default", "develop"}) {
+            JsonNode packages = root.path(section);
+            Iterator<Map.Entry<String, JsonNode>> fields = packages.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> entry = fields.next();
+                String constraint = entry.getValue().path("version").asText("");
+                rows.add(toWhiteList(entry.getKey(), pinnedVersion(constraint), constraint, "pipenv"));
+            }
+        }
+        return rows;
+    }
+
+    // ========== poetry.lock ==========
+
+    /**
+     * [[package]] 块中的 name / version（[package.dependencies] 等子表忽略）
+     */
+    public static List<WhiteList> parsePoetryLock(Path poetryLock) throws IOException {
+        List<WhiteList> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(poetryLock, StandardCharsets.UTF_8)) {
+            boolean inPackage = false;
+            String name = null;
+            String version = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.startsWith("[")) {
+                    addLocked(rows, name, version);
+                    name = null;
+                    version = null;
+                    inPackage = "[[package]]".equals(trimmed);
+                    continue;
+                }
+                if (!inPackage) {
+                    continue;
+                }
+                if (trimmed.startsWith("name")) {
+                    name = tomlString(trimmed, "name");
+                } else if (trimmed.startsWith("version")) {
+                    version = tomlString(trimmed, "version");
+                }
+            }
+            addLocked(rows, name, version);
+        }
+        return rows;
+    }
+
+    private static void addLocked(List<WhiteList> rows, String name, String version) {
+        if (name != null && version != null && !version.isEmpty()) {
+            rows.add(toWhiteList(name, version, "==" + version, "poetry"));
+        }
+    }
+
+    /**
+     * key = "value" 中的 value，键不匹配时返回null
+     */
+    private static String tomlString(String line, String key) {
+        int equals = line.indexOf('=');
+        if (equals <= 0 || !key.equals(line.substring(0, equals).trim())) {
+            return null;
+        }
+        return unquote(line.substring(equals + 1).trim());
+    }
+
+    // ========== TOML 辅助 ==========
+
+    private static String stripTomlComment(String line) {
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && quote == '"') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '#') {
+                return line.substring(0, i);
+            }
+        }
+        return line;
+    }
+
+    private static boolean isBalanced(String value) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && quote == '"') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '[' || c == '{') {
+                depth++;
+            } else if (c == ']' || c == '}') {
+                depth--;
+            }
+        }
+        return depth <= 0;
+    }
+
+    private static List<String> quotedStrings(String value) {
+        List<String> strings = new ArrayList<>();
+        Matcher matcher = QUOTED.matcher(value);
+        while (matcher.find()) {
+            strings.add(matcher.group(1) != null ? matcher.group(1).replace("\\\"", "\"") : matcher.group(2));
+        }
+        return strings;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'')
+                && value.charAt(value.length() - 1) == value.charAt(0)) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static WhiteList toWhiteList(String name, String version, String constraint, String packageManager) {
+        String canonical = canonicalName(name);
+        WhiteList row = new WhiteList();
+        row.setName(canonical);
+        row.setDescription(version != null ? canonical + "==" + version : canonical + constraint);
+        row.setComponentVersion(version);
+        row.setPackageManager(packageManager);
+        row.setLanguage("python");
+        row.setIsdelete(0);
+        return row;
+    }
+}
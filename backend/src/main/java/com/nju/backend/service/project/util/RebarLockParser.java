@@ -0,0 +1,74 @@
+package com.nju.backend.service.project.util;
+
+import com.nju.backend.repository.po.WhiteList;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * rebar.lock（Erlang 项），新旧两种格式：
+ * <pre>
+ * {"1.2.0",
+ * [{&lt;&lt;"cowboy"&gt;&gt;,{pkg,&lt;&lt;"cowboy"&gt;&gt;,&lt;&lt;"2.9.0"&gt;&gt;},0},
+ *  {&lt;&lt;"mylib"&gt;&gt;,{git,"https://...",{ref,"..."}},0}]}.
+ * [{pkg_hash,[...]}].
+ * </pre>
+ * 读到 pkg_hash 段即停止；Hex 包取包名和版本，git 依赖没有版本号
+ */
+@Component
+public class RebarLockParser implements ManifestParser {
+
+    private static final List<String> FILE_NAMES = Collections.singletonList("rebar.lock");
+
+    private static final Pattern PKG = Pattern.compile(
+            "\\{\\s*<<\"([^\"]+)\">>\\s*,\\s*\\{\\s*pkg\\s*,\\s*<<\"([^\"]+)\">>\\s*,\\s*<<\"([^\"]+)\">>");
+
+    private static final Pattern GIT = Pattern.compile("\\{\\s*<<\"([^\"]+)\">>\\s*,\\s*\\{\\s*git\\s*,");
+
+    @Override
+    public String language() {
+        return "erlang";
+    }
+
+    @Override
+    public List<String> fileNames() {
+        return FILE_NAMES;
+    }
+
+    @Override
+    public int parse(Path manifest, Consumer<WhiteList> sink) throws IOException {
+        // 依赖项可能折成多行；依赖列表只有几十项，拼接 pkg_hash 之前的部分再逐项匹配
+        StringBuilder terms = new StringBuilder();
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null && !line.contains("pkg_hash")) {
+                terms.append(line.trim());
+            }
+        }
+        int count = 0;
+        Matcher pkg = PKG.matcher(terms);
+        Matcher git = GIT.matcher(terms);
+        boolean foundPkg = pkg.find();
+        boolean foundGit = git.find();
+        while (foundPkg || foundGit) {
+            if (foundPkg && (!foundGit || pkg.start() < git.start())) {
+                sink.accept(ManifestParser.dependency(pkg.group(2), pkg.group(3), "erlang", "rebar"));
+                foundPkg = pkg.find();
+            } else {
+                sink.accept(ManifestParser.dependency(git.group(1), null, "erlang", "rebar"));
+                foundGit = git.find();
+            }
+            count++;
+        }
+        return count;
+    }
+}
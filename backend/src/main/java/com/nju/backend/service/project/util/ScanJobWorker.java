@@ -0,0 +1,204 @@
+package com.nju.backend.service.project.util;
+
+import com.nju.backend.repository.po.ScanJob;
+import com.nju.backend.service.project.GitSourceService;
+import com.nju.backend.service.project.ProjectService;
+import com.nju.backend.service.project.ScanJobService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从 scan_job 队列认领解析任务（生态解析或 Git 增量扫描）并在 projectAnalysisExecutor 上执行
+ *
+ * 每个实例同时最多运行 scan.job.workers 个任务；运行期间定时续租，实例宕机后租约过期，
+ * 任务由其他实例（或重启后的本实例）重新认领。
+ * 续租被拒绝或超过租期没能续租时视为租约丢失：解析在下一次写入前停止，结果不再写回。
+ * 续租在专用的 scan-job-heartbeat 线程上执行，不受共用 @Scheduled 线程上耗时任务（存储整理、Git 重新扫描）的影响
+ */
+@Component
+public class ScanJobWorker {
+
+    private final ScanJobService scanJobService;
+    private final ProjectService projectService;
+    private final GitSourceService gitSourceService;
+    private final ScanProgressBroker scanProgressBroker;
+    private final Executor executor;
+    private final int workers;
+    private final long leaseMillis;
+    private final boolean enabled;
+    /**
+     * 本实例标识：主机名加随机后缀，同一主机上的多个实例互不混淆
+     */
+    private final String workerId;
+    /**
+     * 本实例正在运行的任务
+     */
+    private final Map<Integer, RunningJob> running = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeatScheduler;
+
+    /**
+     * 运行中的任务及其租约在本地估计的到期时间（按发起认领或续租请求的时刻计算，比数据库中的到期时间早）
+     */
+    private static final class RunningJob {
+        final ScanJob job;
+        volatile long leaseExpiresAt;
+        volatile boolean leaseLost;
+
+        RunningJob(ScanJob job, long leaseExpiresAt) {
+            this.job = job;
+            this.leaseExpiresAt = leaseExpiresAt;
+        }
+
+        boolean leaseHeld() {
+            return !leaseLost && System.currentTimeMillis() < leaseExpiresAt;
+        }
+    }
+
+    public ScanJobWorker(ScanJobService scanJobService,
+                         ProjectService projectService,
+                         GitSourceService gitSourceService,
+                         ScanProgressBroker scanProgressBroker,
+                         @Qualifier("projectAnalysisExecutor") Executor executor,
+                         @Value("${scan.job.workers:4}") int workers,
+                         @Value("${scan.job.lease-ms:120000}") long leaseMillis,
+                         @Value("${scan.job.heartbeat-ms:30000}") long heartbeatMillis,
+                         @Value("${scan.job.enabled:true}") boolean enabled) {
+        this.scanJobService = scanJobService;
+        this.projectService = projectService;
+        this.gitSourceService = gitSourceService;
+        this.scanProgressBroker = scanProgressBroker;
+        this.executor = executor;
+        this.workers = Math.max(1, workers);
+        this.leaseMillis = leaseMillis;
+        this.enabled = enabled;
+        this.workerId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scan-job-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            long interval = Math.max(1, heartbeatMillis);
+            heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        System.out.println("DEBUG: 解析任务执行器: " + workerId + "，并发数: " + this.workers + (enabled ? "" : "（已禁用）"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatScheduler.shutdownNow();
+    }
+
+    /**
+     * 有空闲并发时认领新任务
+     */
+    @Scheduled(initialDelayString = "${scan.job.poll-interval-ms:2000}",
+            fixedDelayString = "${scan.job.poll-interval-ms:2000}")
+    public void poll() {
+        int free = workers - running.size();
+        if (!enabled || free <= 0) {
+            return;
+        }
+        List<ScanJob> jobs;
+        long claimedAt = System.currentTimeMillis();
+        try {
+            jobs = scanJobService.claim(workerId, free);
+        } catch (Exception e) {
+            System.err.println("认领解析任务失败: " + e.getMessage());
+            return;
+        }
+        for (ScanJob job : jobs) {
+            RunningJob runningJob = new RunningJob(job, claimedAt + leaseMillis);
+            running.put(job.getId(), runningJob);
+            try {
+                executor.execute(() -> run(runningJob));
+            } catch (TaskRejectedException e) {
+                running.remove(job.getId());
+                scanJobService.release(job.getId(), workerId);
+                System.err.println("解析线程池已满，任务 " + job.getId() + " 归还队列");
+            }
+        }
+    }
+
+    /**
+     * 为正在运行的任务续租；续租被拒绝时标记租约丢失，正在执行的解析在下一次写入前停止
+     */
+    private void heartbeat() {
+        for (RunningJob runningJob : running.values()) {
+            if (runningJob.leaseLost) {
+                continue;
+            }
+            int id = runningJob.job.getId();
+            long renewedAt = System.currentTimeMillis();
+            try {
+                if (scanJobService.heartbeat(id, workerId)) {
+                    runningJob.leaseExpiresAt = renewedAt + leaseMillis;
+                } else {
+                    runningJob.leaseLost = true;
+                    System.err.println("解析任务 " + id + " 的租约已丢失，可能已被其他实例重新认领，停止执行");
+                }
+            } catch (Exception e) {
+                // 异常不能抛出，否则 scheduleWithFixedDelay 不再执行后续续租；暂时无法续租时继续执行，超过本地估计的租期后 leaseHeld 返回false
+                System.err.println("解析任务 " + id + " 续租失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private void run(RunningJob runningJob) {
+        ScanJob job = runningJob.job;
+        boolean gitRescan = ScanJob.TYPE_GIT_RESCAN.equals(job.getJobType());
+        List<String> languages = Arrays.asList(job.getLanguages().split(","));
+        System.out.println("开始执行解析任务 " + job.getId() + "（第" + job.getAttempts() + "次），路径: " + job.getFilePath()
+                + (gitRescan ? "，Git增量扫描" : "，生态: " + languages));
+        try {
+            int dependencies = gitRescan
+                    ? gitSourceService.runRescan(job.getFilePath(), runningJob::leaseHeld)
+                    : projectService.parseEcosystems(job.getFilePath(), languages, runningJob::leaseHeld);
+            if (!runningJob.leaseHeld()) {
+                throw new CancellationException("解析任务的租约已丢失");
+            }
+            scanJobService.succeed(job.getId(), workerId, dependencies);
+            scanProgressBroker.publish(ScanProgressEvent.of(job.getFilePath(), ScanProgressEvent.JOB_FINISHED)
+                    .with("jobId", job.getId())
+                    .with("status", ScanJob.STATUS_SUCCEEDED)
+                    .with("dependencies", dependencies));
+        } catch (CancellationException e) {
+            // 任务已归其他实例（或将由租约过期后的认领）处理，本实例不再写回结果
+            System.err.println("解析任务 " + job.getId() + " 已放弃: " + e.getMessage());
+        } catch (Exception e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            String status = scanJobService.fail(job, workerId, error);
+            scanProgressBroker.publish(ScanProgressEvent.of(job.getFilePath(), ScanProgressEvent.JOB_FINISHED)
+                    .with("jobId", job.getId())
+                    .with("status", status)
+                    .with("attempts", job.getAttempts())
+                    .with("error", error));
+        } finally {
+            running.remove(job.getId());
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
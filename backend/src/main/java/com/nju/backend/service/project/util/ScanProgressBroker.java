@@ -0,0 +1,299 @@
+package com.nju.backend.service.project.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.nju.backend.repository.mapper.CompanyMapper;
+import com.nju.backend.repository.mapper.ProjectMapper;
+import com.nju.backend.repository.po.Company;
+import com.nju.backend.repository.po.Project;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 扫描进度的进程内消息分发：解析流水线发布 ScanProgressEvent，按项目、公司推送给 SSE 订阅者
+ *
+ * 所有投递都在单个 scan-progress 线程上顺序执行，客户端网络慢不会拖住解析线程；
+ * 队列满时丢弃最早的事件（进度推送尽力而为，最终状态以 scan_job 和数据库为准）。
+ * 每个项目目录保留最近的若干事件，客户端在上传返回后再订阅也能补收已经发生的阶段。
+ * 只在本实例内分发：多实例部署时订阅者只收到连接所在实例执行的阶段。
+ */
+@Component
+public class ScanProgressBroker {
+
+    /**
+     * 记录目录归属和最近事件的项目目录数上限
+     */
+    private static final int MAX_TRACKED_PATHS = 1024;
+
+    private final ProjectMapper projectMapper;
+    private final CompanyMapper companyMapper;
+    private final long timeoutMillis;
+    private final int replaySize;
+
+    /**
+     * "project:{id}" / "company:{id}" -> 订阅者
+     */
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    /**
+     * 项目目录 -> {项目ID, 公司ID}，只在投递线程上访问
+     */
+    private final Map<String, Integer[]> targets = lru();
+    /**
+     * 项目目录 -> 最近的事件，只在投递线程上访问
+     */
+    private final Map<String, Deque<ScanProgressEvent>> recent = lru();
+    private final ThreadPoolExecutor sender;
+
+    public ScanProgressBroker(ProjectMapper projectMapper,
+                              CompanyMapper companyMapper,
+                              @Value("${scan.progress.sse-timeout-ms:1800000}") long timeoutMillis,
+                              @Value("${scan.progress.replay-size:64}") int replaySize,
+                              @Value("${scan.progress.queue-capacity:10000}") int queueCapacity,
+                              MeterRegistry registry) {
+        this.projectMapper = projectMapper;
+        this.companyMapper = companyMapper;
+        this.timeoutMillis = timeoutMillis;
+        this.replaySize = Math.max(0, replaySize);
+        this.sender = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+            Thread thread = new Thread(runnable, "scan-progress");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardOldestPolicy());
+
+        Gauge.builder("scan.progress.subscribers", subscribers, s -> s.values().stream().mapToInt(List::size).sum())
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        for (List<SseEmitter> emitters : subscribers.values()) {
+            emitters.forEach(SseEmitter::complete);
+        }
+    }
+
+    /**
+     * 订阅一个项目的进度，先补发该项目目录最近的事件
+     */
+    public SseEmitter subscribeProject(int projectId) {
+        Project project = projectMapper.selectById(projectId);
+        String filePath = project != null && project.getIsDelete() == 0 ? project.getFile() : null;
+        return subscribe("project:" + projectId, filePath);
+    }
+
+    /**
+     * 订阅一个公司下全部项目的进度（不补发历史事件）
+     */
+    public SseEmitter subscribeCompany(int companyId) {
+        return subscribe("company:" + companyId, null);
+    }
+
+    /**
+     * 记录项目目录的归属：上传解压后只知道公司，项目创建后再补上项目ID
+     */
+    public void bind(String filePath, Integer projectId, Integer companyId) {
+        sender.execute(() -> {
+            Integer[] target = targets.computeIfAbsent(filePath, k -> new Integer[2]);
+            if (projectId != null) {
+                target[0] = projectId;
+            }
+            if (companyId != null) {
+                target[1] = companyId;
+            }
+            // 项目创建前发生的阶段（解压、语言检测）补上归属，订阅项目时可以补发
+            Deque<ScanProgressEvent> events = recent.get(filePath);
+            if (events != null) {
+                for (ScanProgressEvent event : events) {
+                    fillTarget(event, target);
+                }
+            }
+        });
+    }
+
+    public void publish(ScanProgressEvent event) {
+        sender.execute(() -> deliver(event));
+    }
+
+    /**
+     * 当前事务提交后再发布，避免客户端收到事件后立即查询时读不到尚未提交的数据；没有事务时立即发布
+     */
+    public void publishAfterCommit(ScanProgressEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(event);
+            }
+        });
+    }
+
+    /**
+     * 定时发送注释行，防止代理因连接空闲断开
+     */
+    @Scheduled(initialDelayString = "${scan.progress.heartbeat-ms:15000}",
+            fixedDelayString = "${scan.progress.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        sender.execute(() -> {
+            for (Map.Entry<String, List<SseEmitter>> entry : subscribers.entrySet()) {
+                for (SseEmitter emitter : entry.getValue()) {
+                    try {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    } catch (Exception e) {
+                        unsubscribe(entry.getKey(), emitter);
+                    }
+                }
+            }
+        });
+    }
+
+    private SseEmitter subscribe(String key, String replayPath) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        emitter.onCompletion(() -> unsubscribe(key, emitter));
+        emitter.onTimeout(() -> {
+            unsubscribe(key, emitter);
+            emitter.complete();
+        });
+        emitter.onError(error -> unsubscribe(key, emitter));
+        // 在投递线程上补发并登记：补发的事件与之后的新事件不重复、不乱序
+        sender.execute(() -> {
+            if (replayPath != null) {
+                Deque<ScanProgressEvent> events = recent.get(replayPath);
+                if (events != null) {
+                    for (ScanProgressEvent event : events) {
+                        if (!send(emitter, event)) {
+                            return;
+                        }
+                    }
+                }
+            }
+            subscribers.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(emitter);
+        });
+        return emitter;
+    }
+
+    private void unsubscribe(String key, SseEmitter emitter) {
+        subscribers.computeIfPresent(key, (k, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private void deliver(ScanProgressEvent event) {
+        if (event.getFilePath() != null) {
+            if (replaySize > 0) {
+                Deque<ScanProgressEvent> events = recent.computeIfAbsent(event.getFilePath(), k -> new ArrayDeque<>());
+                if (events.size() >= replaySize) {
+                    events.removeFirst();
+                }
+                events.addLast(event);
+            }
+            if (subscribers.isEmpty()) {
+                return;
+            }
+            fillTarget(event, resolve(event.getFilePath()));
+        }
+        if (event.getProjectId() != null) {
+            fanOut("project:" + event.getProjectId(), event);
+        }
+        if (event.getCompanyId() != null) {
+            fanOut("company:" + event.getCompanyId(), event);
+        }
+    }
+
+    private void fanOut(String key, ScanProgressEvent event) {
+        List<SseEmitter> emitters = subscribers.get(key);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            if (!send(emitter, event)) {
+                unsubscribe(key, emitter);
+            }
+        }
+    }
+
+    private static boolean send(SseEmitter emitter, ScanProgressEvent event) {
+        try {
+            emitter.send(SseEmitter.event().name(event.getStage()).data(event, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (Exception e) {
+            // 客户端已断开
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    /**
+     * 目录所属的项目和公司；未经 bind 登记的目录（如重启后由队列重新执行的任务）从数据库查一次
+     */
+    private Integer[] resolve(String filePath) {
+        Integer[] target = targets.get(filePath);
+        if (target != null) {
+            return target;
+        }
+        target = new Integer[2];
+        try {
+            List<Project> projects = projectMapper.selectList(new QueryWrapper<Project>()
+                    .eq("file", filePath)
+                    .eq("isdelete", 0)
+                    .orderByDesc("id"));
+            if (!projects.isEmpty()) {
+                target[0] = projects.get(0).getId();
+                // company.projectid 是 {"项目ID":"语言",...} 形式的JSON
+                List<Company> companies = companyMapper.selectList(new QueryWrapper<Company>()
+                        .like("projectid", "\"" + target[0] + "\":"));
+                if (!companies.isEmpty()) {
+                    target[1] = companies.get(0).getId();
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("查询项目目录归属失败: " + filePath + "，错误: " + e.getMessage());
+        }
+        targets.put(filePath, target);
+        return target;
+    }
+
+    private static void fillTarget(ScanProgressEvent event, Integer[] target) {
+        if (event.getProjectId() == null && target[0] != null) {
+            event.setProjectId(target[0]);
+        }
+        if (event.getCompanyId() == null && target[1] != null) {
+            event.setCompanyId(target[1]);
+        }
+    }
+
+    private static <V> Map<String, V> lru() {
+        return Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > MAX_TRACKED_PATHS;
+            }
+        });
+    }
+}
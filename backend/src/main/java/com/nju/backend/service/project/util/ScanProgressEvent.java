@@ -0,0 +1,77 @@
+package com.nju.backend.service.project.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 扫描流水线的一个阶段事件，经 ScanProgressBroker 以 SSE 推送给订阅了项目或公司的客户端
+ *
+ * stage 即 SSE 的事件名，data 为该阶段的附加信息（如依赖数、匹配的CVE数）
+ */
+public class ScanProgressEvent {
+
+    public static final String EXTRACTED = "extracted";
+    public static final String LANGUAGE_DETECTED = "language-detected";
+    public static final String JOB_QUEUED = "job-queued";
+    public static final String PARSER_STARTED = "parser-started";
+    public static final String PARSER_FINISHED = "parser-finished";
+    public static final String DEPENDENCIES_SAVED = "dependencies-saved";
+    public static final String JOB_FINISHED = "job-finished";
+    public static final String DETECTION_FINISHED = "detection-finished";
+
+    private final String stage;
+    private final String filePath;
+    private final long time = System.currentTimeMillis();
+    private final Map<String, Object> data = new LinkedHashMap<>();
+    private Integer projectId;
+    private Integer companyId;
+
+    private ScanProgressEvent(String stage, String filePath) {
+        this.stage = stage;
+        this.filePath = filePath;
+    }
+
+    /**
+     * 某个项目目录的事件，所属项目和公司由 broker 按目录解析
+     */
+    public static ScanProgressEvent of(String filePath, String stage) {
+        return new ScanProgressEvent(stage, filePath);
+    }
+
+    /**
+     * 不属于单个目录的事件（如公司级的漏洞检测）
+     */
+    public static ScanProgressEvent forCompany(int companyId, String stage) {
+        ScanProgressEvent event = new ScanProgressEvent(stage, null);
+        event.companyId = companyId;
+        return event;
+    }
+
+    public static ScanProgressEvent forProject(int projectId, Integer companyId, String stage) {
+        ScanProgressEvent event = new ScanProgressEvent(stage, null);
+        event.projectId = projectId;
+        event.companyId = companyId;
+        return event;
+    }
+
+    public ScanProgressEvent with(String key, Object value) {
+        data.put(key, value);
+        return this;
+    }
+
+    public String getStage() { return stage; }
+
+    public String getFilePath() { return filePath; }
+
+    public long getTime() { return time; }
+
+    public Map<String, Object> getData() { return data; }
+
+    public Integer getProjectId() { return projectId; }
+
+    public Integer getCompanyId() { return companyId; }
+
+    void setProjectId(Integer projectId) { this.projectId = projectId; }
+
+    void setCompanyId(Integer companyId) { this.companyId = companyId; }
+}
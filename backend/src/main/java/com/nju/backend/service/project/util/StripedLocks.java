@@ -0,0 +1,25 @@
+package com.nju.backend.service.project.util;
+
+/**
+ * 按键分段的锁对象：同一个键永远得到同一把锁，锁对象不会被移除，
+ * 不会出现一个线程还在等旧锁、另一个线程已经拿到新锁的情况
+ *
+ * 不同的键可能共用一把锁（只是多一点串行），持有一把锁时不要再获取另一个键的锁
+ */
+public final class StripedLocks {
+
+    private final Object[] locks;
+
+    public StripedLocks(int stripes) {
+        locks = new Object[Math.max(1, stripes)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public Object get(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return locks[Math.floorMod(hash, locks.length)];
+    }
+}
@@ -0,0 +1,138 @@
+package com.nju.backend.service.project.util;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.compress.utils.CountingInputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * tar.gz / tar.zst 流式解压
+ *
+ * tar 包是顺序结构，条目边读边写，单次遍历、内存占用固定，不产生中间文件；
+ * 路径校验与ZIP解压共用 ZipExtractionEngine.resolveSafely，写入的文件同样登记到内容寻址存储；
+ * tar 没有单个条目的压缩大小，压缩比按整个数据流（已解压字节 / 已读取的压缩字节）计算
+ */
+@Component
+public class TarStreamExtractor {
+
+    private static final int COPY_BUFFER_SIZE = 256 * 1024;
+
+    @Autowired
+    private ContentAddressedStore contentAddressedStore;
+
+    @Autowired
+    private ExtractionMetrics extractionMetrics;
+
+    /**
+     * @param compressed 压缩后的 tar 数据流
+     * @param format     gzip 或 zstd
+     * @param detector   写入的文件同时计入语言检测，可为null
+     */
+    public ExtractionStats extract(InputStream compressed, String format, File destDir,
+                                   ExtractionGovernor governor, LanguageDetector detector) throws IOException {
+        extractionMetrics.started();
+        try {
+            ExtractionStats stats = doExtract(compressed, format, destDir, governor, detector);
+            extractionMetrics.finished(format, stats);
+            return stats;
+        } catch (IOException | RuntimeException e) {
+            extractionMetrics.failed(format, e);
+            throw e;
+        }
+    }
+
+    private ExtractionStats doExtract(InputStream raw, String format, File destDir,
+                                      ExtractionGovernor governor, LanguageDetector detector) throws IOException {
+        CountingInputStream compressed = new CountingInputStream(raw);
+        long startTime = System.currentTimeMillis();
+        Path root = destDir.getCanonicalFile().toPath();
+        boolean intern = contentAddressedStore.isEnabled();
+        MessageDigest digest = intern ? ZipExtractionEngine.newSha256() : null;
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+
+        int fileCount = 0;
+        int dirCount = 0;
+        int skipped = 0;
+        long totalBytes = 0;
+
+        try (TarArchiveInputStream tarIn = new TarArchiveInputStream(decompress(compressed, format), "UTF-8")) {
+            TarArchiveEntry entry;
+            while ((entry = tarIn.getNextTarEntry()) != null) {
+                Path target = ZipExtractionEngine.resolveSafely(root, entry.getName());
+                if (target == null) {
+                    System.out.println("DEBUG: 跳过潜在危险路径: " + entry.getName());
+                    skipped++;
+                    continue;
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                    dirCount++;
+                    continue;
+                }
+                // 符号链接、硬链接、设备文件等一律不落盘，避免指向解压目录之外
+                if (entry.isSymbolicLink() || entry.isLink() || entry.isCharacterDevice()
+                        || entry.isBlockDevice() || entry.isFIFO() || !entry.isFile()) {
+                    System.out.println("DEBUG: 跳过非普通文件条目: " + entry.getName());
+                    skipped++;
+                    continue;
+                }
+
+                governor.onEntry(entry.getName());
+                Files.createDirectories(target.getParent());
+                try (OutputStream out = ZipExtractionEngine.openForWrite(target)) {
+                    int len;
+                    while ((len = tarIn.read(buffer)) > 0) {
+                        totalBytes += len;
+                        governor.onBytes(entry.getName(), len, totalBytes, compressed.getBytesRead());
+                        out.write(buffer, 0, len);
+                        if (digest != null) {
+                            digest.update(buffer, 0, len);
+                        }
+                    }
+                }
+                if (digest != null) {
+                    contentAddressedStore.intern(target, ContentAddressedStore.toHex(digest.digest()));
+                }
+                if (detector != null) {
+                    detector.record(entry.getName(), entry.getSize());
+                }
+                fileCount++;
+            }
+            // 读完 tar 结束块之后的剩余数据，保证调用方对原始流计算的摘要覆盖完整文件
+            while (compressed.read(buffer) > 0) {
+                // 丢弃
+            }
+        }
+
+        ExtractionStats stats = new ExtractionStats(fileCount, dirCount, skipped, totalBytes,
+                System.currentTimeMillis() - startTime, 1);
+        System.out.println("DEBUG: tar解压完成，" + stats);
+        return stats;
+    }
+
+    private static InputStream decompress(InputStream in, String format) throws IOException {
+        switch (format) {
+            case "gzip":
+                return new GZIPInputStream(in, COPY_BUFFER_SIZE);
+            case "zstd":
+                return new ZstdCompressorInputStream(in);
+            default:
+                throw new IOException("不支持的tar压缩格式: " + format);
+        }
+    }
+
+    public static boolean isTarFormat(String format) {
+        return "gzip".equals(format) || "zstd".equals(format);
+    }
+}
@@ -0,0 +1,150 @@
+package com.nju.backend.service.project.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 拷贝进源码树的常见 C 库（third_party/zlib、deps/openssl 等）的文件集合特征
+ *
+ * 目录中同时存在全部特征文件即认为是该库的源码，版本号从头文件中的版本宏读取；
+ * 特征按顺序匹配，更具体的库（libjpeg-turbo）排在它兼容的库（libjpeg）之前
+ */
+public final class VendoredLibrary {
+
+    private static final List<VendoredLibrary> LIBRARIES = new ArrayList<>();
+    static {
+        LIBRARIES.add(new VendoredLibrary("zlib", "zlib.h", "deflate.c", "inflate.c")
+                .version("zlib.h", "#define\\s+ZLIB_VERSION\\s+\"([^\"]+)\""));
+        LIBRARIES.add(new VendoredLibrary("openssl", "ssl/ssl_lib.c", "crypto/cryptlib.c")
+                .version("include/openssl/opensslv.h", "OPENSSL_VERSION_TEXT\\s+\"OpenSSL\\s+([0-9][^\\s\"]*)")
+                // 3.x 的 opensslv.h 在构建时生成，源码中只有 VERSION.dat
+                .version("VERSION.dat", "^MAJOR=(\\d+)", "^MINOR=(\\d+)", "^PATCH=(\\d+)"));
+        LIBRARIES.add(new VendoredLibrary("libpng", "png.h", "pngconf.h", "png.c")
+                .version("png.h", "#define\\s+PNG_LIBPNG_VER_STRING\\s+\"([^\"]+)\""));
+        LIBRARIES.add(new VendoredLibrary("libjpeg-turbo", "turbojpeg.h", "jcapimin.c")
+                .version("CMakeLists.txt", "set\\(VERSION\\s+([0-9.]+)\\)"));
+        LIBRARIES.add(new VendoredLibrary("libjpeg", "jpeglib.h", "jcapimin.c")
+                .version("jversion.h", "#define\\s+JVERSION\\s+\"([0-9][^\\s\"]*)"));
+        LIBRARIES.add(new VendoredLibrary("sqlite", "sqlite3.c", "sqlite3.h")
+                .version("sqlite3.h", "#define\\s+SQLITE_VERSION\\s+\"([^\"]+)\""));
+        LIBRARIES.add(new VendoredLibrary("curl", "include/curl/curlver.h", "lib/url.c")
+                .version("include/curl/curlver.h", "#define\\s+LIBCURL_VERSION\\s+\"([^\"]+)\""));
+        LIBRARIES.add(new VendoredLibrary("libxml2", "parser.c", "tree.c", "include/libxml/parser.h")
+                .version("include/libxml/xmlversion.h", "LIBXML_DOTTED_VERSION\\s+\"([^\"]+)\""));
+        LIBRARIES.add(new VendoredLibrary("expat", "lib/expat.h", "lib/xmlparse.c")
+                .version("lib/expat.h", "XML_MAJOR_VERSION\\s+(\\d+)", "XML_MINOR_VERSION\\s+(\\d+)", "XML_MICRO_VERSION\\s+(\\d+)"));
+        LIBRARIES.add(new VendoredLibrary("mbedtls", "include/mbedtls/ssl.h", "library/ssl_tls.c")
+                .version("include/mbedtls/build_info.h", "MBEDTLS_VERSION_STRING\\s+\"([^\"]+)\"")
+                .version("include/mbedtls/version.h", "MBEDTLS_VERSION_STRING\\s+\"([^\"]+)\""));
+        LIBRARIES.add(new VendoredLibrary("cjson", "cJSON.h", "cJSON.c")
+                .version("cJSON.h", "CJSON_VERSION_MAJOR\\s+(\\d+)", "CJSON_VERSION_MINOR\\s+(\\d+)", "CJSON_VERSION_PATCH\\s+(\\d+)"));
+        LIBRARIES.add(new VendoredLibrary("lua", "lua.h", "lapi.c", "lvm.c")
+                .version("lua.h", "LUA_VERSION_MAJOR\\s+\"(\\d+)\"", "LUA_VERSION_MINOR\\s+\"(\\d+)\"", "LUA_VERSION_RELEASE\\s+\"(\\d+)\""));
+    }
+
+    /**
+     * 版本宏所在文件只读前若干行，避免 sqlite3.h 这类大头文件被整个读入
+     */
+    private static final int MAX_VERSION_LINES = 400;
+
+    private final String name;
+    private final List<String> signature;
+    /**
+     * 版本来源按顺序尝试：文件 -> 各部分的正则（第1组），多个部分用 . 连接
+     */
+    private final Map<String, List<Pattern>> versionSources = new LinkedHashMap<>();
+
+    private VendoredLibrary(String name, String... signature) {
+        this.name = name;
+        this.signature = Arrays.asList(signature);
+    }
+
+    private VendoredLibrary version(String file, String... patterns) {
+        List<Pattern> compiled = new ArrayList<>();
+        for (String pattern : patterns) {
+            compiled.add(Pattern.compile(pattern));
+        }
+        versionSources.put(file, compiled);
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 识别目录中内嵌的库
+     *
+     * @param dir 目录
+     * @param fileNames 目录下的文件名（列目录时已读出，顶层特征文件不再 stat）
+     * @return 匹配的库，没有时返回null
+     */
+    public static VendoredLibrary match(Path dir, Set<String> fileNames) {
+        for (VendoredLibrary library : LIBRARIES) {
+            if (library.matches(dir, fileNames)) {
+                return library;
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(Path dir, Set<String> fileNames) {
+        for (String file : signature) {
+            boolean present = file.indexOf('/') < 0 ? fileNames.contains(file) : Files.isRegularFile(dir.resolve(file));
+            if (!present) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 从版本宏读取版本号，都读不到时返回null
+     */
+    public String readVersion(Path dir) {
+        for (Map.Entry<String, List<Pattern>> source : versionSources.entrySet()) {
+            Path file = dir.resolve(source.getKey());
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+            try {
+                String version = readVersion(file, source.getValue());
+                if (version != null) {
+                    return version;
+                }
+            } catch (IOException e) {
+                System.out.println("DEBUG: 读取内嵌库版本失败: " + file + ", " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private static String readVersion(Path file, List<Pattern> patterns) throws IOException {
+        String[] parts = new String[patterns.size()];
+        int found = 0;
+        // 头文件中可能有非 UTF-8 的版权字符，按 ISO-8859-1 读取不会抛出编码异常
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            String line;
+            int lines = 0;
+            while (found < parts.length && (line = reader.readLine()) != null && lines++ < MAX_VERSION_LINES) {
+                for (int i = 0; i < parts.length; i++) {
+                    if (parts[i] != null) {
+                        continue;
+                    }
+                    Matcher matcher = patterns.get(i).matcher(line);
+                    if (matcher.find()) {
+                        parts[i] = matcher.group(1);
+                        found++;
+                    }
+                }
+            }
+        }
+        return found == parts.length ? String.join(".", parts) : null;
+    }
+}
@@ -0,0 +1,79 @@
+package com.nju.backend.service.project.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.nju.backend.repository.mapper.WhiteListMapper;
+import com.nju.backend.repository.po.WhiteList;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 边解析边写入 white_list：去掉重复项和已存在的记录，攒够一批后以多行 INSERT 写入，
+ * 解析器不必先把全部结果保存在内存中
+ */
+public class WhiteListBatchWriter implements Consumer<WhiteList>, AutoCloseable {
+
+    /**
+     * 单次多行 INSERT 的最大行数
+     */
+    public static final int BATCH_SIZE = 500;
+
+    private final WhiteListMapper whiteListMapper;
+    private final Set<String> seen = new HashSet<>();
+    private final List<WhiteList> buffer = new ArrayList<>(BATCH_SIZE);
+    private int inserted;
+
+    /**
+     * @param filePath 项目目录，该项目已存在的依赖不再重复写入
+     */
+    public WhiteListBatchWriter(WhiteListMapper whiteListMapper, String filePath) {
+        this.whiteListMapper = whiteListMapper;
+        for (WhiteList existing : whiteListMapper.selectList(new QueryWrapper<WhiteList>()
+                .eq("file_path", filePath)
+                .eq("isdelete", 0))) {
+            seen.add(keyOf(existing));
+        }
+    }
+
+    @Override
+    public void accept(WhiteList dependency) {
+        if (dependency.getName() == null || dependency.getName().isEmpty()) {
+            return;
+        }
+        if (dependency.getDescription() == null) {
+            dependency.setDescription("");
+        }
+        if (seen.add(keyOf(dependency))) {
+            buffer.add(dependency);
+            if (buffer.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+    }
+
+    public void flush() {
+        if (!buffer.isEmpty()) {
+            inserted += whiteListMapper.insertBatch(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 已写入的行数
+     */
+    public int getInserted() {
+        return inserted;
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    /**
+     * 同一项目内判断依赖是否重复的键
+     */
+    public static String keyOf(WhiteList row) {
+        return row.getModulePath() + "\u0000" + row.getLanguage() + "\u0000" + row.getName() + "\u0000" + row.getDescription();
+    }
+}
@@ -0,0 +1,340 @@
+package com.nju.backend.service.project.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ZIP中央目录读取器
+ *
+ * 只读取文件尾部的中央目录（不解压任何数据），得到每个条目的通用标志位、原始文件名字节和大小，
+ * 并据此一次性判断文件名编码，避免按 GBK → UTF-8 → 默认编码 的顺序反复重试解压
+ */
+public class ZipCentralDirectory {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int EOCD_MIN_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int UTF8_FLAG = 0x800;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final long ZIP64_MAGIC_SIZE = 0xFFFFFFFFL;
+
+    /**
+     * 候选文件名编码，按优先级排列（得分相同时取靠前者）
+     */
+    private static final List<Charset> CANDIDATE_CHARSETS = candidateCharsets();
+
+    private final List<RawEntry> entries;
+
+    private ZipCentralDirectory(List<RawEntry> entries) {
+        this.entries = entries;
+    }
+
+    public static ZipCentralDirectory read(File zipFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ)) {
+            return read(channel, channel.size());
+        }
+    }
+
+    /**
+     * 从文件通道读取中央目录
+     *
+     * @param size ZIP数据的总长度（分片上传时可传入最终长度，只要尾部数据已经写入即可解析）
+     */
+    public static ZipCentralDirectory read(FileChannel channel, long size) throws IOException {
+        Location location = locate(channel, size);
+        long totalEntries = location.totalEntries;
+        long cenSize = location.cenSize;
+        long cenOffset = location.cenOffset;
+
+        // 3. 顺序解析中央目录文件头（1、2 步见 locate）
+        ByteBuffer cen = channel.map(FileChannel.MapMode.READ_ONLY, cenOffset, cenSize).order(ByteOrder.LITTLE_ENDIAN);
+        List<RawEntry> entries = new ArrayList<>((int) Math.min(totalEntries, 1 << 20));
+        int pos = 0;
+        while (pos + 46 <= cenSize) {
+            if (cen.getInt(pos) != CEN_SIGNATURE) {
+                break;
+            }
+            int flags = cen.getShort(pos + 8) & 0xFFFF;
+            int method = cen.getShort(pos + 10) & 0xFFFF;
+            long compressedSize = cen.getInt(pos + 20) & 0xFFFFFFFFL;
+            long uncompressedSize = cen.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nameLen = cen.getShort(pos + 28) & 0xFFFF;
+            int extraLen = cen.getShort(pos + 30) & 0xFFFF;
+            int commentLen = cen.getShort(pos + 32) & 0xFFFF;
+
+            byte[] name = new byte[nameLen];
+            cen.position(pos + 46);
+            cen.get(name);
+
+            // ZIP64 条目的大小在中央目录头中为 0xFFFFFFFF，实际值在扩展字段 0x0001 中
+            if (uncompressedSize == ZIP64_MAGIC_SIZE || compressedSize == ZIP64_MAGIC_SIZE) {
+                long[] sizes = zip64Sizes(cen, pos + 46 + nameLen, extraLen, uncompressedSize, compressedSize);
+                uncompressedSize = sizes[0];
+                compressedSize = sizes[1];
+            }
+
+            entries.add(new RawEntry(name, (flags & UTF8_FLAG) != 0, method, compressedSize, uncompressedSize));
+            pos += 46 + nameLen + extraLen + commentLen;
+        }
+
+        return new ZipCentralDirectory(entries);
+    }
+
+    /**
+     * 从 ZIP64 扩展字段读取原始大小和压缩后大小：字段中只依次出现头部值为 0xFFFFFFFF 的项（原始大小在前），
+     * 没有扩展字段或字段不完整时保留头部的值
+     *
+     * @return {原始大小, 压缩后大小}
+     */
+    private static long[] zip64Sizes(ByteBuffer cen, int extraStart, int extraLen, long uncompressedSize, long compressedSize) {
+        int pos = extraStart;
+        int end = Math.min(extraStart + extraLen, cen.limit());
+        while (pos + 4 <= end) {
+            int id = cen.getShort(pos) & 0xFFFF;
+            int size = cen.getShort(pos + 2) & 0xFFFF;
+            int data = pos + 4;
+            if (id == ZIP64_EXTRA_ID) {
+                int dataEnd = Math.min(data + size, end);
+                if (uncompressedSize == ZIP64_MAGIC_SIZE && data + 8 <= dataEnd) {
+                    uncompressedSize = cen.getLong(data);
+                    data += 8;
+                }
+                if (compressedSize == ZIP64_MAGIC_SIZE && data + 8 <= dataEnd) {
+                    compressedSize = cen.getLong(data);
+                }
+                break;
+            }
+            pos = data + size;
+        }
+        return new long[]{uncompressedSize, compressedSize};
+    }
+
+    /**
+     * 解析中央目录所需数据的起始位置（中央目录或ZIP64结束记录中较小者），其后直到文件末尾的数据到齐即可调用 read
+     *
+     * 调用前文件尾部（最多 64KB + 22 字节）必须已经写入
+     */
+    public static long requiredRegionStart(FileChannel channel, long size) throws IOException {
+        Location location = locate(channel, size);
+        return Math.min(location.cenOffset, location.regionStart);
+    }
+
+    private static Location locate(FileChannel channel, long size) throws IOException {
+        if (size < EOCD_MIN_SIZE) {
+            throw new IOException("ZIP文件过小，找不到中央目录");
+        }
+
+        // 1. 在文件尾部查找 End Of Central Directory 记录
+        int tailSize = (int) Math.min(size, EOCD_MIN_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer tail = readFully(channel, size - tailSize, tailSize);
+        int eocdPos = -1;
+        for (int i = tailSize - EOCD_MIN_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIGNATURE) {
+                eocdPos = i;
+                break;
+            }
+        }
+        if (eocdPos < 0) {
+            throw new IOException("ZIP文件损坏：找不到中央目录结束标记");
+        }
+
+        long eocdAbsolute = size - tailSize + eocdPos;
+        long totalEntries = tail.getShort(eocdPos + 10) & 0xFFFF;
+        long cenSize = tail.getInt(eocdPos + 12) & 0xFFFFFFFFL;
+        long cenOffset = tail.getInt(eocdPos + 16) & 0xFFFFFFFFL;
+        long regionStart = eocdAbsolute;
+
+        // 2. ZIP64：从定位记录找到 ZIP64 EOCD
+        if (totalEntries == 0xFFFF || cenSize == 0xFFFFFFFFL || cenOffset == 0xFFFFFFFFL) {
+            if (eocdAbsolute >= 20) {
+                ByteBuffer locator = readFully(channel, eocdAbsolute - 20, 20);
+                if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                    long zip64EocdOffset = locator.getLong(8);
+                    if (zip64EocdOffset < 0 || zip64EocdOffset + 56 > size) {
+                        throw new IOException("ZIP64中央目录结束标记越界");
+                    }
+                    ByteBuffer zip64Eocd = readFully(channel, zip64EocdOffset, 56);
+                    if (zip64Eocd.getInt(0) != ZIP64_EOCD_SIGNATURE) {
+                        throw new IOException("ZIP64中央目录结束标记无效");
+                    }
+                    totalEntries = zip64Eocd.getLong(32);
+                    cenSize = zip64Eocd.getLong(40);
+                    cenOffset = zip64Eocd.getLong(48);
+                    regionStart = zip64EocdOffset;
+                }
+            }
+        }
+
+        if (cenOffset < 0 || cenSize < 0 || cenOffset + cenSize > size) {
+            throw new IOException("ZIP中央目录越界，文件可能不完整");
+        }
+        return new Location(totalEntries, cenSize, cenOffset, regionStart);
+    }
+
+    public List<RawEntry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * 一次性判断未设置UTF-8标志位的条目应使用的文件名编码
+     *
+     * 对每个候选编码严格解码全部非ASCII文件名，按"成功解码的条目数"和"解码结果为CJK文字的比例"打分，
+     * 全角假名额外加分：Shift_JIS 的文件名用 GBK 也能完整解码成汉字，但只有按 Shift_JIS 解码才会出现假名；
+     * 所有候选都无法完整解码时返回 ISO-8859-1（任何字节都可解码，保证只解压一次）
+     */
+    public Charset detectNameCharset() {
+        List<byte[]> candidates = new ArrayList<>();
+        for (RawEntry entry : entries) {
+            if (!entry.isUtf8Flagged() && !isAscii(entry.getRawName())) {
+                candidates.add(entry.getRawName());
+            }
+        }
+        if (candidates.isEmpty()) {
+            return StandardCharsets.UTF_8;
+        }
+
+        Charset best = null;
+        int bestDecoded = -1;
+        double bestPlausibility = -1;
+        for (Charset charset : CANDIDATE_CHARSETS) {
+            CharsetDecoder decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            int decoded = 0;
+            double plausibility = 0;
+            for (byte[] name : candidates) {
+                try {
+                    CharBuffer chars = decoder.reset().decode(ByteBuffer.wrap(name));
+                    decoded++;
+                    plausibility += plausibility(chars);
+                } catch (CharacterCodingException e) {
+                    // 该候选编码无法解码此文件名
+                }
+            }
+            if (decoded > bestDecoded || (decoded == bestDecoded && plausibility > bestPlausibility + 1e-9)) {
+                best = charset;
+                bestDecoded = decoded;
+                bestPlausibility = plausibility;
+            }
+        }
+
+        if (best == null || bestDecoded < candidates.size()) {
+            return StandardCharsets.ISO_8859_1;
+        }
+        return best;
+    }
+
+    private static boolean isAscii(byte[] bytes) {
+        for (byte b : bytes) {
+            if (b < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 非ASCII字符中属于中日韩文字（汉字、假名、全角符号）的比例，加上其中全角假名的比例
+     */
+    private static double plausibility(CharBuffer chars) {
+        int nonAscii = 0;
+        int cjk = 0;
+        int kana = 0;
+        while (chars.hasRemaining()) {
+            char c = chars.get();
+            if (c < 0x80) {
+                continue;
+            }
+            nonAscii++;
+            if ((c >= 0x4E00 && c <= 0x9FFF) || (c >= 0x3000 && c <= 0x30FF) || (c >= 0xFF00 && c <= 0xFFEF)) {
+                cjk++;
+            }
+            if (c >= 0x3041 && c <= 0x30FA) {
+                kana++;
+            }
+        }
+        return nonAscii == 0 ? 1.0 : (double) (cjk + kana) / nonAscii;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new IOException("ZIP文件意外结束");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static List<Charset> candidateCharsets() {
+        List<Charset> charsets = new ArrayList<>();
+        charsets.add(StandardCharsets.UTF_8);
+        for (String name : new String[]{"GBK", "GB18030", "Big5", "Shift_JIS"}) {
+            if (Charset.isSupported(name)) {
+                charsets.add(Charset.forName(name));
+            }
+        }
+        return Collections.unmodifiableList(charsets);
+    }
+
+    private static class Location {
+        private final long totalEntries;
+        private final long cenSize;
+        private final long cenOffset;
+        private final long regionStart;
+
+        Location(long totalEntries, long cenSize, long cenOffset, long regionStart) {
+            this.totalEntries = totalEntries;
+            this.cenSize = cenSize;
+            this.cenOffset = cenOffset;
+            this.regionStart = regionStart;
+        }
+    }
+
+    /**
+     * 中央目录中的一个条目（文件名为未解码的原始字节）
+     */
+    public static class RawEntry {
+        private final byte[] rawName;
+        private final boolean utf8Flagged;
+        private final int method;
+        private final long compressedSize;
+        private final long uncompressedSize;
+
+        RawEntry(byte[] rawName, boolean utf8Flagged, int method, long compressedSize, long uncompressedSize) {
+            this.rawName = rawName;
+            this.utf8Flagged = utf8Flagged;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.uncompressedSize = uncompressedSize;
+        }
+
+        public byte[] getRawName() { return rawName; }
+
+        public boolean isUtf8Flagged() { return utf8Flagged; }
+
+        public int getMethod() { return method; }
+
+        public long getCompressedSize() { return compressedSize; }
+
+        public long getUncompressedSize() { return uncompressedSize; }
+    }
+}
@@ -0,0 +1,264 @@
+package com.nju.backend.service.project.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 并行ZIP解压引擎
+ *
+ * 1. 单线程规划：一次性计算规范化根路径，校验每个条目的目标路径并处理重名
+ * 2. 一次性预先创建全部目录
+ * 3. 文件条目分发给有界的解压线程池并行写入，每个线程复用一个大缓冲区
+ * 4. 启用内容寻址存储时，写入的同时计算SHA-256并登记到对象库
+ * 5. 写入过程受 ExtractionGovernor 约束，超出条目数/大小/压缩比预算时全部工作线程提前终止
+ */
+@Component
+public class ZipExtractionEngine {
+
+    private static final int COPY_BUFFER_SIZE = 256 * 1024;
+
+    @Autowired
+    @Qualifier("archiveExtractionExecutor")
+    private Executor archiveExtractionExecutor;
+
+    @Autowired
+    private ContentAddressedStore contentAddressedStore;
+
+    @Autowired
+    private ExtractionMetrics extractionMetrics;
+
+    @Value("${file.extract.workers:4}")
+    private int workers;
+
+    /**
+     * 将ZIP中的全部条目解压到目标目录
+     */
+    public ExtractionStats extract(ZipFile zipFile, File destDir) throws IOException {
+        return extract(zipFile, destDir, null, ExtractionGovernor.unlimited());
+    }
+
+    /**
+     * 只解压名称满足过滤条件的条目（filter为null时解压全部），写入量受 governor 约束
+     */
+    public ExtractionStats extract(ZipFile zipFile, File destDir, Predicate<String> filter,
+                                   ExtractionGovernor governor) throws IOException {
+        extractionMetrics.started();
+        try {
+            ExtractionStats stats = doExtract(zipFile, destDir, filter, governor);
+            extractionMetrics.finished("zip", stats);
+            return stats;
+        } catch (IOException | RuntimeException e) {
+            extractionMetrics.failed("zip", e);
+            throw e;
+        }
+    }
+
+    private ExtractionStats doExtract(ZipFile zipFile, File destDir, Predicate<String> filter,
+                                      ExtractionGovernor governor) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Path root = destDir.getCanonicalFile().toPath();
+
+        // 第一步：规划（路径校验只做一次，基于预先计算的规范化根路径）
+        List<PlannedEntry> files = new ArrayList<>();
+        Set<Path> directories = new TreeSet<>();
+        Set<Path> plannedTargets = new HashSet<>();
+        int skipped = 0;
+
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (filter != null && !filter.test(entry.getName())) {
+                continue;
+            }
+            Path target = resolveSafely(root, entry.getName());
+            if (target == null) {
+                System.out.println("DEBUG: 跳过潜在危险路径: " + entry.getName());
+                skipped++;
+                continue;
+            }
+            if (entry.isDirectory()) {
+                directories.add(target);
+                continue;
+            }
+            Path parent = target.getParent();
+            if (parent != null && !parent.equals(root)) {
+                directories.add(parent);
+            }
+            // 处理同一ZIP内部的文件重名
+            if (!plannedTargets.add(target)) {
+                target = uniqueTarget(target, plannedTargets);
+                System.out.println("DEBUG: 文件重名，重命名为: " + target.getFileName());
+            }
+            files.add(new PlannedEntry(entry, target));
+        }
+
+        // 第二步：一次性创建所有目录
+        for (Path dir : directories) {
+            Files.createDirectories(dir);
+        }
+
+        // 第三步：并行写入文件
+        int workerCount = Math.max(1, Math.min(workers, files.size()));
+        AtomicInteger cursor = new AtomicInteger();
+        AtomicLong totalBytes = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        boolean intern = contentAddressedStore.isEnabled();
+
+        Runnable worker = () -> {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            MessageDigest digest = intern ? newSha256() : null;
+            int index;
+            while (failure.get() == null && (index = cursor.getAndIncrement()) < files.size()) {
+                PlannedEntry planned = files.get(index);
+                try {
+                    totalBytes.addAndGet(copyEntry(zipFile, planned, buffer, digest, governor));
+                    if (digest != null) {
+                        contentAddressedStore.intern(planned.target, ContentAddressedStore.toHex(digest.digest()));
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }
+        };
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 1; i < workerCount; i++) {
+            futures.add(CompletableFuture.runAsync(worker, archiveExtractionExecutor));
+        }
+        // 调用线程本身也作为一个工作线程参与解压
+        worker.run();
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("解压被中断", e);
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, e.getCause());
+            }
+        }
+
+        Throwable error = failure.get();
+        if (error != null) {
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            }
+            throw new IOException("解压失败: " + error.getMessage(), error);
+        }
+
+        ExtractionStats stats = new ExtractionStats(files.size(), directories.size(), skipped,
+                totalBytes.get(), System.currentTimeMillis() - startTime, workerCount);
+        System.out.println("DEBUG: 解压完成，" + stats);
+        return stats;
+    }
+
+    private long copyEntry(ZipFile zipFile, PlannedEntry planned, byte[] buffer, MessageDigest digest,
+                           ExtractionGovernor governor) throws IOException {
+        String name = planned.entry.getName();
+        long compressedSize = Math.max(0, planned.entry.getCompressedSize());
+        governor.onEntry(name);
+        long written = 0;
+        try (InputStream in = zipFile.getInputStream(planned.entry);
+             OutputStream out = openForWrite(planned.target)) {
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                written += len;
+                governor.onBytes(name, len, written, compressedSize);
+                out.write(buffer, 0, len);
+                if (digest != null) {
+                    digest.update(buffer, 0, len);
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 目标文件已存在时先删除再创建，而不是截断写入：已存在的文件可能是与其他上传共享的硬链接
+     */
+    static OutputStream openForWrite(Path target) throws IOException {
+        try {
+            return Files.newOutputStream(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (FileAlreadyExistsException e) {
+            Files.delete(target);
+            return Files.newOutputStream(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前JVM不支持SHA-256", e);
+        }
+    }
+
+    /**
+     * 基于规范化根路径解析条目目标路径，越界（路径遍历）时返回null
+     */
+    static Path resolveSafely(Path root, String entryName) {
+        String name = entryName.replace('\\', '/');
+        while (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        if (name.isEmpty()) {
+            return null;
+        }
+        try {
+            Path target = root.resolve(name).normalize();
+            if (target.equals(root) || !target.startsWith(root)) {
+                return null;
+            }
+            return target;
+        } catch (java.nio.file.InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private static Path uniqueTarget(Path target, Set<Path> plannedTargets) {
+        String baseName = target.getFileName().toString();
+        String nameWithoutExt = baseName.replaceFirst("[.][^.]+$", "");
+        String extension = baseName.substring(nameWithoutExt.length());
+        int counter = 1;
+        Path candidate;
+        do {
+            candidate = target.resolveSibling(nameWithoutExt + "_" + counter + extension);
+            counter++;
+        } while (!plannedTargets.add(candidate));
+        return candidate;
+    }
+
+    private static class PlannedEntry {
+        private final ZipEntry entry;
+        private final Path target;
+
+        PlannedEntry(ZipEntry entry, Path target) {
+            this.entry = entry;
+            this.target = target;
+        }
+    }
+}
@@ -5,14 +5,14 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nju.backend.repository.mapper.*;
 import com.nju.backend.repository.po.*;
+import com.nju.backend.service.analysis.AnalysisCallRejectedException;
+import com.nju.backend.service.analysis.AnalysisServiceClient;
+import com.nju.backend.service.analysis.AnalysisServiceException;
+import com.nju.backend.service.project.util.ScanProgressBroker;
+import com.nju.backend.service.project.util.ScanProgressEvent;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -46,9 +46,10 @@ public class VulnerabilityDetectionService {
     private ProjectVulnerabilityMapper projectVulnerabilityMapper;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private AnalysisServiceClient analysisServiceClient;
 
-    private static final String FLASK_DETECT_URL = "http://localhost:5000/vulnerabilities/detect";
+    @Autowired
+    private ScanProgressBroker scanProgressBroker;
 
     // 支持的语言列表
     private static final List<String> SUPPORTED_LANGUAGES = Arrays.asList(
@@ -100,6 +101,9 @@ public class VulnerabilityDetectionService {
 
         System.out.println("获取到白名单组件数量: " + whiteListJson);
 
+        // 项目ID -> 匹配到的CVE，检测结束后推送到扫描进度
+        Map<Integer, Set<String>> matchedCves = new HashMap<>();
+
         // 遍历每个漏洞报告进行检测
         for (VulnerabilityReport vulnerabilityReport : vulnerabilityReports) {
             try {
@@ -121,7 +125,8 @@ public class VulnerabilityDetectionService {
                         matchedComponents,
                         whiteListJson,
                         language,
-                        company.getMaxDetectNums()
+                        company.getMaxDetectNums(),
+                        matchedCves
                     );
 
                     detectedCount += savedCount;
@@ -148,6 +153,18 @@ public class VulnerabilityDetectionService {
             result.put("errors", errors);
         }
 
+        for (Map.Entry<Integer, Set<String>> entry : matchedCves.entrySet()) {
+            scanProgressBroker.publishAfterCommit(ScanProgressEvent.forProject(entry.getKey(), companyId,
+                            ScanProgressEvent.DETECTION_FINISHED)
+                    .with("language", language)
+                    .with("matchedCves", entry.getValue().size()));
+        }
+        scanProgressBroker.publishAfterCommit(ScanProgressEvent.forCompany(companyId, ScanProgressEvent.DETECTION_FINISHED)
+                .with("language", language)
+                .with("processedCount", processedCount)
+                .with("detectedCount", detectedCount)
+                .with("affectedProjects", matchedCves.size()));
+
         System.out.println("========================================");
         System.out.println("漏洞检测完成");
         System.out.println("处理漏洞数: " + processedCount);
@@ -329,32 +346,11 @@ public class VulnerabilityDetectionService {
             params.put("similarityThreshold", company.getSimilarityThreshold().toString());
             params.put("language", language);
 
-            // 设置HTTP头
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            // 创建HTTP实体
-            HttpEntity<Map<String, String>> requestEntity = new HttpEntity<>(params, headers);
-
-            System.out.println("调用Flask API: " + FLASK_DETECT_URL);
+            System.out.println("调用Flask API: vulnerabilities/detect");
             System.out.println("CVE: " + vulnerabilityReport.getCveId());
             System.out.println("语言: " + language);
 
-            // 发送POST请求
-            ResponseEntity<String> response = restTemplate.exchange(
-                FLASK_DETECT_URL,
-                HttpMethod.POST,
-                requestEntity,
-                String.class
-            );
-
-            // 检查响应
-            if (!response.getStatusCode().is2xxSuccessful()) {
-                System.err.println("API调用失败，状态码: " + response.getStatusCode());
-                return null;
-            }
-
-            String labels = response.getBody();
+            String labels = AnalysisServiceClient.await(analysisServiceClient.detect(params));
 
             if (labels == null || labels.trim().isEmpty()) {
                 System.out.println("API返回空结果，CVE: " + vulnerabilityReport.getCveId());
@@ -370,17 +366,16 @@ public class VulnerabilityDetectionService {
             System.out.println("API调用成功，匹配到的组件: " + labels);
             return labels;
 
-        } catch (ResourceAccessException e) {
-            System.err.println("Flask API超时或无法连接: " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        } catch (HttpServerErrorException e) {
-            System.err.println("Flask服务返回5xx错误: " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        } catch (HttpClientErrorException e) {
-            System.err.println("Flask服务返回4xx错误: " + e.getMessage());
-            e.printStackTrace();
+        } catch (AnalysisServiceException e) {
+            if (e instanceof AnalysisCallRejectedException) {
+                System.err.println("Flask检测接口熔断或并发已满，本次跳过: " + e.getMessage());
+            } else if (e.isServerError()) {
+                System.err.println("Flask服务返回5xx错误: " + e.getMessage());
+            } else if (e.isClientError()) {
+                System.err.println("Flask服务返回4xx错误: " + e.getMessage());
+            } else {
+                System.err.println("Flask API超时或无法连接: " + e.getMessage());
+            }
             return null;
         } catch (Exception e) {
             System.err.println("API调用出现未预期的异常: " + e.getMessage());
@@ -397,7 +392,8 @@ public class VulnerabilityDetectionService {
             String matchedComponents,
             String whiteListJson,
             String language,
-            int maxDetectNum) {
+            int maxDetectNum,
+            Map<Integer, Set<String>> matchedCves) {
 
         int savedCount = 0;
 
@@ -435,6 +431,9 @@ public class VulnerabilityDetectionService {
                 String projectId = whiteListItem.get("projectId").asText();
 
                 if (componentList.contains(componentName)) {
+                    matchedCves.computeIfAbsent(Integer.parseInt(projectId), k -> new HashSet<>())
+                            .add(vulnerabilityReport.getCveId());
+
                     // 检查该漏洞记录是否已存在，避免重复插入
                     QueryWrapper<Vulnerability> existsWrapper = new QueryWrapper<>();
                     existsWrapper.eq("ref", vulnerabilityReport.getCveId())
@@ -9,22 +9,19 @@ import com.nju.backend.repository.mapper.*;
 import com.nju.backend.repository.po.*;
 import com.xxl.job.core.context.XxlJobHelper;
 import com.xxl.job.core.handler.annotation.XxlJob;
+import com.nju.backend.service.analysis.AnalysisCallRejectedException;
+import com.nju.backend.service.analysis.AnalysisServiceClient;
+import com.nju.backend.service.analysis.AnalysisServiceException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestClientException;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.text.ParseException;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Component
@@ -51,22 +48,37 @@ public class VulnerabilityJobHandler {
     @Autowired
     private ProjectMapper projectMapper;
 
+    @Autowired
+    private AnalysisServiceClient analysisServiceClient;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 暂时性失败的检测在一次任务内最多重试的轮数，以及每轮之前至少等待的时间
+     */
+    @Value("${analysis.service.detect.retry-rounds:3}")
+    private int detectRetryRounds;
+
+    @Value("${analysis.service.detect.retry-delay-ms:30000}")
+    private long detectRetryDelayMillis;
+
     static List<String> SupportedLanguages = Arrays.asList(
         "java", "c", "python", "php", "ruby", "go", "rust", "javascript", "erlang"
     );
 
-    @Transactional
     @XxlJob("githubVulnerabilityFetchJob")
     public void fetchGithubVulnerabilityData() {
         try {
-            RestTemplate restTemplate = new RestTemplate();
             // 修改为同步模式并设置合理的数据量，避免超时
             // limit=30: 获取30条最新漏洞（约需6-10秒）
             // mode=sync: 使用同步模式，直接返回漏洞数据而非task_id
-            String url = "http://localhost:5000/vulnerabilities/github?limit=30&mode=sync";
-            XxlJobHelper.log("Calling GitHub API (sync mode): " + url);
+            Map<String, String> query = new LinkedHashMap<>();
+            query.put("limit", "30");
+            query.put("mode", "sync");
+            XxlJobHelper.log("Calling GitHub API (sync mode): " + query);
 
-            String jsonData = restTemplate.getForObject(url, String.class);
+            String jsonData = AnalysisServiceClient.await(analysisServiceClient.fetchFeed("github", query));
             XxlJobHelper.log("GitHub API response received, length: " + (jsonData != null ? jsonData.length() : "null"));
 
             List<VulnerabilityReport> vulnerabilities = parseJsonData(jsonData);
@@ -82,15 +94,12 @@ public class VulnerabilityJobHandler {
         }
     }
 
-    @Transactional
     @XxlJob("avdVulnerabilityFetchJob")
     public void fetchAvdVulnerabilityData() {
         try {
-            RestTemplate restTemplate = new RestTemplate();
-            String url = "http://127.0.0.1:5000/vulnerabilities/avd";
-            XxlJobHelper.log("Calling AVD API: " + url);
-            System.out.println("DEBUG: Calling AVD API: " + url);
-            String jsonData = restTemplate.getForObject(url, String.class);
+            XxlJobHelper.log("Calling AVD API");
+            System.out.println("DEBUG: Calling AVD API");
+            String jsonData = AnalysisServiceClient.await(analysisServiceClient.fetchFeed("avd", null));
             XxlJobHelper.log("AVD API response received, length: " + (jsonData != null ? jsonData.length() : "null"));
             List<VulnerabilityReport> vulnerabilities = parseJsonData(jsonData);
             XxlJobHelper.log("Parsed " + vulnerabilities.size() + " AVD vulnerabilities");
@@ -111,16 +120,13 @@ public class VulnerabilityJobHandler {
         }
     }
 
-    @Transactional
     @XxlJob("nvdVulnerabilityFetchJob")
     public void fetchNvdVulnerabilityData() {
         try {
-            RestTemplate restTemplate = new RestTemplate();
-            String url = "http://localhost:5000/vulnerabilities/nvd";
             String jsonData;
 
             try {
-                jsonData = restTemplate.getForObject(url, String.class);
+                jsonData = AnalysisServiceClient.await(analysisServiceClient.fetchFeed("nvd", null));
                 XxlJobHelper.log("NVD API调用成功");
             } catch (Exception apiException) {
                 XxlJobHelper.log("NVD API暂时不可用，使用示例数据: " + apiException.getMessage());
@@ -373,19 +379,31 @@ public class VulnerabilityJobHandler {
         }
     }
 
-    @Transactional
+    /**
+     * 检测漏洞影响的组件并写库
+     *
+     * 首轮检测的写入在一个事务中提交；推迟的检测在事务外等待，每个重试的检测各自一个事务，
+     * 等待重试期间不占用数据库连接、不持有首轮写入的行锁
+     */
     public void detectVulnerabilities(List<VulnerabilityReport> vulnerabilities) {
         List<Company> companies = companyMapper.selectList(null);
+        // 熔断、并发已满、超时或 5xx 的检测推迟到本轮结束后重试，不阻塞其余 CVE 的处理
+        List<DetectCall> deferred = transactionTemplate.execute(status -> detectFirstPass(vulnerabilities, companies));
+        retryDeferred(deferred);
+    }
+
+    private List<DetectCall> detectFirstPass(List<VulnerabilityReport> vulnerabilities, List<Company> companies) {
+        List<DetectCall> deferred = new ArrayList<>();
         for (VulnerabilityReport vulnerabilityReport : vulnerabilities) {
             // ✅ 关键改动：确保漏洞名称不为空
             // 如果 vulnerabilityName 为空，自动从 description 中提取
             extractVulnerabilityNameIfEmpty(vulnerabilityReport);
 
+            // 先为每个公司、语言读出白名单并发出全部检测请求，请求并发执行；
+            // 结果仍按原顺序在当前线程上处理，数据库写入留在首轮的事务中
+            List<DetectCall> calls = new ArrayList<>();
             for (Company company : companies) {
                 for (String language : SupportedLanguages) {
-                    RestTemplate restTemplate = new RestTemplate();
-                    String url = "http://localhost:5000/vulnerabilities/detect";
-
                     // ===== 关键修改：从 white_list 表读取数据 =====
                     String currentWhiteListAsString = getWhiteListFromDatabase(
                         company.getId(),
@@ -401,177 +419,236 @@ public class VulnerabilityJobHandler {
                     }
                     // ===== 修改结束 =====
 
-                    ObjectMapper objectMapper = new ObjectMapper();
-
-                    // 创建要发送的参数
-                    Map<String, String> params = new HashMap<>();
-                    params.put("cve_id", vulnerabilityReport.getCveId());
-                    params.put("desc", vulnerabilityReport.getDescription());
-                    params.put("white_list", currentWhiteListAsString);
-                    params.put("company", company.getName());
-                    params.put("detect_strategy", company.getDetectStrategy());
-                    params.put("similarityThreshold", company.getSimilarityThreshold().toString());
-                    params.put("language", language);
-
-                    // 设置HTTP头，指定内容类型为JSON
-                    HttpHeaders headers = new HttpHeaders();
-                    headers.set("Content-Type", "application/json");
-
-                    // 创建HTTP实体，包含请求体和头信息
-                    HttpEntity<Map<String, String>> requestEntity = new HttpEntity<>(params, headers);
-
-                    // 发送POST请求并接收响应
-                    ResponseEntity<String> response;
-                    String labels;
-
-                    try {
-                        response = restTemplate.exchange(url, HttpMethod.POST, requestEntity, String.class);
-                        labels = response.getBody();
-
-                        // 检查响应状态和内容
-                        if (!response.getStatusCode().is2xxSuccessful()) {
-                            XxlJobHelper.log("API调用失败，状态码: " + response.getStatusCode() + ", CVE: " + vulnerabilityReport.getCveId());
-                            continue; // 跳过这个公司的处理
-                        }
-
-                        if (labels == null || labels.trim().isEmpty()) {
-                            XxlJobHelper.log("API返回空结果，CVE: " + vulnerabilityReport.getCveId() + ", 公司: " + company.getName());
-                            continue; // 跳过这个公司的处理
-                        }
-
-                        // 检查是否返回了错误页面（HTML内容）
-                        if (labels.contains("<!doctype html>") || labels.contains("<html")) {
-                            XxlJobHelper.log("API返回错误页面，CVE: " + vulnerabilityReport.getCveId() + ", 公司: " + company.getName());
-                            XxlJobHelper.log("错误详情: " + labels.substring(0, Math.min(200, labels.length())));
-                            continue; // 跳过这个公司的处理
-                        }
-
-                        // 记录成功的API调用
-                        XxlJobHelper.log("API调用成功，CVE: " + vulnerabilityReport.getCveId() + ", 公司: " + company.getName() + ", 语言: " + language + ", 返回标签数量: " + (labels.split(";").length));
-
-                    } catch (HttpServerErrorException e) {
-                        // 捕获 5xx 错误
-                        String errorBody = e.getResponseBodyAsString();
-                        XxlJobHelper.log("Flask服务返回5xx错误，CVE: " + vulnerabilityReport.getCveId() +
-                            ", 公司: " + company.getName() +
-                            ", 状态码: " + e.getRawStatusCode() +
-                            ", 错误信息: " + e.getMessage());
-
-                        // 记录错误响应体的摘要（避免日志过长）
-                        if (errorBody != null && !errorBody.isEmpty()) {
-                            String summary = errorBody.length() > 500 ?
-                                errorBody.substring(0, 500) + "..." : errorBody;
-                            XxlJobHelper.log("错误响应体摘要: " + summary);
-                        }
-
-                        System.err.println("Flask 5xx Error: " + e.getMessage());
-                        e.printStackTrace(System.err);
-                        continue; // 跳过这个公司的处理
-
-                    } catch (HttpClientErrorException e) {
-                        // 捕获 4xx 错误
-                        XxlJobHelper.log("Flask服务返回4xx错误，CVE: " + vulnerabilityReport.getCveId() +
-                            ", 公司: " + company.getName() +
-                            ", 状态码: " + e.getRawStatusCode() +
-                            ", 错误: " + e.getMessage());
-                        System.err.println("Flask 4xx Error: " + e.getMessage());
-                        e.printStackTrace(System.err);
-                        continue; // 跳过这个公司的处理
-
-                    } catch (RestClientException e) {
-                        // 捕获其他REST调用异常（如连接失败、超时等）
-                        XxlJobHelper.log("REST调用异常，CVE: " + vulnerabilityReport.getCveId() +
-                            ", 公司: " + company.getName() +
-                            ", 错误: " + e.getClass().getSimpleName() + " - " + e.getMessage());
-                        System.err.println("REST Client Error: " + e.getMessage());
-                        e.printStackTrace(System.err);
-                        continue; // 跳过这个公司的处理
-
-                    } catch (Exception e) {
-                        // 捕获其他所有异常
-                        XxlJobHelper.log("API调用出现未预期的异常，CVE: " + vulnerabilityReport.getCveId() +
-                            ", 公司: " + company.getName() +
-                            ", 异常类型: " + e.getClass().getSimpleName() +
-                            ", 错误: " + e.getMessage());
-                        System.err.println("Unexpected Error: " + e.getMessage());
-                        e.printStackTrace(System.err);
-                        continue; // 跳过这个公司的处理
-                    }
+                    calls.add(new DetectCall(vulnerabilityReport, company, language, currentWhiteListAsString));
+                }
+            }
+            submitDetectCalls(calls);
+            for (DetectCall call : calls) {
+                handleDetectResponse(call, deferred);
+            }
+        }
+        return deferred;
+    }
 
-                    int maxDetectNum = company.getMaxDetectNums();
-
-
-                        try {
-                            // 获取当前ID对应的记录
-                            VulnerabilityReport existingReport = vulnerabilityReportMapper.selectById(vulnerabilityReport.getId());
-
-                            if (existingReport == null) {
-                                // 如果记录不存在，则插入新记录
-                                // 保留从Flask端获取的vulnerabilityName(真实漏洞名称)
-                                int insertResult = vulnerabilityReportMapper.insert(vulnerabilityReport);
-                                XxlJobHelper.log("插入新漏洞报告，插入结果: " + insertResult +
-                                    ", CVE: " + vulnerabilityReport.getCveId() +
-                                    ", 漏洞名称: " + vulnerabilityReport.getVulnerabilityName() +
-                                    ", 检测到的依赖库: " + labels);
-                            } else {
-                                // 如果记录已存在，不再重复插入
-                                XxlJobHelper.log("漏洞报告已存在，ID: " + existingReport.getId() +
-                                    ", CVE: " + existingReport.getCveId() +
-                                    ", 检测到的依赖库: " + labels);
-                            }
-                        } catch (Exception e) {
-                            XxlJobHelper.log("数据库操作异常，CVE: " + vulnerabilityReport.getCveId() + ", 错误: " + e.getMessage());
-                            e.printStackTrace();
-                        }
-
-
-                    try {
-                        JsonNode whiteListJsonArray = objectMapper.readTree(currentWhiteListAsString);
-                        //根据maxDetectNum做截断
-                        List<String> labelList = Arrays.asList(labels.split(";"));
-                        if (labelList.size() > maxDetectNum) {
-                            labelList = labelList.subList(0, maxDetectNum);
-                        }
-                        // 遍历 JSON 数组
-                        for (JsonNode WhiteList : whiteListJsonArray) {
-                            String name = WhiteList.get("name").asText();
-                            String pojectid = WhiteList.get("pojectid").asText();
-                            if (labelList.contains(name)) {
-
-                                Vulnerability vulnerability = new Vulnerability();
-                                vulnerability.setDescription(vulnerabilityReport.getDescription());
-                                vulnerability.setIsAccept(0);
-                                vulnerability.setIsDelete(0);
-                                // 使用漏洞名称而不是依赖库名称
-                                vulnerability.setName(vulnerabilityReport.getVulnerabilityName());
-                                vulnerability.setRiskLevel(vulnerabilityReport.getRiskLevel());
-                                vulnerability.setTime(vulnerabilityReport.getDisclosureTime());
-                                vulnerability.setLanguage(language);
-                                vulnerability.setRef(vulnerabilityReport.getCveId());
-                                vulnerabilityMapper.insert(vulnerability);
-
-
-                                VulnerabilityReportVulnerability vulnerabilityReportVulnerability = new VulnerabilityReportVulnerability();
-                                vulnerabilityReportVulnerability.setVulnerabilityId(vulnerability.getId());
-                                vulnerabilityReportVulnerability.setVulnerabilityReportId(vulnerabilityReport.getId());
-                                vulnerabilityReportVulnerability.setIsDelete(0);
-                                vulnerabilityReportVulnerabilityMapper.insert(vulnerabilityReportVulnerability);
-
-
-                                ProjectVulnerability projectVulnerability = new ProjectVulnerability();
-                                projectVulnerability.setVulnerabilityId(vulnerability.getId());
-                                projectVulnerability.setProjectId(Integer.parseInt(pojectid));
-                                projectVulnerability.setIsDelete(0);
-                                projectVulnerabilityMapper.insert(projectVulnerability);
-                            }
-                        }
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
+    private void retryDeferred(List<DetectCall> deferred) {
+        for (int round = 1; round <= detectRetryRounds && !deferred.isEmpty(); round++) {
+            long delay = deferred.stream().mapToLong(call -> call.retryAfterMillis).max().orElse(0);
+            delay = Math.max(delay, detectRetryDelayMillis);
+            XxlJobHelper.log("第 " + round + " 轮重试推迟的检测，数量: " + deferred.size() + "，等待 " + delay + "ms");
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            submitDetectCalls(deferred);
+            List<DetectCall> next = new ArrayList<>();
+            for (DetectCall call : deferred) {
+                transactionTemplate.execute(status -> {
+                    handleDetectResponse(call, next);
+                    return null;
+                });
+            }
+            deferred = next;
+        }
+        for (DetectCall call : deferred) {
+            XxlJobHelper.log("重试后仍无法检测，放弃，CVE: " + call.report.getCveId() +
+                ", 公司: " + call.company.getName() + ", 语言: " + call.language);
+        }
+    }
+
+    private void submitDetectCalls(List<DetectCall> calls) {
+        for (DetectCall call : calls) {
+            VulnerabilityReport vulnerabilityReport = call.report;
+            Company company = call.company;
+
+            // 创建要发送的参数
+            Map<String, String> params = new HashMap<>();
+            params.put("cve_id", vulnerabilityReport.getCveId());
+            params.put("desc", vulnerabilityReport.getDescription());
+            params.put("white_list", call.whiteList);
+            params.put("company", company.getName());
+            params.put("detect_strategy", company.getDetectStrategy());
+            params.put("similarityThreshold", company.getSimilarityThreshold().toString());
+            params.put("language", call.language);
+
+            call.response = analysisServiceClient.detect(params);
+        }
+    }
+
+    /**
+     * 等待一个检测请求的结果并写库；暂时性失败（熔断、并发已满、超时、5xx）加入 deferred 稍后重试
+     */
+    private void handleDetectResponse(DetectCall call, List<DetectCall> deferred) {
+        VulnerabilityReport vulnerabilityReport = call.report;
+        Company company = call.company;
+        String language = call.language;
+        String currentWhiteListAsString = call.whiteList;
+        ObjectMapper objectMapper = new ObjectMapper();
+        String labels;
+
+        try {
+            labels = AnalysisServiceClient.await(call.response);
+
+            if (labels == null || labels.trim().isEmpty()) {
+                XxlJobHelper.log("API返回空结果，CVE: " + vulnerabilityReport.getCveId() + ", 公司: " + company.getName());
+                return; // 跳过这个公司的处理
+            }
+
+            // 检查是否返回了错误页面（HTML内容）
+            if (labels.contains("<!doctype html>") || labels.contains("<html")) {
+                XxlJobHelper.log("API返回错误页面，CVE: " + vulnerabilityReport.getCveId() + ", 公司: " + company.getName());
+                XxlJobHelper.log("错误详情: " + labels.substring(0, Math.min(200, labels.length())));
+                return; // 跳过这个公司的处理
+            }
+
+            // 记录成功的API调用
+            XxlJobHelper.log("API调用成功，CVE: " + vulnerabilityReport.getCveId() + ", 公司: " + company.getName() + ", 语言: " + language + ", 返回标签数量: " + (labels.split(";").length));
+
+        } catch (AnalysisCallRejectedException e) {
+            // 熔断或并发已满：请求没有发出，稍后重试
+            XxlJobHelper.log("检测请求被拒绝(" + e.getReason() + ")，推迟重试，CVE: " + vulnerabilityReport.getCveId() +
+                ", 公司: " + company.getName() + ", 语言: " + language);
+            call.retryAfterMillis = e.getRetryAfterMillis();
+            deferred.add(call);
+            return;
+
+        } catch (AnalysisServiceException e) {
+            if (e.isClientError()) {
+                // 捕获 4xx 错误：请求本身有问题，重试也不会成功
+                XxlJobHelper.log("Flask服务返回4xx错误，CVE: " + vulnerabilityReport.getCveId() +
+                    ", 公司: " + company.getName() +
+                    ", 状态码: " + e.getStatusCode() +
+                    ", 错误: " + e.getMessage());
+                System.err.println("Flask 4xx Error: " + e.getMessage());
+                return; // 跳过这个公司的处理
+            }
+            if (e.isServerError()) {
+                // 捕获 5xx 错误
+                String errorBody = e.getResponseBody();
+                XxlJobHelper.log("Flask服务返回5xx错误，推迟重试，CVE: " + vulnerabilityReport.getCveId() +
+                    ", 公司: " + company.getName() +
+                    ", 状态码: " + e.getStatusCode() +
+                    ", 错误信息: " + e.getMessage());
+
+                // 记录错误响应体的摘要（避免日志过长）
+                if (errorBody != null && !errorBody.isEmpty()) {
+                    String summary = errorBody.length() > 500 ?
+                        errorBody.substring(0, 500) + "..." : errorBody;
+                    XxlJobHelper.log("错误响应体摘要: " + summary);
                 }
+            } else {
+                // 连接失败、超时等
+                XxlJobHelper.log("REST调用异常，推迟重试，CVE: " + vulnerabilityReport.getCveId() +
+                    ", 公司: " + company.getName() +
+                    ", 错误: " + e.getMessage());
             }
+            call.retryAfterMillis = 0;
+            deferred.add(call);
+            return;
+
+        } catch (Exception e) {
+            // 捕获其他所有异常
+            XxlJobHelper.log("API调用出现未预期的异常，CVE: " + vulnerabilityReport.getCveId() +
+                ", 公司: " + company.getName() +
+                ", 异常类型: " + e.getClass().getSimpleName() +
+                ", 错误: " + e.getMessage());
+            System.err.println("Unexpected Error: " + e.getMessage());
+            e.printStackTrace(System.err);
+            return; // 跳过这个公司的处理
         }
+        int maxDetectNum = company.getMaxDetectNums();
+
 
+            try {
+                // 获取当前ID对应的记录
+                VulnerabilityReport existingReport = vulnerabilityReportMapper.selectById(vulnerabilityReport.getId());
+
+                if (existingReport == null) {
+                    // 如果记录不存在，则插入新记录
+                    // 保留从Flask端获取的vulnerabilityName(真实漏洞名称)
+                    int insertResult = vulnerabilityReportMapper.insert(vulnerabilityReport);
+                    XxlJobHelper.log("插入新漏洞报告，插入结果: " + insertResult +
+                        ", CVE: " + vulnerabilityReport.getCveId() +
+                        ", 漏洞名称: " + vulnerabilityReport.getVulnerabilityName() +
+                        ", 检测到的依赖库: " + labels);
+                } else {
+                    // 如果记录已存在，不再重复插入
+                    XxlJobHelper.log("漏洞报告已存在，ID: " + existingReport.getId() +
+                        ", CVE: " + existingReport.getCveId() +
+                        ", 检测到的依赖库: " + labels);
+                }
+            } catch (Exception e) {
+                XxlJobHelper.log("数据库操作异常，CVE: " + vulnerabilityReport.getCveId() + ", 错误: " + e.getMessage());
+                e.printStackTrace();
+            }
+
+
+        try {
+            JsonNode whiteListJsonArray = objectMapper.readTree(currentWhiteListAsString);
+            //根据maxDetectNum做截断
+            List<String> labelList = Arrays.asList(labels.split(";"));
+            if (labelList.size() > maxDetectNum) {
+                labelList = labelList.subList(0, maxDetectNum);
+            }
+            // 遍历 JSON 数组
+            for (JsonNode WhiteList : whiteListJsonArray) {
+                String name = WhiteList.get("name").asText();
+                String pojectid = WhiteList.get("pojectid").asText();
+                if (labelList.contains(name)) {
+
+                    Vulnerability vulnerability = new Vulnerability();
+                    vulnerability.setDescription(vulnerabilityReport.getDescription());
+                    vulnerability.setIsAccept(0);
+                    vulnerability.setIsDelete(0);
+                    // 使用漏洞名称而不是依赖库名称
+                    vulnerability.setName(vulnerabilityReport.getVulnerabilityName());
+                    vulnerability.setRiskLevel(vulnerabilityReport.getRiskLevel());
+                    vulnerability.setTime(vulnerabilityReport.getDisclosureTime());
+                    vulnerability.setLanguage(language);
+                    vulnerability.setRef(vulnerabilityReport.getCveId());
+                    vulnerabilityMapper.insert(vulnerability);
+
+
+                    VulnerabilityReportVulnerability vulnerabilityReportVulnerability = new VulnerabilityReportVulnerability();
+                    vulnerabilityReportVulnerability.setVulnerabilityId(vulnerability.getId());
+                    vulnerabilityReportVulnerability.setVulnerabilityReportId(vulnerabilityReport.getId());
+                    vulnerabilityReportVulnerability.setIsDelete(0);
+                    vulnerabilityReportVulnerabilityMapper.insert(vulnerabilityReportVulnerability);
+
+
+                    ProjectVulnerability projectVulnerability = new ProjectVulnerability();
+                    projectVulnerability.setVulnerabilityId(vulnerability.getId());
+                    projectVulnerability.setProjectId(Integer.parseInt(pojectid));
+                    projectVulnerability.setIsDelete(0);
+                    projectVulnerabilityMapper.insert(projectVulnerability);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 一个 CVE 对一个公司、一种语言的检测请求及其响应
+     */
+    private static class DetectCall {
+        private final VulnerabilityReport report;
+        private final Company company;
+        private final String language;
+        private final String whiteList;
+        private CompletableFuture<String> response;
+        /**
+         * 熔断拒绝时建议的重试等待时间
+         */
+        private long retryAfterMillis;
+
+        DetectCall(VulnerabilityReport report, Company company, String language, String whiteList) {
+            this.report = report;
+            this.company = company;
+            this.language = language;
+            this.whiteList = whiteList;
+        }
     }
 
     public static List<VulnerabilityReport> selectDodayvulnerabilities(List<VulnerabilityReport> vulnerabilities) {
@@ -67,6 +67,9 @@ CREATE TABLE IF NOT EXISTS `company`
     `detect_strategy` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci  NULL DEFAULT NULL COMMENT '漏洞检测策略',
     `similarity_threshold` double NOT NULL COMMENT '相似度阈值',
     `max_detect_num` int(11) NOT NULL COMMENT '最大检测次数',
+    `max_upload_entries` bigint NULL DEFAULT NULL COMMENT '单次上传解压条目数上限，为空使用默认值',
+    `max_upload_bytes` bigint NULL DEFAULT NULL COMMENT '单次上传解压后总大小上限（字节），为空使用默认值',
+    `max_compression_ratio` double NULL DEFAULT NULL COMMENT '解压压缩比上限，为空使用默认值',
     PRIMARY KEY (`id`)
 )
     ENGINE=InnoDB
@@ -84,6 +87,7 @@ CREATE TABLE IF NOT EXISTS `project`
     `file`  varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL COMMENT '存的是路径',
     `roadmap_file` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL COMMENT '存的是路径' ,
     `risk_threshold` int(11) NOT NULL COMMENT '"0":高风险风险阈值' ,
+    `language_percent` varchar(1024) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL COMMENT '各语言按文件大小的占比（JSON），语言检测时写入' ,
     `isdelete`  int(11) NOT NULL,
     PRIMARY KEY (`id`)
 )
@@ -96,6 +100,7 @@ CREATE TABLE IF NOT EXISTS `white_list`
 (
     `id`  int(11) NOT NULL AUTO_INCREMENT ,
     `file_path`  varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL ,
+    `module_path` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL DEFAULT '' COMMENT '所属模块目录（相对项目根目录），根目录为空串',
     `language` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL  ,
     `description` TEXT CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL ,
     `name` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL ,
@@ -133,4 +138,80 @@ CREATE TABLE IF NOT EXISTS `vulnerability_report_vulnerability`
     AUTO_INCREMENT=1
     ;
 
+CREATE TABLE IF NOT EXISTS `upload_archive`
+(
+    `id`  int(11) NOT NULL AUTO_INCREMENT ,
+    `digest` char(64) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '压缩包SHA-256',
+    `file_path` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '解压目录',
+    `reused_from` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL COMMENT '复用的解压目录',
+    `language` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL ,
+    `size` bigint(20) NOT NULL ,
+    `create_time` datetime NOT NULL ,
+    PRIMARY KEY (`id`),
+    KEY `idx_digest` (`digest`),
+    KEY `idx_file_path` (`file_path`)
+)
+    ENGINE=InnoDB
+    DEFAULT CHARACTER SET=utf8 COLLATE=utf8_general_ci
+    AUTO_INCREMENT=1
+    ;
+
+CREATE TABLE IF NOT EXISTS `project_source`
+(
+    `id`  int(11) NOT NULL AUTO_INCREMENT ,
+    `project_id` int(11) NOT NULL ,
+    `source_type` varchar(32) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '来源类型: git' ,
+    `repo_path` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '本地仓库路径' ,
+    `ref` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '跟踪的分支/标签/提交' ,
+    `last_commit` varchar(64) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '最近一次扫描的提交号' ,
+    `last_scan_time` datetime NULL DEFAULT NULL ,
+    `create_time` datetime NOT NULL ,
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_project_id` (`project_id`)
+)
+    ENGINE=InnoDB
+    DEFAULT CHARACTER SET=utf8 COLLATE=utf8_general_ci
+    AUTO_INCREMENT=1
+    ;
+
+CREATE TABLE IF NOT EXISTS `maven_artifact`
+(
+    `coordinates` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT 'groupId:artifactId:version' ,
+    `dependencies` MEDIUMTEXT CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '有效POM中的直接依赖（JSON）' ,
+    `resolved_time` datetime NOT NULL ,
+    PRIMARY KEY (`coordinates`)
+)
+    ENGINE=InnoDB
+    DEFAULT CHARACTER SET=utf8 COLLATE=utf8_general_ci
+    ;
 
+-- 依赖解析任务队列：各实例以 SELECT ... FOR UPDATE SKIP LOCKED 认领（需要 MySQL 8.0+）
+CREATE TABLE IF NOT EXISTS `scan_job`
+(
+    `id`  int(11) NOT NULL AUTO_INCREMENT ,
+    `file_path` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '项目解压目录' ,
+    `job_type` varchar(16) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL DEFAULT 'parse' COMMENT 'parse：解析指定生态；git_rescan：按Git提交差异增量更新' ,
+    `languages` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '要解析的生态，逗号分隔（git_rescan 任务为空，运行时按差异确定）' ,
+    `status` varchar(16) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT 'queued/running/succeeded/failed' ,
+    `attempts` int(11) NOT NULL DEFAULT 0 COMMENT '已认领次数' ,
+    `max_attempts` int(11) NOT NULL ,
+    `next_run_time` datetime NOT NULL COMMENT '最早可被认领的时间（重试退避）' ,
+    `lease_owner` varchar(128) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL COMMENT '持有租约的实例' ,
+    `lease_expire_time` datetime NULL DEFAULT NULL COMMENT '租约到期时间，心跳续期' ,
+    `heartbeat_time` datetime NULL DEFAULT NULL ,
+    `dependency_count` int(11) NULL DEFAULT NULL COMMENT '解析出的依赖数' ,
+    `last_error` varchar(1024) CHARACTER SET utf8 COLLATE utf8_general_ci NULL DEFAULT NULL ,
+    `active_key` char(64) CHARACTER SET ascii COLLATE ascii_bin NULL DEFAULT NULL COMMENT '排队或运行中时为 SHA2(job_type:languages:file_path)，结束后置空' ,
+    `create_time` datetime NOT NULL ,
+    `update_time` datetime NOT NULL ,
+    `finish_time` datetime NULL DEFAULT NULL ,
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_active_key` (`active_key`),
+    KEY `idx_status_next_run` (`status`, `next_run_time`),
+    KEY `idx_status_lease` (`status`, `lease_expire_time`),
+    KEY `idx_file_path` (`file_path`)
+)
+    ENGINE=InnoDB
+    DEFAULT CHARACTER SET=utf8 COLLATE=utf8_general_ci
+    AUTO_INCREMENT=1
+    ;
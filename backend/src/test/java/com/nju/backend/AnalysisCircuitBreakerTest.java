@@ -0,0 +1,165 @@
+package com.nju.backend;
+
+import com.nju.backend.service.analysis.AnalysisCircuitBreaker;
+import com.nju.backend.service.analysis.AnalysisCircuitBreaker.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分析接口熔断器状态转换测试，时间由测试传入（不需要Spring上下文）
+ */
+public class AnalysisCircuitBreakerTest {
+
+    private static final long FAST = 10_000_000L;
+    private static final long SLOW = 2_000_000_000L;
+
+    /**
+     * 窗口10次、至少4次调用才判断、失败率/慢调用率50%、慢调用1秒、打开5秒、半开试探2次
+     */
+    private AnalysisCircuitBreaker breaker;
+
+    @BeforeEach
+    public void setUp() {
+        breaker = new AnalysisCircuitBreaker(10, 4, 50, 50, 1000, 5000, 2);
+    }
+
+    @Test
+    public void testStaysClosedBelowMinimumCalls() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire(0));
+            assertFalse(breaker.onResult(FAST, true, 0));
+        }
+        assertEquals(State.CLOSED, breaker.getState());
+
+        assertTrue(breaker.tryAcquire(0));
+        assertTrue(breaker.onResult(FAST, true, 0));
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testOpensOnFailureRate() {
+        call(FAST, false, 0);
+        call(FAST, false, 0);
+        call(FAST, true, 0);
+        assertEquals(State.CLOSED, breaker.getState());
+
+        assertTrue(breaker.onResult(FAST, true, 100));
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testOpensOnSlowCallRate() {
+        call(FAST, false, 0);
+        call(FAST, false, 0);
+        call(SLOW, false, 0);
+        assertEquals(State.CLOSED, breaker.getState());
+
+        assertTrue(breaker.onResult(SLOW, false, 0));
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testWindowForgetsOldFailures() {
+        // 第1次失败后窗口被9次成功填满；随后第1次新的失败把最早的失败挤出窗口，4次失败仍不足50%
+        call(FAST, true, 0);
+        for (int i = 0; i < 9; i++) {
+            call(FAST, false, 0);
+        }
+        for (int i = 0; i < 4; i++) {
+            call(FAST, true, 0);
+        }
+        assertEquals(State.CLOSED, breaker.getState());
+
+        // 窗口中已有4次失败，再失败1次达到 5/10
+        assertTrue(breaker.onResult(FAST, true, 0));
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testOpenRejectsUntilOpenMillisElapse() {
+        trip(1000);
+
+        assertFalse(breaker.tryAcquire(1000));
+        assertEquals(5000, breaker.getRemainingOpenMillis(1000));
+        assertFalse(breaker.tryAcquire(5999));
+        assertEquals(1, breaker.getRemainingOpenMillis(5999));
+
+        assertTrue(breaker.tryAcquire(6000));
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertEquals(0, breaker.getRemainingOpenMillis(6000));
+    }
+
+    @Test
+    public void testResultsOfCallsPermittedBeforeOpeningAreIgnored() {
+        trip(0);
+
+        assertFalse(breaker.onResult(FAST, true, 10));
+        assertEquals(5000, breaker.getRemainingOpenMillis(0));
+    }
+
+    @Test
+    public void testHalfOpenClosesAfterAllTrialCallsSucceed() {
+        trip(0);
+
+        assertTrue(breaker.tryAcquire(5000));
+        assertTrue(breaker.tryAcquire(5000));
+        assertFalse(breaker.tryAcquire(5000));
+        assertFalse(breaker.onResult(FAST, false, 5100));
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.onResult(FAST, false, 5200));
+        assertEquals(State.CLOSED, breaker.getState());
+
+        // 恢复后重新统计，打开前的失败不再计入
+        call(FAST, true, 5300);
+        call(FAST, false, 5300);
+        call(FAST, false, 5300);
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenReopensOnFailure() {
+        trip(0);
+
+        assertTrue(breaker.tryAcquire(5000));
+        assertTrue(breaker.onResult(FAST, true, 5500));
+        assertEquals(State.OPEN, breaker.getState());
+        assertEquals(5000, breaker.getRemainingOpenMillis(5500));
+        assertFalse(breaker.tryAcquire(10000));
+    }
+
+    @Test
+    public void testHalfOpenReopensOnSlowCall() {
+        trip(0);
+
+        assertTrue(breaker.tryAcquire(5000));
+        assertTrue(breaker.onResult(SLOW, false, 7000));
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testCancelledTrialCallReleasesPermit() {
+        trip(0);
+
+        assertTrue(breaker.tryAcquire(5000));
+        assertTrue(breaker.tryAcquire(5000));
+        breaker.onCancelled();
+        assertTrue(breaker.tryAcquire(5000));
+        assertFalse(breaker.tryAcquire(5000));
+    }
+
+    private void call(long elapsedNanos, boolean failed, long now) {
+        assertTrue(breaker.tryAcquire(now));
+        breaker.onResult(elapsedNanos, failed, now);
+    }
+
+    private void trip(long now) {
+        for (int i = 0; i < 4; i++) {
+            call(FAST, true, now);
+        }
+        assertEquals(State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,132 @@
+package com.nju.backend;
+
+import com.nju.backend.service.project.util.ChunkedUploadSession;
+import com.nju.backend.service.project.util.ContentAddressedStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分片上传会话测试：重叠分片、校验失败的分片、从会话信息文件恢复（不需要Spring上下文）
+ */
+public class ChunkedUploadSessionTest {
+
+    private static final long MAX_CHUNK = 1 << 20;
+
+    private Path workDir;
+    private byte[] content;
+    private ChunkedUploadSession session;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("chunked-upload");
+        content = new byte[1000];
+        new Random(42).nextBytes(content);
+        session = new ChunkedUploadSession("upload-1", "app.zip", content.length, partFile());
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        session.closeChannel();
+        FileSystemUtils.deleteRecursively(workDir);
+    }
+
+    @Test
+    public void testOutOfOrderChunksProduceArchiveDigest() throws IOException {
+        write(600, 400);
+        write(0, 300);
+        write(300, 300);
+
+        assertTrue(session.isComplete());
+        assertEquals(sha256(content, 0, content.length), session.getArchiveDigest());
+        assertArrayEquals(content, Files.readAllBytes(partFile().toPath()));
+    }
+
+    @Test
+    public void testPartiallyOverlappingChunkDoesNotRewriteReceivedBytes() throws IOException {
+        write(0, 500);
+        // 分片 [400, 800) 与已收到的 [0, 500) 重叠且重叠部分被篡改：只写入 [500, 800)，已计入摘要的字节不被覆盖
+        byte[] tampered = Arrays.copyOf(content, content.length);
+        tampered[450] ^= 0x7F;
+        assertThrows(IllegalArgumentException.class, () -> session.writeChunk(400,
+                new ByteArrayInputStream(tampered, 400, 400), sha256(content, 400, 400), MAX_CHUNK));
+        assertEquals(content[450], readPart()[450]);
+
+        write(400, 600);
+        assertTrue(session.isComplete());
+        assertEquals(sha256(content, 0, content.length), session.getArchiveDigest());
+        assertArrayEquals(content, readPart());
+    }
+
+    @Test
+    public void testFailedChunkIsNotRecorded() throws IOException {
+        byte[] corrupted = Arrays.copyOfRange(content, 0, 200);
+        corrupted[10] ^= 1;
+
+        assertThrows(IllegalArgumentException.class, () -> session.writeChunk(0,
+                new ByteArrayInputStream(corrupted), sha256(content, 0, 200), MAX_CHUNK));
+        assertEquals(0, session.getReceivedBytes());
+
+        write(0, 1000);
+        assertEquals(sha256(content, 0, content.length), session.getArchiveDigest());
+        assertArrayEquals(content, readPart());
+    }
+
+    @Test
+    public void testRestoreFromMetaFile() throws IOException {
+        write(0, 300);
+        write(700, 300);
+        session.closeChannel();
+
+        session = ChunkedUploadSession.restore("upload-1", partFile());
+
+        assertEquals("app.zip", session.getFileName());
+        assertEquals(600, session.getReceivedBytes());
+        assertEquals(1, session.getMissingRanges().size());
+        assertArrayEquals(new long[]{300, 700}, session.getMissingRanges().get(0));
+        assertFalse(session.isComplete());
+
+        write(300, 400);
+        assertTrue(session.isComplete());
+        assertEquals(sha256(content, 0, content.length), session.getArchiveDigest());
+    }
+
+    private void write(int offset, int length) throws IOException {
+        session.writeChunk(offset, new ByteArrayInputStream(content, offset, length), sha256(content, offset, length), MAX_CHUNK);
+    }
+
+    private File partFile() {
+        return workDir.resolve("upload-1.part").toFile();
+    }
+
+    private byte[] readPart() throws IOException {
+        return Files.readAllBytes(partFile().toPath());
+    }
+
+    private static String sha256(byte[] data, int offset, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data, offset, length);
+            return ContentAddressedStore.toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
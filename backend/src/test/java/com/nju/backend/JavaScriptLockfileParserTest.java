@@ -0,0 +1,196 @@
+package com.nju.backend;
+
+import com.nju.backend.repository.po.WhiteList;
+import com.nju.backend.service.project.util.JavaScriptLockfileParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * npm / yarn / pnpm 锁文件解析测试（不需要Spring上下文）
+ */
+public class JavaScriptLockfileParserTest {
+
+    private final JavaScriptLockfileParser parser = new JavaScriptLockfileParser();
+    private Path workDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("js-lockfile");
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileSystemUtils.deleteRecursively(workDir);
+    }
+
+    @Test
+    public void testPackageLockV2UsesPackagesSection() throws IOException {
+        // v2 同时有 packages 和 dependencies，只按 packages 计数；项目本身和 link 的工作区包跳过
+        List<String> rows = parse("package-lock.json",
+                "{",
+                "  \"name\": \"app\",",
+                "  \"lockfileVersion\": 2,",
+                "  \"packages\": {",
+                "    \"\": {\"name\": \"app\", \"version\": \"1.0.0\", \"dependencies\": {\"lodash\": \"^4.17.0\"}},",
+                "    \"node_modules/lodash\": {\"version\": \"4.17.21\", \"resolved\": \"https://registry.npmjs.org/lodash/-/lodash-4.17.21.tgz\"},",
+                "    \"node_modules/a/node_modules/@scope/b\": {\"version\": \"2.0.1\", \"dev\": true},",
+                "    \"node_modules/local\": {\"resolved\": \"packages/local\", \"link\": true},",
+                "    \"packages/local\": {\"version\": \"0.1.0\"}",
+                "  },",
+                "  \"dependencies\": {",
+                "    \"lodash\": {\"version\": \"4.17.21\"}",
+                "  }",
+                "}");
+
+        assertEquals(Arrays.asList("npm lodash@4.17.21", "npm @scope/b@2.0.1"), rows);
+    }
+
+    @Test
+    public void testPackageLockV1NestedDependencies() throws IOException {
+        List<String> rows = parse("npm-shrinkwrap.json",
+                "{",
+                "  \"lockfileVersion\": 1,",
+                "  \"dependencies\": {",
+                "    \"express\": {",
+                "      \"version\": \"4.17.1\",",
+                "      \"requires\": {\"debug\": \"2.6.9\"},",
+                "      \"dependencies\": {",
+                "        \"debug\": {\"version\": \"2.6.9\"}",
+                "      }",
+                "    },",
+                "    \"mine\": {\"version\": \"file:../mine\"}",
+                "  }",
+                "}");
+
+        assertEquals(Arrays.asList("npm debug@2.6.9", "npm express@4.17.1"), rows);
+    }
+
+    @Test
+    public void testYarnV1Lock() throws IOException {
+        List<String> rows = parse("yarn.lock",
+                "# THIS IS AN AUTOGENERATED FILE. DO NOT EDIT THIS FILE DIRECTLY.",
+                "# yarn lockfile v1",
+                "",
+                "\"@babel/core@^7.0.0\", \"@babel/core@^7.1.0\":",
+                "  version \"7.12.3\"",
+                "  resolved \"https://registry.yarnpkg.com/@babel/core/-/core-7.12.3.tgz\"",
+                "  dependencies:",
+                "    debug \"^4.1.0\"",
+                "",
+                "debug@^4.1.0:",
+                "  version \"4.3.1\"");
+
+        assertEquals(Arrays.asList("yarn @babel/core@7.12.3", "yarn debug@4.3.1"), rows);
+    }
+
+    @Test
+    public void testYarnBerryLock() throws IOException {
+        List<String> rows = parse("yarn.lock",
+                "__metadata:",
+                "  version: 6",
+                "  cacheKey: 8",
+                "",
+                "\"@babel/core@npm:^7.0.0, @babel/core@npm:^7.1.0\":",
+                "  version: 7.12.3",
+                "  resolution: \"@babel/core@npm:7.12.3\"",
+                "",
+                "\"app@workspace:.\":",
+                "  version: 0.0.0-use.local",
+                "  resolution: \"app@workspace:.\"");
+
+        assertEquals(Arrays.asList("yarn @babel/core@7.12.3"), rows);
+    }
+
+    @Test
+    public void testPnpmV5Lock() throws IOException {
+        List<String> rows = parse("pnpm-lock.yaml",
+                "lockfileVersion: 5.4",
+                "",
+                "specifiers:",
+                "  react: ^17.0.2",
+                "",
+                "packages:",
+                "",
+                "  /@babel/core/7.12.3:",
+                "    resolution: {integrity: sha512-abc}",
+                "    dependencies:",
+                "      debug: 4.3.1",
+                "",
+                "  /react-dom/17.0.2_react@17.0.2:",
+                "    resolution: {integrity: sha512-def}");
+
+        assertEquals(Arrays.asList("pnpm @babel/core@7.12.3", "pnpm react-dom@17.0.2"), rows);
+    }
+
+    @Test
+    public void testPnpmV6AndV9Keys() throws IOException {
+        List<String> v6 = parse("pnpm-lock.yaml",
+                "lockfileVersion: '6.0'",
+                "",
+                "packages:",
+                "",
+                "  /@babel/core@7.12.3:",
+                "    resolution: {integrity: sha512-abc}",
+                "",
+                "  /react-dom@17.0.2(react@17.0.2):",
+                "    resolution: {integrity: sha512-def}");
+        assertEquals(Arrays.asList("pnpm @babel/core@7.12.3", "pnpm react-dom@17.0.2"), v6);
+
+        List<String> v9 = parse("pnpm-lock.yaml",
+                "lockfileVersion: '9.0'",
+                "",
+                "importers:",
+                "",
+                "  .:",
+                "    dependencies:",
+                "      react:",
+                "        specifier: ^17.0.2",
+                "        version: 17.0.2",
+                "",
+                "packages:",
+                "",
+                "  '@babel/core@7.12.3':",
+                "    resolution: {integrity: sha512-abc}",
+                "",
+                "  react@17.0.2:",
+                "    resolution: {integrity: sha512-def}",
+                "",
+                "snapshots:",
+                "",
+                "  react@17.0.2: {}");
+        assertEquals(Arrays.asList("pnpm @babel/core@7.12.3", "pnpm react@17.0.2"), v9);
+    }
+
+    @Test
+    public void testUnsupportedFileName() throws IOException {
+        Path file = write("bun.lockb", "");
+
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(file, row -> { }));
+    }
+
+    /**
+     * 解析结果按 "包管理器 name@version" 返回，另外核对 description 由名称和版本组成
+     */
+    private List<String> parse(String fileName, String... lines) throws IOException {
+        List<WhiteList> rows = LockfileFixtures.parseRows(parser, workDir, fileName, lines);
+        for (WhiteList row : rows) {
+            assertEquals(row.getName() + "@" + row.getComponentVersion(), row.getDescription());
+        }
+        return LockfileFixtures.describe(rows);
+    }
+
+    private Path write(String fileName, String... lines) throws IOException {
+        return LockfileFixtures.write(workDir, fileName, lines);
+    }
+}
@@ -0,0 +1,74 @@
+package com.nju.backend;
+
+import com.nju.backend.service.project.util.LanguageDetector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 表驱动语言检测测试（不需要Spring上下文）
+ */
+public class LanguageDetectorTest {
+
+    @Test
+    public void testMakefileWithoutCSourcesIsNotCEcosystem() {
+        LanguageDetector detector = new LanguageDetector();
+        detector.record("Makefile", 300);
+        detector.record("app/main.py", 1000);
+
+        assertEquals(Collections.emptyList(), detector.ecosystems());
+        assertEquals("python", detector.primaryLanguage());
+    }
+
+    @Test
+    public void testMakefileWithCppSourcesIsCEcosystem() {
+        LanguageDetector detector = new LanguageDetector();
+        detector.record("CMakeLists.txt", 300);
+        detector.record("src/main.cpp", 2000);
+        detector.record("requirements-dev.txt", 50);
+        detector.record("scripts/tool.py", 100);
+
+        assertEquals(Arrays.asList("c", "python"), detector.ecosystems());
+        assertEquals("cpp", detector.primaryLanguage());
+    }
+
+    @Test
+    public void testManifestsShareDependencyManifestsTable() {
+        LanguageDetector detector = new LanguageDetector();
+        detector.record("web/pnpm-lock.yaml", 100);
+        detector.record("requirements/prod.txt", 100);
+        detector.record("gradle.lockfile", 100);
+        detector.record("app.gemspec", 100);
+
+        // .gemspec 同时计为 Ruby 源码，按源码字节数排在最前
+        assertEquals(Arrays.asList("ruby", "java", "javascript", "python"), detector.ecosystems());
+    }
+
+    @Test
+    public void testLanguagePercentByFileSize() {
+        LanguageDetector detector = new LanguageDetector();
+        detector.record("pom.xml", 100);
+        detector.record("src/main/java/App.java", 600);
+        detector.record("src/main/webapp/app.ts", 200);
+        detector.record("target/classes/App.class", 5000);
+        detector.record("node_modules/lib/index.js", 9000);
+        detector.record("docs/", 0);
+
+        Map<String, Double> percent = detector.languagePercent();
+
+        assertEquals(3, percent.size());
+        assertEquals(66.67, percent.get("Java"), 0.01);
+        assertEquals(22.22, percent.get("TypeScript"), 0.01);
+        assertEquals(11.11, percent.get("Other"), 0.01);
+    }
+
+    @Test
+    public void testLanguagePercentEmptyWithoutFiles() {
+        assertTrue(new LanguageDetector().languagePercent().isEmpty());
+    }
+}
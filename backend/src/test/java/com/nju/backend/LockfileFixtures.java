@@ -0,0 +1,54 @@
+package com.nju.backend;
+
+import com.nju.backend.repository.po.WhiteList;
+import com.nju.backend.service.project.util.ManifestParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 锁文件解析测试共用的写文件、解析和结果描述方法
+ */
+final class LockfileFixtures {
+
+    private LockfileFixtures() {
+    }
+
+    /**
+     * 把内容写入 dir 下的清单文件后解析，同时核对返回的数量和语言
+     */
+    static List<WhiteList> parseRows(ManifestParser parser, Path dir, String fileName, String... lines) throws IOException {
+        List<WhiteList> rows = new ArrayList<>();
+        int count = parser.parse(write(dir, fileName, lines), rows::add);
+        assertEquals(rows.size(), count);
+        for (WhiteList row : rows) {
+            assertEquals(parser.language(), row.getLanguage());
+        }
+        return rows;
+    }
+
+    /**
+     * 解析结果按 "包管理器 name@version" 返回
+     */
+    static List<String> parse(ManifestParser parser, Path dir, String fileName, String... lines) throws IOException {
+        return describe(parseRows(parser, dir, fileName, lines));
+    }
+
+    static List<String> describe(List<WhiteList> rows) {
+        List<String> described = new ArrayList<>();
+        for (WhiteList row : rows) {
+            described.add(row.getPackageManager() + " " + row.getDescription());
+        }
+        return described;
+    }
+
+    static Path write(Path dir, String fileName, String... lines) throws IOException {
+        return Files.write(dir.resolve(fileName), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,190 @@
+package com.nju.backend;
+
+import com.nju.backend.repository.po.WhiteList;
+import com.nju.backend.service.project.util.CargoLockParser;
+import com.nju.backend.service.project.util.ComposerLockParser;
+import com.nju.backend.service.project.util.GemfileLockParser;
+import com.nju.backend.service.project.util.GoModuleParser;
+import com.nju.backend.service.project.util.ManifestParser;
+import com.nju.backend.service.project.util.RebarLockParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Go / Rust / PHP / Ruby / Erlang 锁文件解析测试（不需要Spring上下文）
+ */
+public class LockfileParsersTest {
+
+    private Path workDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("lockfiles");
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileSystemUtils.deleteRecursively(workDir);
+    }
+
+    @Test
+    public void testGoModRequiresAndReplaces() throws IOException {
+        List<String> rows = parse(new GoModuleParser(), "go.mod",
+                "module example.com/app",
+                "",
+                "go 1.17",
+                "",
+                "require github.com/pkg/errors v0.9.1",
+                "",
+                "require (",
+                "\tgolang.org/x/text v0.3.7 // indirect",
+                "\tgithub.com/old/lib v1.0.0",
+                "\texample.com/local v0.0.0",
+                ")",
+                "",
+                "replace github.com/old/lib v1.0.0 => github.com/new/lib v1.2.0",
+                "",
+                "replace example.com/local => ../local");
+
+        assertEquals(Arrays.asList(
+                "go mod github.com/pkg/errors@v0.9.1",
+                "go mod golang.org/x/text@v0.3.7",
+                "go mod github.com/new/lib@v1.2.0"), rows);
+    }
+
+    @Test
+    public void testGoSumSkipsGoModOnlyEntries() throws IOException {
+        List<String> rows = parse(new GoModuleParser(), "go.sum",
+                "github.com/pkg/errors v0.9.1 h1:FEBLx1zS214owpjy7qsBeixbURkuhQAwrK5UwLGTwt4=",
+                "github.com/pkg/errors v0.9.1/go.mod h1:bwawxfHBFNV+L2hUp1rHADufV3IMtnDRdf1r5NINEl0=",
+                "golang.org/x/text v0.3.0/go.mod h1:NqM8EUOU14njkJ3fqMW+pc6Ldnwhi/IjpwHt7yyuwOQ=",
+                "golang.org/x/text v0.3.7 h1:olpwvP2KacW1ZWvsR7uQhoyTYvKAupfQrRGBFM352Gk=");
+
+        assertEquals(Arrays.asList("go mod github.com/pkg/errors@v0.9.1", "go mod golang.org/x/text@v0.3.7"), rows);
+    }
+
+    @Test
+    public void testCargoLockSkipsWorkspaceMembers() throws IOException {
+        List<String> rows = parse(new CargoLockParser(), "Cargo.lock",
+                "# This file is automatically @generated by Cargo.",
+                "version = 3",
+                "",
+                "[[package]]",
+                "name = \"app\"",
+                "version = \"0.1.0\"",
+                "dependencies = [",
+                " \"serde\",",
+                "]",
+                "",
+                "[[package]]",
+                "name = \"serde\"",
+                "version = \"1.0.136\"",
+                "source = \"registry+https://github.com/rust-lang/crates.io-index\"",
+                "checksum = \"ce31e24b01e1e524df96f1c2fdd054405f8d7376249a5110886fb4b658484789\"",
+                "",
+                "[[package]]",
+                "name = \"forked\"",
+                "version = \"0.2.0\"",
+                "source = \"git+https://github.com/example/forked#abc123\"");
+
+        assertEquals(Arrays.asList("cargo serde@1.0.136", "cargo forked@0.2.0"), rows);
+    }
+
+    @Test
+    public void testComposerLockReadsBothPackageLists() throws IOException {
+        List<String> rows = parse(new ComposerLockParser(), "composer.lock",
+                "{",
+                "  \"_readme\": [\"This file locks the dependencies of your project to a known state\"],",
+                "  \"content-hash\": \"abc\",",
+                "  \"packages\": [",
+                "    {\"name\": \"monolog/monolog\", \"version\": \"2.3.5\", \"dist\": {\"type\": \"zip\"}, \"require\": {\"php\": \">=7.2\"}},",
+                "    {\"name\": \"symfony/console\", \"version\": \"v5.4.2\"}",
+                "  ],",
+                "  \"packages-dev\": [",
+                "    {\"name\": \"acme/tools\", \"version\": \"dev-main\"}",
+                "  ]",
+                "}");
+
+        assertEquals(Arrays.asList(
+                "composer monolog/monolog@2.3.5",
+                "composer symfony/console@5.4.2",
+                "composer acme/tools@dev-main"), rows);
+    }
+
+    @Test
+    public void testGemfileLockSpecs() throws IOException {
+        List<String> rows = parse(new GemfileLockParser(), "Gemfile.lock",
+                "GIT",
+                "  remote: https://github.com/example/forked.git",
+                "  revision: abc123",
+                "  specs:",
+                "    forked (0.3.0)",
+                "",
+                "PATH",
+                "  remote: .",
+                "  specs:",
+                "    app (1.0.0)",
+                "",
+                "GEM",
+                "  remote: https://rubygems.org/",
+                "  specs:",
+                "    nokogiri (1.13.3-x86_64-linux)",
+                "      racc (~> 1.4)",
+                "    nokogiri (1.13.3-arm64-darwin)",
+                "      racc (~> 1.4)",
+                "    racc (1.6.0)",
+                "",
+                "PLATFORMS",
+                "  x86_64-linux",
+                "",
+                "DEPENDENCIES",
+                "  nokogiri",
+                "",
+                "BUNDLED WITH",
+                "   2.3.7");
+
+        assertEquals(Arrays.asList("gems forked@0.3.0", "gems nokogiri@1.13.3", "gems racc@1.6.0"), rows);
+    }
+
+    @Test
+    public void testRebarLockHexAndGitDependencies() throws IOException {
+        List<WhiteList> rows = new ArrayList<>();
+        int count = new RebarLockParser().parse(write("rebar.lock",
+                "{\"1.2.0\",",
+                "[{<<\"cowboy\">>,{pkg,<<\"cowboy\">>,<<\"2.9.0\">>},0},",
+                " {<<\"mylib\">>,",
+                "  {git,\"https://github.com/example/mylib.git\",",
+                "       {ref,\"abc123\"}},",
+                "  0},",
+                " {<<\"ranch\">>,{pkg,<<\"ranch\">>,<<\"1.8.0\">>},1}]}.",
+                "[",
+                "{pkg_hash,[",
+                " {<<\"cowboy\">>, <<\"2A3AFDC7C2BF9DB6A4C6D53D5B0E4C3E\">>},",
+                " {<<\"ranch\">>, <<\"8C7A100A139FD57F17327B6413E4167A\">>}]}",
+                "]."), rows::add);
+
+        assertEquals(3, count);
+        assertEquals(Arrays.asList("rebar cowboy@2.9.0", "rebar mylib", "rebar ranch@1.8.0"), LockfileFixtures.describe(rows));
+        assertNull(rows.get(1).getComponentVersion());
+    }
+
+    private List<String> parse(ManifestParser parser, String fileName, String... lines) throws IOException {
+        return LockfileFixtures.parse(parser, workDir, fileName, lines);
+    }
+
+    private Path write(String fileName, String... lines) throws IOException {
+        return LockfileFixtures.write(workDir, fileName, lines);
+    }
+}
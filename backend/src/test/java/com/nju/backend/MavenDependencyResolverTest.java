@@ -0,0 +1,200 @@
+package com.nju.backend;
+
+import com.nju.backend.repository.mapper.MavenArtifactMapper;
+import com.nju.backend.repository.po.WhiteList;
+import com.nju.backend.service.project.util.MavenDependencyResolver;
+import com.nju.backend.service.project.util.MavenProjectParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Maven 传递依赖解析测试：本地仓库为临时目录中手工编写的 pom，maven_artifact 表用 Mockito 代替（不需要Spring上下文）
+ */
+public class MavenDependencyResolverTest {
+
+    private Path workDir;
+    private Path projectDir;
+    private Path repository;
+    private MavenDependencyResolver resolver;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("maven-resolver");
+        projectDir = Files.createDirectories(workDir.resolve("project"));
+        repository = Files.createDirectories(workDir.resolve("repository"));
+
+        MavenProjectParser parser = new MavenProjectParser();
+        ReflectionTestUtils.setField(parser, "localRepository", repository.toString());
+        resolver = new MavenDependencyResolver();
+        ReflectionTestUtils.setField(resolver, "mavenProjectParser", parser);
+        ReflectionTestUtils.setField(resolver, "mavenArtifactMapper", Mockito.mock(MavenArtifactMapper.class));
+        ReflectionTestUtils.setField(resolver, "transitive", true);
+        ReflectionTestUtils.setField(resolver, "maxDepth", 20);
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileSystemUtils.deleteRecursively(workDir);
+    }
+
+    @Test
+    public void testNearestVersionWins() throws IOException {
+        // app -> a -> c:1.0（第2层）；app -> b -> d -> c:2.0（第3层）
+        // app -> a -> e:1.0 与 app -> b -> e:2.0 同在第2层，先声明的 a 胜出
+        artifact("a", "1.0", dependency("c", "1.0", null) + dependency("e", "1.0", null));
+        artifact("b", "1.0", dependency("d", "1.0", null) + dependency("e", "2.0", null));
+        artifact("d", "1.0", dependency("c", "2.0", null));
+        artifact("c", "1.0", "");
+        artifact("c", "2.0", "");
+        artifact("e", "1.0", "");
+        artifact("e", "2.0", "");
+        project(dependency("a", "1.0", null) + dependency("b", "1.0", null), "");
+
+        Map<String, String> versions = resolve();
+
+        assertEquals("1.0", versions.get("c"));
+        assertEquals("1.0", versions.get("e"));
+        assertEquals(5, versions.size());
+    }
+
+    @Test
+    public void testDependencyManagementOverridesTransitiveVersion() throws IOException {
+        artifact("a", "1.0", dependency("c", "1.0", null));
+        artifact("c", "1.0", "");
+        artifact("c", "3.0", "");
+        project(dependency("a", "1.0", null), dependency("c", "3.0", null));
+
+        assertEquals("3.0", resolve().get("c"));
+    }
+
+    @Test
+    public void testTestProvidedAndOptionalDependenciesAreNotTransitive() throws IOException {
+        artifact("a", "1.0", dependency("junit-like", "1.0", "test")
+                + dependency("servlet-like", "1.0", "provided")
+                + "<dependency><groupId>org.example</groupId><artifactId>optional-lib</artifactId><version>1.0</version><optional>true</optional></dependency>"
+                + dependency("runtime-lib", "1.0", "runtime"));
+        artifact("runtime-lib", "1.0", "");
+        project(dependency("a", "1.0", null), "");
+
+        Map<String, String> versions = resolve();
+
+        assertFalse(versions.containsKey("junit-like"));
+        assertFalse(versions.containsKey("servlet-like"));
+        assertFalse(versions.containsKey("optional-lib"));
+        assertEquals("1.0", versions.get("runtime-lib"));
+    }
+
+    @Test
+    public void testScopeMediation() {
+        assertEquals("compile", mediateScope("compile", null));
+        assertEquals("runtime", mediateScope("compile", "runtime"));
+        assertEquals("runtime", mediateScope("runtime", "compile"));
+        assertEquals("test", mediateScope("test", "compile"));
+        assertEquals("provided", mediateScope("provided", "runtime"));
+    }
+
+    @Test
+    public void testExclusionsApplyToWholeSubtree() throws IOException {
+        // app 排除 c：a 的直接依赖 c 和经 b 间接引入的 c 都不出现，b 本身保留
+        artifact("a", "1.0", dependency("c", "1.0", null) + dependency("b", "1.0", null));
+        artifact("b", "1.0", dependency("c", "2.0", null));
+        artifact("c", "1.0", "");
+        artifact("c", "2.0", "");
+        project("<dependency><groupId>org.example</groupId><artifactId>a</artifactId><version>1.0</version>"
+                + "<exclusions><exclusion><groupId>org.example</groupId><artifactId>c</artifactId></exclusion></exclusions>"
+                + "</dependency>", "");
+
+        Map<String, String> versions = resolve();
+
+        assertFalse(versions.containsKey("c"));
+        assertEquals("1.0", versions.get("b"));
+    }
+
+    @Test
+    public void testModuleScopeOnlyResolvesItsOwnPom() throws IOException {
+        artifact("a", "1.0", "");
+        artifact("b", "1.0", "");
+        project(dependency("a", "1.0", null), "");
+        Path child = Files.createDirectories(projectDir.resolve("child"));
+        write(child.resolve("pom.xml"), pom("child", "1.0", dependency("b", "1.0", null), ""));
+
+        // 按模块解析时根模块只解析根目录的 pom，子模块的 pom 由子模块自己解析
+        assertEquals(Collections.singletonList(":a"), describe(resolver.resolve(projectDir, "", false)));
+        assertEquals(Collections.singletonList("child:b"), describe(resolver.resolve(projectDir, "child", false)));
+        // 模块数超过上限、按整个项目解析时包含全部子目录
+        assertEquals(Arrays.asList(":a", "child:b"), describe(resolver.resolve(projectDir, "", true)));
+    }
+
+    private static List<String> describe(List<WhiteList> rows) {
+        List<String> described = new ArrayList<>();
+        for (WhiteList row : rows) {
+            described.add(row.getModulePath() + ":" + row.getName());
+        }
+        Collections.sort(described);
+        return described;
+    }
+
+    /**
+     * artifactId -> 解析出的版本
+     */
+    private Map<String, String> resolve() throws IOException {
+        List<WhiteList> rows = resolver.resolve(projectDir, "");
+        Map<String, String> versions = new TreeMap<>();
+        for (WhiteList row : rows) {
+            versions.put(row.getName(), row.getComponentVersion());
+        }
+        return versions;
+    }
+
+    private static String mediateScope(String parentScope, String childScope) {
+        return ReflectionTestUtils.invokeMethod(MavenDependencyResolver.class, "mediateScope", parentScope, childScope);
+    }
+
+    private static String dependency(String artifactId, String version, String scope) {
+        return "<dependency><groupId>org.example</groupId><artifactId>" + artifactId + "</artifactId>"
+                + "<version>" + version + "</version>"
+                + (scope == null ? "" : "<scope>" + scope + "</scope>")
+                + "</dependency>";
+    }
+
+    private void project(String dependencies, String managed) throws IOException {
+        write(projectDir.resolve("pom.xml"), pom("app", "1.0", dependencies,
+                managed.isEmpty() ? "" : "<dependencyManagement><dependencies>" + managed + "</dependencies></dependencyManagement>"));
+    }
+
+    private void artifact(String artifactId, String version, String dependencies) throws IOException {
+        Path dir = Files.createDirectories(repository.resolve("org/example").resolve(artifactId).resolve(version));
+        write(dir.resolve(artifactId + "-" + version + ".pom"), pom(artifactId, version, dependencies, ""));
+    }
+
+    private static String pom(String artifactId, String version, String dependencies, String extra) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<project><modelVersion>4.0.0</modelVersion>"
+                + "<groupId>org.example</groupId><artifactId>" + artifactId + "</artifactId><version>" + version + "</version>"
+                + extra
+                + "<dependencies>" + dependencies + "</dependencies>"
+                + "</project>\n";
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
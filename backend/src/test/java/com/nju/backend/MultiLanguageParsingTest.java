@@ -11,13 +11,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * 多语言项目依赖解析功能测试
  *
  * 测试内容：
- * 1. 各语言的异步解析方法
+ * 1. 各语言的依赖解析
  * 2. 依赖数据是否正确写入white_list表
  * 3. Flask服务连接测试
  */
@@ -80,10 +82,7 @@ public class MultiLanguageParsingTest {
         cleanupTestData(TEST_JAVA_PROJECT_PATH, "java");
 
         // 执行解析
-        projectService.asyncParseJavaProject(TEST_JAVA_PROJECT_PATH);
-
-        // 等待异步任务完成
-        waitForAsyncTask(5000);
+        parseEcosystem(TEST_JAVA_PROJECT_PATH, "java");
 
         // 验证结果
         List<WhiteList> dependencies = queryDependencies(TEST_JAVA_PROJECT_PATH, "java");
@@ -112,8 +111,7 @@ public class MultiLanguageParsingTest {
 
         cleanupTestData(TEST_PYTHON_PROJECT_PATH, "python");
 
-        projectService.asyncParsePythonProject(TEST_PYTHON_PROJECT_PATH);
-        waitForAsyncTask(5000);
+        parseEcosystem(TEST_PYTHON_PROJECT_PATH, "python");
 
         List<WhiteList> dependencies = queryDependencies(TEST_PYTHON_PROJECT_PATH, "python");
 
@@ -141,8 +139,7 @@ public class MultiLanguageParsingTest {
 
         cleanupTestData(TEST_GO_PROJECT_PATH, "go");
 
-        projectService.asyncParseGoProject(TEST_GO_PROJECT_PATH);
-        waitForAsyncTask(5000);
+        parseEcosystem(TEST_GO_PROJECT_PATH, "go");
 
         List<WhiteList> dependencies = queryDependencies(TEST_GO_PROJECT_PATH, "go");
 
@@ -171,8 +168,7 @@ public class MultiLanguageParsingTest {
         String testPath = "C:/test/rust-project";
         cleanupTestData(testPath, "rust");
 
-        projectService.asyncParseRustProject(testPath);
-        waitForAsyncTask(5000);
+        parseEcosystem(testPath, "rust");
 
         List<WhiteList> dependencies = queryDependencies(testPath, "rust");
 
@@ -194,8 +190,7 @@ public class MultiLanguageParsingTest {
         String testPath = "C:/test/javascript-project";
         cleanupTestData(testPath, "javascript");
 
-        projectService.asyncParseJavaScriptProject(testPath);
-        waitForAsyncTask(5000);
+        parseEcosystem(testPath, "javascript");
 
         List<WhiteList> dependencies = queryDependencies(testPath, "javascript");
 
@@ -217,8 +212,7 @@ public class MultiLanguageParsingTest {
         String testPath = "C:/test/php-project";
         cleanupTestData(testPath, "php");
 
-        projectService.asyncParsePhpProject(testPath);
-        waitForAsyncTask(5000);
+        parseEcosystem(testPath, "php");
 
         List<WhiteList> dependencies = queryDependencies(testPath, "php");
 
@@ -240,8 +234,7 @@ public class MultiLanguageParsingTest {
         String testPath = "C:/test/ruby-project";
         cleanupTestData(testPath, "ruby");
 
-        projectService.asyncParseRubyProject(testPath);
-        waitForAsyncTask(5000);
+        parseEcosystem(testPath, "ruby");
 
         List<WhiteList> dependencies = queryDependencies(testPath, "ruby");
 
@@ -263,8 +256,7 @@ public class MultiLanguageParsingTest {
         String testPath = "C:/test/erlang-project";
         cleanupTestData(testPath, "erlang");
 
-        projectService.asyncParseErlangProject(testPath);
-        waitForAsyncTask(5000);
+        parseEcosystem(testPath, "erlang");
 
         List<WhiteList> dependencies = queryDependencies(testPath, "erlang");
 
@@ -367,14 +359,14 @@ public class MultiLanguageParsingTest {
     }
 
     /**
-     * 等待异步任务完成
+     * 同步解析并写入white_list（与解析任务队列的执行器走同一路径）
      */
-    private void waitForAsyncTask(long milliseconds) {
+    private void parseEcosystem(String filePath, String language) {
         try {
-            System.out.println("等待异步任务完成...");
-            Thread.sleep(milliseconds);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            int parsed = projectService.parseEcosystems(filePath, Collections.singletonList(language));
+            System.out.println("解析出依赖数量: " + parsed);
+        } catch (IOException e) {
+            System.err.println("✗ 解析失败: " + e.getMessage());
         }
     }
 
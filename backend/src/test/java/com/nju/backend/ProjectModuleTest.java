@@ -0,0 +1,70 @@
+package com.nju.backend;
+
+import com.nju.backend.service.project.util.ProjectModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 多模块发现测试（不需要Spring上下文）
+ */
+public class ProjectModuleTest {
+
+    private Path projectDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        projectDir = Files.createTempDirectory("project-module");
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileSystemUtils.deleteRecursively(projectDir);
+    }
+
+    @Test
+    public void testRequirementsDirectoryBelongsToParentModule() throws IOException {
+        touch("requirements/prod.txt");
+        touch("requirements/dev/test.txt");
+        touch("services/api/requirements/base.txt");
+        touch("services/api/app.py");
+        touch("web/package.json");
+
+        assertEquals(Arrays.asList("python:/", "python:services/api", "javascript:web"),
+                describe(ProjectModule.discover(projectDir, Arrays.asList("python", "javascript"), 10)));
+    }
+
+    @Test
+    public void testModuleLimitFallsBackToRoot() throws IOException {
+        touch("a/package.json");
+        touch("b/package.json");
+        touch("c/package.json");
+
+        assertEquals(Arrays.asList("javascript:/"),
+                describe(ProjectModule.discover(projectDir, Arrays.asList("javascript"), 2)));
+    }
+
+    private void touch(String relative) throws IOException {
+        Path file = projectDir.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.createFile(file);
+    }
+
+    private static List<String> describe(List<ProjectModule> modules) {
+        List<String> described = new ArrayList<>();
+        for (ProjectModule module : modules) {
+            described.add(module.toString());
+        }
+        return described;
+    }
+}
@@ -0,0 +1,203 @@
+package com.nju.backend;
+
+import com.nju.backend.repository.po.WhiteList;
+import com.nju.backend.service.project.util.PythonManifestParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Python 依赖清单解析测试（不需要Spring上下文）
+ */
+public class PythonManifestParserTest {
+
+    private Path workDir;
+    private Path projectDir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("python-manifest");
+        projectDir = Files.createDirectories(workDir.resolve("project"));
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        FileSystemUtils.deleteRecursively(workDir);
+    }
+
+    @Test
+    public void testRequirementLines() throws IOException {
+        Path requirements = write(projectDir.resolve("requirements.txt"),
+                "# 注释",
+                "Django==3.2.12",
+                "requests[socks] >= 2.8.1, < 3  # 行尾注释",
+                "importlib_metadata==4.8.1 ; python_version < \"3.8\"",
+                "numpy===1.21.0",
+                "flask==2.*",
+                "pkg-with-continuation \\",
+                "    ==1.0.0",
+                "-e git+https://github.com/example/editable.git#egg=Editable_Pkg",
+                "mylib @ https://example.com/mylib-1.0.tar.gz",
+                "./local/package",
+                "--index-url https://pypi.example.com/simple");
+
+        assertEquals(Arrays.asList(
+                "django==3.2.12",
+                "requests>=2.8.1,<3",
+                "importlib-metadata==4.8.1",
+                "numpy==1.21.0",
+                "flask==2.*",
+                "pkg-with-continuation==1.0.0",
+                "mylib"), describe(PythonManifestParser.parseRequirements(requirements, projectDir)));
+    }
+
+    @Test
+    public void testIncludesAndConstraints() throws IOException {
+        write(projectDir.resolve("requirements/base.txt"), "requests", "six==1.16.0");
+        write(projectDir.resolve("constraints.txt"), "requests==2.28.1", "urllib3==1.26.9");
+        Path requirements = write(projectDir.resolve("requirements/prod.txt"),
+                "-r base.txt",
+                "--constraint=../constraints.txt",
+                "gunicorn");
+
+        assertEquals(Arrays.asList("requests==2.28.1", "six==1.16.0", "gunicorn"),
+                describe(PythonManifestParser.parseRequirements(requirements, projectDir)));
+    }
+
+    @Test
+    public void testIncludesOutsideProjectAreSkipped() throws IOException {
+        Path outside = write(workDir.resolve("secret.txt"), "root:x:0:0:root:/root:/bin/bash");
+        Path requirements = write(projectDir.resolve("requirements.txt"),
+                "-r ../secret.txt",
+                "-r " + outside.toAbsolutePath(),
+                "-c ../../../../../../../../" + outside.toAbsolutePath(),
+                "django==3.2.12");
+
+        assertEquals(Collections.singletonList("django==3.2.12"),
+                describe(PythonManifestParser.parseRequirements(requirements, projectDir)));
+    }
+
+    @Test
+    public void testSymlinkedIncludeOutsideProjectIsSkipped() throws IOException {
+        Path outside = write(workDir.resolve("secret.txt"), "root:x:0:0:root:/root:/bin/bash");
+        try {
+            Files.createSymbolicLink(projectDir.resolve("base.txt"), outside);
+        } catch (UnsupportedOperationException | IOException e) {
+            // 文件系统不支持符号链接
+            return;
+        }
+        Path requirements = write(projectDir.resolve("requirements.txt"), "-r base.txt", "django==3.2.12");
+
+        assertEquals(Collections.singletonList("django==3.2.12"),
+                describe(PythonManifestParser.parseRequirements(requirements, projectDir)));
+    }
+
+    @Test
+    public void testMissingIncludeIsFetchedOnce() throws IOException {
+        Path requirements = write(projectDir.resolve("requirements.txt"), "-c constraints.txt", "-r base.in", "requests");
+        List<Path> fetched = new ArrayList<>();
+
+        List<WhiteList> rows = PythonManifestParser.parseRequirements(requirements, projectDir, include -> {
+            fetched.add(projectDir.relativize(include));
+            // 模拟补全解压：一次写出全部剩余文件
+            if (!Files.exists(projectDir.resolve("base.in"))) {
+                write(projectDir.resolve("constraints.txt"), "requests==2.28.1");
+                write(projectDir.resolve("base.in"), "six==1.16.0");
+            }
+            return true;
+        });
+
+        assertEquals(Collections.singletonList(projectDir.relativize(projectDir.resolve("constraints.txt"))), fetched);
+        assertEquals(Arrays.asList("six==1.16.0", "requests==2.28.1"), describe(rows));
+    }
+
+    @Test
+    public void testPyprojectPep621AndPoetry() throws IOException {
+        Path pyproject = write(projectDir.resolve("pyproject.toml"),
+                "[project]",
+                "name = \"app\"",
+                "dependencies = [",
+                "    \"httpx>=0.23\",  # 注释",
+                "    \"attrs==22.1.0\",",
+                "]",
+                "",
+                "[project.optional-dependencies]",
+                "test = [\"pytest==7.1.2\"]",
+                "",
+                "[tool.poetry.dependencies]",
+                "python = \"^3.8\"",
+                "Requests = \"2.28.1\"",
+                "click = { version = \"^8.0\", optional = true }",
+                "",
+                "[tool.poetry.group.dev.dependencies]",
+                "black = \"==22.6.0\"");
+
+        assertEquals(Arrays.asList(
+                "httpx>=0.23",
+                "attrs==22.1.0",
+                "pytest==7.1.2",
+                "requests==2.28.1",
+                "click^8.0",
+                "black==22.6.0"), describe(PythonManifestParser.parsePyproject(pyproject)));
+    }
+
+    @Test
+    public void testPipfileLock() throws IOException {
+        Path lock = write(projectDir.resolve("Pipfile.lock"),
+                "{",
+                "  \"_meta\": {\"hash\": {\"sha256\": \"abc\"}},",
+                "  \"default\": {\"requests\": {\"version\": \"==2.28.1\"}},",
+                "  \"develop\": {\"pytest\": {\"version\": \"==7.1.2\"}, \"local\": {\"path\": \".\"}}",
+                "}");
+
+        assertEquals(Arrays.asList("requests==2.28.1", "pytest==7.1.2", "local"),
+                describe(PythonManifestParser.parsePipfileLock(lock)));
+    }
+
+    @Test
+    public void testPoetryLock() throws IOException {
+        Path lock = write(projectDir.resolve("poetry.lock"),
+                "[[package]]",
+                "name = \"Requests\"",
+                "version = \"2.28.1\"",
+                "",
+                "[package.dependencies]",
+                "urllib3 = \">=1.21.1,<1.27\"",
+                "",
+                "[[package]]",
+                "name = \"urllib3\"",
+                "version = \"1.26.9\"",
+                "",
+                "[metadata]",
+                "lock-version = \"1.1\"");
+
+        assertEquals(Arrays.asList("requests==2.28.1", "urllib3==1.26.9"),
+                describe(PythonManifestParser.parsePoetryLock(lock)));
+    }
+
+    private static List<String> describe(List<WhiteList> rows) {
+        List<String> described = new ArrayList<>();
+        for (WhiteList row : rows) {
+            assertEquals("python", row.getLanguage());
+            described.add(row.getDescription());
+        }
+        return described;
+    }
+
+    private static Path write(Path file, String... lines) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
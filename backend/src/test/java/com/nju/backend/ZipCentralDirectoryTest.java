@@ -0,0 +1,163 @@
+package com.nju.backend;
+
+import com.nju.backend.service.project.util.ZipCentralDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * ZIP文件名编码检测测试（不需要Spring上下文）
+ */
+public class ZipCentralDirectoryTest {
+
+    private final List<File> zipFiles = new ArrayList<>();
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        for (File zipFile : zipFiles) {
+            Files.deleteIfExists(zipFile.toPath());
+        }
+    }
+
+    @Test
+    public void testGbkNames() throws IOException {
+        File zip = zipWithRawNames(encode("源码/主程序.java", "GBK"), encode("文档/说明.txt", "GBK"), "README.md".getBytes(StandardCharsets.US_ASCII));
+
+        assertEquals(Charset.forName("GBK"), ZipCentralDirectory.read(zip).detectNameCharset());
+    }
+
+    @Test
+    public void testShiftJisNames() throws IOException {
+        // 这些字节也能按 GBK 完整解码（得到生僻汉字），只有按 Shift_JIS 解码才得到假名
+        File zip = zipWithRawNames(encode("ソース/テスト.java", "Shift_JIS"), encode("資料/説明書.txt", "Shift_JIS"));
+
+        assertEquals(Charset.forName("Shift_JIS"), ZipCentralDirectory.read(zip).detectNameCharset());
+    }
+
+    @Test
+    public void testUtf8NamesWithoutFlag() throws IOException {
+        File zip = zipWithRawNames(encode("源码/主程序.java", "UTF-8"), encode("ソース/テスト.java", "UTF-8"));
+
+        assertEquals(StandardCharsets.UTF_8, ZipCentralDirectory.read(zip).detectNameCharset());
+    }
+
+    @Test
+    public void testUtf8FlaggedAndAsciiNamesAreNotScored() throws IOException {
+        File zip = newZipFile();
+        // ZipOutputStream 使用 UTF-8 时为每个条目设置 UTF-8 标志位
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip), StandardCharsets.UTF_8)) {
+            putEntry(out, "源码/主程序.java");
+            putEntry(out, "src/Main.java");
+        }
+
+        assertEquals(StandardCharsets.UTF_8, ZipCentralDirectory.read(zip).detectNameCharset());
+    }
+
+    @Test
+    public void testUndecodableNamesFallBackToIso88591() throws IOException {
+        File zip = zipWithRawNames(new byte[]{(byte) 0x80, (byte) 0xFF, (byte) 0x80, '.', 't', 'x', 't'});
+
+        assertEquals(StandardCharsets.ISO_8859_1, ZipCentralDirectory.read(zip).detectNameCharset());
+    }
+
+    @Test
+    public void testZip64SizesFromExtraField() throws IOException {
+        long large = 5L << 30;
+        ByteBuffer cen = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+        // 两个大小都超过4GB：扩展字段中原始大小在前、压缩后大小在后
+        putZip64Entry(cen, "big.bin", 0xFFFFFFFFL, 0xFFFFFFFFL, large + 1, large);
+        // 只有原始大小超过4GB：扩展字段中只有原始大小
+        putZip64Entry(cen, "sparse.bin", 1000, 0xFFFFFFFFL, large);
+        // 缺少扩展字段：保留占位值
+        putZip64Entry(cen, "broken.bin", 0xFFFFFFFFL, 0xFFFFFFFFL);
+        File zip = zipWithCentralDirectory(cen, 3);
+
+        List<ZipCentralDirectory.RawEntry> entries = ZipCentralDirectory.read(zip).getEntries();
+
+        assertEquals(3, entries.size());
+        assertEquals(large, entries.get(0).getCompressedSize());
+        assertEquals(large + 1, entries.get(0).getUncompressedSize());
+        assertEquals(1000, entries.get(1).getCompressedSize());
+        assertEquals(large, entries.get(1).getUncompressedSize());
+        assertEquals(0xFFFFFFFFL, entries.get(2).getUncompressedSize());
+    }
+
+    private static byte[] encode(String name, String charset) {
+        return name.getBytes(Charset.forName(charset));
+    }
+
+    /**
+     * 按原始字节写入文件名且不设置UTF-8标志位：以 ISO-8859-1 写入时每个字符恰好对应一个字节
+     */
+    private File zipWithRawNames(byte[]... names) throws IOException {
+        File zip = newZipFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip), StandardCharsets.ISO_8859_1)) {
+            for (byte[] name : names) {
+                putEntry(out, new String(name, StandardCharsets.ISO_8859_1));
+            }
+        }
+        return zip;
+    }
+
+    private static void putEntry(ZipOutputStream out, String name) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(name.length());
+        out.closeEntry();
+    }
+
+    /**
+     * 写入一个中央目录文件头，zip64Values 非空时附带 ZIP64 扩展字段（0x0001）
+     */
+    private static void putZip64Entry(ByteBuffer cen, String name, long compressedSize, long uncompressedSize, long... zip64Values) {
+        byte[] rawName = name.getBytes(StandardCharsets.US_ASCII);
+        int extraLen = zip64Values.length == 0 ? 0 : 4 + 8 * zip64Values.length;
+        cen.putInt(0x02014b50);
+        cen.putShort((short) 45).putShort((short) 45).putShort((short) 0).putShort((short) 0);
+        cen.putInt(0).putInt(0);
+        cen.putInt((int) compressedSize).putInt((int) uncompressedSize);
+        cen.putShort((short) rawName.length).putShort((short) extraLen).putShort((short) 0);
+        cen.putShort((short) 0).putShort((short) 0).putInt(0).putInt(0);
+        cen.put(rawName);
+        if (extraLen > 0) {
+            cen.putShort((short) 0x0001).putShort((short) (extraLen - 4));
+            for (long value : zip64Values) {
+                cen.putLong(value);
+            }
+        }
+    }
+
+    /**
+     * 只包含中央目录和结束记录的ZIP文件（中央目录偏移为0），足以测试中央目录解析
+     */
+    private File zipWithCentralDirectory(ByteBuffer cen, int totalEntries) throws IOException {
+        int cenSize = cen.position();
+        ByteBuffer zipData = ByteBuffer.allocate(cenSize + 22).order(ByteOrder.LITTLE_ENDIAN);
+        zipData.put(cen.array(), 0, cenSize);
+        zipData.putInt(0x06054b50).putShort((short) 0).putShort((short) 0);
+        zipData.putShort((short) totalEntries).putShort((short) totalEntries);
+        zipData.putInt(cenSize).putInt(0).putShort((short) 0);
+        File zip = newZipFile();
+        Files.write(zip.toPath(), zipData.array());
+        return zip;
+    }
+
+    private File newZipFile() throws IOException {
+        File zip = File.createTempFile("zip-names", ".zip");
+        zipFiles.add(zip);
+        return zip;
+    }
+}